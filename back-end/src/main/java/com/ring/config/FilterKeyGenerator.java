@@ -0,0 +1,46 @@
+package com.ring.config;
+
+import com.ring.utils.SearchTextUtil;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Cache key generator for filter parameters. Equivalent filters share one key:
+ * strings are folded like search keywords and collections are de-duplicated and
+ * sorted, so {@code pubIds=2,1} and {@code pubIds=1,2,2} hit the same entry.
+ */
+@Component("filterKeyGenerator")
+public class FilterKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return key(method.getName(), params);
+    }
+
+    public String key(String name, Object... params) {
+        StringBuilder key = new StringBuilder(name);
+        for (Object param : params) {
+            key.append('|').append(normalize(param));
+        }
+        return key.toString();
+    }
+
+    private String normalize(Object param) {
+        if (param == null) return "";
+        if (param instanceof String text) return SearchTextUtil.fold(text);
+        if (param instanceof Collection<?> values) {
+            return values.stream()
+                    .filter(Objects::nonNull)
+                    .map(String::valueOf)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.joining(","));
+        }
+        return String.valueOf(param);
+    }
+}
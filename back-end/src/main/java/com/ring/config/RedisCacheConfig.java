@@ -5,13 +5,32 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ring.config.cache.CacheSerializerSettings;
+import com.ring.config.cache.CompactRedisSerializer;
+import com.ring.config.cache.LocalCacheSettings;
+import com.ring.config.cache.MeteredRedisCacheWriter;
+import com.ring.config.cache.StampedeSettings;
+import com.ring.config.cache.TaggingCacheResolver;
+import com.ring.config.cache.TwoLevelCacheManager;
+import com.ring.service.CacheTagService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -20,11 +39,37 @@ import java.time.Duration;
 
 @EnableCaching
 @Configuration
-public class RedisCacheConfig {
+public class RedisCacheConfig implements CachingConfigurer {
 
-        public RedisCacheConfiguration cacheConfiguration(Duration duration) {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        // Lazy, the resolver is only built once every bean is created
+        private final ObjectProvider<TwoLevelCacheManager> cacheManagerProvider;
+        private final ObjectProvider<CacheTagService> cacheTagServiceProvider;
+        private final CacheSerializerSettings serializerSettings;
+
+        public RedisCacheConfig(ObjectProvider<TwoLevelCacheManager> cacheManagerProvider,
+                        ObjectProvider<CacheTagService> cacheTagServiceProvider,
+                        CacheSerializerSettings serializerSettings) {
+                this.cacheManagerProvider = cacheManagerProvider;
+                this.cacheTagServiceProvider = cacheTagServiceProvider;
+                this.serializerSettings = serializerSettings;
+        }
+
+        /**
+         * Serializer of cached values, as Smile with a JSON fallback for values
+         * written by earlier deploys.
+         */
+        @Bean
+        public CompactRedisSerializer valueSerializer() {
+                SmileFactory smileFactory = SmileFactory.builder()
+                                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES) // Class names
+                                .build();
+                return new CompactRedisSerializer(configure(new ObjectMapper(smileFactory)),
+                                new GenericJackson2JsonRedisSerializer(configure(new ObjectMapper())),
+                                serializerSettings);
+        }
+
+        private ObjectMapper configure(ObjectMapper mapper) {
+                return mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                                 .registerModule(new JavaTimeModule())
                                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
                                 .activateDefaultTyping(
@@ -33,7 +78,9 @@ public class RedisCacheConfig {
                                                                 .build(),
                                                 ObjectMapper.DefaultTyping.EVERYTHING,
                                                 JsonTypeInfo.As.PROPERTY);
+        }
 
+        public RedisCacheConfiguration cacheConfiguration(Duration duration) {
                 return RedisCacheConfiguration.defaultCacheConfig()
                                 .entryTtl(duration)
                                 .disableCachingNullValues()
@@ -42,17 +89,69 @@ public class RedisCacheConfig {
                                                                 new StringRedisSerializer()))
                                 .serializeValuesWith(
                                                 RedisSerializationContext.SerializationPair.fromSerializer(
-                                                                new GenericJackson2JsonRedisSerializer(mapper)));
+                                                                valueSerializer()));
         }
 
+        /**
+         * Template for caches that need batch operations the cache abstraction
+         * does not offer (MGET, pipelined writes), sharing the cache serializers.
+         */
         @Bean
-        public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+        public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+                RedisTemplate<String, Object> template = new RedisTemplate<>();
+                template.setConnectionFactory(redisConnectionFactory);
+                template.setKeySerializer(new StringRedisSerializer());
+                template.setValueSerializer(valueSerializer());
+                return template;
+        }
+
+        /**
+         * Redis caches, with an in-process cache in front of the ones listed in
+         * {@link LocalCacheSettings} and single-flight loading of the ones listed
+         * in {@link StampedeSettings}.
+         */
+        @Bean
+        public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                        StringRedisTemplate stringRedisTemplate,
+                        MeterRegistry meterRegistry,
+                        LocalCacheSettings localCacheSettings,
+                        StampedeSettings stampedeSettings) {
                 RedisCacheConfiguration cacheConfig = cacheConfiguration(Duration.ofMinutes(10));
 
-                return RedisCacheManager.builder(redisConnectionFactory)
+                RedisCacheWriter cacheWriter = new MeteredRedisCacheWriter(
+                                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory),
+                                meterRegistry);
+                RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
                                 .cacheDefaults(cacheConfig)
-                                .withCacheConfiguration("calculate", cacheConfiguration(Duration.ofMinutes(1)))
                                 .withCacheConfiguration("enums", cacheConfiguration(Duration.ofDays(1)))
+                                .withCacheConfiguration("pageCounts", cacheConfiguration(Duration.ofMinutes(30)))
                                 .build();
+                redisCacheManager.afterPropertiesSet(); // Not a bean, load the configured caches
+                return new TwoLevelCacheManager(redisCacheManager,
+                                stringRedisTemplate,
+                                meterRegistry,
+                                localCacheSettings,
+                                stampedeSettings);
+        }
+
+        /**
+         * Resolves caches from {@link #cacheManager}, recording the tags of
+         * entries cached by methods annotated with
+         * {@link com.ring.config.cache.CacheTags}.
+         */
+        @Override
+        public CacheResolver cacheResolver() {
+                return new TaggingCacheResolver(cacheManagerProvider.getObject(),
+                                cacheTagServiceProvider.getObject());
+        }
+
+        @Bean
+        public RedisMessageListenerContainer cacheInvalidationContainer(
+                        RedisConnectionFactory redisConnectionFactory,
+                        TwoLevelCacheManager cacheManager) {
+                RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+                container.setConnectionFactory(redisConnectionFactory);
+                container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.CHANNEL));
+                return container;
         }
 }
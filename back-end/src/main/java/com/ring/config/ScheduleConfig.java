@@ -0,0 +1,12 @@
+package com.ring.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class to enable scheduled tasks.
+ */
+@Configuration
+@EnableScheduling
+public class ScheduleConfig {
+}
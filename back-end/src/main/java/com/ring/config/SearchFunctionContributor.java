@@ -0,0 +1,30 @@
+package com.ring.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the PostgreSQL full-text search functions used by catalog queries.
+ * The vector expression must stay identical to the one indexed by
+ * {@link SearchIndexLoader} for the GIN index to be used.
+ */
+public class SearchFunctionContributor implements FunctionContributor {
+
+    public static final String SEARCH_VECTOR = "to_tsvector('simple', coalesce(?1, ''))";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicTypeRegistry typeRegistry = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+
+        functionContributions.getFunctionRegistry().registerPattern(
+                "fts_match",
+                "(" + SEARCH_VECTOR + " @@ to_tsquery('simple', ?2))",
+                typeRegistry.resolve(StandardBasicTypes.BOOLEAN));
+        functionContributions.getFunctionRegistry().registerPattern(
+                "fts_rank",
+                "ts_rank(" + SEARCH_VECTOR + ", to_tsquery('simple', ?2))",
+                typeRegistry.resolve(StandardBasicTypes.DOUBLE));
+    }
+}
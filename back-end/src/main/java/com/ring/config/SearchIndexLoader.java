@@ -0,0 +1,67 @@
+package com.ring.config;
+
+import com.ring.service.BookSearchService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * A component that prepares catalog search when the Spring application context
+ * is refreshed: creates the search indexes Hibernate cannot generate and
+ * builds the search text of books that do not have one yet.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexLoader implements
+        ApplicationListener<ContextRefreshedEvent> {
+
+    private static final List<String> STATEMENTS = List.of(
+            "create extension if not exists pg_trgm",
+            "create index if not exists idx_book_search_trgm on book using gin (search_text gin_trgm_ops)",
+            "create index if not exists idx_book_search_fts on book using gin ("
+                    + SearchFunctionContributor.SEARCH_VECTOR.replace("?1", "search_text") + ")");
+
+    boolean alreadySetup = false;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookSearchService searchService;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * This method is called when the application context is refreshed.
+     * <p>
+     * Statements are idempotent; a failing one (e.g. missing privilege to
+     * create the extension) is logged and search falls back to unindexed scans.
+     * </p>
+     *
+     * @param event The event that indicates the application context has been
+     *              refreshed.
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (alreadySetup)
+            return;
+
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                log.warn("Could not execute search setup statement [{}]: {}", statement, e.getMessage());
+            }
+        }
+
+        int indexed = searchService.indexMissing();
+        if (indexed > 0)
+            log.info("Built search text for {} books", indexed);
+
+        alreadySetup = true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ring.config.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration class named {@link CacheSerializerSettings} for the format of cached
+ * values, see {@link CompactRedisSerializer}. Values are always read in both
+ * formats, so a deploy can first ship with {@code JSON} while older instances are
+ * running and switch to {@code SMILE} once they are gone.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ring.cache.serializer")
+public class CacheSerializerSettings {
+
+    public enum Format {
+        JSON,
+        SMILE
+    }
+
+    private Format format = Format.JSON;
+    private int compressThreshold = 1024; // Bytes
+
+}
@@ -0,0 +1,40 @@
+package com.ring.config.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Kinds of entities cache entries are tagged with, see {@link CacheTags}. A tag is
+ * {@code kind:id}, or {@code kind:*} for an entry not narrowed to one entity of
+ * that kind.
+ */
+public enum CacheTag {
+    USER,
+    SHOP,
+    BOOK;
+
+    public static final String ANY = "*";
+
+    public String of(Object id) {
+        return id != null ? prefix() + id : any();
+    }
+
+    public List<String> of(Collection<?> ids) {
+        return ids.stream().map(this::of).toList();
+    }
+
+    public String any() {
+        return prefix() + ANY;
+    }
+
+    private String prefix() {
+        return name().toLowerCase() + ":";
+    }
+
+    /**
+     * Returns the {@code kind:*} tag of the same kind as the given tag.
+     */
+    public static String anyOf(String tag) {
+        return tag.substring(0, tag.indexOf(':') + 1) + ANY;
+    }
+}
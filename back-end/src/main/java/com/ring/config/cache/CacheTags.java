@@ -0,0 +1,30 @@
+package com.ring.config.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tags the entries a {@code @Cacheable} method caches with the entities they are
+ * read from, so writes can evict them through
+ * {@link com.ring.service.CacheTagService} instead of clearing the whole cache.
+ * Each attribute is a SpEL expression over the method arguments, giving an ID or a
+ * collection of IDs.
+ * <p>
+ * An entry is tagged with the IDs that are set. When none is, the entry is not
+ * narrowed to any entity and is tagged {@code kind:*} for every declared kind,
+ * which is evicted by any write to that kind.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheTags {
+
+    String user() default "";
+
+    String shop() default "";
+
+    String book() default "";
+}
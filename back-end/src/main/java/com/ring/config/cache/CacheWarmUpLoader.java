@@ -0,0 +1,144 @@
+package com.ring.config.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A component that warms the caches once the application is ready by replaying the
+ * requests listed in {@link WarmUpSettings} against this instance, a bounded number
+ * at a time. Replaying the requests keeps the cache keys identical to the ones
+ * clients produce.
+ * <p>
+ * Spring Boot only marks the instance as accepting traffic after the ready event
+ * listeners return, so the readiness probe keeps the instance out of rotation until
+ * the warm-up completes or times out. Failed requests are logged and skipped.
+ * </p>
+ * <p>
+ * Reads ignore interrupts, so an entry cancelled by the run timeout keeps its daemon
+ * thread until the request timeout, which should stay well below it.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheWarmUpLoader implements
+        ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+
+    private final WarmUpSettings settings;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final RestTemplateBuilder restTemplateBuilder;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * This method is called when the application is ready, before it is marked as
+     * accepting traffic.
+     *
+     * @param event The event that indicates the application is ready.
+     */
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        warmUp();
+    }
+
+    /**
+     * Replays the configured requests, waiting until they complete or the run
+     * times out.
+     *
+     * @return the number of entries warmed.
+     */
+    public int warmUp() {
+        String port = environment.getProperty("local.server.port");
+        if (!settings.isEnabled() || settings.getPaths().isEmpty() || port == null)
+            return 0; // No web server in tests
+
+        String baseUrl = "http://localhost:" + port + environment.getProperty("server.servlet.context-path", "");
+        RestTemplate restTemplate = restTemplateBuilder
+                .connectTimeout(CONNECT_TIMEOUT)
+                .readTimeout(settings.getRequestTimeout())
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, settings.getConcurrency()),
+                new ThreadFactoryBuilder().setNameFormat("cache-warm-up-%d").setDaemon(true).build());
+
+        long start = System.currentTimeMillis();
+        try {
+            List<Callable<Boolean>> tasks = settings.getPaths().stream()
+                    .map(path -> (Callable<Boolean>) () -> warm(restTemplate, baseUrl, path))
+                    .toList();
+            List<Future<Boolean>> results = executor.invokeAll(tasks,
+                    settings.getTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS);
+
+            int warmed = (int) results.stream().filter(this::isWarmed).count();
+            log.info("Warmed {} of {} cache entries in {} ms",
+                    warmed, tasks.size(), System.currentTimeMillis() - start);
+            return warmed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean warm(RestTemplate restTemplate, String baseUrl, String path) {
+        long start = System.nanoTime();
+        boolean isWarmed = false;
+        try {
+            HttpStatusCode status = restTemplate.execute(URI.create(baseUrl + path),
+                    HttpMethod.GET,
+                    null,
+                    ClientHttpResponse::getStatusCode);
+            isWarmed = status != null && status.is2xxSuccessful();
+        } catch (RestClientException | IllegalArgumentException e) {
+            log.warn("Failed to warm {}: {}", path, e.getMessage());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("ring.cache.warmup")
+                .tags("entry", path, "result", isWarmed ? "warmed" : "failed")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("{} {} in {} ms", isWarmed ? "Warmed" : "Failed to warm", path, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return isWarmed;
+    }
+
+    // Timed out entries are cancelled
+    private boolean isWarmed(Future<Boolean> result) {
+        try {
+            return result.get();
+        } catch (CancellationException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ring.config.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serializer of cached values as Smile, the binary form of JSON, sharing the type
+ * handling of the JSON serializer. Repeated property names and class names are
+ * written once per value, and bodies above the configured threshold are deflated.
+ * <p>
+ * Values start with a header of {@link #MAGIC}, the format {@link #VERSION} and
+ * flags. Values without it were written as plain JSON and are still read, while a
+ * newer version is read as a miss so instances of an older deploy recompute it.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public static final byte MAGIC = (byte) 0xB5; // Never starts a JSON document
+    public static final byte VERSION = 1;
+
+    private static final byte SMILE = 0x01;
+    private static final byte DEFLATED = 0x02;
+    private static final int HEADER_SIZE = 3;
+
+    private final ObjectMapper smileMapper;
+    private final GenericJackson2JsonRedisSerializer jsonSerializer;
+    private final CacheSerializerSettings settings;
+
+    public CompactRedisSerializer(ObjectMapper smileMapper,
+            GenericJackson2JsonRedisSerializer jsonSerializer,
+            CacheSerializerSettings settings) {
+        this.smileMapper = smileMapper;
+        this.jsonSerializer = jsonSerializer;
+        this.settings = settings;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (settings.getFormat() == CacheSerializerSettings.Format.JSON) return jsonSerializer.serialize(value);
+
+        try {
+            byte[] body = smileMapper.writeValueAsBytes(value);
+            boolean isDeflated = body.length >= settings.getCompressThreshold();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + body.length);
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(isDeflated ? SMILE | DEFLATED : SMILE);
+            if (isDeflated) {
+                deflate(body, out);
+            } else {
+                out.write(body);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not write Smile: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+        if (bytes[0] != MAGIC) return jsonSerializer.deserialize(bytes); // Written before the header
+        if (bytes.length < HEADER_SIZE || bytes[1] > VERSION || (bytes[2] & SMILE) == 0) return null;
+
+        try {
+            if ((bytes[2] & DEFLATED) == 0) {
+                return smileMapper.readValue(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, Object.class);
+            }
+            try (InputStream in = new InflaterInputStream(
+                    new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE))) {
+                return smileMapper.readValue(in, Object.class);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Could not read Smile: " + e.getMessage(), e);
+        }
+    }
+
+    private void deflate(byte[] body, ByteArrayOutputStream out) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater)) {
+            deflated.write(body);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ring.config.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class named {@link LocalCacheSettings} for the in-process caches
+ * kept in front of Redis by {@link TwoLevelCacheManager}. The TTL should stay
+ * below the Redis TTL of every listed cache.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ring.cache.local")
+public class LocalCacheSettings {
+
+    private List<String> names = new ArrayList<>();
+    private long maxSize = 1000;
+    private Duration ttl = Duration.ofMinutes(1);
+
+}
@@ -0,0 +1,112 @@
+package com.ring.config.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache writer recording the size of every value written to a Redis cache in the
+ * {@code ring.cache.payload.size} histogram, tagged with the cache name.
+ */
+public class MeteredRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter writer;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> sizes = new ConcurrentHashMap<>();
+
+    public MeteredRedisCacheWriter(RedisCacheWriter writer, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return writer.get(name, key);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key, Duration ttl) {
+        return writer.get(name, key, ttl);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key, Supplier<byte[]> valueLoader, Duration ttl, boolean timeToIdleEnabled) {
+        return writer.get(name, key, () -> {
+            byte[] value = valueLoader.get();
+            record(name, value);
+            return value;
+        }, ttl, timeToIdleEnabled);
+    }
+
+    @Override
+    public boolean supportsAsyncRetrieve() {
+        return writer.supportsAsyncRetrieve();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+        return writer.retrieve(name, key, ttl);
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        writer.put(name, key, value, ttl);
+        record(name, value);
+    }
+
+    @Override
+    public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+        record(name, value);
+        return writer.store(name, key, value, ttl);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] existing = writer.putIfAbsent(name, key, value, ttl);
+        if (existing == null) record(name, value);
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        writer.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        writer.clean(name, pattern);
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        writer.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new MeteredRedisCacheWriter(writer.withStatisticsCollector(cacheStatisticsCollector), meterRegistry);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return writer.getCacheStatistics(cacheName);
+    }
+
+    private void record(String name, byte[] value) {
+        if (value == null) return;
+        sizes.computeIfAbsent(name, cacheName -> DistributionSummary.builder("ring.cache.payload.size")
+                .baseUnit("bytes")
+                .tags("cache", cacheName)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(value.length);
+    }
+}
@@ -0,0 +1,258 @@
+package com.ring.config.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache loading each missing key once per instance: concurrent misses of a key wait
+ * for the first one instead of running the same query. With the distributed lock
+ * enabled, instances also take a Redis lock per key and the others poll the cache
+ * until the value shows up or the wait runs out, then load it themselves.
+ * <p>
+ * With early refresh enabled, values are stored as {@link StampedValue} so a hit can
+ * refresh an entry before it expires, with a probability growing as the expiry
+ * nears and with the time the load took (XFetch). The refresh runs in the request
+ * that drew it while concurrent readers keep being served the current value.
+ */
+public class SingleFlightCache implements Cache {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    private static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final Cache cache;
+    private final Function<Object, Duration> ttl;
+    private final StringRedisTemplate redisTemplate;
+    private final StampedeSettings settings;
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder awaited = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public SingleFlightCache(Cache cache,
+            Function<Object, Duration> ttl,
+            StringRedisTemplate redisTemplate,
+            StampedeSettings settings) {
+        this.cache = cache;
+        this.ttl = ttl;
+        this.redisTemplate = redisTemplate;
+        this.settings = settings;
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return cache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = cache.get(key);
+        if (wrapper == null) return null;
+        return wrapper.get() instanceof StampedValue stamped ? new SimpleValueWrapper(stamped.value()) : wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = cache.get(key);
+        if (wrapper != null) {
+            if (!(wrapper.get() instanceof StampedValue stamped)) return (T) wrapper.get();
+            if (!isExpiring(stamped)) return (T) stamped.value();
+
+            // Refresh early, unless already loading
+            CompletableFuture<Object> refresh = new CompletableFuture<>();
+            if (loading.putIfAbsent(key, refresh) != null) return (T) stamped.value();
+            refreshes.increment();
+            try {
+                return (T) load(key, valueLoader, refresh);
+            } catch (ValueRetrievalException e) {
+                log.warn("Failed to refresh {} of cache {}: {}", key, getName(), e.getMessage());
+                return (T) stamped.value();
+            }
+        }
+
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, own);
+        if (running != null) {
+            shared.increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        return (T) (settings.isDistributedLock() ? loadLocked(key, valueLoader, own) : load(key, valueLoader, own));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cache.put(key, stamp(key, value, 0));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = cache.putIfAbsent(key, stamp(key, value, 0));
+        if (existing == null) return null;
+        return existing.get() instanceof StampedValue stamped ? new SimpleValueWrapper(stamped.value()) : existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return cache.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return cache.invalidate();
+    }
+
+    /**
+     * Registers load counts tagged with the cache name: {@code load} for queries run,
+     * {@code shared} and {@code awaited} for duplicate loads avoided on this instance
+     * and across instances, {@code refresh} for early refreshes.
+     */
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "load", loads);
+        bind(registry, "shared", shared);
+        bind(registry, "awaited", awaited);
+        bind(registry, "refresh", refreshes);
+    }
+
+    private void bind(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("ring.cache.loads", count, LongAdder::doubleValue)
+                .tags("cache", getName(), "result", result)
+                .register(registry);
+    }
+
+    private Object load(Object key, Callable<?> valueLoader, CompletableFuture<Object> future) {
+        try {
+            long start = System.currentTimeMillis();
+            Object value = valueLoader.call();
+            loads.increment();
+            if (value != null) cache.put(key, stamp(key, value, System.currentTimeMillis() - start));
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private Object loadLocked(Object key, Callable<?> valueLoader, CompletableFuture<Object> future) {
+        String lockKey = "cacheLock::" + getName() + "::" + key;
+        String token = UUID.randomUUID().toString();
+        boolean isLocked = lock(lockKey, token);
+
+        // Another instance is loading, wait for its value
+        if (!isLocked) {
+            long deadline = System.currentTimeMillis() + settings.getLockWait().toMillis();
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(POLL_INTERVAL.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                ValueWrapper wrapper = get(key);
+                if (wrapper != null) {
+                    awaited.increment();
+                    future.complete(wrapper.get());
+                    loading.remove(key, future);
+                    return wrapper.get();
+                }
+            }
+        }
+
+        try {
+            return load(key, valueLoader, future);
+        } finally {
+            if (isLocked) unlock(lockKey, token);
+        }
+    }
+
+    // Loads without the lock when Redis is unavailable
+    private boolean lock(String lockKey, String token) {
+        try {
+            return !Boolean.FALSE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, token, settings.getLockTtl()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to lock {}: {}", lockKey, e.getMessage());
+            return true;
+        }
+    }
+
+    private void unlock(String lockKey, String token) {
+        try {
+            redisTemplate.execute(UNLOCK, List.of(lockKey), token);
+        } catch (DataAccessException e) {
+            log.warn("Failed to unlock {}: {}", lockKey, e.getMessage());
+        }
+    }
+
+    private Object stamp(Object key, Object value, long delta) {
+        if (value == null || !settings.isEarlyRefresh()) return value;
+        return new StampedValue(value, delta, System.currentTimeMillis() + ttl.apply(key).toMillis());
+    }
+
+    // XFetch: -ln(random) is exponentially distributed, so the chance grows near expiry
+    private boolean isExpiring(StampedValue stamped) {
+        if (stamped.delta() <= 0) return false;
+        double gap = -stamped.delta() * settings.getBeta() * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= stamped.expiresAt();
+    }
+}
@@ -0,0 +1,8 @@
+package com.ring.config.cache;
+
+/**
+ * Cached value stored by {@link SingleFlightCache} with how long it took to load and
+ * when its Redis entry expires, in milliseconds.
+ */
+public record StampedValue(Object value, long delta, long expiresAt) {
+}
@@ -0,0 +1,35 @@
+package com.ring.config.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class named {@link StampedeSettings} for the caches loaded through
+ * {@link SingleFlightCache}. Their {@code @Cacheable} methods must be
+ * {@code sync = true}, or misses bypass the single-flight load.
+ * <p>
+ * Early refresh stores values as {@link StampedValue}, which instances of a deploy
+ * before it cannot read. Both forms are always read, so a deploy can first ship
+ * with {@code earlyRefresh} off while older instances are running and turn it on
+ * once they are gone.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ring.cache.stampede")
+public class StampedeSettings {
+
+    private List<String> names = new ArrayList<>();
+    private boolean distributedLock = false;
+    private Duration lockTtl = Duration.ofSeconds(10);
+    private Duration lockWait = Duration.ofSeconds(2);
+    private boolean earlyRefresh = false;
+    private double beta = 1.0; // Above 1 refreshes earlier
+
+}
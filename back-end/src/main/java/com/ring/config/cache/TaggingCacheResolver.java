@@ -0,0 +1,179 @@
+package com.ring.config.cache;
+
+import com.ring.service.CacheTagService;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Resolves caches like {@link SimpleCacheResolver}, wrapping the caches of a
+ * {@code @Cacheable} method annotated with {@link CacheTags} so the entries it
+ * caches are recorded under their tags first. An entry that could not be tagged
+ * is not cached, as no write could evict it.
+ */
+public class TaggingCacheResolver extends SimpleCacheResolver {
+
+    private final CacheTagService cacheTags;
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, Map<CacheTag, Expression>> expressions = new ConcurrentHashMap<>();
+
+    public TaggingCacheResolver(CacheManager cacheManager, CacheTagService cacheTags) {
+        super(cacheManager);
+        this.cacheTags = cacheTags;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        Collection<? extends Cache> caches = super.resolveCaches(context);
+        if (!(context.getOperation() instanceof CacheableOperation)) return caches;
+
+        Method method = AopUtils.getMostSpecificMethod(context.getMethod(),
+                AopProxyUtils.ultimateTargetClass(context.getTarget()));
+        Map<CacheTag, Expression> tagExpressions = expressions.computeIfAbsent(method, this::parse);
+        if (tagExpressions.isEmpty()) return caches;
+
+        List<String> tags = tags(tagExpressions,
+                new MethodBasedEvaluationContext(null, method, context.getArgs(), parameterNames));
+        return caches.stream().map(cache -> new TaggedCache(cache, tags)).toList();
+    }
+
+    private Map<CacheTag, Expression> parse(Method method) {
+        Map<CacheTag, Expression> result = new EnumMap<>(CacheTag.class);
+        CacheTags annotation = AnnotatedElementUtils.findMergedAnnotation(method, CacheTags.class);
+        if (annotation == null) return result;
+
+        put(result, CacheTag.USER, annotation.user());
+        put(result, CacheTag.SHOP, annotation.shop());
+        put(result, CacheTag.BOOK, annotation.book());
+        return result;
+    }
+
+    private void put(Map<CacheTag, Expression> result, CacheTag tag, String expression) {
+        if (!expression.isEmpty()) result.put(tag, parser.parseExpression(expression));
+    }
+
+    private List<String> tags(Map<CacheTag, Expression> tagExpressions, EvaluationContext evaluationContext) {
+        List<String> tags = new ArrayList<>();
+        tagExpressions.forEach((tag, expression) -> {
+            Object value = expression.getValue(evaluationContext);
+            if (value instanceof Collection<?> ids) {
+                ids.stream().filter(id -> id != null).forEach(id -> tags.add(tag.of(id)));
+            } else if (value != null) {
+                tags.add(tag.of(value));
+            }
+        });
+
+        // Not narrowed to any entity
+        if (tags.isEmpty()) tagExpressions.keySet().forEach(tag -> tags.add(tag.any()));
+        return tags;
+    }
+
+    private class TaggedCache implements Cache {
+
+        private final Cache cache;
+        private final List<String> tags;
+
+        private TaggedCache(Cache cache, List<String> tags) {
+            this.cache = cache;
+            this.tags = tags;
+        }
+
+        @Override
+        public String getName() {
+            return cache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return cache.get(key, type);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper wrapper = cache.get(key);
+            if (wrapper != null) return (T) wrapper.get();
+            if (cacheTags.tag(getName(), key, tags)) return cache.get(key, valueLoader);
+
+            try {
+                return valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return cache.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return cache.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (cacheTags.tag(getName(), key, tags)) cache.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return cacheTags.tag(getName(), key, tags) ? cache.putIfAbsent(key, value) : null;
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            return cache.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return cache.invalidate();
+        }
+    }
+}
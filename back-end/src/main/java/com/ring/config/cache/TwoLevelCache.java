@@ -0,0 +1,187 @@
+package com.ring.config.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache reading from an in-process Caffeine cache (L1) before the Redis cache (L2).
+ * Writes go to Redis first, then replace the local entry and are published so the
+ * other instances drop theirs. Local entries are shared instances, so cached values
+ * must not be modified by callers.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache remote;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final BiConsumer<String, String> publisher; // Cache name and key, null key for all
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+
+    public TwoLevelCache(String name,
+            Cache remote,
+            com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+            BiConsumer<String, String> publisher) {
+        super(false);
+        this.name = name;
+        this.remote = remote;
+        this.local = local;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        localMisses.increment();
+
+        ValueWrapper wrapper = remote.get(key);
+        value = wrapper != null ? wrapper.get() : null;
+        if (value == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        local.put(localKey, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return (T) value;
+        }
+        localMisses.increment();
+
+        boolean[] loaded = { false };
+        T result = remote.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        (loaded[0] ? remoteMisses : remoteHits).increment();
+        if (result != null) local.put(localKey, result);
+        return result;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        if (value != null) {
+            local.put(localKey(key), value);
+        } else {
+            local.invalidate(localKey(key));
+        }
+        publisher.accept(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        if (existing == null) {
+            local.put(localKey(key), value);
+            publisher.accept(name, localKey(key));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        publisher.accept(name, localKey(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        local.invalidate(localKey(key));
+        publisher.accept(name, localKey(key));
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        publisher.accept(name, null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remote.invalidate();
+        local.invalidateAll();
+        publisher.accept(name, null);
+        return invalidated;
+    }
+
+    /**
+     * Drops a local entry after another instance changed it.
+     */
+    public void evictLocal(String key) {
+        local.invalidate(key);
+    }
+
+    /**
+     * Drops every local entry after another instance cleared the cache.
+     */
+    public void clearLocal() {
+        local.invalidateAll();
+    }
+
+    /**
+     * Registers lookup counts and hit ratios of both levels, tagged with the cache
+     * name. L2 counts only lookups that missed L1.
+     */
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "l1", localHits, localMisses);
+        bind(registry, "l2", remoteHits, remoteMisses);
+    }
+
+    private void bind(MeterRegistry registry, String level, LongAdder hits, LongAdder misses) {
+        FunctionCounter.builder("ring.cache.gets", hits, LongAdder::doubleValue)
+                .tags("cache", name, "level", level, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("ring.cache.gets", misses, LongAdder::doubleValue)
+                .tags("cache", name, "level", level, "result", "miss")
+                .register(registry);
+        Gauge.builder("ring.cache.hit.ratio", () -> {
+            double total = hits.sum() + misses.sum();
+            return total == 0 ? 0 : hits.sum() / total;
+        })
+                .tags("cache", name, "level", level)
+                .register(registry);
+    }
+
+    // Same string Redis keys are built from, so instances agree on it
+    private String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
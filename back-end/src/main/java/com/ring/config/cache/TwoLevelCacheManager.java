@@ -0,0 +1,124 @@
+package com.ring.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache manager adding a {@link TwoLevelCache} in front of the Redis caches listed
+ * in {@link LocalCacheSettings}; other caches are served by Redis alone. Writes are
+ * published on {@link #CHANNEL} and every other instance drops its local entry when
+ * it receives them. Pub/sub does not retry, so a lost message leaves an instance
+ * stale until the local TTL runs out.
+ * <p>
+ * Caches listed in {@link StampedeSettings} are loaded through a
+ * {@link SingleFlightCache} on top.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    public static final String CHANNEL = "cache::invalidate";
+
+    private final String node = UUID.randomUUID().toString();
+    private final CacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final LocalCacheSettings settings;
+    private final StampedeSettings stampedeSettings;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+    private final Map<String, TwoLevelCache> localCaches = new ConcurrentHashMap<>();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public TwoLevelCacheManager(CacheManager remote,
+            StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            LocalCacheSettings settings,
+            StampedeSettings stampedeSettings) {
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.settings = settings;
+        this.stampedeSettings = stampedeSettings;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    /**
+     * Drops the local entry another instance changed. Messages are
+     * {@code node \n cache [\n key]}, without a key for a cleared cache.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 3);
+        if (parts.length < 2 || parts[0].equals(node)) return;
+
+        TwoLevelCache cache = localCaches.get(parts[1]);
+        if (cache != null) {
+            if (parts.length == 3) {
+                cache.evictLocal(parts[2]);
+            } else {
+                cache.clearLocal();
+            }
+        }
+    }
+
+    private Cache createCache(String name) {
+        Cache redisCache = remote.getCache(name);
+        if (redisCache == null) return null;
+
+        Cache cache = redisCache;
+        if (settings.getNames().contains(name)) {
+            TwoLevelCache twoLevelCache = new TwoLevelCache(name,
+                    cache,
+                    Caffeine.newBuilder()
+                            .maximumSize(settings.getMaxSize())
+                            .expireAfterWrite(settings.getTtl())
+                            .build(),
+                    this::publish);
+            twoLevelCache.bindTo(meterRegistry);
+            localCaches.put(name, twoLevelCache);
+            cache = twoLevelCache;
+        }
+
+        if (stampedeSettings.getNames().contains(name) && redisCache instanceof RedisCache redis) {
+            SingleFlightCache singleFlightCache = new SingleFlightCache(cache,
+                    key -> redis.getCacheConfiguration().getTtlFunction().getTimeToLive(key, null),
+                    redisTemplate,
+                    stampedeSettings);
+            singleFlightCache.bindTo(meterRegistry);
+            cache = singleFlightCache;
+        }
+        return cache;
+    }
+
+    private void publish(String name, String key) {
+        String message = node + "\n" + name + (key != null ? "\n" + key : "");
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (DataAccessException e) {
+            log.warn("Failed to publish eviction of cache {}: {}", name, e.getMessage());
+        }
+    }
+}
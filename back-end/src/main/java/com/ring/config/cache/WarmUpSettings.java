@@ -0,0 +1,29 @@
+package com.ring.config.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class named {@link WarmUpSettings} for the requests replayed by
+ * {@link CacheWarmUpLoader}. Paths are public GET requests relative to the context
+ * path, written as the clients send them so they warm the same cache keys.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ring.cache.warm-up")
+public class WarmUpSettings {
+
+    private boolean enabled = true;
+    private List<String> paths = new ArrayList<>();
+    private int concurrency = 4;
+    private Duration timeout = Duration.ofSeconds(60); // Whole run
+    private Duration requestTimeout = Duration.ofSeconds(10); // Read timeout of each request
+
+}
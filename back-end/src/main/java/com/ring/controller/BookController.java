@@ -2,10 +2,14 @@ package com.ring.controller;
 
 import com.ring.config.CurrentAccount;
 import com.ring.dto.request.BookRequest;
+import com.ring.dto.response.CursorResponse;
+import com.ring.dto.response.FacetPagingResponse;
 import com.ring.dto.response.PagingResponse;
 import com.ring.dto.response.books.BookDisplayDTO;
+import com.ring.dto.response.books.BookFacetsDTO;
 import com.ring.model.entity.Account;
 import com.ring.model.enums.BookType;
+import com.ring.model.enums.CountMode;
 import com.ring.service.BookService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -61,10 +65,15 @@ public class BookController {
      * Retrieves books with optional filters and pagination.
      *
      * @param pageSize  size of each page.
-     * @param pageNo    page number.
-     * @param sortBy    sorting field.
+     * @param pageNo    page number, ignored when {@code cursor} is given.
+     * @param cursor    optional keyset cursor; an empty value starts from the first slice and
+     *                  switches the response to {@code nextCursor} paging without a total count.
+     *                  Supports sorting by {@code id}, {@code price}, {@code finalPrice},
+     *                  {@code createdDate}, {@code totalOrders} and {@code rating}.
+     * @param sortBy    sorting field, {@code relevance} ranks keyword matches and
+     *                  {@code finalPrice} sorts by the discounted price.
      * @param sortDir   sorting direction.
-     * @param keyword   keyword to filter books.
+     * @param keyword   keyword to search in titles, authors and shop names, accent-insensitive.
      * @param cateId    optional category ID.
      * @param pubIds    optional list of publisher IDs.
      * @param types     optional list of book types.
@@ -75,11 +84,17 @@ public class BookController {
      * @param rating    minimum rating (default is 0).
      * @param amount    minimum amount (default is 1).
      * @param withDesc  if true, includes descriptions.
-     * @return a {@link ResponseEntity} containing a paginated list of books.
+     * @param withFacets if true, includes category, publisher, type, rating and price counts
+     *                   of the whole result set (paginated mode only).
+     * @param countMode  {@code exact} (default), {@code estimate} to reuse a cached total for
+     *                   the same filter, or {@code none} to skip counting; the response flags
+     *                   {@code approximate} totals.
+     * @return a {@link ResponseEntity} containing a paginated or cursor list of books.
      */
     @GetMapping
     public ResponseEntity<?> getBooks(@RequestParam(value = "pSize", defaultValue = "15") Integer pageSize,
             @RequestParam(value = "pageNo", defaultValue = "0") Integer pageNo,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestParam(value = "sortBy", defaultValue = "id") String sortBy,
             @RequestParam(value = "sortDir", defaultValue = "desc") String sortDir,
             @RequestParam(value = "keyword", defaultValue = "") String keyword,
@@ -92,7 +107,29 @@ public class BookController {
             @RequestParam(value = "toRange", defaultValue = "10000000") Double toRange,
             @RequestParam(value = "rating", defaultValue = "0") Integer rating,
             @RequestParam(value = "amount", defaultValue = "1") Integer amount,
-            @RequestParam(value = "withDesc", defaultValue = "false") Boolean withDesc) {
+            @RequestParam(value = "withDesc", defaultValue = "false") Boolean withDesc,
+            @RequestParam(value = "withFacets", defaultValue = "false") Boolean withFacets,
+            @RequestParam(value = "countMode", defaultValue = "exact") String countMode) {
+        if (cursor != null) {
+            CursorResponse<BookDisplayDTO> books = bookService.getBooksByCursor(
+                    cursor,
+                    pageSize,
+                    sortBy,
+                    sortDir,
+                    keyword,
+                    rating,
+                    amount,
+                    cateId,
+                    pubIds,
+                    types,
+                    shopId,
+                    userId,
+                    fromRange,
+                    toRange,
+                    withDesc);
+            return new ResponseEntity<>(books, HttpStatus.OK);
+        }
+
         PagingResponse<BookDisplayDTO> books = bookService.getBooks(
                 pageNo,
                 pageSize,
@@ -108,7 +145,23 @@ public class BookController {
                 userId,
                 fromRange,
                 toRange,
-                withDesc);
+                withDesc,
+                CountMode.from(countMode));
+
+        if (withFacets) {
+            BookFacetsDTO facets = bookService.getBookFacets(
+                    keyword,
+                    rating,
+                    amount,
+                    cateId,
+                    pubIds,
+                    types,
+                    shopId,
+                    userId,
+                    fromRange,
+                    toRange);
+            return new ResponseEntity<>(new FacetPagingResponse<>(books, facets), HttpStatus.OK);
+        }
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
@@ -148,7 +201,7 @@ public class BookController {
     /**
      * Retrieves keyword suggestions for books.
      *
-     * @param keyword search keyword.
+     * @param keyword search keyword, accent-insensitive prefix of any title word.
      * @return a {@link ResponseEntity} containing list of keyword suggestions.
      */
     @GetMapping("/suggest")
@@ -6,6 +6,7 @@ import com.ring.dto.request.OrderRequest;
 import com.ring.dto.response.PagingResponse;
 import com.ring.dto.response.orders.*;
 import com.ring.model.entity.Account;
+import com.ring.model.enums.CountMode;
 import com.ring.model.enums.OrderStatus;
 import com.ring.model.enums.PaymentType;
 import com.ring.service.OrderService;
@@ -107,6 +108,7 @@ public class OrderController {
      * @param pageNo   page number.
      * @param sortBy   field to sort by.
      * @param sortDir  sorting direction.
+     * @param countMode {@code exact} (default), {@code estimate} or {@code none}.
      * @param currUser the current authenticated seller.
      * @return a page of receipt DTOs.
      */
@@ -119,6 +121,7 @@ public class OrderController {
             @RequestParam(value = "pageNo", defaultValue = "0") Integer pageNo,
             @RequestParam(value = "sortBy", defaultValue = "id") String sortBy,
             @RequestParam(value = "sortDir", defaultValue = "desc") String sortDir,
+            @RequestParam(value = "countMode", defaultValue = "exact") String countMode,
             @CurrentAccount Account currUser) {
         PagingResponse<ReceiptDTO> orders = orderService.getAllReceipts(currUser,
                 shopId,
@@ -127,7 +130,8 @@ public class OrderController {
                 pageNo,
                 pageSize,
                 sortBy,
-                sortDir);
+                sortDir,
+                CountMode.from(countMode));
         return new ResponseEntity<>(orders, HttpStatus.OK);
     }
 
@@ -3,6 +3,7 @@ package com.ring.controller;
 import com.ring.config.CurrentAccount;
 import com.ring.dto.request.ShopRequest;
 import com.ring.model.entity.Account;
+import com.ring.model.enums.CountMode;
 import com.ring.service.ShopService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -66,6 +67,7 @@ public class ShopController {
      * @param sortBy   sorting field.
      * @param sortDir  sorting direction.
      * @param userId   optional filter by user ID.
+     * @param countMode {@code exact} (default), {@code estimate} or {@code none}.
      * @param currUser the current authenticated seller.
      * @return a {@link ResponseEntity} containing the list of shops.
      */
@@ -78,6 +80,7 @@ public class ShopController {
             @RequestParam(value = "sortBy", defaultValue = "id") String sortBy,
             @RequestParam(value = "sortDir", defaultValue = "desc") String sortDir,
             @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "countMode", defaultValue = "exact") String countMode,
             @CurrentAccount Account currUser) {
         return new ResponseEntity<>(shopService.getShops(
                 pageNo,
@@ -86,7 +89,8 @@ public class ShopController {
                 sortDir,
                 keyword,
                 userId,
-                currUser), HttpStatus.OK);
+                currUser,
+                CountMode.from(countMode)), HttpStatus.OK);
     }
 
     /**
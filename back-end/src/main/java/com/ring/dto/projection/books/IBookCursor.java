@@ -0,0 +1,14 @@
+package com.ring.dto.projection.books;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a book slim projection as {@link IBookCursor}, extending
+ * {@link IBookDisplay} with the remaining sort keys needed to build a cursor.
+ */
+public interface IBookCursor extends IBookDisplay {
+
+    Double getFinalPrice();
+
+    LocalDateTime getCreatedDate();
+}
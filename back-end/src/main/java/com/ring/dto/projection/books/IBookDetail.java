@@ -10,7 +10,7 @@ import java.util.List;
 
 /**
  * Represents a detailed book projection as {@link IBookDetail}, containing the book's ID,
- * slug, price, discount, title, description, type, author, amount,
+ * slug, price, discount, title, description, type, author, amount, held,
  * publisher information, category, shop information, book size, publication date,
  * language, weight, preview images, and ratings.
  */
@@ -34,6 +34,8 @@ public interface IBookDetail {
 
     Short getAmount();
 
+    Short getHeld();
+
     IImage getImage();
 
     Integer getPubId();
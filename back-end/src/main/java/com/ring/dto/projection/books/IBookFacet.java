@@ -0,0 +1,22 @@
+package com.ring.dto.projection.books;
+
+import com.ring.model.enums.BookType;
+
+/**
+ * Represents the number of matching books for one combination of facet values
+ * as {@link IBookFacet}.
+ */
+public interface IBookFacet {
+
+    Integer getCateId();
+
+    Integer getPubId();
+
+    BookType getType();
+
+    Integer getRatingBucket();
+
+    Integer getPriceBucket();
+
+    Long getTotal();
+}
@@ -0,0 +1,16 @@
+package com.ring.dto.projection.books;
+
+/**
+ * Represents the searchable fields of a book as {@link IBookSearch}, used to
+ * (re)build its normalized search text.
+ */
+public interface IBookSearch {
+
+    Long getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    String getShopName();
+}
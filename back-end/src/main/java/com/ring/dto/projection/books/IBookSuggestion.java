@@ -0,0 +1,14 @@
+package com.ring.dto.projection.books;
+
+/**
+ * Represents a book title with its popularity as {@link IBookSuggestion}, used
+ * to build the in-memory suggestion index.
+ */
+public interface IBookSuggestion {
+
+    Long getId();
+
+    String getTitle();
+
+    Integer getTotalOrders();
+}
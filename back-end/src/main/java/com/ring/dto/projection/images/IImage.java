@@ -1,11 +1,16 @@
 package com.ring.dto.projection.images;
 
+import java.util.Map;
+
 /**
- * Represents an image projection as {@link IImage}, containing the image's public ID and URL.
+ * Represents an image projection as {@link IImage}, containing the image's public ID, URL and
+ * precomputed responsive URLs.
  */
 public interface IImage {
 
     String getPublicId();
 
     String getUrl();
+
+    Map<String, String> getSrcSet();
 }
@@ -0,0 +1,22 @@
+package com.ring.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+
+/**
+ * Keyset paginated response. {@code nextCursor} is an opaque token to pass back
+ * as {@code cursor} for the next slice, {@code null} on the last one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorResponse<T> {
+
+    private Collection<T> content;
+    private String nextCursor;
+    private Integer size;
+    private boolean empty;
+}
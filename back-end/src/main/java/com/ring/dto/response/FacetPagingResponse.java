@@ -0,0 +1,21 @@
+package com.ring.dto.response;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Paginated response carrying the facet counts of the whole result set.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class FacetPagingResponse<T, F> extends PagingResponse<T> {
+
+    private F facets;
+
+    public FacetPagingResponse(PagingResponse<T> page, F facets) {
+        super(page.getContent(), page.getTotalPages(), page.getTotalElements(), page.getSize(), page.getPage(), page.isEmpty(), page.isApproximate());
+        this.facets = facets;
+    }
+}
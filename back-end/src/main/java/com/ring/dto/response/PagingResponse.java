@@ -15,13 +15,19 @@ public class PagingResponse<T> {
     private Integer size;
     private Integer page;
     private boolean empty;
+    private boolean approximate;
 
     public PagingResponse(Collection<T> content, Integer totalPages, long totalElements, Integer size, Integer page, boolean empty) {
+        this(content, totalPages, totalElements, size, page, empty, false);
+    }
+
+    public PagingResponse(Collection<T> content, Integer totalPages, long totalElements, Integer size, Integer page, boolean empty, boolean approximate) {
         this.content = content;
         this.totalPages = totalPages;
         this.totalElements = totalElements;
         this.size = size;
         this.page = page;
         this.empty = empty;
+        this.approximate = approximate;
     }
 }
@@ -27,6 +27,7 @@ public record BookDetailDTO(Long id,
                             BookType type,
                             String author,
                             Short amount,
+                            Short held,
                             Long shopId,
                             String shopName,
                             PublisherDTO publisher,
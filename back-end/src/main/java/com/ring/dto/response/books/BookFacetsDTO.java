@@ -0,0 +1,20 @@
+package com.ring.dto.response.books;
+
+import com.ring.model.enums.BookType;
+import lombok.Builder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the facet counts of a book search as {@link BookFacetsDTO}, keyed by
+ * category ID, publisher ID, book type and rating bucket (floor of the average rating).
+ */
+@Builder
+public record BookFacetsDTO(Map<Integer, Long> categories,
+                            Map<Integer, Long> publishers,
+                            Map<BookType, Long> types,
+                            Map<Integer, Long> ratings,
+                            List<PriceFacetDTO> prices) {
+
+}
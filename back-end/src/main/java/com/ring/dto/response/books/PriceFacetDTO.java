@@ -0,0 +1,11 @@
+package com.ring.dto.response.books;
+
+/**
+ * Represents a price facet bucket as {@link PriceFacetDTO}, {@code to} is null for
+ * the open-ended last bucket.
+ */
+public record PriceFacetDTO(Double from,
+                            Double to,
+                            Long count) {
+
+}
@@ -0,0 +1,27 @@
+package com.ring.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+
+/**
+ * Exception class named {@link OutOfStockException} thrown when a stock reservation fails,
+ * carrying the IDs of the books that could not be reserved.
+ */
+@Getter
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class OutOfStockException extends RuntimeException {
+
+    private final String error;
+    private final String message;
+    private final List<Long> bookIds;
+
+    public OutOfStockException(List<Long> bookIds) {
+        super();
+        this.error = "Product out of stock!";
+        this.message = "Sản phẩm không đủ số lượng!";
+        this.bookIds = bookIds;
+    }
+}
@@ -130,6 +130,21 @@ public class ApplicationExceptionHandler{
         );
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(OutOfStockException.class)
+    public ExceptionResponse handleOutOfStockException(OutOfStockException e) {
+        Map<String, String> errorsMap = new HashMap<>();
+
+        //Map each failed book
+        e.getBookIds().forEach(id -> errorsMap.put(String.valueOf(id), e.getMessage()));
+        return new ExceptionResponse(
+                HttpStatus.CONFLICT.value(),
+                e.getError(),
+                errorsMap,
+                e.getMessage()
+        );
+    }
+
     @ResponseStatus(HttpStatus.EXPECTATION_FAILED)
     @ExceptionHandler(ImageResizerException.class)
     public ExceptionResponse handleImageResizerException(ImageResizerException e) {
@@ -86,13 +86,12 @@ public class MyEventListener {
     }
 
     /**
-     * Sends a receipt email to the user after a successful checkout.
+     * Sends a receipt email to the user after a successful checkout. Called by the
+     * {@link OutboxDispatcher}, so delivery failures are thrown to be retried.
      *
      * @param event the {@link OnCheckoutCompletedEvent} that contains the checkout
      *              details
      */
-    @Async
-    @EventListener
     public void sendReceipt(final OnCheckoutCompletedEvent event) {
 
         Context context = new Context();
@@ -104,7 +103,7 @@ public class MyEventListener {
         context.setVariable("shippingFee", event.getShippingFee());
         context.setVariable("receipt", event.getReceipt());
         context.setVariable("subject", subject);
-        emailService.sendTemplateMail(event.getEmail(),
+        emailService.deliverTemplateMail(event.getEmail(),
                 subject,
                 "receipt-email-template",
                 context);
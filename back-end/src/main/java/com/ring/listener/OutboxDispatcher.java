@@ -0,0 +1,66 @@
+package com.ring.listener;
+
+import com.ring.listener.checkout.OnCheckoutCompletedEvent;
+import com.ring.model.entity.OutboxEvent;
+import com.ring.model.enums.OutboxType;
+import com.ring.service.OrderService;
+import com.ring.service.OutboxService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@link OutboxDispatcher} drains the outbox in batches and runs each recorded side
+ * effect, counting outcomes per type as {@code ring.outbox.dispatched}. Failed events
+ * are rescheduled with backoff by the {@link OutboxService}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxDispatcher {
+
+    public static final int BATCH_SIZE = 50;
+
+    private final OutboxService outboxService;
+    private final OrderService orderService;
+    private final MyEventListener eventListener;
+    private final MeterRegistry meterRegistry;
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Scheduled(fixedDelayString = "${ring.outbox.dispatch-delay:1000}")
+    public void dispatch() {
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxService.claim(BATCH_SIZE);
+            batch.forEach(this::run);
+        } while (batch.size() == BATCH_SIZE);
+    }
+
+    private void run(OutboxEvent event) {
+        String outcome = "success";
+        try {
+            handle(event);
+            outboxService.complete(event);
+        } catch (Exception e) {
+            outcome = "failure";
+            log.warn("Outbox event {} ({}) failed: {}", event.getId(), event.getType(), e.getMessage());
+            outboxService.fail(event, e);
+        }
+        meterRegistry.counter("ring.outbox.dispatched",
+                "type", event.getType().name(),
+                "outcome", outcome).increment();
+    }
+
+    private void handle(OutboxEvent event) {
+        OutboxType type = event.getType();
+        switch (type) {
+            case CHECKOUT_RECEIPT -> eventListener.sendReceipt(
+                    outboxService.readPayload(event, OnCheckoutCompletedEvent.class));
+            case PAYMENT_LINK -> orderService.preparePaymentLink(event.getAggregateId());
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.ring.listener.checkout;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.ring.dto.response.orders.ReceiptDTO;
 import lombok.Getter;
 import org.springframework.context.ApplicationEvent;
 
 /**
  * {@link OnCheckoutCompletedEvent} is an event triggered when a user successfully completes a checkout.
+ * It is stored as JSON in the outbox and handed to the listener by the outbox dispatcher.
  */
 @Getter
+@JsonIgnoreProperties({ "source", "timestamp" })
 public class OnCheckoutCompletedEvent extends ApplicationEvent {
 
     private final String username;
@@ -16,7 +21,12 @@ public class OnCheckoutCompletedEvent extends ApplicationEvent {
     private final Double shippingFee;
     private final ReceiptDTO receipt;
 
-    public OnCheckoutCompletedEvent(final String username, final String email, final Double productsTotal, final Double shippingFee, final ReceiptDTO receipt) {
+    @JsonCreator
+    public OnCheckoutCompletedEvent(@JsonProperty("username") final String username,
+                                    @JsonProperty("email") final String email,
+                                    @JsonProperty("productsTotal") final Double productsTotal,
+                                    @JsonProperty("shippingFee") final Double shippingFee,
+                                    @JsonProperty("receipt") final ReceiptDTO receipt) {
         super(username);
         this.username = username;
         this.email = email;
@@ -19,8 +19,8 @@ public class BannerMapper implements Function<IBanner, BannerDTO> {
     @Override
     public BannerDTO apply(IBanner banner) {
         IImage image = banner.getImage();
-        //Generate url
-        Map<String, String> srcSet = fileUploadUtil.generateUrl(image.getPublicId());
+        //Stored or memoized srcSet
+        Map<String, String> srcSet = fileUploadUtil.getSrcSet(image);
         return new BannerDTO(banner.getId(),
                 banner.getShopId(),
                 banner.getName(),
@@ -34,8 +34,8 @@ public class BookMapper {
         Integer totalOrders = book.getTotalOrders();
         IImage image = book.getImage();
 
-        //Generate url
-        Map<String, String> srcSet = fileUploadUtil.generateUrl(image.getPublicId());
+        //Stored or memoized srcSet
+        Map<String, String> srcSet = fileUploadUtil.getSrcSet(image);
         return new BookDisplayDTO(book.getId(),
                 book.getSlug(),
                 book.getTitle(),
@@ -67,8 +67,8 @@ public class BookMapper {
         List<ImageDTO> images = previews != null ? previews
                 .stream()
                 .map(image -> {
-                    //Generate url
-                    Map<String, String> srcSet = fileUploadUtil.generateUrl(image.getPublicId());
+                    //Stored or memoized srcSet
+                    Map<String, String> srcSet = fileUploadUtil.getSrcSet(image);
                     return new ImageDTO(image.getUrl(), srcSet);
                 })
                 .collect(Collectors.toList())
@@ -94,9 +94,9 @@ public class BookMapper {
                 book.getPubName()
         );
 
-        //Generate url
+        //Stored or memoized srcSet
         IImage image = book.getImage();
-        Map<String, String> srcSet = fileUploadUtil.generateUrl(image.getPublicId());
+        Map<String, String> srcSet = fileUploadUtil.getSrcSet(image);
         return new BookDetailDTO(book.getId(),
                 book.getSlug(),
                 new ImageDTO(image.getUrl(), srcSet),
@@ -108,6 +108,7 @@ public class BookMapper {
                 book.getType(),
                 book.getAuthor(),
                 book.getAmount(),
+                book.getHeld(),
                 book.getShopId(),
                 book.getShopName(),
                 pub,
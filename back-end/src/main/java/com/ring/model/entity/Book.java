@@ -4,9 +4,12 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.ring.model.enums.BookType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Generated;
 import org.hibernate.annotations.Nationalized;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.generator.EventType;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -23,7 +26,8 @@ import java.util.List;
 @SQLDelete(sql = "UPDATE Book SET active = false WHERE id=?")
 @SQLRestriction("active=true")
 @EqualsAndHashCode(callSuper = true)
-@Table(indexes = @Index(columnList = "title"))
+@Table(indexes = { @Index(columnList = "title"), @Index(columnList = "price, id"), @Index(columnList = "created_at, id"),
+        @Index(columnList = "final_price, id") })
 public class Book extends Auditable {
 
     @Id
@@ -54,9 +58,26 @@ public class Book extends Auditable {
     @Column(precision = 5, scale = 4)
     private BigDecimal discount;
 
+    /**
+     * Price after discount, computed by the database so range filters and sorts
+     * can use the {@code (final_price, id)} index.
+     */
+    @Generated(event = { EventType.INSERT, EventType.UPDATE })
+    @Column(name = "final_price", insertable = false, updatable = false,
+            columnDefinition = "float(53) generated always as (price * (1 - discount)) stored")
+    private Double finalPrice;
+
     @Column
     private Short amount;
 
+    /**
+     * Units reserved by unpaid online orders, already taken out of {@link #amount}.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Short held = 0;
+
     @Column(length = 200, unique = true)
     @Nationalized
     private String title;
@@ -76,6 +97,10 @@ public class Book extends Auditable {
     @Column(unique = true)
     private String slug;
 
+    @Column(columnDefinition = "text")
+    @JsonIgnore
+    private String searchText;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shop_id")
     @JsonIgnore
@@ -0,0 +1,56 @@
+package com.ring.model.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Represents an entity as {@link BookStats} for the denormalized rating and
+ * sales aggregates of a book. Rows are kept up to date incrementally by
+ * review and order writes, and can be rebuilt from source tables at any time.
+ */
+@Entity
+@Table(name = "book_stats", indexes = { @Index(columnList = "rating, id"), @Index(columnList = "total_sold, id") })
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStats {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    @JsonIgnore
+    private Long id;
+
+    @Column(nullable = false)
+    private Double rating;
+
+    @Column(nullable = false)
+    private Integer rate1;
+
+    @Column(nullable = false)
+    private Integer rate2;
+
+    @Column(nullable = false)
+    private Integer rate3;
+
+    @Column(nullable = false)
+    private Integer rate4;
+
+    @Column(nullable = false)
+    private Integer rate5;
+
+    @Column(nullable = false)
+    private Integer totalRates;
+
+    @Column(nullable = false)
+    private Integer totalSold;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(name = "id")
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Book book;
+}
@@ -12,6 +12,7 @@ import java.util.List;
  * Represents an entity as {@link Coupon} for coupons.
  */
 @Entity
+@Table(indexes = { @Index(columnList = "shop_id") })
 @Getter
 @Setter
 @Builder
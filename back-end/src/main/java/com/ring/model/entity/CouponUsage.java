@@ -0,0 +1,50 @@
+package com.ring.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents an entity as {@link CouponUsage} for a coupon redeemed by a user. The
+ * unique key on {@code (coupon_id, user_id)} is what stops a coupon from being
+ * redeemed twice; the row is removed again when the order using it is canceled or
+ * refunded.
+ */
+@Entity
+@Table(name = "coupon_usage",
+        uniqueConstraints = { @UniqueConstraint(columnNames = { "coupon_id", "user_id" }) },
+        indexes = { @Index(columnList = "user_id, coupon_id"), @Index(columnList = "order_id") })
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponUsage {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    @SequenceGenerator(
+            name = "primary_sequence",
+            sequenceName = "primary_sequence",
+            allocationSize = 1,
+            initialValue = 10000
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "primary_sequence"
+    )
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
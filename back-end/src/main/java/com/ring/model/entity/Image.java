@@ -3,6 +3,10 @@ package com.ring.model.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.Map;
 
 /**
  * Represents an entity as {@link Image} for images.
@@ -41,6 +45,10 @@ public class Image {
     @Column(name = "type")
     private String type;
 
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "src_set")
+    private Map<String, String> srcSet;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "detail_id")
     @JsonIgnore
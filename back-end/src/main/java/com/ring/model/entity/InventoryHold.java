@@ -0,0 +1,48 @@
+package com.ring.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents an entity as {@link InventoryHold} for stock taken by an order awaiting
+ * online payment. The quantity is already subtracted from {@link Book#getAmount()} and
+ * counted in {@link Book#getHeld()}; the hold is either converted to a sale when the
+ * payment arrives or released back to stock once it expires.
+ */
+@Entity
+@Table(name = "inventory_hold", indexes = { @Index(columnList = "order_id"), @Index(columnList = "expired_at") })
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryHold {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    @SequenceGenerator(
+            name = "primary_sequence",
+            sequenceName = "primary_sequence",
+            allocationSize = 1,
+            initialValue = 10000
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "primary_sequence"
+    )
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "expired_at", nullable = false)
+    private LocalDateTime expiredAt;
+}
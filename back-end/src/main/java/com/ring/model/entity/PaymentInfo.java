@@ -1,5 +1,6 @@
 package com.ring.model.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.ring.model.enums.PaymentStatus;
 import com.ring.model.enums.PaymentType;
 import jakarta.persistence.*;
@@ -51,4 +52,8 @@ public class PaymentInfo {
 
     @Column
     private LocalDateTime expiredAt;
+
+    @Column
+    @JsonIgnore
+    private LocalDateTime checkoutRequestedAt; // Claimed for creating the payment link
 }
@@ -0,0 +1,24 @@
+package com.ring.model.enums;
+
+import com.ring.exception.HttpResponseException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Enum representing how a paginated listing computes its total as {@link CountMode}.
+ * {@code EXACT} runs the count query, {@code ESTIMATE} reuses a cached count for the
+ * same filter and {@code NONE} skips counting, reporting only a lower bound.
+ */
+public enum CountMode {
+    EXACT,
+    ESTIMATE,
+    NONE;
+
+    public static CountMode from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new HttpResponseException(HttpStatus.BAD_REQUEST, "Invalid count mode!",
+                    "Chế độ đếm không hợp lệ!");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ring.model.enums;
+
+/**
+ * Enum representing the kinds of side effects queued in the outbox as {@link OutboxType}.
+ */
+public enum OutboxType {
+    CHECKOUT_RECEIPT,
+    PAYMENT_LINK
+}
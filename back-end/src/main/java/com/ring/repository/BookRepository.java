@@ -1,12 +1,16 @@
 package com.ring.repository;
 
 import com.ring.dto.projection.books.IBookDisplay;
+import com.ring.dto.projection.books.IBookFacet;
+import com.ring.dto.projection.books.IBookSearch;
+import com.ring.dto.projection.books.IBookSuggestion;
 import com.ring.dto.projection.dashboard.IStat;
 import com.ring.model.entity.Account;
 import com.ring.model.entity.Book;
 import com.ring.model.enums.BookType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -19,12 +23,38 @@ import java.util.List;
  * Repository interface named {@link BookRepository} for managing {@link Book} entities.
  */
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     /**
-     * Finds books that match the specified filter criteria.
+     * The filter shared by catalog listings, expecting {@code Book b}, {@code Shop s}
+     * and {@code BookStats bs} in scope.
+     * <p>
+     * Keyword matching runs against the normalized {@code searchText} column: a
+     * book matches when every word of the keyword prefixes a word of its title,
+     * author or shop name (full-text, GIN indexed), or when the keyword appears
+     * anywhere in that text (trigram indexed).
+     * </p>
+     */
+    String BOOK_FILTER = """
+                where (:query = ''
+                    or fts_match(b.searchText, :query) = true
+                    or b.searchText like concat('%', :keyword, '%'))
+                and (coalesce(:cateId) is null or b.cate.id = :cateId or b.cate.parent.id = :cateId)
+                and (coalesce(:pubIds) is null or b.publisher.id in :pubIds)
+                and (coalesce(:types) is null or b.type in :types)
+                and (coalesce(:shopId) is null or b.shop.id = :shopId)
+                and (coalesce(:userId) is null or b.shop.owner.id = :userId)
+                and coalesce(bs.rating, 0) >= :rating
+                and b.finalPrice between :fromRange and :toRange
+                and b.amount >= :amount
+            """;
+
+    /**
+     * Finds books that match the specified filter criteria, see {@link #BOOK_FILTER}.
+     * The full-text rank is exposed as {@code relevance} for sorting.
      *
-     * @param keyword  the search keyword to match against book titles, authors, or shop names
+     * @param keyword  the folded search keyword, see {@link com.ring.utils.SearchTextUtil#fold(String)}
+     * @param query    the {@code to_tsquery} expression built from the keyword, empty to skip matching
      * @param cateId   the category ID to filter books by specific category or its parent category; can be null
      * @param pubIds   the list of publisher IDs to filter books by publishers; can be null
      * @param types    the list of book types to filter books by; can be null
@@ -43,47 +73,23 @@ public interface BookRepository extends JpaRepository<Book, Long> {
                     (case when :withDesc = true then b.description else null end) as description,
                     b.price as price, b.discount as discount, b.amount as amount, s.id as shopId,
                     s.name as shopName, i as image,
-                    coalesce(rv.rating, 0) as rating,
-                    coalesce(od.totalOrders, 0) as totalOrders
+                    coalesce(bs.rating, 0) as rating,
+                    coalesce(bs.totalSold, 0) as totalOrders,
+                    b.finalPrice as finalPrice,
+                    fts_rank(b.searchText, :query) as relevance
                 from Book b
                 join b.shop s
                 left join b.image i
-                left join (select r.book.id as book_id, avg(r.rating) as rating
-                    from Review r
-                    group by r.book.id) rv on b.id = rv.book_id
-                left join (select o.book.id as book_id, sum(o.quantity) as totalOrders
-                    from OrderItem o
-                    group by o.book.id) od on b.id = od.book_id
-                where concat (b.title, b.author, s.name) ilike %:keyword%
-                and (coalesce(:cateId) is null or b.cate.id = :cateId or b.cate.parent.id = :cateId)
-                and (coalesce(:pubIds) is null or b.publisher.id in :pubIds)
-                and (coalesce(:types) is null or b.type in :types)
-                and (coalesce(:shopId) is null or b.shop.id = :shopId)
-                and (coalesce(:userId) is null or b.shop.owner.id = :userId)
-                and coalesce(rv.rating, 0) >= :rating
-                and b.price * (1 - b.discount) between :fromRange and :toRange
-                and b.amount >= :amount
-                group by b, i.id, rv.rating, od.totalOrders, s.id, s.name
-            """,
+                left join BookStats bs on bs.id = b.id
+            """ + BOOK_FILTER,
             countQuery = """
-                     select count(b)
-                        from Book b
-                        join b.shop s
-                        left join (select r.book.id as book_id, avg(r.rating) as rating
-                            from Review r
-                            group by r.book.id) rv on b.id = rv.book_id
-                        where concat (b.title, b.author, s.name) ilike %:keyword%
-                        and (coalesce(:cateId) is null or b.cate.id = :cateId or b.cate.parent.id = :cateId)
-                        and (coalesce(:pubIds) is null or b.publisher.id in :pubIds)
-                        and (coalesce(:types) is null or b.type in :types)
-                        and (coalesce(:shopId) is null or b.shop.id = :shopId)
-                        and (coalesce(:userId) is null or b.shop.owner.id = :userId)
-                        and coalesce(rv.rating, 0) >= :rating
-                        and b.price * (1 - b.discount) between :fromRange and :toRange
-                        and b.amount >= :amount
-                        group by b, rv.rating, s.id, s.name
-                    """)
+                select count(b)
+                from Book b
+                join b.shop s
+                left join BookStats bs on bs.id = b.id
+            """ + BOOK_FILTER)
     Page<IBookDisplay> findBooksWithFilter(String keyword,
+                                           String query,
                                            Integer cateId,
                                            List<Integer> pubIds,
                                            List<BookType> types,
@@ -97,39 +103,129 @@ public interface BookRepository extends JpaRepository<Book, Long> {
                                            Pageable pageable);
 
     /**
-     * Retrieves a list of random books based on the specified number of books to fetch.
-     * Optionally includes descriptions depending on the provided parameter.
+     * Same as {@link #findBooksWithFilter} but returns a {@link Slice}, fetching one extra
+     * row to tell whether a next page exists instead of running the count query.
      *
-     * @param amount   the number of random books to retrieve
-     * @param withDesc a boolean indicating whether to include book descriptions in the result
-     * @return a List of {@link IBookDisplay} containing the details of the randomly fetched books
+     * @return a slice containing books matching the filter criteria encapsulated as IBookDisplay objects
      */
     @Query("""
                 select b.id as id, b.slug as slug, b.title as title,
                     (case when :withDesc = true then b.description else null end) as description,
                     b.price as price, b.discount as discount, b.amount as amount, s.id as shopId,
                     s.name as shopName, i as image,
-                    coalesce(rv.rating, 0) as rating,
-                    coalesce(od.totalOrders, 0) as totalOrders
-                from Book b join b.shop s left join b.image i
-                left join (select r.book.id as book_id, avg(r.rating) as rating
-                    from Review r
-                    group by r.book.id) rv on b.id = rv.book_id
-                left join (select o.book.id as book_id, sum(o.quantity) as totalOrders
-                    from OrderItem o
-                    group by o.book.id) od on b.id = od.book_id
-                group by b, i.id, rv.rating, od.totalOrders, s.id, s.name
-                order by random()
-                limit :amount
+                    coalesce(bs.rating, 0) as rating,
+                    coalesce(bs.totalSold, 0) as totalOrders,
+                    b.finalPrice as finalPrice,
+                    fts_rank(b.searchText, :query) as relevance
+                from Book b
+                join b.shop s
+                left join b.image i
+                left join BookStats bs on bs.id = b.id
+            """ + BOOK_FILTER)
+    Slice<IBookDisplay> findBooksSliceWithFilter(String keyword,
+                                                 String query,
+                                                 Integer cateId,
+                                                 List<Integer> pubIds,
+                                                 List<BookType> types,
+                                                 Long shopId,
+                                                 Long userId,
+                                                 Double fromRange,
+                                                 Double toRange,
+                                                 Boolean withDesc,
+                                                 Integer rating,
+                                                 Integer amount,
+                                                 Pageable pageable);
+
+    /**
+     * Counts books matching {@link #BOOK_FILTER}, see {@link #findBooksWithFilter}.
+     *
+     * @return the number of matching books
+     */
+    @Query("""
+                select count(b)
+                from Book b
+                join b.shop s
+                left join BookStats bs on bs.id = b.id
+            """ + BOOK_FILTER)
+    long countBooksWithFilter(String keyword,
+                              String query,
+                              Integer cateId,
+                              List<Integer> pubIds,
+                              List<BookType> types,
+                              Long shopId,
+                              Long userId,
+                              Double fromRange,
+                              Double toRange,
+                              Integer rating,
+                              Integer amount);
+
+    /**
+     * Upper bounds of the price facet buckets, matching the {@code priceBucket}
+     * expression of {@link #findBookFacets}. The last bucket is open-ended.
+     */
+    double[] PRICE_BUCKETS = { 50000, 100000, 200000, 500000 };
+
+    /**
+     * Counts books matching {@link #BOOK_FILTER} in a single grouped pass. Each row
+     * holds one combination of category, publisher, type, rating bucket (floor of
+     * the average rating) and price bucket (index into {@link #PRICE_BUCKETS}),
+     * leaving the caller to sum the marginals of each facet.
+     *
+     * @param keyword   the folded search keyword
+     * @param query     the {@code to_tsquery} expression built from the keyword, empty to skip matching
+     * @param cateId    the category ID to filter books by; can be null
+     * @param pubIds    the list of publisher IDs to filter books by; can be null
+     * @param types     the list of book types to filter books by; can be null
+     * @param shopId    the shop ID to filter books by; can be null
+     * @param userId    the user ID to filter books by shop owner; can be null
+     * @param fromRange the minimum price range (after applying discounts)
+     * @param toRange   the maximum price range (after applying discounts)
+     * @param rating    the minimum average rating
+     * @param amount    the minimum available quantity
+     * @return a list of {@link IBookFacet} containing the count of each combination
+     */
+    @Query("""
+                select b.cate.id as cateId, b.publisher.id as pubId, b.type as type,
+                    cast(floor(coalesce(bs.rating, 0)) as integer) as ratingBucket,
+                    (case when b.finalPrice < 50000 then 0
+                        when b.finalPrice < 100000 then 1
+                        when b.finalPrice < 200000 then 2
+                        when b.finalPrice < 500000 then 3
+                        else 4 end) as priceBucket,
+                    count(b) as total
+                from Book b
+                join b.shop s
+                left join BookStats bs on bs.id = b.id
+            """ + BOOK_FILTER + """
+                group by cateId, pubId, type, ratingBucket, priceBucket
+            """)
+    List<IBookFacet> findBookFacets(String keyword,
+                                    String query,
+                                    Integer cateId,
+                                    List<Integer> pubIds,
+                                    List<BookType> types,
+                                    Long shopId,
+                                    Long userId,
+                                    Double fromRange,
+                                    Double toRange,
+                                    Integer rating,
+                                    Integer amount);
+
+    /**
+     * Retrieves the IDs of every active book, used to build the random sampling pool.
+     *
+     * @return a list of book IDs
+     */
+    @Query("""
+                select b.id from Book b
             """)
-    List<IBookDisplay> findRandomBooks(Integer amount,
-                                       Boolean withDesc); //Get random books
+    List<Long> findAllIds();
 
     /**
      * Retrieves a list of books matching the given IDs with detailed information such as id, slug, title, price,
      * discount, amount, associated shop details (id, name), image, rating, and total orders.
      *
-     * This method performs a query that joins multiple entities, such as Shop, Image, Review, and OrderItem,
+     * This method performs a query that joins Shop, Image and the precomputed BookStats
      * to gather the required information for display purposes.
      *
      * @param ids a list of book IDs for which the display information is to be retrieved
@@ -139,19 +235,35 @@ public interface BookRepository extends JpaRepository<Book, Long> {
                 select b.id as id, b.slug as slug, b.title as title,
                     b.price as price, b.discount as discount, b.amount as amount, s.id as shopId,
                     s.name as shopName, i as image,
-                    coalesce(rv.rating, 0) as rating,
-                    coalesce(od.totalOrders, 0) as totalOrders
+                    coalesce(bs.rating, 0) as rating,
+                    coalesce(bs.totalSold, 0) as totalOrders
                 from Book b join b.shop s left join b.image i
-                left join (select r.book.id as book_id, avg(r.rating) as rating
-                    from Review r
-                    group by r.book.id) rv on b.id = rv.book_id
-                left join (select o.book.id as book_id, sum(o.quantity) as totalOrders
-                    from OrderItem o
-                    group by o.book.id) od on b.id = od.book_id
+                left join BookStats bs on bs.id = b.id
                 where b.id in :ids
             """)
     List<IBookDisplay> findBooksDisplayInIds(List<Long> ids);
 
+    /**
+     * Retrieves display information for the given book IDs, optionally including descriptions.
+     *
+     * @param ids      a list of book IDs for which the display information is to be retrieved
+     * @param withDesc a boolean indicating whether to include book descriptions in the result
+     * @return a list of {@link IBookDisplay} containing the display information of the books matching the given IDs
+     */
+    @Query("""
+                select b.id as id, b.slug as slug, b.title as title,
+                    (case when :withDesc = true then b.description else null end) as description,
+                    b.price as price, b.discount as discount, b.amount as amount, s.id as shopId,
+                    s.name as shopName, i as image,
+                    coalesce(bs.rating, 0) as rating,
+                    coalesce(bs.totalSold, 0) as totalOrders
+                from Book b join b.shop s left join b.image i
+                left join BookStats bs on bs.id = b.id
+                where b.id in :ids
+            """)
+    List<IBookDisplay> findBooksDisplayInIds(List<Long> ids,
+                                             Boolean withDesc);
+
     /**
      * Retrieves a list of books given their IDs.
      *
@@ -182,7 +294,8 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     /**
      * Retrieves a list of book IDs that match specified search criteria and filters, excluding specific IDs.
      *
-     * @param keyword The search keyword to match against the concatenation of book title, author, and shop name.
+     * @param keyword The folded search keyword, matched the same way as {@link #findBooksWithFilter}.
+     * @param query The {@code to_tsquery} expression built from the keyword, empty to skip matching.
      * @param cateId The ID of the category to filter books by. Supports category or its parent ID.
      * @param pubIds A list of publisher IDs to filter books by. Can be null.
      * @param types A list of book types to filter by. Can be null.
@@ -199,22 +312,12 @@ public interface BookRepository extends JpaRepository<Book, Long> {
                 select b.id
                 from Book b
                 join b.shop s
-                left join (select r.book.id as book_id, avg(r.rating) as rating
-                    from Review r
-                    group by r.book.id) rv on b.id = rv.book_id
-                where concat (b.title, b.author, s.name) ilike %:keyword%
-                and (coalesce(:cateId) is null or b.cate.id = :cateId or b.cate.parent.id = :cateId)
-                and (coalesce(:pubIds) is null or b.publisher.id in :pubIds)
-                and (coalesce(:types) is null or b.type in :types)
-                and (coalesce(:shopId) is null or b.shop.id = :shopId)
-                and (coalesce(:userId) is null or b.shop.owner.id = :userId)
-                and coalesce(rv.rating, 0) >= :rating
-                and b.price * (1 - b.discount) between :fromRange and :toRange
-                and b.amount >= :amount
+                left join BookStats bs on bs.id = b.id
+            """ + BOOK_FILTER + """
                 and b.id not in :ids
-                group by b, rv.rating, s.id, s.name
             """)
     List<Long> findInverseIds(String keyword,
+                              String query,
                               Integer cateId,
                               List<Integer> pubIds,
                               List<BookType> types,
@@ -249,23 +352,61 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     IStat getBookAnalytics(Long shopId, Long userId);
 
     /**
-     * Retrieves a list of suggested keywords that match the given keyword, based on the database query.
-     * The method derives possible suggestions from the `title` field of the `Book` entity.
+     * Retrieves every active book title along with its total orders, used to build
+     * the in-memory suggestion index.
+     *
+     * @return a list of {@link IBookSuggestion} containing book IDs, titles and total orders
+     */
+    @Query("""
+                select b.id as id, b.title as title,
+                    coalesce(bs.totalSold, 0) as totalOrders
+                from Book b
+                left join BookStats bs on bs.id = b.id
+            """)
+    List<IBookSuggestion> findSuggestionSources();
+
+    /**
+     * Retrieves the searchable fields of books whose search text has not been
+     * built yet.
      *
-     * @param keyword the search keyword used for finding suggestions. It is matched against book titles.
-     * @return a list of up to 9 suggested keywords, sorted by relevance to the given keyword.
+     * @param pageable the batch size to fetch.
+     * @return a list of {@link IBookSearch} to index.
      */
-    @Query(value= """
-            select t.keyword
-            from (
-            	select distinct substring(left(lower(regexp_replace(b.title, CONCAT('^.*?(\\S*', :keyword, '\\S*)'), '\\1', 'i')) || ' ', 24) from '.*\\s') as keyword
-            	from book b
-            	where b.title ilike concat('%', :keyword, '%')
-            ) t
-            order by case when t.keyword ilike concat('%', :keyword, '%') then 1 else 2 end, t.keyword
-            limit 9
-            """, nativeQuery = true)
-    List<String> findSuggestion(String keyword);
+    @Query("""
+                select b.id as id, b.title as title, b.author as author, s.name as shopName
+                from Book b
+                join b.shop s
+                where b.searchText is null
+                order by b.id
+            """)
+    List<IBookSearch> findUnindexedBooks(Pageable pageable);
+
+    /**
+     * Retrieves the searchable fields of every book of a shop.
+     *
+     * @param shopId   the ID of the shop.
+     * @param pageable the batch to fetch.
+     * @return a page of {@link IBookSearch} to index.
+     */
+    @Query("""
+                select b.id as id, b.title as title, b.author as author, s.name as shopName
+                from Book b
+                join b.shop s
+                where s.id = :shopId
+            """)
+    Page<IBookSearch> findBooksToIndexByShop(Long shopId, Pageable pageable);
+
+    /**
+     * Updates the normalized search text of a book.
+     *
+     * @param id         the ID of the book.
+     * @param searchText the folded title, author and shop name.
+     */
+    @Modifying
+    @Query("""
+                update Book b set b.searchText = :searchText where b.id = :id
+            """)
+    void updateSearchText(Long id, String searchText);
 
     /**
      * Decreases the stock quantity of a specified book by the given amount.
@@ -0,0 +1,129 @@
+package com.ring.repository;
+
+import com.ring.dto.projection.books.IBookCursor;
+import com.ring.model.enums.BookType;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Custom repository fragment for {@link BookRepository} queries that cannot be
+ * expressed as a single static {@code @Query}.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * The sort orders supported by keyset pagination, with the expression each
+     * one seeks on. Stats keys read the columns directly, as every book has a
+     * stats row, so the {@code (key, id)} indexes can serve the seek.
+     */
+    enum CursorKey {
+        ID("id", "b.id", Long::valueOf, IBookCursor::getId),
+        PRICE("price", "b.price", Double::valueOf, IBookCursor::getPrice),
+        FINAL_PRICE("finalPrice", "b.finalPrice", Double::valueOf, IBookCursor::getFinalPrice),
+        CREATED_DATE("createdDate", "b.createdDate", LocalDateTime::parse, IBookCursor::getCreatedDate),
+        TOTAL_ORDERS("totalOrders", "bs.totalSold", Integer::valueOf, IBookCursor::getTotalOrders),
+        RATING("rating", "bs.rating", Double::valueOf, IBookCursor::getRating);
+
+        private final String sortBy;
+        private final String expression;
+        private final Function<String, Object> parser;
+        private final Function<IBookCursor, Object> extractor;
+
+        CursorKey(String sortBy,
+                  String expression,
+                  Function<String, Object> parser,
+                  Function<IBookCursor, Object> extractor) {
+            this.sortBy = sortBy;
+            this.expression = expression;
+            this.parser = parser;
+            this.extractor = extractor;
+        }
+
+        public static Optional<CursorKey> of(String sortBy) {
+            return Arrays.stream(values()).filter(key -> key.sortBy.equals(sortBy)).findFirst();
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public Object parse(String value) {
+            return parser.apply(value);
+        }
+
+        public Object valueOf(IBookCursor book) {
+            return extractor.apply(book);
+        }
+    }
+
+    /**
+     * Finds the books following a keyset position, filtered the same way as
+     * {@link BookRepository#findBooksWithFilter}. The seek runs on
+     * {@code (key, id)} so no offset is scanned and no count query is issued.
+     *
+     * @param keyword    the folded search keyword.
+     * @param query      the {@code to_tsquery} expression built from the keyword.
+     * @param cateId     the category ID to filter books by; can be null.
+     * @param pubIds     the list of publisher IDs to filter books by; can be null.
+     * @param types      the list of book types to filter books by; can be null.
+     * @param shopId     the shop ID to filter books by; can be null.
+     * @param userId     the user ID to filter books by shop owner; can be null.
+     * @param fromRange  the minimum price range (after applying discounts).
+     * @param toRange    the maximum price range (after applying discounts).
+     * @param withDesc   a flag indicating whether to include book descriptions.
+     * @param rating     the minimum average rating.
+     * @param amount     the minimum available quantity.
+     * @param key        the sort key.
+     * @param ascending  the sort direction.
+     * @param afterValue the sort key value of the last seen book; null for the first slice.
+     * @param afterId    the ID of the last seen book; null for the first slice.
+     * @param limit      the maximum number of books to return.
+     * @return a list of {@link IBookCursor} in sort order.
+     */
+    List<IBookCursor> findBooksByCursor(String keyword,
+                                        String query,
+                                        Integer cateId,
+                                        List<Integer> pubIds,
+                                        List<BookType> types,
+                                        Long shopId,
+                                        Long userId,
+                                        Double fromRange,
+                                        Double toRange,
+                                        Boolean withDesc,
+                                        Integer rating,
+                                        Integer amount,
+                                        CursorKey key,
+                                        boolean ascending,
+                                        Object afterValue,
+                                        Long afterId,
+                                        int limit);
+
+    /**
+     * Decrements the stock of several books in a single statement. A row is only
+     * updated when its stock covers the requested quantity, so concurrent
+     * checkouts cannot drive {@code amount} negative. Pending changes are flushed
+     * first and the updated books already loaded in the persistence context are
+     * refreshed afterwards, so none keeps or writes back the old stock.
+     *
+     * @param ids        the book IDs, without duplicates.
+     * @param quantities the quantity to take from each book, aligned with {@code ids}.
+     * @param hold       whether the quantities are also counted as held for an unpaid order.
+     * @return the IDs of the books whose stock was decremented.
+     */
+    List<Long> reserveStock(Long[] ids, Integer[] quantities, boolean hold);
+
+    /**
+     * Settles held stock of several books in a single statement, flushing and
+     * refreshing like {@link #reserveStock}.
+     *
+     * @param ids        the book IDs, without duplicates.
+     * @param quantities the held quantity of each book, aligned with {@code ids}.
+     * @param restock    {@code true} to give the quantities back to {@code amount},
+     *                   {@code false} to keep them sold.
+     */
+    void releaseHeldStock(Long[] ids, Integer[] quantities, boolean restock);
+}
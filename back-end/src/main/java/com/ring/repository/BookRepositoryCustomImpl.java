@@ -0,0 +1,161 @@
+package com.ring.repository;
+
+import com.ring.dto.projection.books.IBookCursor;
+import com.ring.model.entity.Book;
+import com.ring.model.enums.BookType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Hibernate;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    private static final String CURSOR_SELECT = """
+                select b.id as id, b.slug as slug, b.title as title,
+                    (case when :withDesc = true then b.description else null end) as description,
+                    b.price as price, b.discount as discount, b.amount as amount, s.id as shopId,
+                    s.name as shopName, i as image,
+                    bs.rating as rating,
+                    bs.totalSold as totalOrders,
+                    b.finalPrice as finalPrice, b.createdDate as createdDate
+                from Book b
+                join b.shop s
+                left join b.image i
+                join BookStats bs on bs.id = b.id
+            """;
+
+    private static final String RESERVE_STOCK = """
+                update book b set amount = b.amount - r.qty,
+                    held = b.held + case when :hold then r.qty else 0 end
+                from unnest(cast(:ids as bigint[]), cast(:quantities as integer[])) as r(id, qty)
+                where b.id = r.id and b.active = true and b.amount >= r.qty
+                returning b.id
+            """;
+
+    private static final String RELEASE_HELD_STOCK = """
+                update book b set held = greatest(b.held - r.qty, 0),
+                    amount = b.amount + case when :restock then r.qty else 0 end
+                from unnest(cast(:ids as bigint[]), cast(:quantities as integer[])) as r(id, qty)
+                where b.id = r.id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @Override
+    public List<IBookCursor> findBooksByCursor(String keyword,
+                                               String query,
+                                               Integer cateId,
+                                               List<Integer> pubIds,
+                                               List<BookType> types,
+                                               Long shopId,
+                                               Long userId,
+                                               Double fromRange,
+                                               Double toRange,
+                                               Boolean withDesc,
+                                               Integer rating,
+                                               Integer amount,
+                                               CursorKey key,
+                                               boolean ascending,
+                                               Object afterValue,
+                                               Long afterId,
+                                               int limit) {
+        String expression = key.getExpression();
+        String operator = ascending ? ">" : "<";
+        String direction = ascending ? " asc" : " desc";
+        boolean isSeek = afterId != null;
+
+        // Seek past the last seen (key, id) pair
+        StringBuilder jpql = new StringBuilder(CURSOR_SELECT).append(BookRepository.BOOK_FILTER);
+        if (isSeek) {
+            if (key == CursorKey.ID) {
+                jpql.append(" and b.id ").append(operator).append(" :afterId");
+            } else {
+                jpql.append(" and (").append(expression).append(' ').append(operator).append(" :afterValue")
+                        .append(" or (").append(expression).append(" = :afterValue")
+                        .append(" and b.id ").append(operator).append(" :afterId))");
+            }
+        }
+        jpql.append(" order by ");
+        if (key != CursorKey.ID)
+            jpql.append(expression).append(direction).append(", ");
+        jpql.append("b.id").append(direction);
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("keyword", keyword)
+                .setParameter("query", query)
+                .setParameter("cateId", cateId)
+                .setParameter("pubIds", pubIds)
+                .setParameter("types", types)
+                .setParameter("shopId", shopId)
+                .setParameter("userId", userId)
+                .setParameter("fromRange", fromRange)
+                .setParameter("toRange", toRange)
+                .setParameter("withDesc", withDesc)
+                .setParameter("rating", rating)
+                .setParameter("amount", amount)
+                .setMaxResults(limit);
+        if (isSeek) {
+            typedQuery.setParameter("afterId", afterId);
+            if (key != CursorKey.ID)
+                typedQuery.setParameter("afterValue", afterValue);
+        }
+
+        return typedQuery.getResultList().stream()
+                .map(tuple -> projectionFactory.createProjection(IBookCursor.class, toMap(tuple)))
+                .toList();
+    }
+
+    // Spring Data only runs modifying queries through executeUpdate, which cannot return the updated IDs
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> reserveStock(Long[] ids, Integer[] quantities, boolean hold) {
+        entityManager.flush();
+        List<Long> reserved = entityManager.createNativeQuery(RESERVE_STOCK, Long.class)
+                .setParameter("ids", ids)
+                .setParameter("quantities", quantities)
+                .setParameter("hold", hold)
+                .getResultList();
+        refreshBooks(reserved);
+        return reserved;
+    }
+
+    @Override
+    public void releaseHeldStock(Long[] ids, Integer[] quantities, boolean restock) {
+        entityManager.flush();
+        entityManager.createNativeQuery(RELEASE_HELD_STOCK)
+                .setParameter("ids", ids)
+                .setParameter("quantities", quantities)
+                .setParameter("restock", restock)
+                .executeUpdate();
+        refreshBooks(Arrays.asList(ids));
+    }
+
+    // Books loaded in this context still hold the old stock and would write it back when flushed
+    private void refreshBooks(Collection<Long> ids) {
+        for (Long id : ids) {
+            Book book = entityManager.getReference(Book.class, id);
+            if (Hibernate.isInitialized(book)) entityManager.refresh(book);
+        }
+    }
+
+    private Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> values = new HashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            values.put(element.getAlias(), tuple.get(element));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,186 @@
+package com.ring.repository;
+
+import com.ring.model.entity.BookStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface named {@link BookStatsRepository} for managing
+ * {@link BookStats} entities.
+ */
+@Repository
+public interface BookStatsRepository extends JpaRepository<BookStats, Long> {
+
+    /**
+     * Applies a rating delta to the stats row of a book, creating the row if it
+     * does not exist yet. The average rating is recomputed from the updated
+     * histogram within the same statement.
+     *
+     * @param id     the ID of the book.
+     * @param rating the star value (1 to 5) being added or removed.
+     * @param delta  {@code 1} to add a rating, {@code -1} to remove one.
+     */
+    @Modifying
+    @Query(value = """
+                insert into book_stats (id, rate1, rate2, rate3, rate4, rate5, total_rates, total_sold, rating)
+                values (:id,
+                    greatest(case when :rating = 1 then :delta else 0 end, 0),
+                    greatest(case when :rating = 2 then :delta else 0 end, 0),
+                    greatest(case when :rating = 3 then :delta else 0 end, 0),
+                    greatest(case when :rating = 4 then :delta else 0 end, 0),
+                    greatest(case when :rating = 5 then :delta else 0 end, 0),
+                    greatest(:delta, 0),
+                    0,
+                    case when :delta > 0 then :rating else 0 end)
+                on conflict (id) do update set
+                    rate1 = greatest(book_stats.rate1 + case when :rating = 1 then :delta else 0 end, 0),
+                    rate2 = greatest(book_stats.rate2 + case when :rating = 2 then :delta else 0 end, 0),
+                    rate3 = greatest(book_stats.rate3 + case when :rating = 3 then :delta else 0 end, 0),
+                    rate4 = greatest(book_stats.rate4 + case when :rating = 4 then :delta else 0 end, 0),
+                    rate5 = greatest(book_stats.rate5 + case when :rating = 5 then :delta else 0 end, 0),
+                    total_rates = greatest(book_stats.total_rates + :delta, 0),
+                    rating = case when book_stats.total_rates + :delta > 0
+                        then cast(book_stats.rate1 + 2 * book_stats.rate2 + 3 * book_stats.rate3
+                            + 4 * book_stats.rate4 + 5 * book_stats.rate5 + :rating * :delta as double precision)
+                            / (book_stats.total_rates + :delta)
+                        else 0 end
+            """, nativeQuery = true)
+    void applyRating(Long id, Integer rating, Integer delta);
+
+    /**
+     * Applies a sold quantity delta to the stats row of a book, creating the row
+     * if it does not exist yet.
+     *
+     * @param id    the ID of the book.
+     * @param delta the quantity sold (positive) or returned (negative).
+     */
+    @Modifying
+    @Query(value = """
+                insert into book_stats (id, rate1, rate2, rate3, rate4, rate5, total_rates, total_sold, rating)
+                values (:id, 0, 0, 0, 0, 0, 0, greatest(:delta, 0), 0)
+                on conflict (id) do update set
+                    total_sold = greatest(book_stats.total_sold + :delta, 0)
+            """, nativeQuery = true)
+    void applySold(Long id, Integer delta);
+
+    /**
+     * Creates an empty stats row for a new book, so listings can inner join
+     * {@code book_stats} and seek on its columns.
+     *
+     * @param id the ID of the book.
+     */
+    @Modifying
+    @Query(value = """
+                insert into book_stats (id, rate1, rate2, rate3, rate4, rate5, total_rates, total_sold, rating)
+                values (:id, 0, 0, 0, 0, 0, 0, 0, 0)
+                on conflict (id) do nothing
+            """, nativeQuery = true)
+    void createStats(Long id);
+
+    /**
+     * Creates empty stats rows for the books that have none. A book without a row
+     * was never rated nor sold, as both create it.
+     *
+     * @return the number of rows created.
+     */
+    @Modifying
+    @Query(value = """
+                insert into book_stats (id, rate1, rate2, rate3, rate4, rate5, total_rates, total_sold, rating)
+                select b.id, 0, 0, 0, 0, 0, 0, 0, 0 from book b
+                where not exists (select 1 from book_stats bs where bs.id = b.id)
+                on conflict (id) do nothing
+            """, nativeQuery = true)
+    int createMissingStats();
+
+    /**
+     * Recomputes the stats rows of the given books from the review and order
+     * tables. Hidden reviews and items of canceled or refunded orders are not
+     * counted.
+     *
+     * @param ids the list of book IDs to recompute.
+     */
+    @Modifying
+    @Query(value = """
+                insert into book_stats (id, rate1, rate2, rate3, rate4, rate5, total_rates, total_sold, rating)
+                select b.id,
+                    coalesce(rv.rate1, 0), coalesce(rv.rate2, 0), coalesce(rv.rate3, 0),
+                    coalesce(rv.rate4, 0), coalesce(rv.rate5, 0), coalesce(rv.total_rates, 0),
+                    coalesce(od.total_sold, 0), coalesce(rv.rating, 0)
+                from book b
+                left join (select r.book_id,
+                    count(*) filter (where r.rating = 1) as rate1,
+                    count(*) filter (where r.rating = 2) as rate2,
+                    count(*) filter (where r.rating = 3) as rate3,
+                    count(*) filter (where r.rating = 4) as rate4,
+                    count(*) filter (where r.rating = 5) as rate5,
+                    count(*) as total_rates,
+                    avg(r.rating) as rating
+                    from review r
+                    where r.is_hidden = false
+                    group by r.book_id) rv on rv.book_id = b.id
+                left join (select oi.book_id, sum(oi.quantity) as total_sold
+                    from order_item oi
+                    join order_detail d on d.id = oi.detail_id
+                    where d.active = true
+                    and d.status not in ('CANCELED', 'REFUNDED')
+                    group by oi.book_id) od on od.book_id = b.id
+                where b.id in :ids
+                on conflict (id) do update set
+                    rate1 = excluded.rate1,
+                    rate2 = excluded.rate2,
+                    rate3 = excluded.rate3,
+                    rate4 = excluded.rate4,
+                    rate5 = excluded.rate5,
+                    total_rates = excluded.total_rates,
+                    total_sold = excluded.total_sold,
+                    rating = excluded.rating
+            """, nativeQuery = true)
+    int rebuildStats(List<Long> ids);
+
+    /**
+     * Recomputes the stats rows of every book from the review and order tables.
+     * Used to repair drift left by the incremental updates.
+     *
+     * @return the number of rows written.
+     */
+    @Modifying
+    @Query(value = """
+                insert into book_stats (id, rate1, rate2, rate3, rate4, rate5, total_rates, total_sold, rating)
+                select b.id,
+                    coalesce(rv.rate1, 0), coalesce(rv.rate2, 0), coalesce(rv.rate3, 0),
+                    coalesce(rv.rate4, 0), coalesce(rv.rate5, 0), coalesce(rv.total_rates, 0),
+                    coalesce(od.total_sold, 0), coalesce(rv.rating, 0)
+                from book b
+                left join (select r.book_id,
+                    count(*) filter (where r.rating = 1) as rate1,
+                    count(*) filter (where r.rating = 2) as rate2,
+                    count(*) filter (where r.rating = 3) as rate3,
+                    count(*) filter (where r.rating = 4) as rate4,
+                    count(*) filter (where r.rating = 5) as rate5,
+                    count(*) as total_rates,
+                    avg(r.rating) as rating
+                    from review r
+                    where r.is_hidden = false
+                    group by r.book_id) rv on rv.book_id = b.id
+                left join (select oi.book_id, sum(oi.quantity) as total_sold
+                    from order_item oi
+                    join order_detail d on d.id = oi.detail_id
+                    where d.active = true
+                    and d.status not in ('CANCELED', 'REFUNDED')
+                    group by oi.book_id) od on od.book_id = b.id
+                on conflict (id) do update set
+                    rate1 = excluded.rate1,
+                    rate2 = excluded.rate2,
+                    rate3 = excluded.rate3,
+                    rate4 = excluded.rate4,
+                    rate5 = excluded.rate5,
+                    total_rates = excluded.total_rates,
+                    total_sold = excluded.total_sold,
+                    rating = excluded.rating
+            """, nativeQuery = true)
+    int rebuildAllStats();
+}
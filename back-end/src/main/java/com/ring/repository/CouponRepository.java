@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,22 +21,6 @@ import java.util.Optional;
  */
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
-    /**
-     * Checks whether a user has used a specific coupon.
-     *
-     * @param id     the identifier of the coupon
-     * @param userId the identifier of the user
-     * @return true if the user has used the coupon; false otherwise
-     */
-    @Query("""
-                select case when count(*) > 0 then true else false end
-                from OrderReceipt o
-                join o.details od
-                where (o.coupon.id = :id or od.coupon.id = :id)
-                and o.user.id = :userId
-            """)
-    boolean hasUserUsedCoupon(Long id, Long userId);
-
     /**
      * Finds coupons based on the provided filter criteria. The method executes a
      * query to retrieve
@@ -192,6 +177,8 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
      *                 coupons not tied to a shop
      * @param value    the value threshold to filter coupons by; can be null
      * @param quantity the quantity threshold to filter coupons by; can be null
+     * @param userId   the ID of the user whose redeemed coupons are skipped; can be
+     *                 null
      * @return an optional containing the recommended coupon if matching criteria
      *         exists; otherwise, an empty optional
      */
@@ -207,11 +194,78 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
             			com.ring.model.enums.CouponType.SHIPPING) and cd.attribute < :value)
             		or (coalesce(:quantity) is null
             			or (cd.type = com.ring.model.enums.CouponType.MIN_AMOUNT and cd.attribute < :quantity)))
+            	and (coalesce(:userId) is null or not exists (select 1 from CouponUsage u
+            			where u.couponId = c.id and u.userId = :userId))
             	group by s.id, c.id, cd.id, cd.attribute, cd.discount, cd.maxDiscount, s.name, i.id
             	order by cd.attribute asc, cd.discount desc, cd.maxDiscount desc
             	limit 1
             """)
-    Optional<ICoupon> recommendCoupon(Long shopId, Double value, Integer quantity);
+    Optional<ICoupon> recommendCoupon(Long shopId, Double value, Integer quantity, Long userId);
+
+    /**
+     * Recommends the best coupon for many cart states at once, one per shop and
+     * one for the platform, with the same conditions and ranking as
+     * {@link #recommendCoupon}. The arrays are read as rows of
+     * {@code (shopId, value, quantity)}, where shop ID 0 stands for the platform.
+     *
+     * @param shopIds    the IDs of the shops, 0 for the platform.
+     * @param values     the cart value of each shop.
+     * @param quantities the product quantity of each shop.
+     * @param userId     the ID of the user whose redeemed coupons are skipped; can
+     *                   be null
+     * @return the IDs of the recommended coupons, at most one per row.
+     */
+    @Query(value = """
+                select b.id from unnest(cast(:shopIds as bigint[]), cast(:values as float8[]),
+                        cast(:quantities as integer[])) as r(shop_id, value, quantity)
+                cross join lateral (
+                    select c.id from coupon c
+                    join coupon_detail cd on cd.id = c.id
+                    where c.active = true
+                    and (case when r.shop_id = 0 then c.shop_id is null else c.shop_id = r.shop_id end)
+                    and cd.exp_date > current_date and cd.usage > 0
+                    and ((cd.type in ('MIN_VALUE', 'SHIPPING') and cd.attribute < r.value)
+                        or (cd.type = 'MIN_AMOUNT' and cd.attribute < r.quantity))
+                    and (cast(:userId as bigint) is null or not exists (select 1 from coupon_usage u
+                        where u.coupon_id = c.id and u.user_id = :userId))
+                    order by cd.attribute asc, cd.discount desc, cd.max_discount desc
+                    limit 1
+                ) b
+            """, nativeQuery = true)
+    List<Long> recommendCouponIds(Long[] shopIds, Double[] values, Integer[] quantities, Long userId);
+
+    /**
+     * Retrieves coupons, along with associated shop names and shop images, by
+     * their IDs.
+     *
+     * @param ids the IDs of the coupons.
+     * @return the coupons with their shop names and shop images.
+     */
+    @Query("""
+               select c as coupon, s.name as shopName, i as shopImage
+               from Coupon c
+               join fetch c.detail cd
+               left join c.shop s
+               left join s.image i
+               where c.id in :ids
+            """)
+    List<ICoupon> findCouponInIds(Collection<Long> ids);
+
+    /**
+     * Retrieves every coupon that is not expired and has usages left, along with
+     * associated shop names and shop images.
+     *
+     * @return the active coupons with their shop names and shop images.
+     */
+    @Query("""
+               select c as coupon, s.name as shopName, i as shopImage
+               from Coupon c
+               join fetch c.detail cd
+               left join c.shop s
+               left join s.image i
+               where cd.expDate > current date and cd.usage > 0
+            """)
+    List<ICoupon> findActiveCoupons();
 
     /**
      * Finds a coupon by its unique code.
@@ -285,16 +339,48 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
             Long userId);
 
     /**
-     * Decreases the usage count of a coupon by 1 based on the coupon's ID.
+     * Decreases the usage count of a coupon by 1 based on the coupon's ID, unless
+     * none is left.
      *
      * @param id the ID of the coupon for which the usage count needs to be
      *           decreased
+     * @return 1 if a usage was taken, 0 if the coupon has run out.
+     */
+    @Modifying
+    @Query("""
+                update CouponDetail c set c.usage = c.usage - cast(1 as short)
+                where c.id = :id and c.usage > 0
+            """)
+    int decreaseUsage(Long id);
+
+    /**
+     * Moves a slice of usages out of a coupon. Callers run it in its own short
+     * transaction, so the row is not locked for the rest of a checkout. At least one
+     * usage is always left behind, which keeps a coupon with usages handed out from
+     * looking exhausted.
+     *
+     * @param id    the ID of the coupon.
+     * @param slice the number of usages to take.
+     * @return 1 if the slice was taken, 0 if not enough usages are left.
+     */
+    @Modifying
+    @Query("""
+                update CouponDetail c set c.usage = c.usage - :slice
+                where c.id = :id and c.usage > :slice
+            """)
+    int allocateUsage(Long id, short slice);
+
+    /**
+     * Gives usages back to a coupon.
+     *
+     * @param id     the ID of the coupon.
+     * @param amount the number of usages to give back.
      */
     @Modifying
     @Query("""
-                update CouponDetail c set c.usage = c.usage - cast(1 as short) where c.coupon.id = :id
+                update CouponDetail c set c.usage = c.usage + :amount where c.id = :id
             """)
-    void decreaseUsage(Long id);
+    void increaseUsage(Long id, short amount);
 
     /**
      * Deletes all coupon entities associated with the specified shop ID.
@@ -0,0 +1,97 @@
+package com.ring.repository;
+
+import com.ring.model.entity.CouponUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface named {@link CouponUsageRepository} for managing
+ * {@link CouponUsage} entities.
+ */
+@Repository
+public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long> {
+
+    /**
+     * Finds which of the given coupons a user has already redeemed.
+     *
+     * @param userId    the identifier of the user.
+     * @param couponIds the identifiers of the coupons to check.
+     * @return the identifiers of the redeemed coupons.
+     */
+    @Query("""
+                select u.couponId from CouponUsage u
+                where u.userId = :userId and u.couponId in :couponIds
+            """)
+    List<Long> findUsedCouponIds(Long userId, Collection<Long> couponIds);
+
+    /**
+     * Records the redemption of coupons by a user in one statement. Coupons the user
+     * already redeemed, including by a concurrent checkout, are skipped by the
+     * unique key and left out of the result.
+     *
+     * @param couponIds the coupon IDs, without duplicates.
+     * @param userId    the identifier of the user.
+     * @param orderId   the identifier of the order redeeming them.
+     * @return the IDs of the coupons that were recorded.
+     */
+    @Query(value = """
+                insert into coupon_usage (id, coupon_id, user_id, order_id, created_at)
+                select nextval('primary_sequence'), c.id, :userId, :orderId, now()
+                from unnest(cast(:couponIds as bigint[])) as c(id)
+                on conflict (coupon_id, user_id) do nothing
+                returning coupon_id
+            """, nativeQuery = true)
+    List<Long> redeem(Long[] couponIds, Long userId, Long orderId);
+
+    /**
+     * Records the coupons of orders placed before the ledger existed, leaving out
+     * canceled and refunded ones. Safe to run again, already recorded pairs are
+     * skipped.
+     *
+     * @return the number of recorded usages.
+     */
+    @Modifying
+    @Query(value = """
+                insert into coupon_usage (id, coupon_id, user_id, order_id, created_at)
+                select nextval('primary_sequence'), u.coupon_id, u.user_id, max(u.order_id), now()
+                from (
+                    select o.coupon_id, o.user_id, o.id as order_id from order_receipt o
+                    where o.coupon_id is not null and o.user_id is not null
+                    and exists (select 1 from order_detail d where d.order_id = o.id
+                        and d.status not in ('CANCELED', 'REFUNDED'))
+                    union all
+                    select d.coupon_id, o.user_id, o.id from order_detail d
+                    join order_receipt o on o.id = d.order_id
+                    where d.coupon_id is not null and o.user_id is not null
+                    and d.status not in ('CANCELED', 'REFUNDED')
+                ) u
+                group by u.coupon_id, u.user_id
+                on conflict (coupon_id, user_id) do nothing
+            """, nativeQuery = true)
+    int backfill();
+
+    /**
+     * Removes the usages recorded by the given orders.
+     *
+     * @param orderIds the identifiers of the orders.
+     * @return the IDs of the released coupons.
+     */
+    @Query(value = """
+                delete from coupon_usage
+                where order_id in (:orderIds)
+                returning coupon_id
+            """, nativeQuery = true)
+    List<Long> deleteByOrderIds(Collection<Long> orderIds);
+
+    @Modifying
+    @Query("""
+                delete from CouponUsage u
+                where u.orderId = :orderId and u.couponId = :couponId
+            """)
+    void deleteByOrderIdAndCouponId(Long orderId, Long couponId);
+}
@@ -2,6 +2,7 @@ package com.ring.repository;
 
 import com.ring.dto.projection.images.IImage;
 import com.ring.model.entity.Image;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -25,7 +26,15 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findImages(List<Long> imageIds);
 
     @Query("""
-        select i.publicId as publicId, i.url as url
+        select i from Image i
+        where i.srcSet is null
+        and i.id > :afterId
+        order by i.id
+    """)
+    List<Image> findMissingSrcSet(Long afterId, Pageable pageable);
+
+    @Query("""
+        select i.publicId as publicId, i.url as url, i.srcSet as srcSet
         from AccountProfile p
         join p.image i
         where p.id = :id
@@ -0,0 +1,58 @@
+package com.ring.repository;
+
+import com.ring.model.entity.InventoryHold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface named {@link InventoryHoldRepository} for managing
+ * {@link InventoryHold} entities.
+ */
+@Repository
+public interface InventoryHoldRepository extends JpaRepository<InventoryHold, Long> {
+
+    /**
+     * Locks and returns the holds of the given orders. Rows already released or
+     * converted by a concurrent transaction are skipped once it commits, so each
+     * hold is settled exactly once.
+     *
+     * @param orderIds the IDs of the orders.
+     * @return the holds of the orders.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+                select h from InventoryHold h
+                where h.orderId in :orderIds
+            """)
+    List<InventoryHold> findAllByOrderIds(Collection<Long> orderIds);
+
+    /**
+     * Finds the orders owning at least one hold past its expiry.
+     *
+     * @param now      the current time.
+     * @param pageable the batch size.
+     * @return the IDs of the orders whose holds expired.
+     */
+    @Query("""
+                select distinct h.orderId from InventoryHold h
+                where h.expiredAt < :now
+                order by h.orderId
+            """)
+    List<Long> findExpiredOrderIds(LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("""
+                update InventoryHold h set h.expiredAt = :expiredAt
+                where h.orderId = :orderId
+            """)
+    void updateExpiry(Long orderId, LocalDateTime expiredAt);
+}
@@ -12,6 +12,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -173,6 +174,16 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long>
             """)
     void cancelUnpaidByOrderId(Long id, String reason);
 
+    @Modifying
+    @Query("""
+                update OrderDetail od
+                set od.status = com.ring.model.enums.OrderStatus.CANCELED,
+                    od.note = :reason
+                where od.order.id in :ids
+                and od.status = com.ring.model.enums.OrderStatus.PENDING_PAYMENT
+            """)
+    void cancelUnpaidByOrderIds(Collection<Long> ids, String reason);
+
     @Modifying
     @Query("""
                 update OrderDetail od
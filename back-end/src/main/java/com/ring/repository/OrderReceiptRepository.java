@@ -7,10 +7,13 @@ import com.ring.model.entity.OrderReceipt;
 import com.ring.model.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -22,6 +25,29 @@ import java.util.Optional;
 @Repository
 public interface OrderReceiptRepository extends JpaRepository<OrderReceipt, Long> {
 
+    /**
+     * The receipt listing shared by {@link #findAllBy} and {@link #findAllSliceBy}.
+     */
+    String RECEIPTS_QUERY = """
+                select o.id as id, o.email as email, a.phone as phone, a.name as name,
+                    u.username as username, i as image, a.address as address, o.lastModifiedDate as date,
+                    o.total as total, o.totalDiscount as totalDiscount
+                from OrderReceipt o
+                join o.details od
+                join od.items oi
+                join o.address a
+                left join o.user u
+                left join u.profile p
+                left join p.image i
+                left join od.shop s
+                left join Book b on oi.book.id = b.id
+                where (coalesce(:shopId) is null or s.id = :shopId)
+                and (coalesce(:userId) is null or s.owner.id = :userId)
+                and (coalesce(:status) is null or od.status = :status)
+                and concat (b.title, o.id) ilike %:keyword%
+                group by o.id, a.id, u.id, i.id
+            """;
+
     /**
      * Checks if a user has purchased a book.
      *
@@ -104,30 +130,42 @@ public interface OrderReceiptRepository extends JpaRepository<OrderReceipt, Long
             Long bookId,
             Pageable pageable);
 
+    @Query(RECEIPTS_QUERY)
+    Page<IOrderReceipt> findAllBy(Long shopId,
+            Long userId,
+            OrderStatus status,
+            String keyword,
+            Pageable pageable);
+
+    /**
+     * Same as {@link #findAllBy} but returns a {@link Slice}, skipping the count query.
+     */
+    @Query(RECEIPTS_QUERY)
+    Slice<IOrderReceipt> findAllSliceBy(Long shopId,
+            Long userId,
+            OrderStatus status,
+            String keyword,
+            Pageable pageable);
+
+    /**
+     * Counts the receipts matched by {@link #findAllBy}.
+     */
     @Query("""
-                select o.id as id, o.email as email, a.phone as phone, a.name as name,
-                    u.username as username, i as image, a.address as address, o.lastModifiedDate as date,
-                    o.total as total, o.totalDiscount as totalDiscount
+                select count(distinct o.id)
                 from OrderReceipt o
                 join o.details od
                 join od.items oi
-                join o.address a
-                left join o.user u
-                left join u.profile p
-                left join p.image i
                 left join od.shop s
                 left join Book b on oi.book.id = b.id
                 where (coalesce(:shopId) is null or s.id = :shopId)
                 and (coalesce(:userId) is null or s.owner.id = :userId)
                 and (coalesce(:status) is null or od.status = :status)
                 and concat (b.title, o.id) ilike %:keyword%
-                group by o.id, a.id, u.id, i.id
             """)
-    Page<IOrderReceipt> findAllBy(Long shopId,
+    long countAllBy(Long shopId,
             Long userId,
             OrderStatus status,
-            String keyword,
-            Pageable pageable);
+            String keyword);
 
     /**
      * Retrieves monthly sales data, including sales totals and discounts, grouped
@@ -160,4 +198,11 @@ public interface OrderReceiptRepository extends JpaRepository<OrderReceipt, Long
     List<Map<String, Object>> getMonthlySales(Long shopId,
             Long userId,
             Integer year); // Get monthly sale
+
+    @Modifying
+    @Query("""
+                update OrderReceipt o set o.total = 0, o.totalDiscount = 0
+                where o.id in :ids
+            """)
+    void clearTotals(Collection<Long> ids);
 }
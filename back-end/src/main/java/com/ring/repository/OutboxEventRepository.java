@@ -0,0 +1,39 @@
+package com.ring.repository;
+
+import com.ring.model.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface named {@link OutboxEventRepository} for managing
+ * {@link OutboxEvent} entities.
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest events that are due. Rows locked by another dispatcher are
+     * skipped rather than waited on, so several nodes can drain the outbox at once.
+     *
+     * @param now      the current time.
+     * @param pageable the batch size.
+     * @return the due events.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+                select e from OutboxEvent e
+                where e.nextAttemptAt <= :now
+                order by e.nextAttemptAt, e.id
+            """)
+    List<OutboxEvent> findDue(LocalDateTime now, Pageable pageable);
+}
@@ -2,9 +2,12 @@ package com.ring.repository;
 
 import com.ring.model.entity.PaymentInfo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -19,4 +22,39 @@ public interface PaymentInfoRepository extends JpaRepository<PaymentInfo, Intege
         where o.id = :id
     """)
     Optional<PaymentInfo> findByOrder(Long id);
+
+    @Modifying
+    @Query("""
+        update PaymentInfo p
+        set p.status = com.ring.model.enums.PaymentStatus.CANCELED, p.expiredAt = null
+        where p.status = com.ring.model.enums.PaymentStatus.PENDING
+        and p.id in (select o.payment.id from OrderReceipt o where o.id in :ids)
+    """)
+    void cancelPendingByOrderIds(Collection<Long> ids);
+
+    /**
+     * Claims a pending payment without a link so only one caller creates it. A claim
+     * older than {@code staleBefore} is taken over, as its holder may have died.
+     *
+     * @return 1 if the payment was claimed, 0 otherwise.
+     */
+    @Modifying
+    @Query("""
+        update PaymentInfo p
+        set p.checkoutRequestedAt = :now
+        where p.id = :id
+        and p.checkoutUrl is null
+        and p.status = com.ring.model.enums.PaymentStatus.PENDING
+        and (p.checkoutRequestedAt is null or p.checkoutRequestedAt < :staleBefore)
+    """)
+    int claimCheckout(Long id, LocalDateTime now, LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("""
+        update PaymentInfo p
+        set p.checkoutRequestedAt = null
+        where p.id = :id
+        and p.checkoutUrl is null
+    """)
+    void releaseCheckout(Long id);
 }
@@ -114,4 +114,16 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
 		where r.user.id = :userId and b.id = :bookId
 	""")
 	Optional<IReview> findUserBookReview(Long bookId, Long userId);
+
+	/**
+	 * Retrieves the distinct IDs of the books the given reviews belong to.
+	 *
+	 * @param ids the list of review IDs
+	 * @return a list of book IDs
+	 */
+	@Query("""
+		select distinct r.book.id from Review r
+		where r.id in :ids
+	""")
+	List<Long> findBookIdsInIds(List<Long> ids);
 }
@@ -6,6 +6,7 @@ import com.ring.model.entity.Account;
 import com.ring.model.entity.Shop;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -20,6 +21,27 @@ import java.util.Optional;
 @Repository
 public interface ShopRepository extends JpaRepository<Shop, Long> {
 
+	/**
+	 * The shop listing shared by {@link #findShops} and {@link #findShopsSlice}.
+	 */
+	String SHOPS_QUERY = """
+				select s.owner.username as username, s.owner.id as ownerId, s.id as id,
+					s.name as name, size(s.followers) as totalFollowers, s.createdDate as joinedDate,
+					i as image,
+					sum(case when od.status = com.ring.model.enums.OrderStatus.COMPLETED
+						then o.total - o.totalDiscount else 0 end) as sales,
+					sum(case when od.status = com.ring.model.enums.OrderStatus.COMPLETED
+						then oi.quantity else 0 end) as totalSold
+				from Shop s
+				left join s.image i
+				left join OrderDetail od on od.shop.id = s.id
+				left join od.order o
+				left join od.items oi
+				where concat (s.name, s.owner.username) ilike %:keyword%
+				and (coalesce(:userId) is null or s.owner.id = :userId)
+				group by s.id, s.owner.id, s.owner.username, i.id
+			""";
+
 	/**
 	 * Finds a pageable list of shop displays based on the specified keyword, follow
 	 * status,
@@ -74,26 +96,31 @@ public interface ShopRepository extends JpaRepository<Shop, Long> {
 	 *         information, followers count, created date,
 	 *         sales data, and an associated image
 	 */
+	@Query(SHOPS_QUERY)
+	Page<IShop> findShops(String keyword,
+			Long userId,
+			Pageable pageable);
+
+	/**
+	 * Same as {@link #findShops} but returns a {@link Slice}, skipping the count
+	 * query.
+	 */
+	@Query(SHOPS_QUERY)
+	Slice<IShop> findShopsSlice(String keyword,
+			Long userId,
+			Pageable pageable);
+
+	/**
+	 * Counts the shops matched by {@link #findShops}.
+	 */
 	@Query("""
-				select s.owner.username as username, s.owner.id as ownerId, s.id as id,
-					s.name as name, size(s.followers) as totalFollowers, s.createdDate as joinedDate,
-					i as image,
-					sum(case when od.status = com.ring.model.enums.OrderStatus.COMPLETED
-						then o.total - o.totalDiscount else 0 end) as sales,
-					sum(case when od.status = com.ring.model.enums.OrderStatus.COMPLETED
-						then oi.quantity else 0 end) as totalSold
+				select count(s)
 				from Shop s
-				left join s.image i
-				left join OrderDetail od on od.shop.id = s.id
-				left join od.order o
-				left join od.items oi
 				where concat (s.name, s.owner.username) ilike %:keyword%
 				and (coalesce(:userId) is null or s.owner.id = :userId)
-				group by s.id, s.owner.id, s.owner.username, i.id
 			""")
-	Page<IShop> findShops(String keyword,
-			Long userId,
-			Pageable pageable);
+	long countShops(String keyword,
+			Long userId);
 
 	/**
 	 * Retrieves a list of shops that are owned by the specified owner, providing a
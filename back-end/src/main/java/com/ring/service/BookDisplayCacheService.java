@@ -0,0 +1,17 @@
+package com.ring.service;
+
+import com.ring.dto.response.books.BookDisplayDTO;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BookDisplayCacheService {
+
+    Map<Long, BookDisplayDTO> getAll(Collection<Long> ids);
+
+    void putAll(Map<Long, BookDisplayDTO> books);
+
+    void evict(Collection<Long> ids);
+
+    void evictAll();
+}
@@ -0,0 +1,15 @@
+package com.ring.service;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookSamplingService {
+
+    List<Long> sample(int amount);
+
+    void addBook(Long bookId);
+
+    void removeBooks(Collection<Long> bookIds);
+
+    void refresh();
+}
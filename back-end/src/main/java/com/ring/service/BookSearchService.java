@@ -0,0 +1,8 @@
+package com.ring.service;
+
+public interface BookSearchService {
+
+    void reindexShop(Long shopId);
+
+    int indexMissing();
+}
@@ -1,14 +1,17 @@
 package com.ring.service;
 
 import com.ring.dto.request.BookRequest;
+import com.ring.dto.response.CursorResponse;
 import com.ring.dto.response.PagingResponse;
 import com.ring.dto.response.books.BookDTO;
 import com.ring.dto.response.books.BookDetailDTO;
+import com.ring.dto.response.books.BookFacetsDTO;
 import com.ring.dto.response.books.BookDisplayDTO;
 import com.ring.dto.response.books.BookResponseDTO;
 import com.ring.dto.response.dashboard.StatDTO;
 import com.ring.model.entity.Account;
 import com.ring.model.enums.BookType;
+import com.ring.model.enums.CountMode;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -31,8 +34,36 @@ public interface BookService {
             Long userId,
             Double fromRange,
             Double toRange,
+            Boolean withDesc,
+            CountMode countMode);
+
+    CursorResponse<BookDisplayDTO> getBooksByCursor(String cursor,
+            Integer pageSize,
+            String sortBy,
+            String sortDir,
+            String keyword,
+            Integer rating,
+            Integer amount,
+            Integer cateId,
+            List<Integer> pubIds,
+            List<BookType> types,
+            Long shopId,
+            Long userId,
+            Double fromRange,
+            Double toRange,
             Boolean withDesc);
 
+    BookFacetsDTO getBookFacets(String keyword,
+            Integer rating,
+            Integer amount,
+            Integer cateId,
+            List<Integer> pubIds,
+            List<BookType> types,
+            Long shopId,
+            Long userId,
+            Double fromRange,
+            Double toRange);
+
     BookDTO getBook(Long id);
 
     List<BookDisplayDTO> getRandomBooks(Integer amount,
@@ -0,0 +1,23 @@
+package com.ring.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BookStatsService {
+
+    void createStats(Long bookId);
+
+    void addRating(Long bookId, Integer rating);
+
+    void removeRating(Long bookId, Integer rating);
+
+    void changeRating(Long bookId, Integer oldRating, Integer newRating);
+
+    void addSold(Map<Long, Integer> quantities);
+
+    void removeSold(Map<Long, Integer> quantities);
+
+    void rebuildStats(Collection<Long> bookIds);
+
+    void rebuildAllStats();
+}
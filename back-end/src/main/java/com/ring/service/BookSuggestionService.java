@@ -0,0 +1,15 @@
+package com.ring.service;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookSuggestionService {
+
+    List<String> suggest(String keyword);
+
+    void indexBook(Long bookId, String title);
+
+    void removeBooks(Collection<Long> bookIds);
+
+    void rebuild();
+}
@@ -0,0 +1,13 @@
+package com.ring.service;
+
+import java.util.Collection;
+
+public interface CacheTagService {
+
+    boolean tag(String cacheName,
+            Object key,
+            Collection<String> tags);
+
+    void evict(Collection<String> cacheNames,
+            Collection<String> tags);
+}
@@ -0,0 +1,26 @@
+package com.ring.service;
+
+import com.ring.dto.projection.coupons.ICoupon;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface CouponIndexService {
+
+    Map<String, ICoupon> findInCodes(Collection<String> codes);
+
+    ICoupon recommend(Long shopId,
+            Double value,
+            Integer quantity,
+            Set<Long> excluded);
+
+    List<ICoupon> recommendEach(Collection<Long> shopIds);
+
+    void invalidate();
+
+    void refresh();
+
+    void expire();
+}
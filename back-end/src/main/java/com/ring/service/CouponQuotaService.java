@@ -0,0 +1,12 @@
+package com.ring.service;
+
+import java.util.Collection;
+
+public interface CouponQuotaService {
+
+    void acquire(Collection<Long> couponIds);
+
+    void discard(Long couponId);
+
+    int reconcile();
+}
@@ -11,7 +11,9 @@ import com.ring.model.entity.Account;
 import com.ring.model.entity.Coupon;
 import com.ring.model.enums.CouponType;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface CouponService {
 
@@ -56,8 +58,19 @@ public interface CouponService {
             Account user);
 
     CouponDiscountDTO applyCoupon(Coupon coupon,
-            CartStateRequest request,
-            Account user);
+            CartStateRequest request);
+
+    Set<Long> findUsedCoupons(Long userId,
+            Collection<Long> couponIds);
+
+    void redeem(Collection<Long> couponIds,
+            Account user,
+            Long orderId);
+
+    void releaseUsages(Collection<Long> orderIds);
+
+    void releaseUsage(Long orderId,
+            Long couponId);
 
     boolean isExpired(Coupon coupon);
 
@@ -14,4 +14,9 @@ public interface EmailService {
                           String subject,
                           String template,
                           Context context);
+
+    void deliverTemplateMail(String to,
+                             String subject,
+                             String template,
+                             Context context);
 }
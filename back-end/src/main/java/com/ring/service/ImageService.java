@@ -23,4 +23,6 @@ public interface ImageService {
     ApiResponse deleteImages(List<String> publicIds);
 
     ApiResponse deleteImagesByIds(List<Long> ids);
+
+    int backfillSrcSets();
 }
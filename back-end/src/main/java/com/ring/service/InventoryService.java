@@ -0,0 +1,31 @@
+package com.ring.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface InventoryService {
+
+    void reserve(Map<Long, Integer> quantities);
+
+    void hold(Long orderId, Map<Long, Integer> quantities);
+
+    void extendHold(Long orderId, LocalDateTime expiredAt);
+
+    ReleasedStock release(Collection<Long> orderIds);
+
+    void convert(Long orderId);
+
+    List<Long> findExpiredOrders(int limit);
+
+    /**
+     * Stock given back by {@link #release}, with the orders whose holds were
+     * released. Orders settled concurrently are left out of both.
+     */
+    record ReleasedStock(Set<Long> orderIds, Map<Long, Integer> quantities) {
+
+        public static final ReleasedStock EMPTY = new ReleasedStock(Set.of(), Map.of());
+    }
+}
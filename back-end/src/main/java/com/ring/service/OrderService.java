@@ -8,6 +8,7 @@ import com.ring.dto.response.dashboard.StatDTO;
 import com.ring.dto.response.orders.*;
 import com.ring.model.entity.Account;
 import com.ring.model.entity.PaymentInfo;
+import com.ring.model.enums.CountMode;
 import com.ring.model.enums.OrderStatus;
 import com.ring.model.enums.PaymentType;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,7 +25,8 @@ public interface OrderService {
                                               Integer pageNo,
                                               Integer pageSize,
                                               String sortBy,
-                                              String sortDir);
+                                              String sortDir,
+                                              CountMode countMode);
 
     PagingResponse<ReceiptSummaryDTO> getSummariesWithFilter(Account user,
                                                              Long shopId,
@@ -66,6 +68,8 @@ public interface OrderService {
     PaymentInfo createPaymentLink(HttpServletRequest request,
             Long id);
 
+    PaymentInfo preparePaymentLink(Long id);
+
     PaymentLinkData getPaymentLinkData(Long id);
 
     void cancel(Long id,
@@ -89,6 +93,8 @@ public interface OrderService {
 
     void confirmPayment(Long id);
 
+    int expireUnpaidOrders();
+
     void changeStatus(Long id,
             OrderStatus status,
             Account user);
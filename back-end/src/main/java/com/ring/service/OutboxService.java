@@ -0,0 +1,19 @@
+package com.ring.service;
+
+import com.ring.model.entity.OutboxEvent;
+import com.ring.model.enums.OutboxType;
+
+import java.util.List;
+
+public interface OutboxService {
+
+    void enqueue(OutboxType type, Long aggregateId, Object payload);
+
+    List<OutboxEvent> claim(int limit);
+
+    void complete(OutboxEvent event);
+
+    void fail(OutboxEvent event, Exception e);
+
+    <T> T readPayload(OutboxEvent event, Class<T> type);
+}
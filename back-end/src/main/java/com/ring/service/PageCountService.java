@@ -0,0 +1,18 @@
+package com.ring.service;
+
+import com.ring.dto.response.PagingResponse;
+import com.ring.model.enums.CountMode;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public interface PageCountService {
+
+    <T> PagingResponse<T> getPagingResponse(List<T> content,
+                                            Slice<?> slice,
+                                            CountMode mode,
+                                            Supplier<Long> counter,
+                                            String name,
+                                            Object... filters);
+}
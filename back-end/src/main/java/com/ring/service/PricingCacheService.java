@@ -0,0 +1,30 @@
+package com.ring.service;
+
+import com.ring.dto.request.CalculateRequest;
+import com.ring.dto.response.orders.CalculateDTO;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface PricingCacheService {
+
+    String key(Long userId,
+            CalculateRequest request);
+
+    CalculateDTO get(String key);
+
+    Map<String, Long> versions(Collection<Long> bookIds,
+            Collection<Long> shopIds);
+
+    void put(String key,
+            CalculateDTO value,
+            Map<String, Long> versions);
+
+    void bumpBooks(Collection<Long> ids);
+
+    void bumpShops(Collection<Long> ids);
+
+    void bumpCoupons(Collection<Long> ids);
+
+    void bumpAll();
+}
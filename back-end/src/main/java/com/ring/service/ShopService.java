@@ -5,6 +5,7 @@ import com.ring.dto.response.PagingResponse;
 import com.ring.dto.response.dashboard.StatDTO;
 import com.ring.dto.response.shops.*;
 import com.ring.model.entity.Account;
+import com.ring.model.enums.CountMode;
 import com.ring.model.entity.Shop;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -26,7 +27,8 @@ public interface ShopService {
                                      String sortDir,
                                      String keyword,
                                      Long userId,
-                                     Account user);
+                                     Account user,
+                                     CountMode countMode);
 
     List<ShopPreviewDTO> getShopsPreview(Account user);
 
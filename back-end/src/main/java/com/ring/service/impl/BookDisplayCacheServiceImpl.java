@@ -0,0 +1,113 @@
+package com.ring.service.impl;
+
+import com.ring.dto.response.books.BookDisplayDTO;
+import com.ring.service.BookDisplayCacheService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Per-book cache of {@link BookDisplayDTO}, read with a single MGET and written
+ * with one pipelined round trip. Evictions run after the writing transaction
+ * commits. Redis failures are logged and treated as misses so callers fall back
+ * to the database.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookDisplayCacheServiceImpl implements BookDisplayCacheService {
+
+    private static final String PREFIX = "bookDisplay::";
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public Map<Long, BookDisplayDTO> getAll(Collection<Long> ids) {
+        Map<Long, BookDisplayDTO> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) return result;
+
+        List<Long> keys = new ArrayList<>(new LinkedHashSet<>(ids));
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys.stream().map(this::key).toList());
+            if (values == null) return result;
+            for (int i = 0; i < keys.size(); i++) {
+                if (values.get(i) instanceof BookDisplayDTO book) result.put(keys.get(i), book);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to read book display cache: {}", e.getMessage());
+        }
+        return result;
+    }
+
+    public void putAll(Map<Long, BookDisplayDTO> books) {
+        if (books == null || books.isEmpty()) return;
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    books.forEach((id, book) -> operations.opsForValue().set(key(id), book, TTL));
+                    return null;
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Failed to write book display cache: {}", e.getMessage());
+        }
+    }
+
+    public void evict(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return;
+        List<String> keys = ids.stream().map(this::key).toList();
+        afterCommit(() -> {
+            try {
+                redisTemplate.delete(keys);
+            } catch (DataAccessException e) {
+                log.warn("Failed to evict book display cache: {}", e.getMessage());
+            }
+        });
+    }
+
+    public void evictAll() {
+        afterCommit(() -> {
+            ScanOptions options = ScanOptions.scanOptions().match(PREFIX + "*").count(1000).build();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                List<String> keys = new ArrayList<>();
+                cursor.forEachRemaining(keys::add);
+                if (!keys.isEmpty()) redisTemplate.delete(keys);
+            } catch (DataAccessException e) {
+                log.warn("Failed to clear book display cache: {}", e.getMessage());
+            }
+        });
+    }
+
+    // Evict once the write is visible, so a concurrent read cannot cache the old row again
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private String key(Long id) {
+        return PREFIX + id;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ring.service.impl;
+
+import com.ring.repository.BookRepository;
+import com.ring.service.BookSamplingService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps an in-memory pool of eligible book IDs so random shelves can be drawn
+ * without sorting the catalog. Catalog writes patch the pool in place and the
+ * scheduled refresh reloads it from the database to pick up anything missed.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookSamplingServiceImpl implements BookSamplingService {
+
+    private final BookRepository bookRepo;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private volatile long[] pool;
+
+    public List<Long> sample(int amount) {
+        long[] ids = pool;
+        if (ids == null) {
+            refresh();
+            ids = pool;
+        }
+
+        int size = ids.length;
+        int count = Math.min(Math.max(amount, 0), size);
+        if (count == 0) return new ArrayList<>();
+
+        // Floyd's algorithm, draws distinct indexes in O(count)
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> picked = new HashSet<>(count * 2);
+        List<Long> result = new ArrayList<>(count);
+        for (int i = size - count; i < size; i++) {
+            int index = random.nextInt(i + 1);
+            if (!picked.add(index)) {
+                picked.add(i);
+                index = i;
+            }
+            result.add(ids[index]);
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    public synchronized void addBook(Long bookId) {
+        if (bookId == null || pool == null) return;
+        long[] ids = pool;
+        for (long id : ids) {
+            if (id == bookId) return;
+        }
+
+        long[] updated = Arrays.copyOf(ids, ids.length + 1);
+        updated[ids.length] = bookId;
+        pool = updated;
+    }
+
+    public synchronized void removeBooks(Collection<Long> bookIds) {
+        if (bookIds == null || bookIds.isEmpty() || pool == null) return;
+        Set<Long> removed = new HashSet<>(bookIds);
+        pool = Arrays.stream(pool).filter(id -> !removed.contains(id)).toArray();
+    }
+
+    @Scheduled(fixedDelayString = "${ring.sampling.refresh-delay:300000}")
+    public void refresh() {
+        long[] ids = bookRepo.findAllIds().stream().mapToLong(Long::longValue).toArray();
+        synchronized (this) {
+            pool = ids;
+        }
+        log.debug("Refreshed random book pool with {} books", ids.length);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ring.service.impl;
+
+import com.ring.dto.projection.books.IBookSearch;
+import com.ring.repository.BookRepository;
+import com.ring.service.BookSearchService;
+import com.ring.utils.SearchTextUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Keeps the normalized {@code searchText} of books in sync with the fields it
+ * is built from. Book writes set it directly; this service covers shop renames
+ * and rows created before the column existed.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BookRepository bookRepo;
+
+    @CacheEvict(cacheNames = { "books", "bookFacets" }, allEntries = true)
+    @Transactional
+    public void reindexShop(Long shopId) {
+        Page<IBookSearch> batch;
+        int page = 0;
+        do {
+            batch = bookRepo.findBooksToIndexByShop(shopId,
+                    PageRequest.of(page++, BATCH_SIZE, Sort.by("id")));
+            batch.forEach(this::index);
+        } while (batch.hasNext());
+    }
+
+    @CacheEvict(cacheNames = { "books", "bookFacets" }, allEntries = true)
+    @Transactional
+    public int indexMissing() {
+        int total = 0;
+        List<IBookSearch> batch;
+        do {
+            // Indexed rows drop out of the query, so always read the first page
+            batch = bookRepo.findUnindexedBooks(PageRequest.of(0, BATCH_SIZE));
+            batch.forEach(this::index);
+            total += batch.size();
+        } while (batch.size() == BATCH_SIZE);
+        return total;
+    }
+
+    private void index(IBookSearch book) {
+        bookRepo.updateSearchText(book.getId(),
+                SearchTextUtil.searchText(book.getTitle(), book.getAuthor(), book.getShopName()));
+    }
+}
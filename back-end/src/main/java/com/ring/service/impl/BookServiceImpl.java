@@ -2,26 +2,42 @@ package com.ring.service.impl;
 
 import com.github.slugify.Slugify;
 import com.ring.dto.projection.books.IBook;
+import com.ring.dto.projection.books.IBookCursor;
 import com.ring.dto.projection.books.IBookDetail;
 import com.ring.dto.projection.books.IBookDisplay;
+import com.ring.dto.projection.books.IBookFacet;
 import com.ring.dto.request.BookRequest;
+import com.ring.dto.response.CursorResponse;
 import com.ring.dto.response.PagingResponse;
 import com.ring.dto.response.books.BookDTO;
 import com.ring.dto.response.books.BookDetailDTO;
+import com.ring.dto.response.books.BookFacetsDTO;
 import com.ring.dto.response.books.BookDisplayDTO;
 import com.ring.dto.response.books.BookResponseDTO;
+import com.ring.dto.response.books.PriceFacetDTO;
 import com.ring.dto.response.dashboard.StatDTO;
 import com.ring.exception.EntityOwnershipException;
+import com.ring.exception.HttpResponseException;
 import com.ring.exception.ResourceNotFoundException;
 import com.ring.mapper.BookMapper;
 import com.ring.mapper.DashboardMapper;
 import com.ring.model.entity.*;
 import com.ring.model.enums.BookType;
+import com.ring.model.enums.CountMode;
 import com.ring.model.enums.UserRole;
 import com.ring.repository.*;
+import com.ring.repository.BookRepositoryCustom.CursorKey;
+import com.ring.service.BookDisplayCacheService;
+import com.ring.service.BookSamplingService;
 import com.ring.service.BookService;
+import com.ring.service.BookStatsService;
+import com.ring.service.BookSuggestionService;
 import com.ring.service.ImageService;
+import com.ring.service.PageCountService;
+import com.ring.service.PricingCacheService;
+import com.ring.utils.CursorUtil;
 import com.ring.utils.FileUploadUtil;
+import com.ring.utils.SearchTextUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
@@ -29,16 +45,17 @@ import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -53,25 +70,53 @@ public class BookServiceImpl implements BookService {
     private final ImageRepository imageRepo;
 
     private final ImageService imageService;
+    private final BookStatsService statsService;
+    private final BookSamplingService samplingService;
+    private final BookSuggestionService suggestionService;
+    private final PageCountService countService;
+    private final BookDisplayCacheService displayCache;
+    private final PricingCacheService pricingCache;
 
     private final BookMapper bookMapper;
     private final DashboardMapper dashMapper;
     private final Slugify slg = Slugify.builder().lowerCase(false).build();
 
     public List<BookDisplayDTO> getRandomBooks(Integer amount, Boolean withDesc) {
-        List<IBookDisplay> booksList = bookRepo.findRandomBooks(amount, withDesc);
-        List<BookDisplayDTO> bookDTOS = booksList.stream().map(bookMapper::displayToDTO).collect(Collectors.toList());
+        List<Long> ids = samplingService.sample(amount);
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        // Keep the sampled order
+        Map<Long, IBookDisplay> booksMap = bookRepo.findBooksDisplayInIds(ids, withDesc).stream()
+                .collect(Collectors.toMap(IBookDisplay::getId, Function.identity()));
+        List<BookDisplayDTO> bookDTOS = ids.stream()
+                .map(booksMap::get)
+                .filter(Objects::nonNull)
+                .map(bookMapper::displayToDTO)
+                .collect(Collectors.toList());
         return bookDTOS;
     }
 
-    @Cacheable("books")
     public List<BookDisplayDTO> getBooksInIds(List<Long> ids) {
-        List<IBookDisplay> booksList = bookRepo.findBooksDisplayInIds(ids);
-        List<BookDisplayDTO> bookDTOS = booksList.stream().map(bookMapper::displayToDTO).collect(Collectors.toList());
+        Map<Long, BookDisplayDTO> booksMap = new HashMap<>(displayCache.getAll(ids));
+
+        // Fetch misses in one query and cache them per book
+        List<Long> missingIds = ids.stream().distinct().filter(id -> !booksMap.containsKey(id)).toList();
+        if (!missingIds.isEmpty()) {
+            Map<Long, BookDisplayDTO> loaded = bookRepo.findBooksDisplayInIds(missingIds).stream()
+                    .collect(Collectors.toMap(IBookDisplay::getId, bookMapper::displayToDTO));
+            displayCache.putAll(loaded);
+            booksMap.putAll(loaded);
+        }
+
+        List<BookDisplayDTO> bookDTOS = ids.stream()
+                .distinct()
+                .map(booksMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
         return bookDTOS;
     }
 
-    @Cacheable("books")
+    @Cacheable(cacheNames = "books", sync = true)
     public PagingResponse<BookDisplayDTO> getBooks(Integer pageNo,
             Integer pageSize,
             String sortBy,
@@ -86,13 +131,50 @@ public class BookServiceImpl implements BookService {
             Long userId,
             Double fromRange,
             Double toRange,
-            Boolean withDesc) {
-        Pageable pageable = PageRequest.of(pageNo, pageSize,
-                sortDir.equals("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending());
+            Boolean withDesc,
+            CountMode countMode) {
+        Pageable pageable = PageRequest.of(pageNo, pageSize, getSort(sortBy, sortDir));
+
+        // Skip or estimate the count query
+        if (countMode != CountMode.EXACT) {
+            Slice<IBookDisplay> booksSlice = bookRepo.findBooksSliceWithFilter(
+                    SearchTextUtil.fold(keyword),
+                    SearchTextUtil.prefixQuery(keyword),
+                    cateId,
+                    pubIds,
+                    types,
+                    shopId,
+                    userId,
+                    fromRange,
+                    toRange,
+                    withDesc,
+                    rating,
+                    amount,
+                    pageable);
+            List<BookDisplayDTO> bookDTOS = booksSlice.map(bookMapper::displayToDTO).toList();
+            return countService.getPagingResponse(bookDTOS,
+                    booksSlice,
+                    countMode,
+                    () -> bookRepo.countBooksWithFilter(
+                            SearchTextUtil.fold(keyword),
+                            SearchTextUtil.prefixQuery(keyword),
+                            cateId,
+                            pubIds,
+                            types,
+                            shopId,
+                            userId,
+                            fromRange,
+                            toRange,
+                            rating,
+                            amount),
+                    "books",
+                    keyword, rating, amount, cateId, pubIds, types, shopId, userId, fromRange, toRange);
+        }
 
         // Fetch from database
         Page<IBookDisplay> booksList = bookRepo.findBooksWithFilter(
-                keyword,
+                SearchTextUtil.fold(keyword),
+                SearchTextUtil.prefixQuery(keyword),
                 cateId,
                 pubIds,
                 types,
@@ -114,6 +196,130 @@ public class BookServiceImpl implements BookService {
                 booksList.isEmpty());
     }
 
+    @Cacheable(cacheNames = "books", sync = true)
+    public CursorResponse<BookDisplayDTO> getBooksByCursor(String cursor,
+            Integer pageSize,
+            String sortBy,
+            String sortDir,
+            String keyword,
+            Integer rating,
+            Integer amount,
+            Integer cateId,
+            List<Integer> pubIds,
+            List<BookType> types,
+            Long shopId,
+            Long userId,
+            Double fromRange,
+            Double toRange,
+            Boolean withDesc) {
+        CursorKey key = CursorKey.of(sortBy)
+                .orElseThrow(() -> new HttpResponseException(HttpStatus.BAD_REQUEST, "Unsupported cursor sort!",
+                        "Không hỗ trợ sắp xếp này khi phân trang theo con trỏ!"));
+        boolean ascending = sortDir.equals("asc");
+        Object afterValue = null;
+        Long afterId = null;
+
+        // Resume from cursor, must match the requested order
+        if (!cursor.isEmpty()) {
+            List<String> parts = CursorUtil.decode(cursor, 4);
+            if (!parts.get(0).equals(sortBy) || !parts.get(1).equals(sortDir))
+                throw new HttpResponseException(HttpStatus.BAD_REQUEST, "Invalid cursor!",
+                        "Con trỏ phân trang không hợp lệ!");
+            try {
+                afterValue = key.parse(parts.get(2));
+                afterId = Long.valueOf(parts.get(3));
+            } catch (RuntimeException e) {
+                throw new HttpResponseException(HttpStatus.BAD_REQUEST, "Invalid cursor!",
+                        "Con trỏ phân trang không hợp lệ!");
+            }
+        }
+
+        // Fetch one extra row to know if there is a next slice
+        List<IBookCursor> booksList = bookRepo.findBooksByCursor(
+                SearchTextUtil.fold(keyword),
+                SearchTextUtil.prefixQuery(keyword),
+                cateId,
+                pubIds,
+                types,
+                shopId,
+                userId,
+                fromRange,
+                toRange,
+                withDesc,
+                rating,
+                amount,
+                key,
+                ascending,
+                afterValue,
+                afterId,
+                pageSize + 1);
+        boolean hasNext = booksList.size() > pageSize;
+        List<IBookCursor> slice = hasNext ? booksList.subList(0, pageSize) : booksList;
+        String nextCursor = null;
+
+        if (hasNext) {
+            IBookCursor last = slice.get(slice.size() - 1);
+            nextCursor = CursorUtil.encode(sortBy, sortDir, key.valueOf(last), last.getId());
+        }
+        List<BookDisplayDTO> bookDTOS = slice.stream().map(bookMapper::displayToDTO).collect(Collectors.toList());
+        return new CursorResponse<>(bookDTOS, nextCursor, pageSize, bookDTOS.isEmpty());
+    }
+
+    @Cacheable(cacheNames = "bookFacets", keyGenerator = "filterKeyGenerator")
+    public BookFacetsDTO getBookFacets(String keyword,
+            Integer rating,
+            Integer amount,
+            Integer cateId,
+            List<Integer> pubIds,
+            List<BookType> types,
+            Long shopId,
+            Long userId,
+            Double fromRange,
+            Double toRange) {
+        List<IBookFacet> facets = bookRepo.findBookFacets(
+                SearchTextUtil.fold(keyword),
+                SearchTextUtil.prefixQuery(keyword),
+                cateId,
+                pubIds,
+                types,
+                shopId,
+                userId,
+                fromRange,
+                toRange,
+                rating,
+                amount);
+
+        // Sum the marginals of each facet
+        Map<Integer, Long> categories = new TreeMap<>();
+        Map<Integer, Long> publishers = new TreeMap<>();
+        Map<BookType, Long> bookTypes = new EnumMap<>(BookType.class);
+        Map<Integer, Long> ratings = new TreeMap<>();
+        long[] prices = new long[BookRepository.PRICE_BUCKETS.length + 1];
+        for (IBookFacet facet : facets) {
+            long total = facet.getTotal();
+            if (facet.getCateId() != null) categories.merge(facet.getCateId(), total, Long::sum);
+            if (facet.getPubId() != null) publishers.merge(facet.getPubId(), total, Long::sum);
+            if (facet.getType() != null) bookTypes.merge(facet.getType(), total, Long::sum);
+            ratings.merge(facet.getRatingBucket(), total, Long::sum);
+            prices[facet.getPriceBucket()] += total;
+        }
+
+        List<PriceFacetDTO> priceFacets = new ArrayList<>();
+        double from = 0;
+        for (int i = 0; i < prices.length; i++) {
+            Double to = i < BookRepository.PRICE_BUCKETS.length ? BookRepository.PRICE_BUCKETS[i] : null;
+            priceFacets.add(new PriceFacetDTO(from, to, prices[i]));
+            if (to != null) from = to;
+        }
+        return BookFacetsDTO.builder()
+                .categories(categories)
+                .publishers(publishers)
+                .types(bookTypes)
+                .ratings(ratings)
+                .prices(priceFacets)
+                .build();
+    }
+
     @Cacheable(cacheNames = "book", key = "#id")
     public BookDTO getBook(Long id) {
         IBook book = detailRepo.findBook(id)
@@ -127,7 +333,7 @@ public class BookServiceImpl implements BookService {
         return bookDTO;
     }
 
-    @Cacheable(cacheNames = "bookDetail", key = "#id")
+    @Cacheable(cacheNames = "bookDetail", key = "#id", sync = true)
     public BookDetailDTO getBookDetail(Long id) {
         IBookDetail book = detailRepo.findBookDetail(id, null)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found!",
@@ -136,7 +342,7 @@ public class BookServiceImpl implements BookService {
         return bookDetailDTO;
     }
 
-    @Cacheable(cacheNames = "bookDetail", key = "#slug")
+    @Cacheable(cacheNames = "bookDetail", key = "#slug", sync = true)
     public BookDetailDTO getBookDetail(String slug) {
         IBookDetail book = detailRepo.findBookDetail(null, slug)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found!",
@@ -145,13 +351,12 @@ public class BookServiceImpl implements BookService {
         return bookDetailDTO;
     }
 
-    @Cacheable(cacheNames = "booksSuggestion", key = "#keyword")
     public List<String> getBooksSuggestion(String keyword) {
-        return bookRepo.findSuggestion(keyword);
+        return suggestionService.suggest(keyword);
     }
 
     @Caching(evict = {
-            @CacheEvict(cacheNames = { "books", "booksSuggestion", "bookAnalytics" }, allEntries = true),
+            @CacheEvict(cacheNames = { "books", "bookFacets", "bookAnalytics" }, allEntries = true),
             @CacheEvict(cacheNames = { "book", "bookDetail" }, key = "#id"),
             @CacheEvict(cacheNames = "bookDetail", key = "#result.slug", condition = "#result != null") })
     @Transactional
@@ -193,8 +398,12 @@ public class BookServiceImpl implements BookService {
                 .amount(request.getAmount())
                 .type(request.getType())
                 .slug(slug)
+                .searchText(SearchTextUtil.searchText(request.getTitle(), request.getAuthor(), shop.getName()))
                 .build();
         Book addedBook = bookRepo.save(book); // Save to database
+        statsService.createStats(addedBook.getId()); // Listings inner join the stats row
+        samplingService.addBook(addedBook.getId());
+        suggestionService.indexBook(addedBook.getId(), addedBook.getTitle());
 
         // Images upload
         ArrayList<Image> previewImages = new ArrayList<>();
@@ -220,7 +429,7 @@ public class BookServiceImpl implements BookService {
     }
 
     @Caching(evict = {
-            @CacheEvict(cacheNames = { "books", "booksSuggestion" }, allEntries = true),
+            @CacheEvict(cacheNames = { "books", "bookFacets" }, allEntries = true),
             @CacheEvict(cacheNames = { "book", "bookDetail" }, key = "#id"),
             @CacheEvict(cacheNames = "bookDetail", key = "#result.slug", condition = "#result != null") })
     @Transactional
@@ -291,9 +500,15 @@ public class BookServiceImpl implements BookService {
         book.setAuthor(request.getAuthor());
         book.setAmount(request.getAmount());
         book.setType(request.getType());
+        book.setSearchText(SearchTextUtil.searchText(request.getTitle(),
+                request.getAuthor(),
+                book.getShop() != null ? book.getShop().getName() : null));
 
         // Update
         Book updatedBook = bookRepo.save(book);
+        suggestionService.indexBook(updatedBook.getId(), updatedBook.getTitle());
+        displayCache.evict(List.of(updatedBook.getId()));
+        pricingCache.bumpBooks(List.of(updatedBook.getId()));
 
         // Delete images
         if (isRemove)
@@ -310,7 +525,7 @@ public class BookServiceImpl implements BookService {
                 "Sản phẩm");
     }
 
-    @Caching(evict = { @CacheEvict(cacheNames = { "books", "booksSuggestion", "bookAnalytics" }, allEntries = true),
+    @Caching(evict = { @CacheEvict(cacheNames = { "books", "bookFacets", "bookAnalytics" }, allEntries = true),
             @CacheEvict(cacheNames = { "book", "bookDetail" }, key = "#id"),
             @CacheEvict(cacheNames = "bookDetail", key = "#result.slug", condition = "#result != null") })
     @Transactional
@@ -324,17 +539,25 @@ public class BookServiceImpl implements BookService {
                     "Người dùng không có quyền chỉnh sửa sản phẩm này!");
 
         bookRepo.deleteById(id); // Delete from database
+        samplingService.removeBooks(List.of(id));
+        suggestionService.removeBooks(List.of(id));
+        displayCache.evict(List.of(id));
+        pricingCache.bumpBooks(List.of(id));
         return bookMapper.bookToResponseDTO(book);
     }
 
-    @CacheEvict(cacheNames = { "book", "bookDetail", "books", "booksSuggestion" }, allEntries = true)
+    @CacheEvict(cacheNames = { "book", "bookDetail", "books", "bookFacets" }, allEntries = true)
     @Transactional
     public void deleteBooks(List<Long> ids, Account user) {
         List<Long> deleteIds = isAuthAdmin() ? ids : bookRepo.findBookIdsByInIdsAndOwner(ids, user.getId());
         bookRepo.deleteAllById(deleteIds);
+        samplingService.removeBooks(deleteIds);
+        suggestionService.removeBooks(deleteIds);
+        displayCache.evict(deleteIds);
+        pricingCache.bumpBooks(deleteIds);
     }
 
-    @CacheEvict(cacheNames = { "book", "bookDetail", "books", "booksSuggestion", "bookAnalytics" }, allEntries = true)
+    @CacheEvict(cacheNames = { "book", "bookDetail", "books", "bookFacets", "bookAnalytics" }, allEntries = true)
 
     @Transactional
     public void deleteBooksInverse(String keyword,
@@ -349,7 +572,8 @@ public class BookServiceImpl implements BookService {
             Double toRange,
             List<Long> ids,
             Account user) {
-        List<Long> deleteIds = bookRepo.findInverseIds(keyword,
+        List<Long> deleteIds = bookRepo.findInverseIds(SearchTextUtil.fold(keyword),
+                SearchTextUtil.prefixQuery(keyword),
                 cateId,
                 pubIds,
                 types,
@@ -361,9 +585,13 @@ public class BookServiceImpl implements BookService {
                 amount,
                 ids);
         bookRepo.deleteAllById(deleteIds);
+        samplingService.removeBooks(deleteIds);
+        suggestionService.removeBooks(deleteIds);
+        displayCache.evict(deleteIds);
+        pricingCache.bumpBooks(deleteIds);
     }
 
-    @CacheEvict(cacheNames = { "book", "bookDetail", "books", "booksSuggestion", "bookAnalytics" }, allEntries = true)
+    @CacheEvict(cacheNames = { "book", "bookDetail", "books", "bookFacets", "bookAnalytics" }, allEntries = true)
     @Transactional
     public void deleteAllBooks(Long shopId, Account user) {
         if (isAuthAdmin()) {
@@ -379,6 +607,21 @@ public class BookServiceImpl implements BookService {
                 bookRepo.deleteAllByShop_Owner(user);
             }
         }
+        samplingService.refresh();
+        suggestionService.rebuild();
+        displayCache.evictAll();
+        if (shopId != null) {
+            pricingCache.bumpShops(List.of(shopId));
+        } else {
+            pricingCache.bumpAll();
+        }
+    }
+
+    protected Sort getSort(String sortBy, String sortDir) {
+        Sort sort = sortDir.equals("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+
+        // Break relevance ties by popularity
+        return sortBy.equals("relevance") ? sort.and(Sort.by("totalOrders").descending()) : sort;
     }
 
     // Check valid role function
@@ -0,0 +1,112 @@
+package com.ring.service.impl;
+
+import com.ring.repository.BookStatsRepository;
+import com.ring.service.BookDisplayCacheService;
+import com.ring.service.BookStatsService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the {@code book_stats} read model. Review and order writes apply
+ * small deltas within their own transaction, while the scheduled rebuild
+ * recomputes every row from source tables to repair any drift. Both evict the
+ * cached displays of the books they touch.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookStatsServiceImpl implements BookStatsService {
+
+    private final BookStatsRepository statsRepo;
+    private final BookDisplayCacheService displayCache;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Transactional
+    public void createStats(Long bookId) {
+        if (bookId != null) statsRepo.createStats(bookId);
+    }
+
+    @Transactional
+    public void addRating(Long bookId, Integer rating) {
+        if (bookId == null || !isValidRating(rating)) return;
+        statsRepo.applyRating(bookId, rating, 1);
+        displayCache.evict(List.of(bookId));
+    }
+
+    @Transactional
+    public void removeRating(Long bookId, Integer rating) {
+        if (bookId == null || !isValidRating(rating)) return;
+        statsRepo.applyRating(bookId, rating, -1);
+        displayCache.evict(List.of(bookId));
+    }
+
+    @Transactional
+    public void changeRating(Long bookId, Integer oldRating, Integer newRating) {
+        if (oldRating != null && oldRating.equals(newRating)) return;
+        removeRating(bookId, oldRating);
+        addRating(bookId, newRating);
+    }
+
+    @Transactional
+    public void addSold(Map<Long, Integer> quantities) {
+        quantities.forEach((id, quantity) -> {
+            if (quantity != null && quantity != 0) statsRepo.applySold(id, quantity);
+        });
+        displayCache.evict(quantities.keySet()); // Stock changed along with the sold count
+    }
+
+    @Transactional
+    public void removeSold(Map<Long, Integer> quantities) {
+        quantities.forEach((id, quantity) -> {
+            if (quantity != null && quantity != 0) statsRepo.applySold(id, -quantity);
+        });
+        displayCache.evict(quantities.keySet());
+    }
+
+    @Transactional
+    public void rebuildStats(Collection<Long> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) return;
+        statsRepo.rebuildStats(new ArrayList<>(bookIds));
+        displayCache.evict(bookIds);
+    }
+
+    @Scheduled(cron = "${ring.stats.rebuild-cron:0 30 3 * * *}")
+    @Transactional
+    public void rebuildAllStats() {
+        long start = System.currentTimeMillis();
+        int rows = statsRepo.rebuildAllStats();
+        displayCache.evictAll();
+        log.info("Rebuilt {} book stats rows in {} ms", rows, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Seeds the read model on the first start against an existing database, and
+     * gives every book left without a row an empty one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedStats() {
+        if (statsRepo.count() == 0) {
+            rebuildAllStats();
+            return;
+        }
+
+        int rows = statsRepo.createMissingStats();
+        if (rows > 0) log.info("Created {} missing book stats rows", rows);
+    }
+
+    private boolean isValidRating(Integer rating) {
+        return rating != null && rating >= 1 && rating <= 5;
+    }
+}
@@ -0,0 +1,194 @@
+package com.ring.service.impl;
+
+import com.ring.dto.projection.books.IBookSuggestion;
+import com.ring.repository.BookRepository;
+import com.ring.service.BookSuggestionService;
+import com.ring.utils.SearchTextUtil;
+import com.ring.utils.SuggestionTrie;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Serves title autocompletion from an in-memory {@link SuggestionTrie}. Every
+ * title is split into phrases starting at each of its words, keyed by their
+ * accent-folded form and weighted by the books' total orders. Book writes
+ * patch the index in place, the scheduled rebuild refreshes the weights.
+ */
+@RequiredArgsConstructor
+@Service
+public class BookSuggestionServiceImpl implements BookSuggestionService {
+
+    private static final int MAX_SUGGESTIONS = 9;
+    private static final int MAX_PHRASE_LENGTH = 24;
+
+    private final BookRepository bookRepo;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Index index;
+    private List<Consumer<Index>> pending; // Patches made while a rebuild reads the books, guarded by lock
+
+    private static class Index {
+        private final SuggestionTrie trie = new SuggestionTrie(MAX_SUGGESTIONS);
+        private final Map<String, String> texts = new HashMap<>();
+        private final Map<String, Map<Long, Integer>> owners = new HashMap<>();
+        private final Map<Long, Set<String>> bookKeys = new HashMap<>();
+        private final Map<Long, Integer> bookWeights = new HashMap<>();
+    }
+
+    public List<String> suggest(String keyword) {
+        Index current = index;
+        if (current == null) {
+            rebuild();
+            current = index;
+        }
+
+        lock.readLock().lock();
+        try {
+            return current.trie.top(SearchTextUtil.fold(keyword));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void indexBook(Long bookId, String title) {
+        if (bookId == null) return;
+        apply(current -> {
+            Integer weight = current.bookWeights.getOrDefault(bookId, 0);
+
+            // Relink the book, then refresh every phrase it touched
+            Set<String> touched = unlink(current, bookId);
+            touched.addAll(link(current, bookId, title, weight));
+            touched.forEach(key -> sync(current, key));
+        });
+    }
+
+    public void removeBooks(Collection<Long> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) return;
+        List<Long> ids = List.copyOf(bookIds);
+        apply(current -> {
+            Set<String> touched = new HashSet<>();
+            ids.forEach(id -> touched.addAll(unlink(current, id)));
+            touched.forEach(key -> sync(current, key));
+        });
+    }
+
+    /**
+     * Rebuilds the index from the database. Patches applied while the books are
+     * read are recorded and replayed on the new index before it is swapped in, so
+     * a write racing with the rebuild is not lost.
+     */
+    @Scheduled(fixedDelayString = "${ring.suggestion.refresh-delay:3600000}")
+    public synchronized void rebuild() {
+        setPending(new ArrayList<>());
+        try {
+            List<IBookSuggestion> books = bookRepo.findSuggestionSources();
+            Index rebuilt = new Index();
+            books.forEach(book -> link(rebuilt, book.getId(), book.getTitle(), book.getTotalOrders()));
+
+            Map<String, Long> weights = new HashMap<>();
+            rebuilt.owners.forEach((key, owner) -> weights.put(key, totalWeight(owner)));
+            rebuilt.trie.putAll(rebuilt.texts, weights);
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(patch -> patch.accept(rebuilt));
+                index = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Rebuilt suggestion index with {} phrases from {} books", rebuilt.texts.size(), books.size());
+        } finally {
+            setPending(null);
+        }
+    }
+
+    // Patch the live index, and record the patch for a rebuild in progress
+    private void apply(Consumer<Index> patch) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) patch.accept(index);
+            if (pending != null) pending.add(patch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setPending(List<Consumer<Index>> patches) {
+        lock.writeLock().lock();
+        try {
+            pending = patches;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<String> link(Index index, Long bookId, String title, Integer weight) {
+        int bookWeight = weight != null ? weight : 0;
+        Map<String, String> phrases = phrases(title);
+        phrases.forEach((key, text) -> {
+            index.texts.putIfAbsent(key, text);
+            index.owners.computeIfAbsent(key, k -> new HashMap<>()).put(bookId, bookWeight);
+        });
+        index.bookKeys.put(bookId, new HashSet<>(phrases.keySet()));
+        index.bookWeights.put(bookId, bookWeight);
+        return new HashSet<>(phrases.keySet());
+    }
+
+    private Set<String> unlink(Index index, Long bookId) {
+        Set<String> keys = index.bookKeys.remove(bookId);
+        index.bookWeights.remove(bookId);
+        if (keys == null) return new HashSet<>();
+        keys.forEach(key -> {
+            Map<Long, Integer> owner = index.owners.get(key);
+            if (owner != null) owner.remove(bookId);
+        });
+        return keys;
+    }
+
+    private void sync(Index index, String key) {
+        Map<Long, Integer> owner = index.owners.get(key);
+        if (owner == null || owner.isEmpty()) {
+            index.owners.remove(key);
+            index.texts.remove(key);
+            index.trie.remove(key);
+        } else {
+            index.trie.put(key, index.texts.get(key), totalWeight(owner));
+        }
+    }
+
+    private long totalWeight(Map<Long, Integer> owner) {
+        return owner.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    /**
+     * Splits a title into phrases starting at each word, cut at a word boundary
+     * to fit {@link #MAX_PHRASE_LENGTH}, keyed by their folded form.
+     */
+    private Map<String, String> phrases(String title) {
+        Map<String, String> phrases = new LinkedHashMap<>();
+        if (title == null || title.isBlank()) return phrases;
+
+        String[] words = title.trim().toLowerCase().split("\\s+");
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder phrase = new StringBuilder(words[i]);
+            for (int j = i + 1; j < words.length
+                    && phrase.length() + 1 + words[j].length() <= MAX_PHRASE_LENGTH; j++) {
+                phrase.append(' ').append(words[j]);
+            }
+
+            String key = SearchTextUtil.fold(phrase.toString());
+            if (!key.isEmpty()) phrases.putIfAbsent(key, phrase.toString());
+        }
+        return phrases;
+    }
+}
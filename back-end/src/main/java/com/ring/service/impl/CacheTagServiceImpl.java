@@ -0,0 +1,130 @@
+package com.ring.service.impl;
+
+import com.ring.config.cache.CacheTag;
+import com.ring.service.CacheTagService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Index of cache entries by tag, see {@link com.ring.config.cache.CacheTags}. Each
+ * tag of a cache is a Redis set of the keys tagged with it, so a write evicts only
+ * the entries of the entities it changed. Sets are refreshed on every tag and must
+ * outlive the entries they hold, or an entry would outlive its tag and go stale.
+ * Evictions run after the writing transaction commits; when Redis fails the whole
+ * cache is cleared instead.
+ */
+@RequiredArgsConstructor
+@Service
+public class CacheTagServiceImpl implements CacheTagService {
+
+    private static final String PREFIX = "cacheTags::";
+
+    // Reads and drops the sets at once, so a key tagged meanwhile is not lost
+    private static final RedisScript<List> POP_ALL = new DefaultRedisScript<>(
+            "local keys = redis.call('SUNION', unpack(KEYS)) "
+                    + "redis.call('DEL', unpack(KEYS)) "
+                    + "return keys",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Value("${ring.cache.tag-ttl:PT1H}")
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * Adds a cache key to the sets of its tags.
+     *
+     * @return false when Redis is unavailable, the entry must not be cached then.
+     */
+    public boolean tag(String cacheName, Object key, Collection<String> tags) {
+        String member = String.valueOf(key);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String tag : tags) {
+                        String tagKey = tagKey(cacheName, tag);
+                        operations.opsForSet().add(tagKey, member);
+                        operations.expire(tagKey, ttl);
+                    }
+                    return null;
+                }
+            });
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Failed to tag cache {}: {}", cacheName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Evicts the entries of the given caches tagged with any of the tags, and the
+     * ones tagged {@code kind:*} for the kinds of these tags.
+     */
+    public void evict(Collection<String> cacheNames, Collection<String> tags) {
+        if (cacheNames.isEmpty() || tags.isEmpty()) return;
+
+        Set<String> allTags = new LinkedHashSet<>(tags);
+        tags.forEach(tag -> allTags.add(CacheTag.anyOf(tag)));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(cacheNames, allTags);
+                }
+            });
+        } else {
+            evictNow(cacheNames, allTags);
+        }
+    }
+
+    private void evictNow(Collection<String> cacheNames, Set<String> tags) {
+        for (String cacheName : cacheNames) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) continue;
+
+            try {
+                List<String> tagKeys = tags.stream().map(tag -> tagKey(cacheName, tag)).toList();
+                List<?> keys = redisTemplate.execute(POP_ALL, tagKeys);
+                if (keys != null) keys.forEach(key -> cache.evict(key.toString()));
+            } catch (DataAccessException e) {
+                log.warn("Failed to evict tags of cache {}, clearing it: {}", cacheName, e.getMessage());
+                clear(cache);
+            }
+        }
+    }
+
+    private void clear(Cache cache) {
+        try {
+            cache.clear();
+        } catch (DataAccessException e) {
+            log.warn("Failed to clear cache {}: {}", cache.getName(), e.getMessage());
+        }
+    }
+
+    // Braces keep the sets of a cache in one cluster slot for the script
+    private String tagKey(String cacheName, String tag) {
+        return PREFIX + "{" + cacheName + "}::" + tag;
+    }
+}
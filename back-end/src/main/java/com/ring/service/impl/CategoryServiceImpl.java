@@ -36,7 +36,7 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryMapper cateMapper;
     private final Slugify slg = Slugify.builder().lowerCase(false).build();
 
-    @Cacheable(cacheNames = "categories")
+    @Cacheable(cacheNames = "categories", sync = true)
     public PagingResponse<CategoryDTO> getCategories(Integer pageNo,
             Integer pageSize,
             String sortBy,
@@ -81,7 +81,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
     }
 
-    @Cacheable(cacheNames = "categories")
+    @Cacheable(cacheNames = "categories", sync = true)
     public PagingResponse<CategoryDTO> getRelevantCategories(Integer pageNo,
             Integer pageSize,
             Long shopId) {
@@ -0,0 +1,325 @@
+package com.ring.service.impl;
+
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.dto.projection.images.IImage;
+import com.ring.model.entity.Coupon;
+import com.ring.model.entity.CouponDetail;
+import com.ring.model.entity.Shop;
+import com.ring.model.enums.CouponType;
+import com.ring.repository.CouponRepository;
+import com.ring.service.CouponIndexService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the active coupons (not expired, usages left), grouped by
+ * shop and type and sorted by attribute then discount, so the best coupon for a
+ * cart is found with a binary search per type instead of a query. Platform coupons
+ * are kept under shop ID 0.
+ * <p>
+ * The index is dropped after a coupon write completes and rebuilt on the next read.
+ * Other instances notice the write through a version counter in Redis, checked
+ * every {@code ring.coupon.index-refresh-delay}, and the index is rebuilt at
+ * midnight to drop expired coupons. Usage counts are as of the last build, so a
+ * recommended coupon can still run out at checkout.
+ */
+@RequiredArgsConstructor
+@Service
+public class CouponIndexServiceImpl implements CouponIndexService {
+
+    private static final String VERSION = "couponIndex::version";
+    private static final long PLATFORM = 0L;
+
+    // Same ranking as CouponRepository#recommendCoupon
+    private static final Comparator<Entry> RANK = Comparator
+            .comparingDouble(Entry::attribute)
+            .thenComparing(Entry::discount, Comparator.reverseOrder())
+            .thenComparing(Entry::maxDiscount, Comparator.nullsFirst(Comparator.reverseOrder()));
+
+    private final CouponRepository couponRepo;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private volatile Index index; // Null until the next read builds it
+
+    public record Image(String publicId, String url, Map<String, String> srcSet) implements IImage {
+
+        public String getPublicId() {
+            return publicId;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Map<String, String> getSrcSet() {
+            return srcSet;
+        }
+    }
+
+    public record Entry(Long id,
+            String code,
+            Long shopId,
+            String shopName,
+            Image shopImage,
+            CouponType type,
+            double attribute,
+            BigDecimal discount,
+            Double maxDiscount,
+            Short usage,
+            LocalDate expDate) {
+
+        private boolean isActive(LocalDate today) {
+            return expDate.isAfter(today);
+        }
+
+        // A fresh detached copy per read, callers mark the entities
+        private ICoupon toProjection() {
+            Coupon coupon = Coupon.builder()
+                    .id(id)
+                    .code(code)
+                    .shop(shopId != PLATFORM ? Shop.builder().id(shopId).name(shopName).build() : null)
+                    .isUsable(false)
+                    .isUsed(false)
+                    .build();
+            coupon.setDetail(CouponDetail.builder()
+                    .id(id)
+                    .coupon(coupon)
+                    .type(type)
+                    .attribute(attribute)
+                    .discount(discount)
+                    .maxDiscount(maxDiscount)
+                    .usage(usage)
+                    .expDate(expDate)
+                    .build());
+
+            return new ICoupon() {
+                public Coupon getCoupon() {
+                    return coupon;
+                }
+
+                public String getShopName() {
+                    return shopName;
+                }
+
+                public IImage getShopImage() {
+                    return shopImage;
+                }
+            };
+        }
+    }
+
+    private record Index(Long version,
+            Map<Long, Map<CouponType, List<Entry>>> shops,
+            Map<String, Entry> codes) {
+    }
+
+    /**
+     * Finds the active coupons among the codes.
+     *
+     * @return the coupons by code, codes of unknown or inactive coupons are left
+     *         out.
+     */
+    public Map<String, ICoupon> findInCodes(Collection<String> codes) {
+        Index current = current();
+        LocalDate today = LocalDate.now();
+        Map<String, ICoupon> result = new HashMap<>();
+        for (String code : codes) {
+            Entry entry = code != null ? current.codes().get(code) : null;
+            if (entry != null && entry.isActive(today)) result.put(code, entry.toProjection());
+        }
+        return result;
+    }
+
+    /**
+     * Recommends the best coupon of a shop for a cart state, ranked by attribute,
+     * then discount and max discount.
+     *
+     * @param shopId   the ID of the shop, null for platform coupons.
+     * @param value    the cart value, null to skip the condition.
+     * @param quantity the product quantity, null to skip the condition.
+     * @param excluded the IDs of coupons to skip.
+     * @return the recommended coupon, or null if none applies.
+     */
+    public ICoupon recommend(Long shopId,
+            Double value,
+            Integer quantity,
+            Set<Long> excluded) {
+        Entry best = best(current(), shopId != null ? shopId : PLATFORM, value, quantity, excluded);
+        return best != null ? best.toProjection() : null;
+    }
+
+    /**
+     * Recommends the best coupon of every shop and of the platform regardless of
+     * the cart state.
+     */
+    public List<ICoupon> recommendEach(Collection<Long> shopIds) {
+        Index current = current();
+        Set<Long> keys = new LinkedHashSet<>(shopIds);
+        keys.add(PLATFORM);
+        return keys.stream()
+                .map(shopId -> best(current, shopId, null, null, Set.of()))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(Entry::type).thenComparing(RANK))
+                .map(Entry::toProjection)
+                .toList();
+    }
+
+    /**
+     * Drops the index on every instance once the current transaction completes.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop();
+                }
+            });
+        } else {
+            drop();
+        }
+    }
+
+    /**
+     * Rebuilds the index when another instance changed a coupon since it was built.
+     */
+    @Scheduled(fixedDelayString = "${ring.coupon.index-refresh-delay:5000}")
+    public void refresh() {
+        Index current = index;
+        if (current == null) return; // Built on the next read anyway
+
+        Long version = readVersion();
+        if (version != null && !version.equals(current.version())) rebuild();
+    }
+
+    @Scheduled(cron = "0 0 0 * * *") // Every midnight
+    public void expire() {
+        if (index != null) rebuild();
+    }
+
+    private Entry best(Index current,
+            Long shopId,
+            Double value,
+            Integer quantity,
+            Set<Long> excluded) {
+        LocalDate today = LocalDate.now();
+        Entry best = null;
+
+        // The eligible coupons of each type are a prefix, its first usable one is the best of the type
+        for (Map.Entry<CouponType, List<Entry>> bucket : current.shops().getOrDefault(shopId, Map.of()).entrySet()) {
+            Double limit = bucket.getKey() != CouponType.MIN_AMOUNT ? value
+                    : quantity != null ? Double.valueOf(quantity) : null;
+            List<Entry> entries = bucket.getValue();
+            int end = limit != null ? firstAtLeast(entries, limit) : entries.size();
+            for (int i = 0; i < end; i++) {
+                Entry entry = entries.get(i);
+                if (!entry.isActive(today) || excluded.contains(entry.id())) continue;
+                if (best == null || RANK.compare(entry, best) < 0) best = entry;
+                break;
+            }
+        }
+        return best;
+    }
+
+    // Index of the first entry whose attribute is not below the limit
+    private int firstAtLeast(List<Entry> entries, double limit) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).attribute() < limit) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Index current() {
+        Index current = index;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (index == null) index = build();
+            return index;
+        }
+    }
+
+    private void rebuild() {
+        try {
+            Index rebuilt = build();
+            synchronized (this) {
+                index = rebuilt;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to rebuild coupon index: {}", e.getMessage());
+        }
+    }
+
+    private void drop() {
+        try {
+            redisTemplate.opsForValue().increment(VERSION);
+        } catch (DataAccessException e) {
+            log.warn("Failed to bump coupon index version: {}", e.getMessage());
+        }
+        index = null;
+    }
+
+    // The version is read first, so a write racing with the build leaves the index stale
+    private Index build() {
+        Long version = readVersion();
+        List<Entry> entries = couponRepo.findActiveCoupons().stream().map(this::toEntry).toList();
+
+        Map<Long, Map<CouponType, List<Entry>>> shops = entries.stream()
+                .collect(Collectors.groupingBy(Entry::shopId,
+                        Collectors.groupingBy(Entry::type,
+                                () -> new EnumMap<>(CouponType.class),
+                                Collectors.collectingAndThen(Collectors.toList(),
+                                        list -> list.stream().sorted(RANK).toList()))));
+        Map<String, Entry> codes = entries.stream()
+                .collect(Collectors.toMap(Entry::code, entry -> entry));
+        return new Index(version, shops, codes);
+    }
+
+    private Long readVersion() {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION);
+            return version != null ? Long.valueOf(version) : 0L;
+        } catch (DataAccessException e) {
+            log.warn("Failed to read coupon index version: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Entry toEntry(ICoupon projection) {
+        Coupon coupon = projection.getCoupon();
+        CouponDetail detail = coupon.getDetail();
+        IImage image = projection.getShopImage();
+        return new Entry(coupon.getId(),
+                coupon.getCode(),
+                coupon.getShop() != null ? coupon.getShop().getId() : PLATFORM,
+                projection.getShopName(),
+                image != null ? new Image(image.getPublicId(), image.getUrl(), image.getSrcSet()) : null,
+                detail.getType(),
+                detail.getAttribute(),
+                detail.getDiscount(),
+                detail.getMaxDiscount(),
+                detail.getUsage(),
+                detail.getExpDate());
+    }
+}
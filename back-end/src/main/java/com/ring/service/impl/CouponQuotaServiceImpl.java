@@ -0,0 +1,215 @@
+package com.ring.service.impl;
+
+import com.ring.exception.HttpResponseException;
+import com.ring.repository.CouponRepository;
+import com.ring.service.CouponIndexService;
+import com.ring.service.CouponQuotaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hands out coupon usages without locking the coupon row on every checkout.
+ * Usages are moved from the database to Redis in slices of
+ * {@code ring.coupon.quota-slice}, each taken with one short guarded update in a
+ * new transaction outside the checkout's, and checkouts then take them from Redis
+ * with an atomic guarded decrement. Allocation always leaves one usage in the
+ * database, so the tail of a coupon goes through the guarded database decrement
+ * and the coupon only runs out there. Slices idle for {@code ring.coupon.quota-idle}
+ * are given back to the database by {@link #reconcile()}.
+ * <p>
+ * Usages taken by a checkout that rolls back are returned to Redis. When Redis is
+ * unavailable every usage is taken from the database directly.
+ */
+@RequiredArgsConstructor
+@Service
+public class CouponQuotaServiceImpl implements CouponQuotaService {
+
+    private static final String PREFIX = "couponQuota::";
+    private static final String TOUCHED = "couponQuota::touched";
+
+    // Take one usage if any is left
+    private static final RedisScript<Long> TAKE_ONE = new DefaultRedisScript<>("""
+            local left = tonumber(redis.call('GET', KEYS[1]) or '0')
+            if left < 1 then return 0 end
+            redis.call('DECR', KEYS[1])
+            redis.call('ZADD', KEYS[2], ARGV[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // Add usages to a slice
+    private static final RedisScript<Long> ADD = new DefaultRedisScript<>("""
+            local left = redis.call('INCRBY', KEYS[1], ARGV[1])
+            redis.call('ZADD', KEYS[2], ARGV[2], ARGV[3])
+            return left
+            """, Long.class);
+
+    // Empty a slice, returning what was left in it
+    private static final RedisScript<Long> TAKE_ALL = new DefaultRedisScript<>("""
+            local left = tonumber(redis.call('GET', KEYS[1]) or '0')
+            redis.call('DEL', KEYS[1])
+            redis.call('ZREM', KEYS[2], ARGV[1])
+            return left
+            """, Long.class);
+
+    private final CouponRepository couponRepo;
+    private final CouponIndexService couponIndex;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Value("${ring.coupon.quota-slice:20}")
+    private short slice = 20;
+
+    @Value("${ring.coupon.quota-idle:PT5M}")
+    private Duration idle = Duration.ofMinutes(5);
+
+    /**
+     * Takes one usage of each coupon for the current transaction.
+     *
+     * @param couponIds the IDs of the coupons, without duplicates.
+     * @throws HttpResponseException if a coupon has run out.
+     */
+    public void acquire(Collection<Long> couponIds) {
+        List<Long> fromRedis = new ArrayList<>();
+        for (Long id : couponIds) {
+            String source = take(id);
+            meterRegistry.counter("ring.coupon.quota.acquired", "source", source).increment();
+            if (source.equals("exhausted")) {
+                giveBack(fromRedis); // Nothing else is rolled back by the caller's transaction
+                couponIndex.invalidate(); // Stop recommending it
+                throw new HttpResponseException(HttpStatus.CONFLICT, "Coupon expired!",
+                        "Mã coupon đã hết lượt sử dụng!");
+            }
+            if (!source.equals("database")) fromRedis.add(id);
+        }
+        onRollback(fromRedis);
+    }
+
+    /**
+     * Drops the usages held in Redis for a coupon, for when its usage count is set
+     * or it is removed.
+     */
+    public void discard(Long couponId) {
+        try {
+            redisTemplate.execute(TAKE_ALL, List.of(key(couponId), TOUCHED), couponId.toString());
+        } catch (DataAccessException e) {
+            log.warn("Failed to discard quota of coupon {}: {}", couponId, e.getMessage());
+        }
+    }
+
+    /**
+     * Gives the usages of idle slices back to the database.
+     *
+     * @return the number of usages given back.
+     */
+    @Scheduled(fixedDelayString = "${ring.coupon.quota-reconcile-delay:60000}")
+    public int reconcile() {
+        if (slice < 1) return 0;
+
+        int returned = 0;
+        try {
+            long before = System.currentTimeMillis() - idle.toMillis();
+            Set<String> ids = redisTemplate.opsForZSet().rangeByScore(TOUCHED, 0, before);
+            if (ids == null) return 0;
+
+            for (String id : ids) {
+                Long left = redisTemplate.execute(TAKE_ALL, List.of(PREFIX + id, TOUCHED), id);
+                if (left == null || left < 1) continue;
+                try {
+                    short amount = left.shortValue();
+                    newTransaction().executeWithoutResult(
+                            status -> couponRepo.increaseUsage(Long.valueOf(id), amount));
+                    returned += left;
+                } catch (RuntimeException e) {
+                    log.error("Lost {} usages of coupon {}: {}", left, id, e.getMessage());
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to reconcile coupon quotas: {}", e.getMessage());
+        }
+        if (returned > 0) log.info("Returned {} idle coupon usages", returned);
+        return returned;
+    }
+
+    // Redis first, then a new slice, then the database row itself
+    private String take(Long id) {
+        if (slice > 0) {
+            try {
+                if (Long.valueOf(1).equals(redisTemplate.execute(TAKE_ONE, List.of(key(id), TOUCHED), now(),
+                        id.toString()))) {
+                    return "redis";
+                }
+                Integer allocated = newTransaction().execute(status -> couponRepo.allocateUsage(id, slice));
+                if (allocated != null && allocated > 0) {
+                    add(id, slice - 1); // One is taken right away
+                    return "slice";
+                }
+            } catch (DataAccessException e) {
+                log.warn("Failed to take quota of coupon {} from Redis: {}", id, e.getMessage());
+            }
+        }
+        return couponRepo.decreaseUsage(id) > 0 ? "database" : "exhausted";
+    }
+
+    // Commits on its own, so the coupon row is only locked for the statement and not the checkout
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private void onRollback(List<Long> ids) {
+        if (ids.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) giveBack(ids);
+            }
+        });
+    }
+
+    private void giveBack(List<Long> ids) {
+        ids.forEach(id -> add(id, 1));
+    }
+
+    private void add(Long id, int amount) {
+        if (amount < 1) return;
+        try {
+            redisTemplate.execute(ADD, List.of(key(id), TOUCHED), String.valueOf(amount), now(), id.toString());
+        } catch (DataAccessException e) {
+            log.error("Lost {} usages of coupon {}: {}", amount, id, e.getMessage());
+        }
+    }
+
+    private String now() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    private String key(Long id) {
+        return PREFIX + id;
+    }
+}
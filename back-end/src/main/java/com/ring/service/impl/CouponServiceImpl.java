@@ -21,38 +21,65 @@ import com.ring.model.enums.CouponType;
 import com.ring.model.enums.UserRole;
 import com.ring.repository.CouponDetailRepository;
 import com.ring.repository.CouponRepository;
+import com.ring.repository.CouponUsageRepository;
 import com.ring.repository.ShopRepository;
+import com.ring.service.CouponIndexService;
+import com.ring.service.CouponQuotaService;
 import com.ring.service.CouponService;
+import com.ring.service.PricingCacheService;
+import com.ring.service.pricing.PricingEngine;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
 public class CouponServiceImpl implements CouponService {
 
+    private static final String BACKFILL_KEY = "couponUsage::backfilled";
+
     private final CouponRepository couponRepo;
     private final CouponDetailRepository couponDetailRepo;
     private final ShopRepository shopRepo;
+    private final CouponUsageRepository usageRepo;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PricingCacheService pricingCache;
+    private final CouponQuotaService couponQuota;
+    private final CouponIndexService couponIndex;
 
     private final CouponMapper couponMapper;
     private final DashboardMapper dashMapper;
+    private final Logger log = LoggerFactory.getLogger(getClass());
 
     @Cacheable(cacheNames = "coupons")
     public PagingResponse<CouponDTO> getCoupons(Integer pageNo,
@@ -142,14 +169,14 @@ public class CouponServiceImpl implements CouponService {
 
     @Cacheable(cacheNames = "coupons")
     public List<CouponDTO> recommendCoupons(List<Long> shopIds) {
-        List<ICoupon> couponsList = couponRepo.recommendCoupons(shopIds);
+        List<ICoupon> couponsList = couponIndex.recommendEach(shopIds);
         List<CouponDTO> couponDTOS = couponsList.stream().map(couponMapper::couponToDTO).collect(Collectors.toList());
         return couponDTOS;
     }
 
     @Cacheable(cacheNames = "coupon")
     public CouponDTO recommendCoupon(Long shopId, CartStateRequest state) {
-        ICoupon coupon = couponRepo.recommendCoupon(shopId, state.getValue(), state.getQuantity()).orElse(null);
+        ICoupon coupon = couponIndex.recommend(shopId, state.getValue(), state.getQuantity(), Set.of());
         if (coupon == null)
             return null;
         return couponMapper.couponToDTO(coupon);
@@ -203,6 +230,8 @@ public class CouponServiceImpl implements CouponService {
         CouponDetail addedDetail = couponDetailRepo.save(couponDetail); // Save details to database
 
         addedCoupon.setDetail(addedDetail);
+        pricingCache.bumpShops(Collections.singletonList(shopIdOf(addedCoupon))); // May be recommended now
+        couponIndex.invalidate();
         return addedCoupon;
     }
 
@@ -220,6 +249,7 @@ public class CouponServiceImpl implements CouponService {
         if (!isOwnerValid(coupon.getShop(), user))
             throw new EntityOwnershipException("Invalid ownership!",
                     "Người dùng không có quyền chỉnh suửa mã giảm giá này!");
+        Long oldShopId = shopIdOf(coupon);
 
         // Shop validation + set
         if (request.getShopId() != null) {
@@ -244,11 +274,15 @@ public class CouponServiceImpl implements CouponService {
         currDetail.setDiscount(request.getDiscount());
         currDetail.setMaxDiscount(request.getMaxDiscount());
         couponDetailRepo.save(currDetail); // Save new details to database
+        couponQuota.discard(id); // Usages handed out to Redis are replaced by the new count
 
         coupon.setCode(request.getCode());
 
         // Update
         Coupon updatedCoupon = couponRepo.save(coupon);
+        pricingCache.bumpCoupons(List.of(id));
+        pricingCache.bumpShops(Arrays.asList(oldShopId, shopIdOf(updatedCoupon)));
+        couponIndex.invalidate();
         return updatedCoupon;
     }
 
@@ -265,6 +299,9 @@ public class CouponServiceImpl implements CouponService {
                     "Người dùng không có quyền xoá mã giảm giá này!");
 
         couponRepo.deleteById(id); // Delete from database
+        couponQuota.discard(id); // Usages handed out to Redis go with it
+        pricingCache.bumpCoupons(List.of(id));
+        couponIndex.invalidate();
         return coupon;
     }
 
@@ -274,6 +311,9 @@ public class CouponServiceImpl implements CouponService {
             Account user) {
         List<Long> deleteIds = isAuthAdmin() ? ids : couponRepo.findCouponIdsByInIdsAndSeller(ids, user.getId());
         couponRepo.deleteAllById(deleteIds);
+        deleteIds.forEach(couponQuota::discard);
+        pricingCache.bumpCoupons(deleteIds);
+        couponIndex.invalidate();
     }
 
     @Caching(evict = { @CacheEvict(cacheNames = { "coupons", "couponAnalytics" }, allEntries = true) })
@@ -297,6 +337,9 @@ public class CouponServiceImpl implements CouponService {
                 showExpired,
                 ids);
         couponRepo.deleteAllById(deleteIds);
+        deleteIds.forEach(couponQuota::discard);
+        pricingCache.bumpCoupons(deleteIds);
+        couponIndex.invalidate();
     }
 
     @Caching(evict = { @CacheEvict(cacheNames = { "coupons", "couponAnalytics" }, allEntries = true) })
@@ -315,59 +358,96 @@ public class CouponServiceImpl implements CouponService {
                 couponRepo.deleteAllByShop_Owner(user);
             }
         }
+        pricingCache.bumpAll();
+        couponIndex.invalidate();
     }
 
+    /**
+     * Computes the discount of a coupon for a cart state. Whether the user already
+     * redeemed the coupon is checked by the caller with {@link #findUsedCoupons}.
+     */
     public CouponDiscountDTO applyCoupon(Coupon coupon,
-            CartStateRequest request,
-            Account user) {
-        CouponDetail couponDetail = coupon.getDetail();
-        CouponType type = couponDetail.getType();
-        BigDecimal discount = couponDetail.getDiscount();
+            CartStateRequest request) {
+        return PricingEngine.couponDiscount(coupon.getDetail(),
+                request.getValue(),
+                request.getShippingFee(),
+                request.getQuantity());
+    }
 
-        if (couponRepo.hasUserUsedCoupon(coupon.getId(), user.getId()))
-            return null;
+    public Set<Long> findUsedCoupons(Long userId, Collection<Long> couponIds) {
+        if (userId == null || couponIds.isEmpty())
+            return new HashSet<>();
+        return new HashSet<>(usageRepo.findUsedCouponIds(userId, couponIds));
+    }
 
-        // Current
-        double currValue = request.getValue();
-        double shippingFee = request.getShippingFee();
-        int currQuantity = request.getQuantity();
+    /**
+     * Records the coupons as redeemed by the user, in the caller's transaction.
+     * A coupon already redeemed, even by a concurrent checkout, fails the whole
+     * order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void redeem(Collection<Long> couponIds, Account user, Long orderId) {
+        if (couponIds.isEmpty())
+            return;
+
+        Long[] ids = couponIds.stream().distinct().toArray(Long[]::new);
+        List<Long> redeemed = usageRepo.redeem(ids, user.getId(), orderId);
+        if (redeemed.size() < ids.length) {
+            throw new HttpResponseException(HttpStatus.CONFLICT, "Coupon expired!",
+                    "Mã coupon đã qua sử dụng!");
+        }
+        pricingCache.bumpCoupons(redeemed);
+    }
 
-        // Coupon
-        double maxDiscount = couponDetail.getMaxDiscount();
-        double attribute = couponDetail.getAttribute();
+    @Transactional
+    public void releaseUsages(Collection<Long> orderIds) {
+        if (!orderIds.isEmpty())
+            pricingCache.bumpCoupons(usageRepo.deleteByOrderIds(orderIds));
+    }
 
-        // Discount
-        double discountValue = 0.0;
-        double discountShipping = 0.0;
+    @Transactional
+    public void releaseUsage(Long orderId, Long couponId) {
+        usageRepo.deleteByOrderIdAndCouponId(orderId, couponId);
+        pricingCache.bumpCoupons(List.of(couponId));
+    }
 
-        // Check conditions & apply
-        if (type.equals(CouponType.MIN_AMOUNT)) {
-            if (currQuantity >= attribute)
-                discountValue = currValue * discount.doubleValue();
-        } else if (type.equals(CouponType.MIN_VALUE)) {
-            if (currValue >= attribute)
-                discountValue = currValue * discount.doubleValue();
-        } else if (type.equals(CouponType.SHIPPING)) {
-            if (currValue >= attribute)
-                discountShipping = shippingFee * discount.doubleValue();
+    // Runs once across instances and restarts, a rolled back backfill frees the marker for the next start
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillUsages() {
+        try {
+            Boolean claimed = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(BACKFILL_KEY, LocalDateTime.now().toString());
+            if (!Boolean.TRUE.equals(claimed)) return;
+        } catch (DataAccessException e) {
+            log.warn("Skipped coupon usage backfill: {}", e.getMessage());
+            return;
         }
 
-        // If not usable
-        if (discountValue == 0.0 && discountShipping == 0.0)
-            return null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) releaseBackfill();
+                }
+            });
+        }
 
-        // Threshold
-        if (discountValue > maxDiscount)
-            discountValue = maxDiscount;
-        if (discountShipping > maxDiscount)
-            discountShipping = maxDiscount;
+        int recorded = usageRepo.backfill();
+        if (recorded > 0)
+            log.info("Recorded {} coupon usages from past orders", recorded);
+    }
 
-        return new CouponDiscountDTO(discountValue, discountShipping);
+    private void releaseBackfill() {
+        try {
+            stringRedisTemplate.delete(BACKFILL_KEY);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release coupon usage backfill marker: {}", e.getMessage());
+        }
     }
 
     public boolean isExpired(Coupon coupon) {
-        CouponDetail couponDetail = coupon.getDetail();
-        return (couponDetail.getUsage() <= 0 || couponDetail.getExpDate().isBefore(LocalDate.now()));
+        return PricingEngine.isExpired(coupon.getDetail(), LocalDate.now());
     }
 
     protected boolean isUsable(Coupon coupon, CartStateRequest request) {
@@ -418,4 +498,8 @@ public class CouponServiceImpl implements CouponService {
         } else
             return isAdmin;
     }
+
+    private Long shopIdOf(Coupon coupon) {
+        return coupon.getShop() != null ? coupon.getShop().getId() : null;
+    }
 }
@@ -1,12 +1,14 @@
 package com.ring.service.impl;
 
 import com.ring.service.EmailService;
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -46,6 +48,15 @@ public class EmailServiceImpl implements EmailService {
 
     //Mail with HTML
     public void sendTemplateMail(String to, String subject, String template, Context context) {
+        try {
+            deliverTemplateMail(to, subject, template, context);
+        } catch (Exception e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    //Mail with HTML, failures are thrown to the caller
+    public void deliverTemplateMail(String to, String subject, String template, Context context) {
         context.setVariable("logo", "logo");
         context.setVariable("clientUrl", clientUrl);
 
@@ -67,8 +78,8 @@ public class EmailServiceImpl implements EmailService {
             helper.addInline("logo", new ClassPathResource("static/logo.png"));
             
             mailSender.send(message); //Send
-        } catch (Exception e) {
-            log.error(e.getMessage());
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Mail could not be prepared!", e);
         }
     }
 }
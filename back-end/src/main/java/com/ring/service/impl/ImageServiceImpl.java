@@ -12,8 +12,12 @@ import com.ring.service.ImageService;
 import com.ring.utils.FileUploadUtil;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,6 +25,7 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -32,6 +37,10 @@ public class ImageServiceImpl implements ImageService {
 
     private final ImageRepository imageRepo;
     private final CloudinaryService cloudinaryService;
+    private final FileUploadUtil fileUploadUtil;
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public static final int BACKFILL_BATCH_SIZE = 500;
 
     //Get all images
     public List<Image> getAllImages() {
@@ -56,8 +65,10 @@ public class ImageServiceImpl implements ImageService {
             byte[] bytes = baos.toByteArray();
 
             CloudinaryResponse uploaded = cloudinaryService.replace(bytes, image.getPublicId());
+            fileUploadUtil.evictSrcSet(image.getPublicId());
             image.setPublicId(uploaded.getPublicId());
             image.setUrl(uploaded.getUrl());
+            image.setSrcSet(new HashMap<>(fileUploadUtil.generateUrl(uploaded.getPublicId())));
             if (uploaded.getUrl() == null) {
                 throw new ImageUploadException("Image failed to replace!");
             }
@@ -88,6 +99,7 @@ public class ImageServiceImpl implements ImageService {
                     .publicId(uploaded.getPublicId())
                     .url(uploaded.getUrl())
                     .type(file.getContentType())
+                    .srcSet(new HashMap<>(fileUploadUtil.generateUrl(uploaded.getPublicId())))
                     .build();
             if (image.getUrl() == null) {
                 throw new ImageUploadException("Image failed to upload!");
@@ -141,4 +153,30 @@ public class ImageServiceImpl implements ImageService {
         List<String> publicIds = imageRepo.findPublicIds(ids);
         return cloudinaryService.destroyMultiple(publicIds);
     }
+
+    @Override
+    @Scheduled(initialDelay = 60000, fixedDelayString = "${ring.image.backfill-delay:3600000}")
+    public int backfillSrcSets() {
+        int total = 0;
+        long lastId = 0;
+        List<Image> batch;
+
+        //Seek past the last read row, so rows left unfilled are not read again
+        while (!(batch = imageRepo.findMissingSrcSet(lastId, PageRequest.of(0, BACKFILL_BATCH_SIZE))).isEmpty()) {
+            for (Image image : batch) {
+                try {
+                    image.setSrcSet(new HashMap<>(fileUploadUtil.generateUrl(image.getPublicId())));
+                    total++;
+                } catch (RuntimeException e) {
+                    log.warn("Failed to generate srcSet for image {}: {}", image.getId(), e.getMessage());
+                }
+            }
+            imageRepo.saveAll(batch);
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < BACKFILL_BATCH_SIZE) break;
+        }
+
+        if (total > 0) log.info("Backfilled srcSet for {} images", total);
+        return total;
+    }
 }
@@ -0,0 +1,147 @@
+package com.ring.service.impl;
+
+import com.ring.exception.OutOfStockException;
+import com.ring.model.entity.InventoryHold;
+import com.ring.repository.BookRepository;
+import com.ring.repository.InventoryHoldRepository;
+import com.ring.service.BookDisplayCacheService;
+import com.ring.service.InventoryService;
+import com.ring.service.PricingCacheService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@RequiredArgsConstructor
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    private final BookRepository bookRepo;
+    private final InventoryHoldRepository holdRepo;
+    private final BookDisplayCacheService displayCache;
+    private final PricingCacheService pricingCache;
+
+    @Value("${ring.inventory.hold-ttl:PT30M}")
+    private Duration holdTtl = Duration.ofMinutes(30);
+
+    /**
+     * Decrements the stock of every book in one guarded statement. Nothing is
+     * reserved for a book whose stock is short; the caller's transaction is
+     * expected to roll back the rest when this throws.
+     *
+     * @param quantities the quantity to reserve for each book ID.
+     * @throws OutOfStockException listing the books that could not be reserved.
+     */
+    public void reserve(Map<Long, Integer> quantities) {
+        reserve(quantities, false);
+    }
+
+    /**
+     * Reserves stock like {@link #reserve(Map)} and records it as held by an order
+     * awaiting payment. The hold expires after {@code ring.inventory.hold-ttl}
+     * unless {@link #extendHold} moves it to the payment link's expiry.
+     *
+     * @param orderId    the ID of the unpaid order.
+     * @param quantities the quantity to hold for each book ID.
+     */
+    @Transactional
+    public void hold(Long orderId, Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return;
+        reserve(quantities, true);
+
+        LocalDateTime expiredAt = LocalDateTime.now().plus(holdTtl);
+        holdRepo.saveAll(quantities.entrySet().stream()
+                .map(entry -> InventoryHold.builder()
+                        .orderId(orderId)
+                        .bookId(entry.getKey())
+                        .quantity(entry.getValue())
+                        .expiredAt(expiredAt)
+                        .build())
+                .toList());
+    }
+
+    @Transactional
+    public void extendHold(Long orderId, LocalDateTime expiredAt) {
+        if (expiredAt == null) return;
+        holdRepo.updateExpiry(orderId, expiredAt);
+    }
+
+    /**
+     * Gives the held stock of the given orders back to the books. Orders whose
+     * holds were already converted or released are skipped.
+     *
+     * @param orderIds the IDs of the orders.
+     * @return the orders actually released and the quantity for each book ID.
+     */
+    @Transactional
+    public ReleasedStock release(Collection<Long> orderIds) {
+        List<InventoryHold> holds = settle(orderIds, true);
+        if (holds.isEmpty()) return ReleasedStock.EMPTY;
+
+        Set<Long> released = new TreeSet<>();
+        holds.forEach(hold -> released.add(hold.getOrderId()));
+        return new ReleasedStock(released, sumQuantities(holds));
+    }
+
+    /**
+     * Turns the holds of a paid order into a sale; the stock stays taken.
+     *
+     * @param orderId the ID of the paid order.
+     */
+    @Transactional
+    public void convert(Long orderId) {
+        settle(List.of(orderId), false);
+    }
+
+    public List<Long> findExpiredOrders(int limit) {
+        return holdRepo.findExpiredOrderIds(LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+
+    private void reserve(Map<Long, Integer> quantities, boolean hold) {
+        if (quantities == null || quantities.isEmpty()) return;
+
+        // Sorted so concurrent checkouts lock rows in the same order
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        Long[] ids = sorted.keySet().toArray(new Long[0]);
+        Integer[] amounts = sorted.values().toArray(new Integer[0]);
+
+        Set<Long> reserved = new HashSet<>(bookRepo.reserveStock(ids, amounts, hold));
+        if (reserved.size() < ids.length) {
+            List<Long> failed = sorted.keySet().stream().filter(id -> !reserved.contains(id)).toList();
+            throw new OutOfStockException(failed);
+        }
+        displayCache.evict(reserved);
+        pricingCache.bumpBooks(reserved); // Stock is shown and checked on calculate
+    }
+
+    private List<InventoryHold> settle(Collection<Long> orderIds, boolean restock) {
+        if (orderIds == null || orderIds.isEmpty()) return List.of();
+
+        List<InventoryHold> holds = holdRepo.findAllByOrderIds(orderIds);
+        if (holds.isEmpty()) return List.of();
+
+        Map<Long, Integer> quantities = sumQuantities(holds);
+        bookRepo.releaseHeldStock(quantities.keySet().toArray(new Long[0]),
+                quantities.values().toArray(new Integer[0]),
+                restock);
+        if (restock) {
+            displayCache.evict(quantities.keySet());
+            pricingCache.bumpBooks(quantities.keySet());
+        }
+        holdRepo.deleteAllInBatch(holds);
+        return holds;
+    }
+
+    private Map<Long, Integer> sumQuantities(List<InventoryHold> holds) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (InventoryHold hold : holds) {
+            quantities.merge(hold.getBookId(), hold.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
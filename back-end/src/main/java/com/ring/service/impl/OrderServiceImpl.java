@@ -1,10 +1,11 @@
 package com.ring.service.impl;
 
+import com.ring.config.cache.CacheTag;
+import com.ring.config.cache.CacheTags;
 import com.ring.dto.projection.coupons.ICoupon;
 import com.ring.dto.projection.orders.*;
 import com.ring.dto.request.*;
 import com.ring.dto.response.PagingResponse;
-import com.ring.dto.response.coupons.CouponDiscountDTO;
 import com.ring.dto.response.dashboard.ChartDTO;
 import com.ring.dto.response.dashboard.StatDTO;
 import com.ring.dto.response.orders.*;
@@ -20,35 +21,58 @@ import com.ring.mapper.OrderMapper;
 import com.ring.model.entity.*;
 import com.ring.model.enums.*;
 import com.ring.repository.*;
+import com.ring.service.BookStatsService;
+import com.ring.service.CacheTagService;
 import com.ring.service.CaptchaService;
+import com.ring.service.CouponIndexService;
+import com.ring.service.CouponQuotaService;
 import com.ring.service.CouponService;
+import com.ring.service.InventoryService;
+import com.ring.service.InventoryService.ReleasedStock;
 import com.ring.service.OrderService;
+import com.ring.service.OutboxService;
+import com.ring.service.PageCountService;
 import com.ring.service.PayOSService;
+import com.ring.service.PricingCacheService;
+import com.ring.service.pricing.PricedCart;
+import com.ring.service.pricing.PricedItem;
+import com.ring.service.pricing.PricedShop;
+import com.ring.service.pricing.PricingEngine;
+import com.ring.service.pricing.PricingSnapshot;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import vn.payos.type.CheckoutResponseData;
 import vn.payos.type.PaymentLinkData;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -56,6 +80,14 @@ import java.util.stream.Collectors;
 @Service
 public class OrderServiceImpl implements OrderService {
 
+        public static final int EXPIRE_BATCH_SIZE = 200;
+        public static final String EXPIRED_REASON = "Payment expired";
+        public static final String LINK_CANCELED_REASON = "Order canceled before payment";
+        public static final Duration CHECKOUT_CLAIM_TTL = Duration.ofMinutes(2);
+
+        // Caches of order pages, tagged with their buyer, shops and books
+        private static final List<String> ORDER_CACHES = List.of("receipts", "orders", "orderAnalytics", "sales");
+
         private final OrderReceiptRepository orderRepo;
         private final OrderDetailRepository detailRepo;
         private final OrderItemRepository itemRepo;
@@ -66,19 +98,46 @@ public class OrderServiceImpl implements OrderService {
         private final PaymentInfoRepository paymentRepo;
 
         private final CouponService couponService;
+        private final CouponQuotaService couponQuota;
+        private final CouponIndexService couponIndex;
         private final CaptchaService captchaService;
         private final PayOSService payOSService;
+        private final BookStatsService statsService;
+        private final InventoryService inventoryService;
+        private final PageCountService countService;
 
         private final OrderMapper orderMapper;
         private final CalculateMapper calculateMapper;
         private final DashboardMapper dashMapper;
         private final CouponMapper couponMapper;
 
-        private final ApplicationEventPublisher eventPublisher;
-
-        @Cacheable(cacheNames = "calculate")
+        private final OutboxService outboxService;
+        private final PricingCacheService pricingCache;
+        private final CacheTagService cacheTags;
+        private final PricingEngine pricingEngine;
+        private final TransactionTemplate transactionTemplate;
+        private final Logger log = LoggerFactory.getLogger(getClass());
+
+        /**
+         * Prices a cart for preview. Results are cached per normalized cart and served
+         * until a book, shop or coupon they were priced from changes.
+         */
         public CalculateDTO calculate(CalculateRequest request,
                         Account user) {
+                String cacheKey = pricingCache.key(user.getId(), request);
+                CalculateDTO cached = pricingCache.get(cacheKey);
+                if (cached != null)
+                        return cached;
+
+                List<Long> bookIds = new ArrayList<>();
+                List<Long> shopIds = new ArrayList<>();
+                for (CartDetailRequest detail : request.getCart()) {
+                        shopIds.add(detail.getShopId());
+                        if (detail.getItems() != null)
+                                detail.getItems().forEach(item -> bookIds.add(item.getId()));
+                }
+                Map<String, Long> versions = pricingCache.versions(bookIds, shopIds); // Read before pricing
+
                 // Create address
                 AddressRequest addressRequest = request.getAddress();
                 var address = addressRequest != null
@@ -97,13 +156,19 @@ public class OrderServiceImpl implements OrderService {
                                 address,
                                 null,
                                 user,
-                                false);
+                                null);
 
-                return calculateMapper.orderToDTO(calculatedReceipt);
+                CalculateDTO result = calculateMapper.orderToDTO(calculatedReceipt);
+                pricingCache.put(cacheKey, result, versions);
+                return result;
         }
 
-        @CacheEvict(cacheNames = { "calculate", "receipts", "orders", "orderAnalytics", "sales" }, allEntries = true)
-        @Transactional
+        /**
+         * Places an order in phases so no database connection is held across remote
+         * calls: captcha verification and pricing run without a transaction, then the
+         * writes commit in one short transaction together with outbox entries for the
+         * receipt email and the payment link, which are sent by the outbox dispatcher.
+         */
         public ReceiptDTO checkout(OrderRequest checkRequest,
                         HttpServletRequest request,
                         Account user) {
@@ -123,14 +188,17 @@ public class OrderServiceImpl implements OrderService {
                                 .address(addressRequest.getAddress())
                                 .type(addressRequest.getType())
                                 .build();
-                Address savedAddress = addressRepo.save(address);
 
+                // Price the cart, usages are only applied on commit
+                List<Long> usedCoupons = new ArrayList<>();
                 OrderReceipt orderReceipt = processOrder(checkRequest.getCart(),
                                 checkRequest.getCoupon(),
-                                savedAddress,
+                                address,
                                 checkRequest.getPaymentMethod(),
                                 user,
-                                true);
+                                usedCoupons);
+                Map<Long, Integer> quantities = countQuantities(orderReceipt.getDetails());
+                boolean isOnline = PaymentType.ONLINE_PAYMENT.equals(checkRequest.getPaymentMethod());
 
                 // Payment
                 PaymentInfo paymentInfo = PaymentInfo.builder()
@@ -142,43 +210,40 @@ public class OrderServiceImpl implements OrderService {
                 // Set relevant values
                 orderReceipt.setUser(user);
                 orderReceipt.setEmail(user.getEmail());
-                orderReceipt.setAddress(savedAddress);
-
                 orderReceipt.setPayment(paymentInfo);
-                orderRepo.save(orderReceipt);
 
-                ReceiptDTO receiptDTO = orderMapper.orderToDTO(orderReceipt);
-
-                if (checkRequest.getPaymentMethod().equals(PaymentType.ONLINE_PAYMENT)) {
-                        try {
-                                CheckoutResponseData checkoutResponse = payOSService.checkout(receiptDTO);
-
-                                paymentInfo.setCheckoutUrl(checkoutResponse.getCheckoutUrl());
-                                paymentInfo.setStatus(PaymentStatus.valueOf(checkoutResponse.getStatus()));
-                                paymentInfo.setAmount(checkoutResponse.getAmount());
-                                paymentInfo.setDescription(checkoutResponse.getDescription());
-                                paymentInfo.setExpiredAt(Instant.ofEpochSecond(checkoutResponse.getExpiredAt())
-                                                .atZone(ZoneId.systemDefault())
-                                                .toLocalDateTime());
-
-                                orderRepo.save(orderReceipt);
-                        } catch (PaymentException ignored) {
+                // Commit, side effects are queued in the same transaction
+                ReceiptDTO receiptDTO = transactionTemplate.execute(status -> {
+                        orderReceipt.setAddress(addressRepo.save(address));
+                        if (!isOnline) {
+                                inventoryService.reserve(quantities); // Reserve all stock at once
                         }
-                }
-
-                // Trigger email event
-                eventPublisher.publishEvent(new OnCheckoutCompletedEvent(
-                                user.getUsername(),
-                                user.getEmail(),
-                                orderReceipt.getProductsPrice(),
-                                orderReceipt.getShippingFee(),
-                                receiptDTO));
+                        couponQuota.acquire(usedCoupons); // Guarded, mostly served from Redis slices
+                        orderRepo.save(orderReceipt);
+                        couponService.redeem(usedCoupons, user, orderReceipt.getId()); // Guarded by unique usage
+                        if (isOnline) {
+                                inventoryService.hold(orderReceipt.getId(), quantities); // Hold stock until paid
+                        }
+                        statsService.addSold(quantities); // Update book stats
+
+                        ReceiptDTO receipt = orderMapper.orderToDTO(orderReceipt);
+                        outboxService.enqueue(OutboxType.CHECKOUT_RECEIPT, orderReceipt.getId(),
+                                        new OnCheckoutCompletedEvent(user.getUsername(),
+                                                        user.getEmail(),
+                                                        orderReceipt.getProductsPrice(),
+                                                        orderReceipt.getShippingFee(),
+                                                        receipt));
+                        if (isOnline) {
+                                outboxService.enqueue(OutboxType.PAYMENT_LINK, orderReceipt.getId(), null);
+                        }
+                        return receipt;
+                });
 
+                evictOrders(orderReceipt);
                 return receiptDTO;
         }
 
         @Cacheable(cacheNames = "paymentLink", key = "#id")
-        @Transactional
         public PaymentInfo createPaymentLink(HttpServletRequest request,
                         Long id) {
 
@@ -187,38 +252,100 @@ public class OrderServiceImpl implements OrderService {
                 final String source = request.getHeader("source");
                 captchaService.validate(recaptchaToken, source, CaptchaServiceImpl.PAYMENT_ACTION);
 
-                PaymentInfo paymentInfo = paymentRepo.findByOrder(id).orElseThrow(
-                                () -> new ResourceNotFoundException("Payment for this Order not found!",
-                                                "Không thể tìm thấy đường dẫn thanh toán cho đơn hàng yêu cầu!"));
+                return preparePaymentLink(id);
+        }
 
-                if (paymentInfo.getPaymentType().equals(PaymentType.ONLINE_PAYMENT)
-                                && paymentInfo.getStatus().equals(PaymentStatus.PENDING)
-                                && paymentInfo.getCheckoutUrl() == null) {
-                        ReceiptDTO receiptDTO = this.getReceipt(id);
-                        CheckoutResponseData checkoutResponse = payOSService.checkout(receiptDTO);
+        /**
+         * Creates the PayOS link of a pending online payment unless it already has one,
+         * and moves the order's stock holds to the link's expiry. The payment is claimed
+         * in one short transaction and the link saved in another, so no connection is
+         * held across the PayOS call and only the claimer calls PayOS for an order.
+         *
+         * @throws HttpResponseException with {@code CONFLICT} when another caller is
+         *                               creating the link.
+         */
+        @CacheEvict(cacheNames = "paymentLink", key = "#id")
+        public PaymentInfo preparePaymentLink(Long id) {
+
+                PaymentClaim claim = transactionTemplate.execute(status -> claimPaymentLink(id));
+                if (claim.receipt() == null)
+                        return claim.payment();
+
+                CheckoutResponseData checkoutResponse;
+                try {
+                        checkoutResponse = payOSService.checkout(claim.receipt());
+                } catch (RuntimeException e) {
+                        // Let a retry claim it again right away
+                        transactionTemplate.execute(status -> {
+                                paymentRepo.releaseCheckout(claim.payment().getId());
+                                return null;
+                        });
+                        throw e;
+                }
 
-                        LocalDateTime expiredAt = LocalDateTime.ofInstant(
-                                        Instant.ofEpochSecond(checkoutResponse.getExpiredAt()),
-                                        ZoneId.systemDefault());
+                PaymentInfo paymentInfo = transactionTemplate.execute(status -> savePaymentLink(id, checkoutResponse));
+                if (paymentInfo.getStatus().equals(PaymentStatus.CANCELED))
+                        cancelPaymentLink(id); // Canceled during the call, the new link must not be payable
+                return paymentInfo;
+        }
 
-                        paymentInfo.setCheckoutUrl(checkoutResponse.getCheckoutUrl());
-                        paymentInfo.setStatus(PaymentStatus.valueOf(checkoutResponse.getStatus()));
-                        paymentInfo.setAmount(checkoutResponse.getAmount());
-                        paymentInfo.setDescription(checkoutResponse.getDescription());
-                        paymentInfo.setExpiredAt(expiredAt);
+        private PaymentClaim claimPaymentLink(Long id) {
+                PaymentInfo paymentInfo = findPayment(id);
+                if (!paymentInfo.getPaymentType().equals(PaymentType.ONLINE_PAYMENT)
+                                || !paymentInfo.getStatus().equals(PaymentStatus.PENDING)
+                                || paymentInfo.getCheckoutUrl() != null)
+                        return new PaymentClaim(paymentInfo, null);
+
+                LocalDateTime now = LocalDateTime.now();
+                if (paymentRepo.claimCheckout(paymentInfo.getId(), now, now.minus(CHECKOUT_CLAIM_TTL)) == 0)
+                        throw new HttpResponseException(HttpStatus.CONFLICT, "Payment link is being created!");
+                return new PaymentClaim(paymentInfo, this.getReceipt(id));
+        }
 
-                        paymentRepo.save(paymentInfo);
-                }
+        private PaymentInfo savePaymentLink(Long id, CheckoutResponseData checkoutResponse) {
+                PaymentInfo paymentInfo = findPayment(id);
+                if (!paymentInfo.getStatus().equals(PaymentStatus.PENDING))
+                        return paymentInfo; // Canceled or expired during the call
+
+                LocalDateTime expiredAt = LocalDateTime.ofInstant(
+                                Instant.ofEpochSecond(checkoutResponse.getExpiredAt()),
+                                ZoneId.systemDefault());
+
+                paymentInfo.setCheckoutUrl(checkoutResponse.getCheckoutUrl());
+                paymentInfo.setStatus(PaymentStatus.valueOf(checkoutResponse.getStatus()));
+                paymentInfo.setAmount(checkoutResponse.getAmount());
+                paymentInfo.setDescription(checkoutResponse.getDescription());
+                paymentInfo.setExpiredAt(expiredAt);
+                paymentInfo.setCheckoutRequestedAt(null);
 
+                paymentRepo.save(paymentInfo);
+                inventoryService.extendHold(id, expiredAt);
                 return paymentInfo;
         }
 
+        private void cancelPaymentLink(Long id) {
+                try {
+                        payOSService.cancel(id, LINK_CANCELED_REASON);
+                } catch (PaymentException e) {
+                        log.warn("Payment link for canceled order {} not canceled: {}", id, e.getMessage());
+                }
+        }
+
+        private PaymentInfo findPayment(Long id) {
+                return paymentRepo.findByOrder(id).orElseThrow(
+                                () -> new ResourceNotFoundException("Payment for this Order not found!",
+                                                "Không thể tìm thấy đường dẫn thanh toán cho đơn hàng yêu cầu!"));
+        }
+
+        // A payment claimed for link creation, with the receipt to send when the link is due
+        private record PaymentClaim(PaymentInfo payment, ReceiptDTO receipt) {
+        }
+
         @Cacheable(cacheNames = "payment", key = "#id")
         public PaymentLinkData getPaymentLinkData(Long id) {
                 return payOSService.getPaymentLinkData(id);
         }
 
-        @CacheEvict(cacheNames = { "orders", "orderAnalytics" }, allEntries = true)
         @Transactional
         public void cancel(Long id,
                         String reason,
@@ -244,17 +371,18 @@ public class OrderServiceImpl implements OrderService {
                 detail.setStatus(OrderStatus.CANCELED);
                 detail.setNote(reason);
                 detailRepo.save(detail);
+                statsService.removeSold(countQuantities(List.of(detail))); // Update book stats
+                releaseCoupon(detail);
 
                 // Subtract price & discount
                 order.setTotal(order.getTotal() - detail.getTotalPrice() - detail.getShippingFee());
                 order.setTotalDiscount(order.getTotalDiscount() - detail.getDiscount() - detail.getShippingDiscount());
 
                 orderRepo.save(order);
+                evictOrders(order);
         }
 
         @Caching(evict = {
-                        @CacheEvict(cacheNames = { "orders", "orderAnalytics", "receipts",
-                                        "sales" }, allEntries = true),
                         @CacheEvict(cacheNames = "paymentLink", key = "#orderId"),
                         @CacheEvict(cacheNames = "payment", key = "#orderId") })
         @Transactional
@@ -280,7 +408,14 @@ public class OrderServiceImpl implements OrderService {
                         throw new HttpResponseException(HttpStatus.BAD_REQUEST, "Invalid payment status!");
 
                 // Cancel all details
+                List<OrderDetail> unpaidDetails = order.getDetails() == null ? List.of()
+                                : order.getDetails().stream()
+                                                .filter(detail -> OrderStatus.PENDING_PAYMENT.equals(detail.getStatus()))
+                                                .toList();
                 detailRepo.cancelUnpaidByOrderId(order.getId(), reason);
+                inventoryService.release(List.of(order.getId())); // Give held stock back
+                couponService.releaseUsages(List.of(order.getId()));
+                statsService.removeSold(countQuantities(unpaidDetails)); // Update book stats
 
                 // Subtract price & discount
                 order.setTotal(0.0);
@@ -301,9 +436,9 @@ public class OrderServiceImpl implements OrderService {
 
                 paymentRepo.save(paymentInfo);
                 orderRepo.save(order);
+                evictOrders(order);
         }
 
-        @CacheEvict(cacheNames = { "orders", "orderAnalytics", "receipts", "sales" }, allEntries = true)
         @Transactional
         public void refund(Long id,
                         String reason,
@@ -331,11 +466,10 @@ public class OrderServiceImpl implements OrderService {
                 detail.setStatus(OrderStatus.PENDING_REFUND);
                 detail.setNote(reason);
                 detailRepo.save(detail);
+                evictOrders(order);
         }
 
         @Caching(evict = {
-                        @CacheEvict(cacheNames = { "orders", "orderAnalytics", "receipts",
-                                        "sales" }, allEntries = true),
                         @CacheEvict(cacheNames = "paymentLink", key = "#orderId"),
                         @CacheEvict(cacheNames = "payment", key = "#orderId") })
         @Transactional
@@ -362,9 +496,14 @@ public class OrderServiceImpl implements OrderService {
 
                 paymentInfo.setPaymentType(paymentMethod);
                 paymentRepo.save(paymentInfo);
+
+                // Cash orders no longer wait on the payment link
+                if (PaymentType.CASH.equals(paymentMethod)) {
+                        inventoryService.convert(order.getId());
+                }
+                evictOrders(order);
         }
 
-        @CacheEvict(cacheNames = { "orders", "orderAnalytics", "receipts", "sales" }, allEntries = true)
         @Transactional
         public void confirm(Long id,
                         Account user) {
@@ -394,11 +533,10 @@ public class OrderServiceImpl implements OrderService {
 
                 detail.setStatus(OrderStatus.COMPLETED);
                 detailRepo.save(detail);
+                evictOrders(detail.getOrder());
         }
 
         @Caching(evict = {
-                        @CacheEvict(cacheNames = { "orders", "orderAnalytics", "receipts",
-                                        "sales" }, allEntries = true),
                         @CacheEvict(cacheNames = "paymentLink", key = "#id"),
                         @CacheEvict(cacheNames = "payment", key = "#id") })
         @Transactional
@@ -414,11 +552,37 @@ public class OrderServiceImpl implements OrderService {
 
                 // Update details status
                 detailRepo.confirmPaymentByOrderId(id);
+                inventoryService.convert(id); // Held stock is sold now
+                orderRepo.findById(id).ifPresent(this::evictOrders);
         }
 
         @Caching(evict = {
                         @CacheEvict(cacheNames = { "orders", "orderAnalytics", "receipts",
-                                        "sales" }, allEntries = true),
+                                        "sales" }, allEntries = true, condition = "#result > 0") })
+        @Scheduled(fixedDelayString = "${ring.inventory.sweep-delay:60000}")
+        @Transactional
+        public int expireUnpaidOrders() {
+                List<Long> orderIds = inventoryService.findExpiredOrders(EXPIRE_BATCH_SIZE);
+                if (orderIds.isEmpty())
+                        return 0;
+
+                // Release stock in bulk then cancel what is left unpaid, skipping orders paid since the read
+                ReleasedStock released = inventoryService.release(orderIds);
+                Set<Long> expiredIds = released.orderIds();
+                if (expiredIds.isEmpty())
+                        return 0;
+
+                detailRepo.cancelUnpaidByOrderIds(expiredIds, EXPIRED_REASON);
+                paymentRepo.cancelPendingByOrderIds(expiredIds);
+                orderRepo.clearTotals(expiredIds);
+                couponService.releaseUsages(expiredIds);
+                statsService.removeSold(released.quantities()); // Update book stats
+
+                log.info("Released holds of {} expired unpaid orders", expiredIds.size());
+                return expiredIds.size();
+        }
+
+        @Caching(evict = {
                         @CacheEvict(cacheNames = "paymentLink", key = "#id"),
                         @CacheEvict(cacheNames = "payment", key = "#id") })
         @Transactional
@@ -436,9 +600,18 @@ public class OrderServiceImpl implements OrderService {
                         throw new EntityOwnershipException("Invalid ownership!",
                                         "Người dùng không có quyền chỉnh sửa đơn hàng này!");
 
+                boolean wasVoided = isVoided(detail.getStatus());
                 detail.setStatus(status);
                 detailRepo.save(detail);
 
+                // Update book stats
+                if (isVoided(status) && !wasVoided) {
+                        statsService.removeSold(countQuantities(List.of(detail)));
+                        releaseCoupon(detail);
+                } else if (!isVoided(status) && wasVoided) {
+                        statsService.addSold(countQuantities(List.of(detail)));
+                }
+
                 // Subtract price & discount
                 if (status.equals(OrderStatus.CANCELED) || status.equals(OrderStatus.REFUNDED)) {
                         order.setTotal(order.getTotal() - detail.getTotalPrice() - detail.getShippingFee());
@@ -446,9 +619,11 @@ public class OrderServiceImpl implements OrderService {
                                         order.getTotalDiscount() - detail.getDiscount() - detail.getShippingDiscount());
                         orderRepo.save(order);
                 }
+                evictOrders(order);
         }
 
         @Cacheable(cacheNames = "receipts")
+        @CacheTags(shop = "#shopId")
         @Transactional
         public PagingResponse<ReceiptDTO> getAllReceipts(Account user,
                         Long shopId,
@@ -457,25 +632,36 @@ public class OrderServiceImpl implements OrderService {
                         Integer pageNo,
                         Integer pageSize,
                         String sortBy,
-                        String sortDir) {
+                        String sortDir,
+                        CountMode countMode) {
 
                 Pageable pageable = PageRequest.of(pageNo, pageSize,
                                 sortDir.equals("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending());
                 boolean isAdmin = isAuthAdmin();
+                Long userId = isAdmin ? null : user.getId();
+
+                // Skip or estimate the count query
+                if (countMode != CountMode.EXACT) {
+                        Slice<IOrderReceipt> receiptsSlice = orderRepo.findAllSliceBy(shopId,
+                                        userId,
+                                        status,
+                                        keyword,
+                                        pageable);
+                        List<ReceiptDTO> ordersList = mapReceipts(receiptsSlice.getContent());
+                        return countService.getPagingResponse(ordersList,
+                                        receiptsSlice,
+                                        countMode,
+                                        () -> orderRepo.countAllBy(shopId, userId, status, keyword),
+                                        "receipts",
+                                        shopId, userId, status, keyword);
+                }
 
                 Page<IOrderReceipt> receipts = orderRepo.findAllBy(shopId,
-                                isAdmin ? null : user.getId(),
+                                userId,
                                 status,
                                 keyword,
                                 pageable); // Fetch from database
-                List<Long> receiptIds = receipts.getContent().stream().map(IOrderReceipt::getId)
-                                .collect(Collectors.toList());
-                List<IOrder> details = detailRepo.findAllByReceiptIds(receiptIds);
-
-                // Map
-                List<ReceiptDTO> ordersList = orderMapper.receiptsAndDetailsProjectionToReceiptDTOS(
-                                receipts.getContent(),
-                                details);
+                List<ReceiptDTO> ordersList = mapReceipts(receipts.getContent());
                 return new PagingResponse<>(
                                 ordersList,
                                 receipts.getTotalPages(),
@@ -486,6 +672,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         @Cacheable(cacheNames = "receipts")
+        @CacheTags(shop = "#shopId", book = "#bookId")
         @Transactional
         public PagingResponse<ReceiptSummaryDTO> getSummariesWithFilter(Account user,
                         Long shopId,
@@ -518,6 +705,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         @Cacheable(cacheNames = "orders")
+        @CacheTags(book = "#id")
         @Override
         public PagingResponse<OrderDTO> getOrdersByBookId(Long id,
                         Integer pageNo,
@@ -541,6 +729,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         @Cacheable(cacheNames = "orders")
+        @CacheTags(user = "#user.id")
         @Transactional
         public PagingResponse<OrderDTO> getOrdersByUser(Account user,
                         OrderStatus status,
@@ -601,6 +790,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         @Cacheable(cacheNames = "orderAnalytics")
+        @CacheTags(shop = "#shopId")
         public StatDTO getAnalytics(Account user, Long shopId) {
 
                 boolean isAdmin = isAuthAdmin();
@@ -610,6 +800,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         @Cacheable(cacheNames = "sales")
+        @CacheTags(shop = "#shopId")
         public List<ChartDTO> getMonthlySales(Account user, Long shopId, Integer year) {
 
                 boolean isAdmin = isAuthAdmin();
@@ -617,17 +808,39 @@ public class OrderServiceImpl implements OrderService {
                 return data.stream().map(dashMapper::dataToChartDTO).collect(Collectors.toList()); // Return chart data
         }
 
+        // Price the cart, a null usedCoupons means a preview calculation
         private OrderReceipt processOrder(List<CartDetailRequest> cart,
                         String orderCoupon,
                         Address address,
                         PaymentType paymentMethod,
                         Account user,
-                        boolean isCheckout) {
+                        List<Long> usedCoupons) {
 
-                // Create receipt
-                var orderReceipt = OrderReceipt.builder()
-                                .details(new ArrayList<>())
-                                .build();
+                boolean isCheckout = usedCoupons != null;
+                PricingSnapshot snapshot = loadSnapshot(cart, orderCoupon, user);
+                PricedCart pricedCart = pricingEngine.price(cart, orderCoupon, address, snapshot, isCheckout);
+
+                // Unknown codes get a coupon recommended for the priced values, then the cart is priced again
+                Map<Long, List<ICoupon>> recommended = recommendCoupons(pricedCart, orderCoupon, snapshot, user);
+                if (!recommended.isEmpty()) {
+                        pricedCart = pricingEngine.price(cart,
+                                        orderCoupon,
+                                        address,
+                                        snapshot.withCandidates(recommended),
+                                        isCheckout);
+                }
+
+                // Decrease usage on checkout
+                if (isCheckout) {
+                        usedCoupons.addAll(pricedCart.appliedCoupons());
+                }
+                return toReceipt(pricedCart, paymentMethod, isCheckout);
+        }
+
+        // Load everything the cart is priced from up front
+        private PricingSnapshot loadSnapshot(List<CartDetailRequest> cart,
+                        String orderCoupon,
+                        Account user) {
 
                 // Get books, shops, coupons IDS for prefetch
                 List<Long> bookIds = new ArrayList<>();
@@ -638,6 +851,8 @@ public class OrderServiceImpl implements OrderService {
                 for (CartDetailRequest detail : cart) {
                         shopIds.add(detail.getShopId());
                         couponCodes.add(detail.getCoupon());
+                        if (detail.getItems() == null)
+                                continue;
                         for (CartItemRequest item : detail.getItems()) {
                                 bookIds.add(item.getId());
                         }
@@ -648,328 +863,246 @@ public class OrderServiceImpl implements OrderService {
                                 .collect(Collectors.toMap(Shop::getId, Function.identity()));
                 Map<Long, Book> books = bookRepo.findBooksInIds(bookIds).stream()
                                 .collect(Collectors.toMap(Book::getId, Function.identity()));
-                Map<String, ICoupon> coupons = couponRepo.findCouponInCodes(couponCodes).stream()
-                                .collect(Collectors.toMap(coupon -> coupon.getCoupon().getCode(), Function.identity()));
-
-                // Initial values
-                double totalPrice = 0.0;
-                double totalShippingFee = 0.0;
-                double totalDealDiscount = 0.0;
-                double totalCouponDiscount = 0.0;
-                double totalShippingDiscount = 0.0;
-                int totalQuantity = 0;
-
-                // Process each detail in the cart order
-                for (CartDetailRequest detail : cart) {
-                        OrderDetail orderDetail = processOrderDetail(detail,
-                                        shops,
-                                        books,
-                                        coupons,
-                                        address,
-                                        paymentMethod,
-                                        user,
-                                        isCheckout);
+                Map<String, ICoupon> coupons = new HashMap<>(couponIndex.findInCodes(couponCodes));
+                List<String> missingCodes = couponCodes.stream()
+                                .filter(code -> code != null && !coupons.containsKey(code))
+                                .distinct()
+                                .toList();
+                if (!missingCodes.isEmpty()) { // Inactive or unknown, loaded so they are reported as such
+                        couponRepo.findCouponInCodes(missingCodes)
+                                        .forEach(coupon -> coupons.put(coupon.getCoupon().getCode(), coupon));
+                }
+                Set<Long> usedByUser = couponService.findUsedCoupons(user.getId(), coupons.values().stream()
+                                .map(coupon -> coupon.getCoupon().getId()).toList()); // Recommended ones are never used
 
-                        // Add detail to order
-                        orderReceipt.addOrderDetail(orderDetail);
+                return new PricingSnapshot(shops, books, coupons, Map.of(), usedByUser, LocalDate.now());
+        }
 
-                        // Add value
-                        totalPrice += orderDetail.getTotalPrice();
-                        totalQuantity += orderDetail.getTotalQuantity();
-                        totalShippingFee += orderDetail.getShippingFee();
-                        totalCouponDiscount += orderDetail.getCouponDiscount();
-                        totalShippingDiscount += orderDetail.getShippingDiscount();
-                        totalDealDiscount += orderDetail.getDealDiscount();
+        // Recommend a coupon for every unknown code of the cart from the coupon index
+        private Map<Long, List<ICoupon>> recommendCoupons(PricedCart pricedCart,
+                        String orderCoupon,
+                        PricingSnapshot snapshot,
+                        Account user) {
+                List<Long> shopIds = new ArrayList<>();
+                List<Double> values = new ArrayList<>();
+                List<Integer> quantities = new ArrayList<>();
+
+                for (PricedShop pricedShop : pricedCart.shops()) {
+                        String code = pricedShop.couponCode();
+                        if (pricedShop.shop() == null || code == null || snapshot.coupons().containsKey(code))
+                                continue;
+                        shopIds.add(pricedShop.shopId());
+                        values.add(pricedShop.totalPrice() - pricedShop.dealDiscount());
+                        quantities.add(pricedShop.quantity());
+                }
+                if (orderCoupon != null && !snapshot.coupons().containsKey(orderCoupon)) {
+                        shopIds.add(PricingEngine.PLATFORM);
+                        values.add(pricedCart.productsPrice() - pricedCart.dealDiscount());
+                        quantities.add(pricedCart.quantity());
                 }
 
-                // Apply main coupon
-                ICoupon cProjection = orderCoupon == null ? null // Null => User not select any coupon
-                                : coupons.containsKey(orderCoupon) ? coupons.get(orderCoupon)
-                                                : (couponRepo.recommendCoupon(null, totalPrice - totalDealDiscount,
-                                                                totalQuantity)
-                                                                .orElse(null));
-
-                Coupon coupon = cProjection != null ? cProjection.getCoupon() : null;
-                if (coupon != null && coupon.getShop() == null
-                                && !couponService.isExpired(coupon)) {
-                        // Initial value
-                        double discountValue = 0.0;
-                        double shippingDiscount = 0.0;
-                        double value = totalPrice - totalDealDiscount - totalCouponDiscount;
-                        double shipping = totalShippingFee - totalShippingDiscount;
-
-                        // Apply coupon
-                        if (couponRepo.hasUserUsedCoupon(coupon.getId(), user.getId())) {
-                                coupon.setIsUsed(true);
-
-                                if (isCheckout) {
-                                        throw new HttpResponseException(
-                                                        HttpStatus.CONFLICT,
-                                                        "Coupon expired!",
-                                                        "Mã coupon " + orderCoupon + " đã qua sử dụng!");
-                                }
+                if (shopIds.isEmpty())
+                        return Map.of();
+
+                // Best coupon of each row from the index, redemptions are checked once for all picks
+                Map<Integer, ICoupon> picks = new HashMap<>();
+                for (int i = 0; i < shopIds.size(); i++) {
+                        ICoupon coupon = couponIndex.recommend(shopIds.get(i),
+                                        values.get(i),
+                                        quantities.get(i),
+                                        Set.of());
+                        if (coupon != null)
+                                picks.put(i, coupon);
+                }
+                if (picks.isEmpty())
+                        return Map.of();
+
+                Set<Long> used = couponService.findUsedCoupons(user.getId(), picks.values().stream()
+                                .map(coupon -> coupon.getCoupon().getId())
+                                .collect(Collectors.toSet()));
+                Map<Long, List<ICoupon>> recommended = new HashMap<>();
+                List<Integer> redeemedRows = new ArrayList<>();
+                picks.forEach((row, coupon) -> {
+                        if (used.contains(coupon.getCoupon().getId())) {
+                                redeemedRows.add(row);
+                        } else {
+                                recommended.computeIfAbsent(shopIds.get(row), id -> new ArrayList<>()).add(coupon);
                         }
+                });
+                if (redeemedRows.isEmpty())
+                        return recommended;
+
+                // Rows whose best pick was redeemed go to the batch query, which skips the user's redemptions
+                List<Long> couponIds = couponRepo.recommendCouponIds(
+                                redeemedRows.stream().map(shopIds::get).toArray(Long[]::new),
+                                redeemedRows.stream().map(values::get).toArray(Double[]::new),
+                                redeemedRows.stream().map(quantities::get).toArray(Integer[]::new),
+                                user.getId());
+                if (!couponIds.isEmpty()) {
+                        couponRepo.findCouponInIds(couponIds).forEach(coupon -> recommended
+                                        .computeIfAbsent(coupon.getCoupon().getShop() != null
+                                                        ? coupon.getCoupon().getShop().getId()
+                                                        : PricingEngine.PLATFORM, id -> new ArrayList<>())
+                                        .add(coupon));
+                }
+                return recommended;
+        }
 
-                        CouponDiscountDTO discountFromCoupon = couponService.applyCoupon(coupon,
-                                        new CartStateRequest(value,
-                                                        shipping,
-                                                        totalQuantity,
-                                                        null),
-                                        user);
-
-                        if (discountFromCoupon != null) {
-                                // Decrease usage on checkout
-                                if (isCheckout) {
-                                        couponRepo.decreaseUsage(coupon.getId());
-                                }
-
-                                coupon.setIsUsable(true); // Mark usable for DTO result mapping
-                                discountValue = discountFromCoupon.discountValue();
-                                shippingDiscount = discountFromCoupon.discountShipping();
-
-                                // Split discount for each detail
-                                double discountRatio = discountValue / value;
-                                double shippingDiscountRatio = shippingDiscount / shipping;
-
-                                for (OrderDetail detail : orderReceipt.getDetails()) {
-                                        double pDiscount = detail.getDiscount() != null ? detail.getDiscount() : 0;
-                                        double sDiscount = detail.getShippingDiscount() != null
-                                                        ? detail.getShippingDiscount()
-                                                        : 0;
-                                        double applyDiscount = (detail.getTotalPrice() - pDiscount) * discountRatio;
-                                        double applyShippingDiscount = (detail.getShippingFee() - sDiscount)
-                                                        * shippingDiscountRatio;
-
-                                        detail.setDiscount(pDiscount + applyDiscount);
-                                        detail.setShippingDiscount(sDiscount + applyShippingDiscount);
-                                }
-                        } else if (isCheckout) {
-                                throw new HttpResponseException(
-                                                HttpStatus.CONFLICT,
-                                                "Invalid coupon!",
-                                                "Không thể sử dụng mã coupon " + orderCoupon + "!");
-                        }
+        // Map a priced cart to an unsaved receipt
+        private OrderReceipt toReceipt(PricedCart pricedCart,
+                        PaymentType paymentMethod,
+                        boolean isCheckout) {
+                var orderReceipt = OrderReceipt.builder()
+                                .details(new ArrayList<>())
+                                .build();
 
-                        // Add to total
-                        totalCouponDiscount += discountValue;
-                        totalShippingDiscount += shippingDiscount;
+                OrderStatus status = paymentMethod == PaymentType.CASH
+                                ? OrderStatus.PENDING
+                                : OrderStatus.PENDING_PAYMENT;
+                for (PricedShop pricedShop : pricedCart.shops()) {
+                        orderReceipt.addOrderDetail(toDetail(pricedShop, status, isCheckout));
                 }
 
-                // Total discount
-                double totalDiscount = totalCouponDiscount + totalDealDiscount + totalShippingDiscount;
-
                 // Set value
-                orderReceipt.setTotal(totalPrice + totalShippingFee);
-                orderReceipt.setProductsPrice(totalPrice);
-                orderReceipt.setShippingFee(totalShippingFee);
-                orderReceipt.setTotalDiscount(totalDiscount);
-                orderReceipt.setDealDiscount(totalDealDiscount);
-                orderReceipt.setCouponDiscount(totalCouponDiscount);
-                orderReceipt.setShippingDiscount(totalShippingDiscount);
-
+                orderReceipt.setTotal(pricedCart.total());
+                orderReceipt.setProductsPrice(pricedCart.productsPrice());
+                orderReceipt.setShippingFee(pricedCart.shippingFee());
+                orderReceipt.setTotalDiscount(pricedCart.totalDiscount());
+                orderReceipt.setDealDiscount(pricedCart.dealDiscount());
+                orderReceipt.setCouponDiscount(pricedCart.couponDiscount());
+                orderReceipt.setShippingDiscount(pricedCart.shippingDiscount());
+
+                ICoupon coupon = pricedCart.coupon();
+                markCoupon(coupon, pricedCart.couponUsable(), pricedCart.couponUsed());
                 if (isCheckout) {
-                        orderReceipt.setCoupon(coupon);
+                        orderReceipt.setCoupon(coupon != null ? coupon.getCoupon() : null);
                 } else {
-                        orderReceipt.setCouponDTO(cProjection != null ? couponMapper.couponToDTO(cProjection) : null);
+                        orderReceipt.setCouponDTO(coupon != null ? couponMapper.couponToDTO(coupon) : null);
                 }
 
                 return orderReceipt;
         }
 
-        // Process detail (Shop's items)
-        private OrderDetail processOrderDetail(CartDetailRequest detail,
-                        Map<Long, Shop> shops,
-                        Map<Long, Book> books,
-                        Map<String, ICoupon> coupons,
-                        Address address,
-                        PaymentType paymentMethod,
-                        Account user,
+        private OrderDetail toDetail(PricedShop pricedShop,
+                        OrderStatus status,
                         boolean isCheckout) {
 
-                // Shop validation
-                Shop shop = shops.get(detail.getShopId());
-                List<CartItemRequest> items = detail.getItems();
-                if (shop == null || items == null || items.isEmpty()) {
-                        if (isCheckout)
-                                throw new ResourceNotFoundException("Shop not found!",
-                                                "Không tìm thấy cửa hàng yêu cầu!");
-
-                        // Return temp detail
+                // Return temp detail
+                if (pricedShop.shop() == null) {
                         return OrderDetail.builder()
-                                        .shop(Shop.builder().id(detail.getShopId()).build())
+                                        .shop(Shop.builder().id(pricedShop.shopId()).build())
                                         .totalPrice(0.0)
                                         .shippingFee(0.0)
                                         .discount(0.0)
                                         .shippingDiscount(0.0)
-                                        .coupon(Coupon.builder().code(detail.getCoupon()).build())
+                                        .coupon(Coupon.builder().code(pricedShop.couponCode()).build())
                                         .items(new ArrayList<>()).build();
                 }
 
-                // New detail
-                OrderStatus status = paymentMethod == PaymentType.CASH
-                                ? OrderStatus.PENDING
-                                : OrderStatus.PENDING_PAYMENT;
                 OrderDetail orderDetail = OrderDetail.builder()
                                 .status(status)
-                                .shop(shop)
+                                .shop(pricedShop.shop())
                                 .items(new ArrayList<>()).build();
 
-                // Initial value
-                double shippingFee = calculateShippingFee(shop.getAddress(), address, detail.getShippingType());
-                double detailTotal = 0.0;
-                double discountDeal = 0.0;
-                double discountCoupon = 0.0;
-                double discountValue = 0.0;
-                double discountShipping = 0.0;
-                int detailQuantity = 0;
-
-                // Process each item in detail
-                for (CartItemRequest item : items) {
-                        // Book validation
-                        Book book = books.get(item.getId());
-                        if (book == null || !book.getShop().getId().equals(shop.getId())) {
-                                if (isCheckout)
-                                        throw new ResourceNotFoundException("Product not found!",
-                                                        "Không tìm thấy sản phẩm yêu cầu!");
-
-                                // Create temp item
-                                var orderItem = OrderItem.builder()
-                                                .book(Book.builder().id(item.getId()).build())
-                                                .build();
-
-                                orderDetail.addOrderItem(orderItem);
-                                continue; // Skip other steps
-                        }
-
-                        // Stocks validation
-                        short quantity = item.getQuantity();
-                        if (quantity < 1 || quantity > book.getAmount()) {
-                                throw new HttpResponseException(HttpStatus.CONFLICT, "Product out of stock!",
-                                                "Sản phẩm không đủ số lượng!");
+                for (PricedItem item : pricedShop.items()) {
+                        // Temp item
+                        if (item.book() == null) {
+                                orderDetail.addOrderItem(OrderItem.builder()
+                                                .book(Book.builder().id(item.bookId()).build())
+                                                .build());
+                                continue;
                         }
 
-                        // Calculate deal (for DTO result only ~ ~)
-                        double deal = book.getPrice() * book.getDiscount().doubleValue();
-                        detailQuantity += quantity;
-                        detailTotal += book.getPrice() * quantity;
-                        discountDeal += deal * quantity;
-
-                        // Decrease stock on checkout
-                        if (isCheckout) {
-                                bookRepo.decreaseStock(book.getId(), quantity);
-                        }
-
-                        // Add item into new detail
                         orderDetail.addOrderItem(OrderItem.builder()
-                                        .price(book.getPrice())
-                                        .discount(book.getDiscount())
-                                        .book(book)
-                                        .quantity(quantity)
+                                        .price(item.price())
+                                        .discount(item.discount())
+                                        .book(item.book())
+                                        .quantity(item.quantity())
                                         .build());
                 }
 
-                // Check coupon
-                ICoupon shopCoupon = detail.getCoupon() == null ? null // Null => User not select any coupon
-                                : coupons.containsKey(detail.getCoupon()) ? coupons.get(detail.getCoupon())
-                                                : couponRepo.recommendCoupon(shop.getId(), detailTotal - discountDeal,
-                                                                detailQuantity)
-                                                                .orElse(null);
-
-                // Validate + apply coupon
-                if (shopCoupon != null
-                                && shopCoupon.getCoupon().getShop().getId().equals(shop.getId())
-                                && !couponService.isExpired(shopCoupon.getCoupon())) {
-                        CouponDiscountDTO discountFromCoupon = couponService.applyCoupon(shopCoupon.getCoupon(),
-                                        new CartStateRequest(detailTotal - discountDeal, shippingFee, detailQuantity,
-                                                        shop.getId()),
-                                        user);
-
-                        // Apply coupon
-                        if (couponRepo.hasUserUsedCoupon(shopCoupon.getCoupon().getId(), user.getId())) {
-                                shopCoupon.getCoupon().setIsUsed(true);
-
-                                if (isCheckout) {
-                                        throw new HttpResponseException(
-                                                        HttpStatus.CONFLICT,
-                                                        "Coupon expired!",
-                                                        "Mã coupon " + detail.getCoupon() + " đã qua sử dụng!");
-                                }
-                        }
-
-                        // Appliable coupon
-                        if (discountFromCoupon != null) {
-                                // Decrease usage on checkout
-                                if (isCheckout) {
-                                        couponRepo.decreaseUsage(shopCoupon.getCoupon().getId());
-                                }
-                                shopCoupon.getCoupon().setIsUsable(true); // Mark usable to map DTO result
-                                discountCoupon = discountFromCoupon.discountValue();
-                                discountShipping = discountFromCoupon.discountShipping();
-                        } else if (isCheckout) {
-                                throw new HttpResponseException(
-                                                HttpStatus.CONFLICT,
-                                                "Invalid coupon!",
-                                                "Không thể sử dụng mã coupon " + detail.getCoupon() + "!");
-                        }
+                // Set detail value
+                orderDetail.setTotalPrice(pricedShop.totalPrice());
+                orderDetail.setShippingFee(pricedShop.shippingFee());
+                orderDetail.setDealDiscount(pricedShop.dealDiscount());
+                orderDetail.setDiscount(pricedShop.discount());
+                orderDetail.setCouponDiscount(pricedShop.couponDiscount());
+                orderDetail.setShippingDiscount(pricedShop.shippingDiscount());
+                orderDetail.setTotalQuantity(pricedShop.quantity());
+                orderDetail.setShippingType(pricedShop.shippingType());
+                orderDetail.setNote(pricedShop.note());
+
+                ICoupon coupon = pricedShop.coupon();
+                markCoupon(coupon, pricedShop.couponUsable(), pricedShop.couponUsed());
+                if (isCheckout) {
+                        orderDetail.setCoupon(coupon != null ? coupon.getCoupon() : null);
+                } else {
+                        orderDetail.setCouponDTO(coupon != null ? couponMapper.couponToDTO(coupon) : null);
                 }
 
-                // Add discount deal & discount coupon
-                discountValue += (discountDeal + discountCoupon);
+                return orderDetail;
+        }
 
-                // Free
-                if (discountValue >= detailTotal)
-                        discountValue = detailTotal;
-                if (discountShipping >= shippingFee)
-                        discountShipping = shippingFee;
+        // Mark usable & used for DTO result mapping, the engine leaves entities as loaded
+        private void markCoupon(ICoupon coupon,
+                        boolean isUsable,
+                        boolean isUsed) {
+                if (coupon == null)
+                        return;
+                if (isUsable)
+                        coupon.getCoupon().setIsUsable(true);
+                if (isUsed)
+                        coupon.getCoupon().setIsUsed(true);
+        }
 
-                // Set detail value
-                orderDetail.setTotalPrice(detailTotal);
-                orderDetail.setShippingFee(shippingFee);
-                orderDetail.setDealDiscount(discountDeal);
-                orderDetail.setDiscount(discountValue);
-                orderDetail.setCouponDiscount(discountCoupon);
-                orderDetail.setShippingDiscount(discountShipping);
-                orderDetail.setTotalQuantity(detailQuantity);
-                orderDetail.setShippingType(detail.getShippingType());
-                orderDetail.setNote(detail.getNote());
+        // Sum sold quantities per book
+        private Map<Long, Integer> countQuantities(List<OrderDetail> details) {
+                Map<Long, Integer> quantities = new HashMap<>();
+                if (details == null)
+                        return quantities;
+
+                for (OrderDetail detail : details) {
+                        if (detail.getItems() == null)
+                                continue;
+                        for (OrderItem item : detail.getItems()) {
+                                if (item.getBook() == null || item.getQuantity() == null)
+                                        continue;
+                                quantities.merge(item.getBook().getId(), (int) item.getQuantity(), Integer::sum);
+                        }
+                }
+                return quantities;
+        }
 
-                if (isCheckout) {
-                        orderDetail.setCoupon(shopCoupon != null ? shopCoupon.getCoupon() : null);
-                } else {
-                        orderDetail.setCouponDTO(shopCoupon != null ? couponMapper.couponToDTO(shopCoupon) : null);
+        // Only the pages of the buyer and of the shops and books of the order show it
+        private void evictOrders(OrderReceipt order) {
+                Set<String> tags = new LinkedHashSet<>();
+                if (order.getUser() != null)
+                        tags.add(CacheTag.USER.of(order.getUser().getId()));
+                if (order.getDetails() != null) {
+                        for (OrderDetail detail : order.getDetails()) {
+                                if (detail.getShop() != null)
+                                        tags.add(CacheTag.SHOP.of(detail.getShop().getId()));
+                                if (detail.getItems() == null)
+                                        continue;
+                                for (OrderItem item : detail.getItems()) {
+                                        if (item.getBook() != null)
+                                                tags.add(CacheTag.BOOK.of(item.getBook().getId()));
+                                }
+                        }
                 }
+                cacheTags.evict(ORDER_CACHES, tags);
+        }
 
-                return orderDetail;
+        // Free the shop coupon of a voided detail for the user to redeem again
+        private void releaseCoupon(OrderDetail detail) {
+                if (detail.getCoupon() != null) {
+                        couponService.releaseUsage(detail.getOrder().getId(), detail.getCoupon().getId());
+                }
         }
 
-        private double calculateShippingFee(Address origin,
-                        Address destination,
-                        ShippingType type) {
-                double shippingFee = !(destination == null || origin == null) ? distanceCalculation(origin, destination)
-                                : 10000;
-                if (type != null)
-                        shippingFee = shippingFee * type.getMultiplier().doubleValue();
-                return shippingFee;
-        }
-
-        // Mock for now
-        private double distanceCalculation(Address origin,
-                        Address destination) {
-
-                double baseFee = 10000;
-                return baseFee;
-                // if (destination == null) return baseFee;
-                //
-                // // Mock shipping fee calculation based on address hash codes
-                // // Using hash codes ensures consistent results for same addresses
-                // int originHash = origin.hashCode();
-                // int destHash = destination.hashCode();
-                //
-                // // Add variation based on address differences
-                // double distanceFactor = Math.abs(originHash - destHash) % 50000;
-                //
-                // // Ensure minimum fee of 20000 and maximum of 100000
-                // return Math.min(100000, Math.max(baseFee, baseFee + distanceFactor));
+        // Canceled & refunded details are excluded from sales
+        private boolean isVoided(OrderStatus status) {
+                return OrderStatus.CANCELED.equals(status) || OrderStatus.REFUNDED.equals(status);
         }
 
         // Check valid role function
@@ -997,4 +1130,11 @@ public class OrderServiceImpl implements OrderService {
                 // Check if is admin or valid owner id
                 return receipt.getUser().getId().equals(user.getId()) || isAdmin;
         }
+
+        protected List<ReceiptDTO> mapReceipts(List<IOrderReceipt> receipts) {
+                List<Long> receiptIds = receipts.stream().map(IOrderReceipt::getId)
+                                .collect(Collectors.toList());
+                List<IOrder> details = detailRepo.findAllByReceiptIds(receiptIds);
+                return orderMapper.receiptsAndDetailsProjectionToReceiptDTOS(receipts, details);
+        }
 }
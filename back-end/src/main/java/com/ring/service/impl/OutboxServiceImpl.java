@@ -0,0 +1,110 @@
+package com.ring.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ring.model.entity.OutboxEvent;
+import com.ring.model.enums.OutboxType;
+import com.ring.repository.OutboxEventRepository;
+import com.ring.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    public static final long MAX_BACKOFF = 3600000L;
+    public static final int ERROR_LENGTH = 500;
+
+    private final OutboxEventRepository outboxRepo;
+    private final ObjectMapper objectMapper;
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Value("${ring.outbox.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${ring.outbox.backoff:5000}")
+    private long backoff = 5000;
+
+    @Value("${ring.outbox.lease:300000}")
+    private long lease = 300000;
+
+    /**
+     * Records a side effect in the caller's transaction, so it is only dispatched
+     * when that transaction commits.
+     *
+     * @param type        the kind of side effect.
+     * @param aggregateId the ID of the entity it belongs to.
+     * @param payload     the data needed to run it, stored as JSON; can be null.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OutboxType type, Long aggregateId, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            outboxRepo.save(OutboxEvent.builder()
+                    .type(type)
+                    .aggregateId(aggregateId)
+                    .payload(payload != null ? objectMapper.writeValueAsString(payload) : null)
+                    .attempts(0)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload could not be written!", e);
+        }
+    }
+
+    /**
+     * Takes a batch of due events and pushes them out by the lease time, so they
+     * come back on their own if this node dies before settling them.
+     *
+     * @param limit the batch size.
+     * @return the claimed events.
+     */
+    @Transactional
+    public List<OutboxEvent> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxRepo.findDue(now, PageRequest.of(0, limit));
+        events.forEach(event -> event.setNextAttemptAt(now.plus(Duration.ofMillis(lease))));
+        return outboxRepo.saveAll(events);
+    }
+
+    public void complete(OutboxEvent event) {
+        outboxRepo.deleteById(event.getId());
+    }
+
+    public void fail(OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        String error = String.valueOf(e.getMessage());
+
+        event.setAttempts(attempts);
+        event.setLastError(error.length() > ERROR_LENGTH ? error.substring(0, ERROR_LENGTH) : error);
+        if (attempts >= maxAttempts) {
+            event.setNextAttemptAt(null);
+            log.error("Outbox event {} ({}) gave up after {} attempts: {}", event.getId(), event.getType(),
+                    attempts, error);
+        } else {
+            long delay = Math.min(backoff << Math.min(attempts - 1, 20), MAX_BACKOFF);
+            event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        }
+        outboxRepo.save(event);
+    }
+
+    public <T> T readPayload(OutboxEvent event, Class<T> type) {
+        try {
+            return objectMapper.readValue(event.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload could not be read!", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ring.service.impl;
+
+import com.ring.config.FilterKeyGenerator;
+import com.ring.dto.response.PagingResponse;
+import com.ring.model.enums.CountMode;
+import com.ring.service.PageCountService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Builds {@link PagingResponse} totals for a {@link Slice} according to the
+ * requested {@link CountMode}. Estimates come from the {@code pageCounts}
+ * cache keyed by the normalized filter, so only the first request of a filter
+ * pays for the count query. Whenever the slice reaches the end of the result
+ * set the total is known exactly and is reported as such.
+ */
+@RequiredArgsConstructor
+@Service
+public class PageCountServiceImpl implements PageCountService {
+
+    private final CacheManager cacheManager;
+    private final FilterKeyGenerator keyGenerator;
+
+    public <T> PagingResponse<T> getPagingResponse(List<T> content,
+                                                   Slice<?> slice,
+                                                   CountMode mode,
+                                                   Supplier<Long> counter,
+                                                   String name,
+                                                   Object... filters) {
+        int size = slice.getSize();
+        int page = slice.getNumber();
+        long seen = (long) page * size + slice.getNumberOfElements();
+        long total;
+        boolean approximate;
+
+        if (!slice.hasNext() && (slice.hasContent() || page == 0)) {
+            // Last slice, nothing left to count
+            total = seen;
+            approximate = false;
+        } else if (mode == CountMode.EXACT) {
+            total = counter.get();
+            approximate = false;
+        } else if (mode == CountMode.ESTIMATE) {
+            total = Math.max(estimate(counter, name, filters), seen + (slice.hasNext() ? 1 : 0));
+            approximate = true;
+        } else {
+            total = seen + (slice.hasNext() ? 1 : 0);
+            approximate = true;
+        }
+
+        int totalPages = size == 0 ? 1 : (int) Math.ceil((double) total / size);
+        return new PagingResponse<>(content, totalPages, total, size, page, content.isEmpty(), approximate);
+    }
+
+    private long estimate(Supplier<Long> counter, String name, Object... filters) {
+        Cache cache = cacheManager.getCache("pageCounts");
+        if (cache == null) return counter.get();
+
+        String key = keyGenerator.key(name, filters);
+        Long count = cache.get(key, Long.class);
+        if (count == null) {
+            count = counter.get();
+            cache.put(key, count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,248 @@
+package com.ring.service.impl;
+
+import com.google.common.hash.Hashing;
+import com.ring.dto.request.AddressRequest;
+import com.ring.dto.request.CalculateRequest;
+import com.ring.dto.request.CartDetailRequest;
+import com.ring.dto.request.CartItemRequest;
+import com.ring.dto.response.coupons.CouponDTO;
+import com.ring.dto.response.orders.CalculateDTO;
+import com.ring.dto.response.orders.CalculateDetailDTO;
+import com.ring.service.PricingCacheService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of cart calculations keyed by a hash of the normalized cart. Each entry
+ * remembers the version stamps of the books, shops and coupons it was priced from
+ * and is only served while all of them are unchanged, so a write invalidates the
+ * carts it touches instead of the whole cache. Stamps are bumped after the writing
+ * transaction commits; Redis failures are logged and treated as misses.
+ */
+@RequiredArgsConstructor
+@Service
+public class PricingCacheServiceImpl implements PricingCacheService {
+
+    private static final String PREFIX = "pricing::";
+    private static final String VERSIONS = "pricing::versions";
+    private static final String ALL = "all";
+    private static final String COUPONS = "coupons";
+    private static final long PLATFORM = 0L;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Value("${ring.pricing.cache-ttl:PT10M}")
+    private Duration ttl = Duration.ofMinutes(10);
+
+    public record Entry(Map<String, Long> versions, CalculateDTO value) {
+    }
+
+    /**
+     * Builds the cache key of a calculation. Cart lines and their items are sorted
+     * so the same cart in any order maps to the same entry; the note is left out as
+     * it does not change the price.
+     */
+    public String key(Long userId, CalculateRequest request) {
+        StringBuilder canonical = new StringBuilder()
+                .append("u=").append(userId)
+                .append(";c=").append(request.getCoupon());
+
+        AddressRequest address = request.getAddress();
+        if (address != null) {
+            canonical.append(";a=").append(address.getCity()).append('|').append(address.getAddress());
+        }
+
+        request.getCart().stream()
+                .map(this::canonicalDetail)
+                .sorted()
+                .forEach(detail -> canonical.append(';').append(detail));
+
+        return PREFIX + Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8);
+    }
+
+    public CalculateDTO get(String key) {
+        try {
+            if (!(redisTemplate.opsForValue().get(key) instanceof Entry entry)) return null;
+
+            List<String> fields = new ArrayList<>(entry.versions().keySet());
+            List<Long> current = readVersions(fields);
+            for (int i = 0; i < fields.size(); i++) {
+                if (!Objects.equals(entry.versions().get(fields.get(i)), current.get(i))) return null;
+            }
+            return entry.value();
+        } catch (DataAccessException e) {
+            log.warn("Failed to read pricing cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the stamps of the books and shops of a cart, and the stamp bumped with
+     * every coupon. Must be called before pricing it, so a write racing with the
+     * calculation leaves the entry stale rather than marked as fresh.
+     *
+     * @return the stamps, or null when Redis is unavailable.
+     */
+    public Map<String, Long> versions(Collection<Long> bookIds, Collection<Long> shopIds) {
+        List<String> fields = new ArrayList<>();
+        fields.add(ALL);
+        fields.add(shopField(null)); // Platform coupons
+        fields.add(COUPONS); // Coupons are only known once priced
+        bookIds.forEach(id -> fields.add(bookField(id)));
+        shopIds.forEach(id -> fields.add(shopField(id)));
+        return readVersionMap(fields);
+    }
+
+    public void put(String key, CalculateDTO value, Map<String, Long> versions) {
+        if (value == null || versions == null) return;
+
+        List<String> fields = new ArrayList<>(couponIds(value).stream().map(this::couponField).toList());
+        fields.add(COUPONS);
+        Map<String, Long> couponVersions = readVersionMap(fields);
+        if (couponVersions == null) return;
+
+        // A coupon changed while pricing, its stamp read now could mark a stale result as fresh
+        if (!Objects.equals(couponVersions.remove(COUPONS), versions.get(COUPONS))) return;
+
+        Map<String, Long> stamps = new HashMap<>(versions);
+        stamps.remove(COUPONS);
+        stamps.putAll(couponVersions);
+        try {
+            redisTemplate.opsForValue().set(key, new Entry(stamps, value), ttl);
+        } catch (DataAccessException e) {
+            log.warn("Failed to write pricing cache: {}", e.getMessage());
+        }
+    }
+
+    public void bumpBooks(Collection<Long> ids) {
+        bump(ids.stream().map(this::bookField).toList());
+    }
+
+    public void bumpShops(Collection<Long> ids) {
+        bump(ids.stream().map(this::shopField).toList());
+    }
+
+    public void bumpCoupons(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+
+        List<String> fields = new ArrayList<>(ids.stream().map(this::couponField).toList());
+        fields.add(COUPONS);
+        bump(fields);
+    }
+
+    public void bumpAll() {
+        bump(List.of(ALL));
+    }
+
+    private void bump(List<String> fields) {
+        if (fields.isEmpty()) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(fields);
+                }
+            });
+        } else {
+            increment(fields);
+        }
+    }
+
+    private void increment(List<String> fields) {
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    new LinkedHashSet<>(fields).forEach(field -> operations.opsForHash().increment(VERSIONS, field, 1));
+                    return null;
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Failed to bump pricing versions: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Long> readVersionMap(List<String> fields) {
+        try {
+            List<Long> values = readVersions(fields);
+            Map<String, Long> result = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                result.put(fields.get(i), values.get(i));
+            }
+            return result;
+        } catch (DataAccessException e) {
+            log.warn("Failed to read pricing versions: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Long> readVersions(List<String> fields) {
+        if (fields.isEmpty()) return List.of();
+
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(VERSIONS, new ArrayList<>(fields));
+        return values.stream().map(value -> value == null ? 0L : Long.parseLong(value.toString())).toList();
+    }
+
+    private Set<Long> couponIds(CalculateDTO value) {
+        Set<Long> ids = new HashSet<>();
+        addCoupon(ids, value.coupon());
+        if (value.details() != null) {
+            for (CalculateDetailDTO detail : value.details()) {
+                addCoupon(ids, detail.coupon());
+            }
+        }
+        return ids;
+    }
+
+    private void addCoupon(Set<Long> ids, CouponDTO coupon) {
+        if (coupon != null && coupon.id() != null) ids.add(coupon.id());
+    }
+
+    private String canonicalDetail(CartDetailRequest detail) {
+        String items = detail.getItems() == null ? ""
+                : detail.getItems().stream()
+                        .map(this::canonicalItem)
+                        .sorted()
+                        .collect(Collectors.joining("+"));
+        return "s=" + detail.getShopId()
+                + ",c=" + detail.getCoupon()
+                + ",t=" + detail.getShippingType()
+                + ",i=" + items;
+    }
+
+    private String canonicalItem(CartItemRequest item) {
+        return item.getId() + "x" + item.getQuantity();
+    }
+
+    private String bookField(Long id) {
+        return "b:" + id;
+    }
+
+    private String shopField(Long id) {
+        return "s:" + (id != null ? id : PLATFORM);
+    }
+
+    private String couponField(Long id) {
+        return "c:" + id;
+    }
+}
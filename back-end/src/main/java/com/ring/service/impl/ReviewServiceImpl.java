@@ -1,5 +1,7 @@
 package com.ring.service.impl;
 
+import com.ring.config.cache.CacheTag;
+import com.ring.config.cache.CacheTags;
 import com.ring.dto.projection.reviews.IReview;
 import com.ring.dto.request.ReviewRequest;
 import com.ring.dto.response.PagingResponse;
@@ -15,6 +17,8 @@ import com.ring.model.enums.UserRole;
 import com.ring.repository.BookRepository;
 import com.ring.repository.OrderReceiptRepository;
 import com.ring.repository.ReviewRepository;
+import com.ring.service.BookStatsService;
+import com.ring.service.CacheTagService;
 import com.ring.service.ReviewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
@@ -39,8 +43,9 @@ public class ReviewServiceImpl implements ReviewService {
         private final BookRepository bookRepo;
         private final OrderReceiptRepository orderRepo;
         private final ReviewMapper reviewMapper;
+        private final BookStatsService statsService;
+        private final CacheTagService cacheTags;
 
-        @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public Review review(Long id,
                         ReviewRequest request,
@@ -72,10 +77,13 @@ public class ReviewServiceImpl implements ReviewService {
                                 .build();
 
                 Review addedReview = reviewRepo.save(review); // Save to database
+                statsService.addRating(id, addedReview.getRating()); // Update book stats
+                evictReviews(id, user.getId());
                 return addedReview;
         }
 
         @Cacheable(cacheNames = "reviews")
+        @CacheTags(book = "#bookId", user = "#userId")
         public PagingResponse<ReviewDTO> getReviews(Long bookId,
                         Long userId,
                         Integer rating,
@@ -101,6 +109,7 @@ public class ReviewServiceImpl implements ReviewService {
         }
 
         @Cacheable(cacheNames = "reviews")
+        @CacheTags(book = "#id")
         public PagingResponse<ReviewDTO> getReviewsByBookId(Long id,
                         Integer rating,
                         Integer pageNo,
@@ -122,6 +131,7 @@ public class ReviewServiceImpl implements ReviewService {
         }
 
         @Cacheable(cacheNames = "reviews")
+        @CacheTags(user = "#user.id")
         public PagingResponse<ReviewDTO> getUserReviews(Account user,
                         Integer rating,
                         Integer pageNo,
@@ -144,6 +154,7 @@ public class ReviewServiceImpl implements ReviewService {
         }
 
         @Cacheable(cacheNames = "reviews")
+        @CacheTags(book = "#id", user = "#user.id")
         public ReviewDTO getReviewByBook(Long id, Account user) {
 
                 if (!orderRepo.hasUserBoughtBook(id, user.getId()))
@@ -158,7 +169,6 @@ public class ReviewServiceImpl implements ReviewService {
                 return reviewMapper.projectionToDTO(projection);
         }
 
-        @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public ReviewDTO updateReview(Long id, ReviewRequest request, Account user) {
 
@@ -173,22 +183,30 @@ public class ReviewServiceImpl implements ReviewService {
                                         "Người dùng không có quyền chỉnh sửa đánh giá này!");
 
                 // Set new review content
+                Integer oldRating = review.getRating();
                 review.setRating(request.getRating());
                 review.setRContent(request.getContent());
                 Review updatedReview = reviewRepo.save(review); // Save new review to database
+                if (!updatedReview.isHidden())
+                        statsService.changeRating(review.getBook().getId(), oldRating, updatedReview.getRating());
+                evictReviews(review.getBook().getId(), review.getUser().getId());
                 return reviewMapper.reviewToDTO(updatedReview); // Return added review
         }
 
         @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public void deleteReview(Long id) {
+                List<Long> bookIds = reviewRepo.findBookIdsInIds(List.of(id));
                 reviewRepo.deleteById(id);
+                statsService.rebuildStats(bookIds); // Recompute affected book stats
         }
 
         @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public void deleteReviews(List<Long> ids) {
+                List<Long> bookIds = reviewRepo.findBookIdsInIds(ids);
                 reviewRepo.deleteAllById(ids);
+                statsService.rebuildStats(bookIds); // Recompute affected book stats
         }
 
         @CacheEvict(cacheNames = "reviews", allEntries = true)
@@ -204,33 +222,42 @@ public class ReviewServiceImpl implements ReviewService {
                                 rating,
                                 keyword,
                                 ids);
+                List<Long> bookIds = reviewRepo.findBookIdsInIds(deleteIds);
                 reviewRepo.deleteAllById(deleteIds);
+                statsService.rebuildStats(bookIds); // Recompute affected book stats
         }
 
         @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public void deleteAllReviews() {
                 reviewRepo.deleteAll();
+                statsService.rebuildAllStats();
         }
 
-        @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public void hideReview(Long id) {
                 Review review = reviewRepo.findById(id)
                                 .orElseThrow(() -> new ResourceNotFoundException("Review not found!",
                                                 "Không tìm thấy đánh giá yêu cầu!"));
+                boolean wasHidden = review.isHidden();
                 review.setHidden(true);
                 reviewRepo.save(review);
+                if (!wasHidden)
+                        statsService.removeRating(review.getBook().getId(), review.getRating());
+                evictReviews(review.getBook().getId(), review.getUser().getId());
         }
 
-        @CacheEvict(cacheNames = "reviews", allEntries = true)
         @Transactional
         public void unhideReview(Long id) {
                 Review review = reviewRepo.findById(id)
                                 .orElseThrow(() -> new ResourceNotFoundException("Review not found!",
                                                 "Không tìm thấy đánh giá yêu cầu!"));
+                boolean wasHidden = review.isHidden();
                 review.setHidden(false);
                 reviewRepo.save(review);
+                if (wasHidden)
+                        statsService.addRating(review.getBook().getId(), review.getRating());
+                evictReviews(review.getBook().getId(), review.getUser().getId());
         }
 
         @Cacheable(cacheNames = "reviews")
@@ -244,4 +271,9 @@ public class ReviewServiceImpl implements ReviewService {
                 // Check if is admin or valid seller id
                 return review.getUser().getId().equals(user.getId()) || isAuthAdmin();
         }
+
+        // Only the pages of the book and of the user show the review
+        private void evictReviews(Long bookId, Long userId) {
+                cacheTags.evict(List.of("reviews"), List.of(CacheTag.BOOK.of(bookId), CacheTag.USER.of(userId)));
+        }
 }
@@ -1,5 +1,7 @@
 package com.ring.service.impl;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -8,9 +10,11 @@ import java.time.LocalDateTime;
 @Service
 public class ScheduleService {
 
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     @Scheduled(cron = "0 0/12 * * * *") //Every 12 minutes
     public void execute() {
-        System.out.println("Health checks at: " + LocalDateTime.now());
+        log.debug("Health checks at: {}", LocalDateTime.now());
     }
 
 }
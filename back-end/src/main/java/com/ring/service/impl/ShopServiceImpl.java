@@ -1,5 +1,7 @@
 package com.ring.service.impl;
 
+import com.ring.config.cache.CacheTag;
+import com.ring.config.cache.CacheTags;
 import com.ring.dto.projection.shops.*;
 import com.ring.dto.request.AddressRequest;
 import com.ring.dto.request.ShopRequest;
@@ -14,10 +16,15 @@ import com.ring.model.entity.Account;
 import com.ring.model.entity.Address;
 import com.ring.model.entity.Image;
 import com.ring.model.entity.Shop;
+import com.ring.model.enums.CountMode;
 import com.ring.model.enums.UserRole;
 import com.ring.repository.AddressRepository;
 import com.ring.repository.ShopRepository;
+import com.ring.service.BookSearchService;
+import com.ring.service.CacheTagService;
 import com.ring.service.ImageService;
+import com.ring.service.PageCountService;
+import com.ring.service.PricingCacheService;
 import com.ring.service.ShopService;
 import com.ring.utils.FileUploadUtil;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +33,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -40,10 +48,17 @@ import java.util.stream.Collectors;
 @Service
 public class ShopServiceImpl implements ShopService {
 
+    // Caches of a single shop, tagged with its ID
+    private static final List<String> SHOP_CACHES = List.of("shopInfo", "shopDetail", "shop");
+
     private final ShopRepository shopRepo;
     private final AddressRepository addressRepo;
 
     private final ImageService imageService;
+    private final BookSearchService searchService;
+    private final PageCountService countService;
+    private final PricingCacheService pricingCache;
+    private final CacheTagService cacheTags;
 
     private final ShopMapper shopMapper;
     private final DashboardMapper dashMapper;
@@ -80,15 +95,29 @@ public class ShopServiceImpl implements ShopService {
                                             String sortDir,
                                             String keyword,
                                             Long userId,
-                                            Account user) {
+                                            Account user,
+                                            CountMode countMode) {
 
         Pageable pageable = PageRequest.of(pageNo, pageSize,
                 sortDir.equals("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending());
         boolean isAdmin = isAuthAdmin();
+        Long ownerId = userId != null ? isAdmin ? userId : null
+                : isAdmin ? null : user.getId();
+
+        // Skip or estimate the count query
+        if (countMode != CountMode.EXACT) {
+            Slice<IShop> shopsSlice = shopRepo.findShopsSlice(keyword, ownerId, pageable);
+            List<ShopDTO> shopDTOS = shopsSlice.map(shopMapper::shopToDTO).toList();
+            return countService.getPagingResponse(shopDTOS,
+                    shopsSlice,
+                    countMode,
+                    () -> shopRepo.countShops(keyword, ownerId),
+                    "shops",
+                    keyword, ownerId);
+        }
 
         Page<IShop> shopsList = shopRepo.findShops(keyword,
-                userId != null ? isAdmin ? userId : null
-                        : isAdmin ? null : user.getId(),
+                ownerId,
                 pageable);
         List<ShopDTO> shopDTOS = shopsList.map(shopMapper::shopToDTO).toList();
         return new PagingResponse<>(
@@ -109,6 +138,7 @@ public class ShopServiceImpl implements ShopService {
     }
 
     @Cacheable(cacheNames = "shopInfo")
+    @CacheTags(shop = "#id")
     public ShopInfoDTO getShopInfo(Long id,
                                    Account user) {
 
@@ -121,6 +151,7 @@ public class ShopServiceImpl implements ShopService {
     }
 
     @Cacheable(cacheNames = "shop")
+    @CacheTags(shop = "#id")
     public ShopDisplayDetailDTO getShopDisplayDetail(Long id,
                                                      Account user) {
 
@@ -133,6 +164,7 @@ public class ShopServiceImpl implements ShopService {
     }
 
     @Cacheable(cacheNames = "shopDetail")
+    @CacheTags(shop = "#id")
     public ShopDetailDTO getShopDetail(Long id,
                                        Account user) {
 
@@ -154,7 +186,6 @@ public class ShopServiceImpl implements ShopService {
                 "Cửa hàng");
     }
 
-    @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop" }, allEntries = true)
     @Transactional
     public void follow(Long id,
             Account user) {
@@ -164,9 +195,9 @@ public class ShopServiceImpl implements ShopService {
                         "Không tìm thấy cửa hàng yêu cầu!"));
         shop.addFollower(user);
         shopRepo.save(shop);
+        cacheTags.evict(SHOP_CACHES, List.of(CacheTag.SHOP.of(id)));
     }
 
-    @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop" }, allEntries = true)
     @Transactional
     public void unfollow(Long id,
             Account user) {
@@ -176,6 +207,7 @@ public class ShopServiceImpl implements ShopService {
                         "Không tìm thấy cửa hàng yêu cầu!"));
         shop.removeFollower(user);
         shopRepo.save(shop);
+        cacheTags.evict(SHOP_CACHES, List.of(CacheTag.SHOP.of(id)));
     }
 
     @CacheEvict(cacheNames = { "shops", "shopsAnalytics" }, allEntries = true)
@@ -212,7 +244,7 @@ public class ShopServiceImpl implements ShopService {
         return addedShop;
     }
 
-    @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop", "shops" }, allEntries = true)
+    @CacheEvict(cacheNames = "shops", allEntries = true)
     @Transactional
     public Shop updateShop(Long id, ShopRequest request, MultipartFile file, Account user) {
 
@@ -242,6 +274,7 @@ public class ShopServiceImpl implements ShopService {
 
         Address updatedAddress = addressRepo.save(address); // Save address
 
+        boolean isRenamed = !request.getName().equals(shop.getName());
         shop.setAddress(updatedAddress);
         shop.setName(request.getName());
         shop.setDescription(request.getDescription());
@@ -251,10 +284,16 @@ public class ShopServiceImpl implements ShopService {
 
         // Update
         Shop updatedShop = shopRepo.save(shop);
+        pricingCache.bumpShops(List.of(updatedShop.getId())); // Address and name show in carts
+        cacheTags.evict(SHOP_CACHES, List.of(CacheTag.SHOP.of(updatedShop.getId())));
+
+        // Shop name is part of its books' search text
+        if (isRenamed)
+            searchService.reindexShop(updatedShop.getId());
         return updatedShop;
     }
 
-    @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop", "shops", "shopsAnalytics" }, allEntries = true)
+    @CacheEvict(cacheNames = { "shops", "shopsAnalytics" }, allEntries = true)
     public Shop deleteShop(Long id, Account user) {
 
         Shop shop = shopRepo.findById(id)
@@ -266,18 +305,22 @@ public class ShopServiceImpl implements ShopService {
                     "Người dùng không có quyền xoá cửa hàng này!");
 
         shopRepo.deleteById(id); // Delete from database
+        pricingCache.bumpShops(List.of(id));
+        cacheTags.evict(SHOP_CACHES, List.of(CacheTag.SHOP.of(id)));
         return shop;
     }
 
-    @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop", "shops", "shopsAnalytics" }, allEntries = true)
+    @CacheEvict(cacheNames = { "shops", "shopsAnalytics" }, allEntries = true)
     @Transactional
     public void deleteShops(List<Long> ids, Account user) {
 
         List<Long> deleteIds = isAuthAdmin() ? ids : shopRepo.findShopIdsByInIdsAndOwner(ids, user.getId());
         shopRepo.deleteAllById(deleteIds);
+        pricingCache.bumpShops(deleteIds);
+        cacheTags.evict(SHOP_CACHES, CacheTag.SHOP.of(deleteIds));
     }
 
-    @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop", "shops", "shopsAnalytics" }, allEntries = true)
+    @CacheEvict(cacheNames = { "shops", "shopsAnalytics" }, allEntries = true)
     @Transactional
     public void deleteShopsInverse(String keyword,
             Long userId,
@@ -289,6 +332,8 @@ public class ShopServiceImpl implements ShopService {
                 isAuthAdmin() ? userId : user.getId(),
                 ids);
         shopRepo.deleteAllById(deleteIds);
+        pricingCache.bumpShops(deleteIds);
+        cacheTags.evict(SHOP_CACHES, CacheTag.SHOP.of(deleteIds));
     }
 
     @CacheEvict(cacheNames = { "shopInfo", "shopDetail", "shop", "shops", "shopsAnalytics" }, allEntries = true)
@@ -300,6 +345,7 @@ public class ShopServiceImpl implements ShopService {
         } else {
             shopRepo.deleteAllByOwner(user);
         }
+        pricingCache.bumpAll();
     }
 
     // Check valid role function
@@ -0,0 +1,50 @@
+package com.ring.service.pricing;
+
+import com.ring.dto.projection.coupons.ICoupon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of {@link PricingEngine#price}, with the shops in cart order and the
+ * totals of the whole cart.
+ *
+ * @param coupon       the requested or recommended platform coupon, applied or not.
+ * @param couponUsable whether the platform coupon was applied.
+ * @param couponUsed   whether the user already redeemed the platform coupon.
+ */
+public record PricedCart(List<PricedShop> shops,
+        double productsPrice,
+        double shippingFee,
+        int quantity,
+        double dealDiscount,
+        double couponDiscount,
+        double shippingDiscount,
+        ICoupon coupon,
+        boolean couponUsable,
+        boolean couponUsed) {
+
+    public PricedCart {
+        shops = List.copyOf(shops);
+    }
+
+    public double total() {
+        return productsPrice + shippingFee;
+    }
+
+    public double totalDiscount() {
+        return couponDiscount + dealDiscount + shippingDiscount;
+    }
+
+    /**
+     * @return the IDs of the applied coupons, shop coupons first in cart order.
+     */
+    public List<Long> appliedCoupons() {
+        List<Long> ids = new ArrayList<>();
+        for (PricedShop shop : shops) {
+            if (shop.couponUsable()) ids.add(shop.coupon().getCoupon().getId());
+        }
+        if (couponUsable) ids.add(coupon.getCoupon().getId());
+        return ids;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ring.service.pricing;
+
+import com.ring.model.entity.Book;
+
+import java.math.BigDecimal;
+
+/**
+ * A priced cart item. The book is null when it was not found or belongs to another
+ * shop, which only happens for preview calculations.
+ */
+public record PricedItem(Long bookId,
+        Book book,
+        short quantity,
+        double price,
+        BigDecimal discount) {
+
+    static PricedItem missing(Long bookId) {
+        return new PricedItem(bookId, null, (short) 0, 0.0, null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.ring.service.pricing;
+
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.model.entity.Shop;
+import com.ring.model.enums.ShippingType;
+
+import java.util.List;
+
+/**
+ * The priced items of one shop in a cart. The shop is null when it was not found,
+ * which only happens for preview calculations.
+ *
+ * @param couponCode     the coupon code requested for the shop.
+ * @param coupon         the requested or recommended coupon, applied or not.
+ * @param discount       the deal, coupon and share of the platform coupon discounts.
+ * @param couponUsable   whether the coupon was applied.
+ * @param couponUsed     whether the user already redeemed the coupon.
+ */
+public record PricedShop(Long shopId,
+        Shop shop,
+        ShippingType shippingType,
+        String note,
+        String couponCode,
+        List<PricedItem> items,
+        int quantity,
+        double totalPrice,
+        double shippingFee,
+        double dealDiscount,
+        double couponDiscount,
+        double discount,
+        double shippingDiscount,
+        ICoupon coupon,
+        boolean couponUsable,
+        boolean couponUsed) {
+
+    public PricedShop {
+        items = List.copyOf(items);
+    }
+
+    static PricedShop missing(Long shopId, String couponCode) {
+        return new PricedShop(shopId, null, null, null, couponCode, List.of(),
+                0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, null, false, false);
+    }
+
+    PricedShop withDiscounts(double discount, double shippingDiscount) {
+        return new PricedShop(shopId, shop, shippingType, note, couponCode, items, quantity, totalPrice,
+                shippingFee, dealDiscount, couponDiscount, discount, shippingDiscount, coupon, couponUsable,
+                couponUsed);
+    }
+}
@@ -0,0 +1,370 @@
+package com.ring.service.pricing;
+
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.dto.request.CartDetailRequest;
+import com.ring.dto.request.CartItemRequest;
+import com.ring.dto.response.coupons.CouponDiscountDTO;
+import com.ring.exception.HttpResponseException;
+import com.ring.exception.ResourceNotFoundException;
+import com.ring.model.entity.*;
+import com.ring.model.enums.CouponType;
+import com.ring.model.enums.ShippingType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Prices carts from a {@link PricingSnapshot}. Pricing is pure: it reads nothing but
+ * the snapshot, mutates none of its entities and returns an immutable
+ * {@link PricedCart}, so the same snapshot always prices the same way and can be
+ * priced from any thread. Carts spanning many shops have their shops priced in
+ * parallel, as each shop only depends on its own lines. A shop prices in well under
+ * a microsecond per line, so handing shops to other threads only pays off for very
+ * large carts; see {@code PricingEngineBenchmark} before lowering the threshold.
+ */
+@Component
+public class PricingEngine {
+
+    public static final long PLATFORM = 0L;
+    public static final double BASE_SHIPPING_FEE = 10000;
+
+    private static final Comparator<ICoupon> RECOMMENDED = Comparator
+            .<ICoupon>comparingDouble(coupon -> coupon.getCoupon().getDetail().getAttribute())
+            .thenComparing(coupon -> coupon.getCoupon().getDetail().getDiscount(), Comparator.reverseOrder())
+            .thenComparing(coupon -> coupon.getCoupon().getDetail().getMaxDiscount(),
+                    Comparator.nullsFirst(Comparator.reverseOrder())); // Postgres sorts nulls first on desc
+
+    private final Executor executor;
+
+    @Value("${ring.pricing.parallel-shops:64}")
+    private int parallelShops = 64;
+
+    public PricingEngine() {
+        this.executor = ForkJoinPool.commonPool(); // Pricing is CPU bound, never blocks
+    }
+
+    public PricingEngine(Executor executor, int parallelShops) {
+        this.executor = executor;
+        this.parallelShops = parallelShops;
+    }
+
+    /**
+     * Prices a cart.
+     *
+     * @param cart        the cart lines, one per shop.
+     * @param orderCoupon the requested platform coupon code, null for none.
+     * @param destination the shipping address, null when not known yet.
+     * @param snapshot    the data to price from.
+     * @param strict      true on checkout: unknown shops and books, used coupons and
+     *                    coupons that do not apply are rejected instead of left out.
+     * @return the priced cart.
+     * @throws ResourceNotFoundException if a shop or book is not found on checkout.
+     * @throws HttpResponseException     if a book is out of stock, or a coupon is used
+     *                                   or does not apply on checkout.
+     */
+    public PricedCart price(List<CartDetailRequest> cart,
+            String orderCoupon,
+            Address destination,
+            PricingSnapshot snapshot,
+            boolean strict) {
+        List<PricedShop> shops = cart.size() >= parallelShops
+                ? priceInParallel(cart, destination, snapshot, strict)
+                : cart.stream().map(detail -> priceShop(detail, destination, snapshot, strict)).toList();
+
+        // Initial values
+        double totalPrice = 0.0;
+        double totalShippingFee = 0.0;
+        double totalDealDiscount = 0.0;
+        double totalCouponDiscount = 0.0;
+        double totalShippingDiscount = 0.0;
+        int totalQuantity = 0;
+
+        for (PricedShop shop : shops) {
+            totalPrice += shop.totalPrice();
+            totalQuantity += shop.quantity();
+            totalShippingFee += shop.shippingFee();
+            totalCouponDiscount += shop.couponDiscount();
+            totalShippingDiscount += shop.shippingDiscount();
+            totalDealDiscount += shop.dealDiscount();
+        }
+
+        // Apply main coupon
+        ICoupon cProjection = orderCoupon == null ? null // Null => User not select any coupon
+                : snapshot.coupons().containsKey(orderCoupon) ? snapshot.coupons().get(orderCoupon)
+                        : recommend(snapshot.candidates(null), totalPrice - totalDealDiscount, totalQuantity,
+                                snapshot.today());
+
+        Coupon coupon = cProjection != null ? cProjection.getCoupon() : null;
+        boolean isUsable = false;
+        boolean isUsed = false;
+        if (coupon != null && coupon.getShop() == null && !isExpired(coupon.getDetail(), snapshot.today())) {
+            double value = totalPrice - totalDealDiscount - totalCouponDiscount;
+            double shipping = totalShippingFee - totalShippingDiscount;
+
+            isUsed = snapshot.usedCoupons().contains(coupon.getId());
+            if (isUsed && strict) {
+                throw new HttpResponseException(
+                        HttpStatus.CONFLICT,
+                        "Coupon expired!",
+                        "Mã coupon " + orderCoupon + " đã qua sử dụng!");
+            }
+
+            CouponDiscountDTO discountFromCoupon = isUsed ? null
+                    : couponDiscount(coupon.getDetail(), value, shipping, totalQuantity);
+
+            if (discountFromCoupon != null) {
+                isUsable = true;
+
+                // Split discount for each shop
+                double discountRatio = discountFromCoupon.discountValue() / value;
+                double shippingDiscountRatio = discountFromCoupon.discountShipping() / shipping;
+                shops = shops.stream()
+                        .map(shop -> shop.withDiscounts(
+                                shop.discount() + (shop.totalPrice() - shop.discount()) * discountRatio,
+                                shop.shippingDiscount()
+                                        + (shop.shippingFee() - shop.shippingDiscount()) * shippingDiscountRatio))
+                        .toList();
+
+                totalCouponDiscount += discountFromCoupon.discountValue();
+                totalShippingDiscount += discountFromCoupon.discountShipping();
+            } else if (strict) {
+                throw new HttpResponseException(
+                        HttpStatus.CONFLICT,
+                        "Invalid coupon!",
+                        "Không thể sử dụng mã coupon " + orderCoupon + "!");
+            }
+        }
+
+        return new PricedCart(shops,
+                totalPrice,
+                totalShippingFee,
+                totalQuantity,
+                totalDealDiscount,
+                totalCouponDiscount,
+                totalShippingDiscount,
+                cProjection,
+                isUsable,
+                isUsed);
+    }
+
+    /**
+     * Calculates the discounts of a coupon for a cart state.
+     *
+     * @return the discounts, or null if the coupon does not apply.
+     */
+    public static CouponDiscountDTO couponDiscount(CouponDetail couponDetail,
+            double value,
+            double shippingFee,
+            int quantity) {
+        CouponType type = couponDetail.getType();
+        double discount = couponDetail.getDiscount().doubleValue();
+        double maxDiscount = couponDetail.getMaxDiscount();
+        double attribute = couponDetail.getAttribute();
+
+        // Discount
+        double discountValue = 0.0;
+        double discountShipping = 0.0;
+
+        // Check conditions & apply
+        if (type.equals(CouponType.MIN_AMOUNT)) {
+            if (quantity >= attribute)
+                discountValue = value * discount;
+        } else if (type.equals(CouponType.MIN_VALUE)) {
+            if (value >= attribute)
+                discountValue = value * discount;
+        } else if (type.equals(CouponType.SHIPPING)) {
+            if (value >= attribute)
+                discountShipping = shippingFee * discount;
+        }
+
+        // If not usable
+        if (discountValue == 0.0 && discountShipping == 0.0)
+            return null;
+
+        // Threshold
+        if (discountValue > maxDiscount)
+            discountValue = maxDiscount;
+        if (discountShipping > maxDiscount)
+            discountShipping = maxDiscount;
+
+        return new CouponDiscountDTO(discountValue, discountShipping);
+    }
+
+    public static boolean isExpired(CouponDetail couponDetail, LocalDate today) {
+        return couponDetail.getUsage() <= 0 || couponDetail.getExpDate().isBefore(today);
+    }
+
+    public static double shippingFee(Address origin,
+            Address destination,
+            ShippingType type) {
+        double shippingFee = BASE_SHIPPING_FEE; // Mock for now, same fee for any distance
+        if (type != null)
+            shippingFee = shippingFee * type.getMultiplier().doubleValue();
+        return shippingFee;
+    }
+
+    // Shops are independent until the platform coupon is split between them
+    private List<PricedShop> priceInParallel(List<CartDetailRequest> cart,
+            Address destination,
+            PricingSnapshot snapshot,
+            boolean strict) {
+        List<CompletableFuture<PricedShop>> futures = cart.stream()
+                .map(detail -> CompletableFuture.supplyAsync(
+                        () -> priceShop(detail, destination, snapshot, strict), executor))
+                .toList();
+
+        List<PricedShop> shops = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<PricedShop> future : futures) {
+                shops.add(future.join()); // In cart order, so the first failing line is reported
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+        return shops;
+    }
+
+    private PricedShop priceShop(CartDetailRequest detail,
+            Address destination,
+            PricingSnapshot snapshot,
+            boolean strict) {
+
+        // Shop validation
+        Shop shop = snapshot.shops().get(detail.getShopId());
+        List<CartItemRequest> items = detail.getItems();
+        if (shop == null || items == null || items.isEmpty()) {
+            if (strict)
+                throw new ResourceNotFoundException("Shop not found!",
+                        "Không tìm thấy cửa hàng yêu cầu!");
+
+            return PricedShop.missing(detail.getShopId(), detail.getCoupon());
+        }
+
+        // Initial value
+        double shippingFee = shippingFee(shop.getAddress(), destination, detail.getShippingType());
+        double detailTotal = 0.0;
+        double discountDeal = 0.0;
+        double discountCoupon = 0.0;
+        double discountShipping = 0.0;
+        int detailQuantity = 0;
+        List<PricedItem> pricedItems = new ArrayList<>(items.size());
+
+        // Process each item in detail
+        for (CartItemRequest item : items) {
+            // Book validation
+            Book book = snapshot.books().get(item.getId());
+            if (book == null || !book.getShop().getId().equals(shop.getId())) {
+                if (strict)
+                    throw new ResourceNotFoundException("Product not found!",
+                            "Không tìm thấy sản phẩm yêu cầu!");
+
+                pricedItems.add(PricedItem.missing(item.getId()));
+                continue; // Skip other steps
+            }
+
+            // Stocks validation
+            short quantity = item.getQuantity();
+            if (quantity < 1 || quantity > book.getAmount()) {
+                throw new HttpResponseException(HttpStatus.CONFLICT, "Product out of stock!",
+                        "Sản phẩm không đủ số lượng!");
+            }
+
+            // Calculate deal (for DTO result only ~ ~)
+            double deal = book.getPrice() * book.getDiscount().doubleValue();
+            detailQuantity += quantity;
+            detailTotal += book.getPrice() * quantity;
+            discountDeal += deal * quantity;
+
+            pricedItems.add(new PricedItem(book.getId(), book, quantity, book.getPrice(), book.getDiscount()));
+        }
+
+        // Check coupon
+        ICoupon shopCoupon = detail.getCoupon() == null ? null // Null => User not select any coupon
+                : snapshot.coupons().containsKey(detail.getCoupon()) ? snapshot.coupons().get(detail.getCoupon())
+                        : recommend(snapshot.candidates(shop.getId()), detailTotal - discountDeal,
+                                detailQuantity, snapshot.today());
+
+        // Validate + apply coupon
+        boolean isUsable = false;
+        boolean isUsed = false;
+        Coupon coupon = shopCoupon != null ? shopCoupon.getCoupon() : null;
+        if (coupon != null
+                && coupon.getShop() != null && Objects.equals(coupon.getShop().getId(), shop.getId())
+                && !isExpired(coupon.getDetail(), snapshot.today())) {
+            isUsed = snapshot.usedCoupons().contains(coupon.getId());
+            if (isUsed && strict) {
+                throw new HttpResponseException(
+                        HttpStatus.CONFLICT,
+                        "Coupon expired!",
+                        "Mã coupon " + detail.getCoupon() + " đã qua sử dụng!");
+            }
+
+            CouponDiscountDTO discountFromCoupon = isUsed ? null
+                    : couponDiscount(coupon.getDetail(), detailTotal - discountDeal, shippingFee, detailQuantity);
+
+            // Appliable coupon
+            if (discountFromCoupon != null) {
+                isUsable = true;
+                discountCoupon = discountFromCoupon.discountValue();
+                discountShipping = discountFromCoupon.discountShipping();
+            } else if (strict) {
+                throw new HttpResponseException(
+                        HttpStatus.CONFLICT,
+                        "Invalid coupon!",
+                        "Không thể sử dụng mã coupon " + detail.getCoupon() + "!");
+            }
+        }
+
+        // Add discount deal & discount coupon, free at most
+        double discountValue = Math.min(discountDeal + discountCoupon, detailTotal);
+        discountShipping = Math.min(discountShipping, shippingFee);
+
+        return new PricedShop(shop.getId(),
+                shop,
+                detail.getShippingType(),
+                detail.getNote(),
+                detail.getCoupon(),
+                pricedItems,
+                detailQuantity,
+                detailTotal,
+                shippingFee,
+                discountDeal,
+                discountCoupon,
+                discountValue,
+                discountShipping,
+                shopCoupon,
+                isUsable,
+                isUsed);
+    }
+
+    // Same ranking as CouponRepository#recommendCoupon
+    private ICoupon recommend(List<ICoupon> candidates,
+            double value,
+            int quantity,
+            LocalDate today) {
+        return candidates.stream()
+                .filter(candidate -> {
+                    CouponDetail couponDetail = candidate.getCoupon().getDetail();
+                    if (couponDetail.getUsage() <= 0 || !couponDetail.getExpDate().isAfter(today))
+                        return false;
+                    return couponDetail.getType() == CouponType.MIN_AMOUNT
+                            ? couponDetail.getAttribute() < quantity
+                            : couponDetail.getAttribute() < value;
+                })
+                .min(RECOMMENDED)
+                .orElse(null);
+    }
+}
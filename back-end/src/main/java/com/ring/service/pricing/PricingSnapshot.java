@@ -0,0 +1,47 @@
+package com.ring.service.pricing;
+
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.model.entity.Book;
+import com.ring.model.entity.Shop;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything {@link PricingEngine} needs to price a cart, loaded up front so pricing
+ * itself never touches the database. Entities are only read while pricing.
+ *
+ * @param shops       the shops of the cart by ID.
+ * @param books       the books of the cart by ID.
+ * @param coupons     the requested coupons by code.
+ * @param candidates  the coupons to recommend from, by shop ID with platform
+ *                    coupons under {@link PricingEngine#PLATFORM}. Only needed
+ *                    when a requested code is unknown.
+ * @param usedCoupons the IDs of the requested coupons the user already redeemed.
+ * @param today       the date coupons are checked against.
+ */
+public record PricingSnapshot(Map<Long, Shop> shops,
+        Map<Long, Book> books,
+        Map<String, ICoupon> coupons,
+        Map<Long, List<ICoupon>> candidates,
+        Set<Long> usedCoupons,
+        LocalDate today) {
+
+    public PricingSnapshot {
+        shops = Map.copyOf(shops);
+        books = Map.copyOf(books);
+        coupons = Map.copyOf(coupons);
+        candidates = Map.copyOf(candidates);
+        usedCoupons = Set.copyOf(usedCoupons);
+    }
+
+    public PricingSnapshot withCandidates(Map<Long, List<ICoupon>> candidates) {
+        return new PricingSnapshot(shops, books, coupons, candidates, usedCoupons, today);
+    }
+
+    public List<ICoupon> candidates(Long shopId) {
+        return candidates.getOrDefault(shopId != null ? shopId : PricingEngine.PLATFORM, List.of());
+    }
+}
@@ -0,0 +1,37 @@
+package com.ring.utils;
+
+import com.ring.exception.HttpResponseException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes keyset pagination positions into opaque URL-safe cursors.
+ */
+public final class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorUtil() {
+    }
+
+    public static String encode(Object... parts) {
+        String raw = String.join(SEPARATOR, Arrays.stream(parts).map(String::valueOf).toList());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static List<String> decode(String cursor, int size) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            List<String> parts = Arrays.asList(raw.split("\\" + SEPARATOR, -1));
+            if (parts.size() != size)
+                throw new IllegalArgumentException();
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new HttpResponseException(HttpStatus.BAD_REQUEST, "Invalid cursor!", "Con trỏ phân trang không hợp lệ!");
+        }
+    }
+}
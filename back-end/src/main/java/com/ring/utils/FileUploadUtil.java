@@ -2,6 +2,9 @@ package com.ring.utils;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Transformation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.ring.dto.projection.images.IImage;
 import com.ring.exception.HttpResponseException;
 import com.ring.model.enums.ImageSize;
 import lombok.RequiredArgsConstructor;
@@ -10,8 +13,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,6 +35,12 @@ public class FileUploadUtil {
     public static final Integer PRODUCT_SIZE = 600;
     public static final Integer ASSET_SIZE = 250;
     public static final Integer BANNER_SIZE = 1297;
+    public static final int SRC_SET_CACHE_SIZE = 10_000;
+
+    //Fallback for images whose srcSet has not been persisted yet
+    private final Cache<String, Map<String, String>> srcSetCache = CacheBuilder.newBuilder()
+            .maximumSize(SRC_SET_CACHE_SIZE)
+            .build();
 
     public static boolean isAllowedExtension(final String fileName, final String pattern) {
         final Matcher matcher = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(fileName);
@@ -47,6 +58,22 @@ public class FileUploadUtil {
         return System.currentTimeMillis() + "_" + StringUtils.cleanPath(file.getOriginalFilename());
     }
 
+    public Map<String, String> getSrcSet(IImage image) {
+        if (image == null) return null;
+        Map<String, String> stored = image.getSrcSet();
+        if (stored != null && !stored.isEmpty()) return stored;
+
+        try {
+            return srcSetCache.get(image.getPublicId(), () -> generateUrl(image.getPublicId()));
+        } catch (ExecutionException e) {
+            return generateUrl(image.getPublicId());
+        }
+    }
+
+    public void evictSrcSet(String publicId) {
+        if (publicId != null) srcSetCache.invalidate(publicId);
+    }
+
     public Map<String, String> generateUrl(String publicId) {
         //Generate url
         Map<String, String> srcSet = new HashMap<>();
@@ -58,6 +85,6 @@ public class FileUploadUtil {
                     .secure(true).generate(publicId));
         }
 
-        return srcSet;
+        return Collections.unmodifiableMap(srcSet);
     }
 }
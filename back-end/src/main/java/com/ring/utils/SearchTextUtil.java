@@ -0,0 +1,54 @@
+package com.ring.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Normalizes text for catalog search. Text is lower-cased, Vietnamese
+ * diacritics are stripped ("Sách Hay" -> "sach hay") and anything that is not
+ * a letter or digit collapses into a single space, so the same folding can be
+ * applied to stored search text and to user keywords.
+ */
+public final class SearchTextUtil {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchTextUtil() {
+    }
+
+    public static String fold(String text) {
+        if (text == null || text.isBlank())
+            return "";
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        normalized = MARKS.matcher(normalized).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase();
+        return SEPARATORS.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    public static String searchText(String... parts) {
+        return Arrays.stream(parts)
+                .filter(Objects::nonNull)
+                .map(SearchTextUtil::fold)
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Builds a {@code to_tsquery} expression matching every word of the keyword
+     * as a prefix, e.g. "Harry Pot" -> "harry:* &amp; pot:*".
+     */
+    public static String prefixQuery(String keyword) {
+        String folded = fold(keyword);
+        if (folded.isEmpty())
+            return "";
+        return Arrays.stream(folded.split(" "))
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
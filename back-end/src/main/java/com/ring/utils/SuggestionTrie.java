@@ -0,0 +1,117 @@
+package com.ring.utils;
+
+import java.util.*;
+
+/**
+ * Prefix trie of weighted suggestions. Every node keeps the best {@code limit}
+ * suggestions of its subtree, refreshed along the touched path on each write,
+ * so a lookup only walks the prefix and returns a precomputed list.
+ * <p>
+ * Not thread-safe, callers must guard writes against concurrent reads.
+ */
+public class SuggestionTrie {
+
+    private static final Comparator<Entry> BY_WEIGHT = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparing(Entry::text);
+
+    private final int limit;
+    private final Node root = new Node();
+
+    public SuggestionTrie(int limit) {
+        this.limit = limit;
+    }
+
+    private record Entry(String text, long weight) {
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private Entry entry;
+        private List<Entry> top = List.of();
+    }
+
+    /**
+     * Inserts or replaces the suggestion stored under the given key.
+     */
+    public void put(String key, String text, long weight) {
+        List<Node> path = walk(key, true);
+        path.get(path.size() - 1).entry = new Entry(text, weight);
+        refresh(path);
+    }
+
+    /**
+     * Inserts suggestions in bulk, refreshing every node once at the end.
+     */
+    public void putAll(Map<String, String> texts, Map<String, Long> weights) {
+        texts.forEach((key, text) -> {
+            List<Node> path = walk(key, true);
+            path.get(path.size() - 1).entry = new Entry(text, weights.getOrDefault(key, 0L));
+        });
+        refreshAll(root);
+    }
+
+    public void remove(String key) {
+        List<Node> path = walk(key, false);
+        if (path == null) return;
+        path.get(path.size() - 1).entry = null;
+
+        // Prune branches left empty
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            if (node.entry != null || !node.children.isEmpty()) break;
+            path.get(i - 1).children.remove(key.charAt(i - 1));
+            path.remove(i);
+        }
+        refresh(path);
+    }
+
+    /**
+     * Returns the best suggestions whose key starts with the given prefix.
+     */
+    public List<String> top(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) return new ArrayList<>();
+        return node.top.stream().map(Entry::text).toList();
+    }
+
+    private List<Node> walk(String key, boolean create) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                if (!create) return null;
+                child = new Node();
+                node.children.put(key.charAt(i), child);
+            }
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void refresh(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            refreshTop(path.get(i));
+        }
+    }
+
+    private void refreshAll(Node node) {
+        node.children.values().forEach(this::refreshAll);
+        refreshTop(node);
+    }
+
+    private void refreshTop(Node node) {
+        List<Entry> candidates = new ArrayList<>();
+        if (node.entry != null) candidates.add(node.entry);
+        for (Node child : node.children.values()) {
+            candidates.addAll(child.top);
+        }
+        candidates.sort(BY_WEIGHT);
+        node.top = List.copyOf(candidates.subList(0, Math.min(limit, candidates.size())));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ring.benchmark;
+
+import com.ring.config.RedisCacheConfig;
+import com.ring.config.cache.CacheSerializerSettings;
+import com.ring.config.cache.CompactRedisSerializer;
+import com.ring.dto.response.PagingResponse;
+import com.ring.dto.response.books.BookDisplayDTO;
+import com.ring.dto.response.images.ImageDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and reads back a page of 1 to 48 books as cached values, in the JSON
+ * format used before and in Smile with and without compression. Run with
+ * {@code mvn test-compile exec:exec -Pbenchmark -Dbenchmark=CacheSerializerBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CacheSerializerBenchmark {
+
+    @Param({ "1", "12", "48" })
+    private int books;
+
+    @Param({ "JSON", "SMILE", "SMILE_DEFLATED" })
+    private String format;
+
+    private CompactRedisSerializer serializer;
+    private PagingResponse<BookDisplayDTO> page;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        CacheSerializerSettings settings = new CacheSerializerSettings();
+        settings.setFormat(format.equals("JSON") ? CacheSerializerSettings.Format.JSON
+                : CacheSerializerSettings.Format.SMILE);
+        settings.setCompressThreshold(format.equals("SMILE_DEFLATED") ? 0 : Integer.MAX_VALUE);
+        serializer = new RedisCacheConfig(null, null, settings).valueSerializer();
+
+        List<BookDisplayDTO> content = new ArrayList<>();
+        for (long id = 1; id <= books; id++) {
+            content.add(BookDisplayDTO.builder()
+                    .id(id)
+                    .slug("book-" + id)
+                    .title("Book title " + id)
+                    .image(new ImageDTO("https://cdn.example.com/books/" + id + ".jpg",
+                            Map.of("tiny", "https://cdn.example.com/books/" + id + "-tiny.jpg",
+                                    "small", "https://cdn.example.com/books/" + id + "-small.jpg")))
+                    .description("Short description of book " + id)
+                    .price(50000.0 + id * 1000)
+                    .discount(BigDecimal.valueOf(0.1))
+                    .amount((short) 100)
+                    .shopId(id % 5 + 1)
+                    .shopName("Shop " + (id % 5 + 1))
+                    .rating(4.5)
+                    .totalOrders(120)
+                    .build());
+        }
+        page = new PagingResponse<>(content, 10, 10L * books, books, 0, false);
+        bytes = serializer.serialize(page);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return serializer.serialize(page);
+    }
+
+    @Benchmark
+    public Object read() {
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ring.benchmark;
+
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.dto.projection.images.IImage;
+import com.ring.dto.request.CartDetailRequest;
+import com.ring.dto.request.CartItemRequest;
+import com.ring.model.entity.*;
+import com.ring.model.enums.CouponType;
+import com.ring.model.enums.ShippingType;
+import com.ring.service.pricing.PricedCart;
+import com.ring.service.pricing.PricingEngine;
+import com.ring.service.pricing.PricingSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices carts of 1 to 200 lines spread over up to 20 shops, each shop asking for a
+ * coupon to be recommended, sequentially and with shops priced in parallel. Run with
+ * {@code mvn test-compile exec:exec -Pbenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PricingEngineBenchmark {
+
+    private static final int MAX_SHOPS = 20;
+    private static final int COUPONS_PER_SHOP = 5;
+
+    @Param({ "1", "10", "50", "200" })
+    private int lines;
+
+    private final PricingEngine sequential = new PricingEngine(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+    private final PricingEngine parallel = new PricingEngine(ForkJoinPool.commonPool(), 2);
+
+    private List<CartDetailRequest> cart;
+    private PricingSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        int shopCount = Math.min(lines, MAX_SHOPS);
+        Map<Long, Shop> shops = new HashMap<>();
+        Map<Long, Book> books = new HashMap<>();
+        Map<Long, List<ICoupon>> candidates = new HashMap<>();
+        Map<Long, List<CartItemRequest>> items = new LinkedHashMap<>();
+
+        for (long shopId = 1; shopId <= shopCount; shopId++) {
+            Shop shop = Shop.builder().id(shopId).build();
+            shops.put(shopId, shop);
+            items.put(shopId, new ArrayList<>());
+
+            List<ICoupon> coupons = new ArrayList<>();
+            for (int i = 0; i < COUPONS_PER_SHOP; i++) {
+                coupons.add(coupon(shopId * 100 + i, shop, i * 50000.0));
+            }
+            candidates.put(shopId, coupons);
+        }
+        candidates.put(PricingEngine.PLATFORM, List.of(coupon(1L, null, 0.0)));
+
+        for (long bookId = 1; bookId <= lines; bookId++) {
+            long shopId = (bookId - 1) % shopCount + 1;
+            books.put(bookId, Book.builder()
+                    .id(bookId)
+                    .price(50000.0 + bookId * 1000)
+                    .discount(BigDecimal.valueOf(0.1))
+                    .amount((short) 100)
+                    .shop(shops.get(shopId))
+                    .build());
+            items.get(shopId).add(CartItemRequest.builder().id(bookId).quantity((short) 2).build());
+        }
+
+        cart = items.entrySet().stream()
+                .map(entry -> CartDetailRequest.builder()
+                        .shopId(entry.getKey())
+                        .coupon("RECOMMEND")
+                        .shippingType(ShippingType.STANDARD)
+                        .items(entry.getValue())
+                        .build())
+                .toList();
+        snapshot = new PricingSnapshot(shops, books, Map.of(), candidates, Set.of(), LocalDate.now());
+    }
+
+    @Benchmark
+    public PricedCart priceSequential() {
+        return sequential.price(cart, "RECOMMEND", null, snapshot, false);
+    }
+
+    @Benchmark
+    public PricedCart priceParallel() {
+        return parallel.price(cart, "RECOMMEND", null, snapshot, false);
+    }
+
+    private static ICoupon coupon(long id, Shop shop, double attribute) {
+        Coupon coupon = Coupon.builder()
+                .id(id)
+                .code("C" + id)
+                .shop(shop)
+                .detail(CouponDetail.builder()
+                        .type(CouponType.MIN_VALUE)
+                        .attribute(attribute)
+                        .maxDiscount(20000.0)
+                        .discount(BigDecimal.valueOf(0.05))
+                        .usage((short) 100)
+                        .expDate(LocalDate.now().plusDays(30))
+                        .build())
+                .build();
+        return new ICoupon() {
+            public Coupon getCoupon() {
+                return coupon;
+            }
+
+            public String getShopName() {
+                return null;
+            }
+
+            public IImage getShopImage() {
+                return null;
+            }
+        };
+    }
+}
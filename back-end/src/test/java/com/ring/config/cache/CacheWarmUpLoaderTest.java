@@ -0,0 +1,172 @@
+package com.ring.config.cache;
+
+import com.ring.base.AbstractServiceTest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CacheWarmUpLoaderTest extends AbstractServiceTest {
+
+        @Mock
+        private RestTemplateBuilder restTemplateBuilder;
+
+        @Mock
+        private RestTemplate restTemplate;
+
+        private WarmUpSettings settings;
+        private MockEnvironment environment;
+        private SimpleMeterRegistry registry;
+        private CacheWarmUpLoader loader;
+
+        @BeforeEach
+        void setUp() {
+                settings = new WarmUpSettings();
+                settings.setPaths(List.of("/api/v1/enums", "/api/books", "/api/banners"));
+                environment = new MockEnvironment().withProperty("local.server.port", "8080");
+                registry = new SimpleMeterRegistry();
+                loader = new CacheWarmUpLoader(settings, registry, environment, restTemplateBuilder);
+        }
+
+        private void mockRestTemplate() {
+                when(restTemplateBuilder.connectTimeout(any(Duration.class))).thenReturn(restTemplateBuilder);
+                when(restTemplateBuilder.readTimeout(settings.getRequestTimeout())).thenReturn(restTemplateBuilder);
+                when(restTemplateBuilder.build()).thenReturn(restTemplate);
+        }
+
+        private URI uri(String path) {
+                return URI.create("http://localhost:8080" + path);
+        }
+
+        private HttpStatusCode get(String path) {
+                return restTemplate.execute(eq(uri(path)),
+                                eq(HttpMethod.GET),
+                                isNull(),
+                                ArgumentMatchers.<ResponseExtractor<HttpStatusCode>>any());
+        }
+
+        private Timer timer(String path, String result) {
+                return registry.find("ring.cache.warmup").tags("entry", path, "result", result).timer();
+        }
+
+        @Test
+        public void whenWarmUp_ThenReplaysEveryPath() {
+
+                // When
+                mockRestTemplate();
+                when(get("/api/v1/enums")).thenReturn(HttpStatus.OK);
+                when(get("/api/books")).thenReturn(HttpStatus.OK);
+                when(get("/api/banners")).thenReturn(HttpStatus.OK);
+
+                // Then
+                int result = loader.warmUp();
+
+                assertEquals(3, result);
+                assertEquals(1, timer("/api/books", "warmed").count());
+        }
+
+        @Test
+        public void whenWithoutServer_ThenSkips() {
+
+                // Given
+                environment = new MockEnvironment();
+                loader = new CacheWarmUpLoader(settings, registry, environment, restTemplateBuilder);
+
+                // Then
+                assertEquals(0, loader.warmUp());
+
+                // Verify
+                verifyNoInteractions(restTemplateBuilder);
+        }
+
+        @Test
+        public void whenDisabled_ThenSkips() {
+
+                // Given
+                settings.setEnabled(false);
+
+                // Then
+                assertEquals(0, loader.warmUp());
+
+                // Verify
+                verifyNoInteractions(restTemplateBuilder);
+        }
+
+        @Test
+        public void whenSomePathsFail_ThenCountsThemAndWarmsOthers() {
+
+                // When
+                mockRestTemplate();
+                when(get("/api/v1/enums")).thenThrow(new ResourceAccessException("Read timed out"));
+                when(get("/api/books")).thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+                when(get("/api/banners")).thenReturn(HttpStatus.OK);
+
+                // Then
+                int result = loader.warmUp();
+
+                assertEquals(1, result);
+                assertEquals(1, timer("/api/v1/enums", "failed").count());
+                assertEquals(1, timer("/api/books", "failed").count());
+                assertEquals(1, timer("/api/banners", "warmed").count());
+        }
+
+        @Test
+        public void whenNon2xxStatus_ThenCountsFailed() {
+
+                // Given
+                settings.setPaths(List.of("/api/books"));
+
+                // When
+                mockRestTemplate();
+                when(get("/api/books")).thenReturn(HttpStatus.NOT_MODIFIED);
+
+                // Then
+                assertEquals(0, loader.warmUp());
+                assertEquals(1, timer("/api/books", "failed").count());
+                assertNull(timer("/api/books", "warmed"));
+        }
+
+        @Test
+        public void whenRunTimesOut_ThenCancelsSlowEntries() {
+
+                // Given
+                settings.setPaths(List.of("/api/v1/enums", "/api/books"));
+                settings.setTimeout(Duration.ofMillis(300));
+
+                // When
+                mockRestTemplate();
+                when(get("/api/v1/enums")).thenReturn(HttpStatus.OK);
+                when(get("/api/books")).thenAnswer(invocation -> {
+                        Thread.sleep(10_000);
+                        return HttpStatus.OK;
+                });
+
+                // Then
+                long start = System.currentTimeMillis();
+                int result = loader.warmUp();
+
+                assertEquals(1, result);
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                assertEquals(1, timer("/api/v1/enums", "warmed").count());
+                assertNull(timer("/api/books", "warmed"));
+        }
+}
@@ -0,0 +1,144 @@
+package com.ring.config.cache;
+
+import com.ring.config.RedisCacheConfig;
+import com.ring.dto.response.PagingResponse;
+import com.ring.dto.response.books.BookDisplayDTO;
+import com.ring.dto.response.images.ImageDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRedisSerializerTest {
+
+        private CacheSerializerSettings settings;
+        private CompactRedisSerializer serializer;
+
+        @BeforeEach
+        void setUp() {
+                settings = new CacheSerializerSettings();
+                settings.setFormat(CacheSerializerSettings.Format.SMILE);
+                serializer = new RedisCacheConfig(null, null, settings).valueSerializer();
+        }
+
+        private PagingResponse<BookDisplayDTO> page(int books) {
+                List<BookDisplayDTO> content = new ArrayList<>();
+                for (long id = 1; id <= books; id++) {
+                        content.add(BookDisplayDTO.builder()
+                                        .id(id)
+                                        .slug("book-" + id)
+                                        .title("Book title " + id)
+                                        .image(new ImageDTO("https://cdn.example.com/books/" + id + ".jpg",
+                                                        Map.of("TINY", "https://cdn.example.com/books/" + id + "-tiny.jpg")))
+                                        .price(50000.0 + id * 1000)
+                                        .discount(BigDecimal.valueOf(0.1))
+                                        .amount((short) 100)
+                                        .build());
+                }
+                return new PagingResponse<>(content, 10, 10L * books, books, 0, false);
+        }
+
+        @Test
+        public void whenSerializeSmile_ThenRoundTripsPolymorphicValue() {
+
+                // Given
+                PagingResponse<BookDisplayDTO> page = page(2);
+
+                // Then
+                byte[] bytes = serializer.serialize(page);
+                Object result = serializer.deserialize(bytes);
+
+                assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+                assertEquals(CompactRedisSerializer.VERSION, bytes[1]);
+                assertInstanceOf(PagingResponse.class, result);
+                assertEquals(page, result);
+                assertInstanceOf(BookDisplayDTO.class, ((PagingResponse<?>) result).getContent().iterator().next());
+        }
+
+        @Test
+        public void whenSerializeBelowThreshold_ThenWritesPlainSmile() {
+
+                // Given
+                settings.setCompressThreshold(Integer.MAX_VALUE);
+
+                // Then
+                byte[] bytes = serializer.serialize(page(1));
+
+                assertEquals(0x01, bytes[2]);
+                assertEquals(':', bytes[3]); // Smile header ":)\n"
+                assertEquals(page(1), serializer.deserialize(bytes));
+        }
+
+        @Test
+        public void whenSerializeAtThreshold_ThenDeflates() {
+
+                // Given
+                PagingResponse<BookDisplayDTO> page = page(48);
+                settings.setCompressThreshold(Integer.MAX_VALUE);
+                int plainSize = serializer.serialize(page).length - 3;
+                settings.setCompressThreshold(plainSize);
+
+                // Then
+                byte[] bytes = serializer.serialize(page);
+
+                assertEquals(0x03, bytes[2]);
+                assertTrue(bytes.length < plainSize);
+                assertEquals(page, serializer.deserialize(bytes));
+        }
+
+        @Test
+        public void whenDeserializeLegacyJson_ThenReadsIt() {
+
+                // Given
+                PagingResponse<BookDisplayDTO> page = page(2);
+                settings.setFormat(CacheSerializerSettings.Format.JSON);
+                byte[] json = serializer.serialize(page);
+
+                // Then
+                settings.setFormat(CacheSerializerSettings.Format.SMILE);
+                Object result = serializer.deserialize(json);
+
+                assertEquals(page, result);
+        }
+
+        @Test
+        public void whenDeserializeNewerVersion_ThenReadsMiss() {
+
+                // Given
+                byte[] bytes = serializer.serialize(page(1));
+                bytes[1] = CompactRedisSerializer.VERSION + 1;
+
+                // Then
+                assertNull(serializer.deserialize(bytes));
+        }
+
+        @Test
+        public void whenDeserializeEmpty_ThenReadsMiss() {
+
+                // Then
+                assertNull(serializer.deserialize(null));
+                assertNull(serializer.deserialize(new byte[0]));
+                assertNull(serializer.deserialize(new byte[] { CompactRedisSerializer.MAGIC }));
+        }
+
+        @Test
+        public void whenSerializeJson_ThenWritesHeaderlessJson() {
+
+                // Given
+                PagingResponse<BookDisplayDTO> page = page(2);
+                settings.setFormat(CacheSerializerSettings.Format.JSON);
+
+                // Then
+                byte[] bytes = serializer.serialize(page);
+
+                assertEquals('{', bytes[0]);
+                assertTrue(new String(bytes, StandardCharsets.UTF_8).contains("\"@class\""));
+                assertEquals(page, serializer.deserialize(bytes));
+        }
+}
@@ -0,0 +1,108 @@
+package com.ring.config.cache;
+
+import com.ring.base.AbstractServiceTest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MeteredRedisCacheWriterTest extends AbstractServiceTest {
+
+        @Mock
+        private RedisCacheWriter writer;
+
+        private SimpleMeterRegistry registry;
+        private MeteredRedisCacheWriter meteredWriter;
+
+        private final byte[] key = { 1 };
+        private final byte[] value = new byte[42];
+        private final Duration ttl = Duration.ofMinutes(10);
+
+        @BeforeEach
+        void setUp() {
+                registry = new SimpleMeterRegistry();
+                meteredWriter = new MeteredRedisCacheWriter(writer, registry);
+        }
+
+        private DistributionSummary summary() {
+                return registry.find("ring.cache.payload.size").tags("cache", "books").summary();
+        }
+
+        @Test
+        public void whenPut_ThenRecordsPayloadSize() {
+
+                // Then
+                meteredWriter.put("books", key, value, ttl);
+
+                assertEquals(1, summary().count());
+                assertEquals(42, summary().totalAmount());
+
+                // Verify
+                verify(writer, times(1)).put("books", key, value, ttl);
+        }
+
+        @Test
+        public void whenPutIfAbsentWritten_ThenRecordsPayloadSize() {
+
+                // When
+                when(writer.putIfAbsent("books", key, value, ttl)).thenReturn(null);
+
+                // Then
+                assertNull(meteredWriter.putIfAbsent("books", key, value, ttl));
+
+                assertEquals(1, summary().count());
+        }
+
+        @Test
+        public void whenPutIfAbsentExisting_ThenRecordsNothing() {
+
+                // Given
+                byte[] existing = new byte[7];
+
+                // When
+                when(writer.putIfAbsent("books", key, value, ttl)).thenReturn(existing);
+
+                // Then
+                assertSame(existing, meteredWriter.putIfAbsent("books", key, value, ttl));
+
+                assertNull(summary());
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        public void whenGetWithLoader_ThenRecordsOnlyLoadedValues() {
+
+                // When
+                when(writer.get(eq("books"), eq(key), any(Supplier.class), eq(ttl), eq(false)))
+                                .thenAnswer(invocation -> invocation.<Supplier<byte[]>>getArgument(2).get())
+                                .thenReturn(value);
+
+                // Then
+                meteredWriter.get("books", key, () -> value, ttl, false); // Loaded
+                meteredWriter.get("books", key, () -> value, ttl, false); // Hit
+
+                assertEquals(1, summary().count());
+        }
+
+        @Test
+        public void whenGetOrRemove_ThenRecordsNothing() {
+
+                // When
+                when(writer.get("books", key)).thenReturn(value);
+
+                // Then
+                assertSame(value, meteredWriter.get("books", key));
+                meteredWriter.remove("books", key);
+
+                assertNull(summary());
+        }
+}
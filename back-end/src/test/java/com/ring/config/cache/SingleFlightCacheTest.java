@@ -0,0 +1,346 @@
+package com.ring.config.cache;
+
+import com.ring.base.AbstractServiceTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SingleFlightCacheTest extends AbstractServiceTest {
+
+        private static final Duration TTL = Duration.ofMinutes(10);
+        private static final int THREADS = 8;
+
+        @Mock
+        private StringRedisTemplate redisTemplate;
+
+        @Mock
+        private ValueOperations<String, String> valueOperations;
+
+        private ConcurrentMapCache remote;
+        private StampedeSettings settings;
+        private SingleFlightCache cache;
+        private SimpleMeterRegistry registry;
+        private ExecutorService executor;
+
+        @BeforeEach
+        void setUp() {
+                remote = new ConcurrentMapCache("books");
+                settings = new StampedeSettings();
+                settings.setEarlyRefresh(true);
+                cache = new SingleFlightCache(remote, key -> TTL, redisTemplate, settings);
+                registry = new SimpleMeterRegistry();
+                cache.bindTo(registry);
+                executor = Executors.newFixedThreadPool(THREADS);
+        }
+
+        @AfterEach
+        void cleanUp() {
+                executor.shutdownNow();
+        }
+
+        private static RedisScript<Long> anyScript() {
+                return any();
+        }
+
+        private double count(String result) {
+                return registry.get("ring.cache.loads")
+                                .tags("cache", "books", "result", result)
+                                .functionCounter()
+                                .count();
+        }
+
+        private void awaitCount(String result, double expected) throws InterruptedException {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (count(result) < expected && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(5);
+                }
+                assertEquals(expected, count(result));
+        }
+
+        private List<Future<String>> getConcurrently(Callable<String> loader) {
+                return IntStream.range(0, THREADS)
+                                .mapToObj(i -> executor.submit(() -> cache.get(1, loader)))
+                                .toList();
+        }
+
+        @Test
+        public void whenConcurrentMisses_ThenLoadsOnce() throws Exception {
+
+                // Given
+                CountDownLatch release = new CountDownLatch(1);
+                AtomicInteger calls = new AtomicInteger();
+                Callable<String> loader = () -> {
+                        calls.incrementAndGet();
+                        release.await();
+                        return "book";
+                };
+
+                // Then
+                List<Future<String>> results = getConcurrently(loader);
+                awaitCount("shared", THREADS - 1);
+                release.countDown();
+
+                for (Future<String> result : results) {
+                        assertEquals("book", result.get(5, TimeUnit.SECONDS));
+                }
+                assertEquals(1, calls.get());
+                assertEquals(1, count("load"));
+                assertEquals("book", cache.get(1).get());
+        }
+
+        @Test
+        public void whenConcurrentMissesFail_ThenEveryWaiterGetsError() throws Exception {
+
+                // Given
+                CountDownLatch release = new CountDownLatch(1);
+                AtomicInteger calls = new AtomicInteger();
+                IllegalStateException error = new IllegalStateException("Database down");
+                Callable<String> loader = () -> {
+                        calls.incrementAndGet();
+                        release.await();
+                        throw error;
+                };
+
+                // Then
+                List<Future<String>> results = getConcurrently(loader);
+                awaitCount("shared", THREADS - 1);
+                release.countDown();
+
+                for (Future<String> result : results) {
+                        ExecutionException exception = assertThrows(ExecutionException.class,
+                                        () -> result.get(5, TimeUnit.SECONDS));
+                        assertInstanceOf(Cache.ValueRetrievalException.class, exception.getCause());
+                        assertSame(error, exception.getCause().getCause());
+                }
+                assertEquals(1, calls.get());
+                assertNull(remote.get(1));
+        }
+
+        @Test
+        public void whenHitNotExpiring_ThenSkipsLoader() throws Exception {
+
+                // Given
+                @SuppressWarnings("unchecked")
+                Callable<String> loader = mock(Callable.class);
+                remote.put(1, new StampedValue("book", 0, System.currentTimeMillis() + TTL.toMillis()));
+
+                // Then
+                assertEquals("book", cache.get(1, loader));
+
+                // Verify
+                verify(loader, never()).call();
+        }
+
+        @Test
+        public void whenHitExpiring_ThenRefreshesEarly() {
+
+                // Given
+                remote.put(1, new StampedValue("stale", 1000, System.currentTimeMillis() - 1));
+
+                // Then
+                String result = cache.get(1, () -> "fresh");
+
+                assertEquals("fresh", result);
+                assertEquals(1, count("refresh"));
+                StampedValue stored = (StampedValue) remote.get(1).get();
+                assertEquals("fresh", stored.value());
+                assertTrue(stored.expiresAt() > System.currentTimeMillis());
+        }
+
+        @Test
+        public void whenEarlyRefreshFails_ThenServesStaleValue() {
+
+                // Given
+                StampedValue stale = new StampedValue("stale", 1000, System.currentTimeMillis() - 1);
+                remote.put(1, stale);
+
+                // Then
+                String result = cache.get(1, () -> {
+                        throw new IllegalStateException("Database down");
+                });
+
+                assertEquals("stale", result);
+                assertEquals(1, count("refresh"));
+                assertSame(stale, remote.get(1).get());
+        }
+
+        @Test
+        public void whenLockedElsewhere_ThenPollsForValue() throws Exception {
+
+                // Given
+                settings.setDistributedLock(true);
+                @SuppressWarnings("unchecked")
+                Callable<String> loader = mock(Callable.class);
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(eq("cacheLock::books::1"), anyString(), eq(settings.getLockTtl())))
+                                .thenReturn(false);
+
+                // Then
+                executor.submit(() -> {
+                        Thread.sleep(100); // Loaded by the lock holder
+                        remote.put(1, new StampedValue("book", 0, System.currentTimeMillis() + TTL.toMillis()));
+                        return null;
+                });
+                String result = cache.get(1, loader);
+
+                assertEquals("book", result);
+                assertEquals(1, count("awaited"));
+
+                // Verify
+                verify(loader, never()).call();
+                verify(redisTemplate, never()).execute(anyScript(), anyList(), any());
+        }
+
+        @Test
+        public void whenLockWaitRunsOut_ThenLoadsItself() {
+
+                // Given
+                settings.setDistributedLock(true);
+                settings.setLockWait(Duration.ofMillis(120));
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+                // Then
+                String result = cache.get(1, () -> "book");
+
+                assertEquals("book", result);
+                assertEquals(0, count("awaited"));
+                assertEquals(1, count("load"));
+
+                // Verify
+                verify(redisTemplate, never()).execute(anyScript(), anyList(), any());
+        }
+
+        @Test
+        public void whenLocked_ThenLoadsAndUnlocksWithToken() {
+
+                // Given
+                settings.setDistributedLock(true);
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(eq("cacheLock::books::1"), anyString(), any(Duration.class)))
+                                .thenReturn(true);
+
+                // Then
+                assertEquals("book", cache.get(1, () -> "book"));
+
+                // Verify
+                verify(redisTemplate, times(1)).execute(anyScript(),
+                                eq(List.of("cacheLock::books::1")),
+                                anyString());
+        }
+
+        @Test
+        public void whenRedisUnavailable_ThenLoadsWithoutLock() {
+
+                // Given
+                settings.setDistributedLock(true);
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                                .thenThrow(new RedisConnectionFailureException("down"));
+                when(redisTemplate.execute(anyScript(), anyList(), any()))
+                                .thenThrow(new RedisConnectionFailureException("down"));
+
+                // Then
+                long start = System.currentTimeMillis();
+                String result = cache.get(1, () -> "book");
+
+                assertEquals("book", result);
+                assertEquals(1, count("load"));
+                assertTrue(System.currentTimeMillis() - start < settings.getLockWait().toMillis());
+        }
+
+        @Test
+        public void whenPut_ThenStoresStampedAndReadsUnwrapped() {
+
+                // Then
+                cache.put(1, "book");
+
+                StampedValue stored = (StampedValue) remote.get(1).get();
+                assertEquals("book", stored.value());
+                assertEquals(0, stored.delta());
+                assertTrue(stored.expiresAt() > System.currentTimeMillis() + TTL.toMillis() - 1000);
+                assertEquals("book", cache.get(1).get());
+                assertEquals("book", cache.get(1, String.class));
+        }
+
+        @Test
+        public void whenPutIfAbsentWithExisting_ThenReturnsUnwrapped() {
+
+                // Given
+                cache.put(1, "book");
+
+                // Then
+                assertEquals("book", cache.putIfAbsent(1, "other").get());
+                assertNull(cache.putIfAbsent(2, "other"));
+                assertEquals("other", cache.get(2).get());
+        }
+
+        @Test
+        public void whenPutNull_ThenStoresNullUnstamped() {
+
+                // Then
+                cache.put(1, null);
+
+                assertNotNull(remote.get(1));
+                assertNull(remote.get(1).get());
+                assertNull(cache.get(1).get());
+        }
+
+        @Test
+        public void whenGetUnstampedValue_ThenReturnsAsIs() {
+
+                // Given
+                remote.put(1, "book"); // Written before early refresh was enabled
+
+                // Then
+                assertEquals("book", cache.get(1).get());
+                assertEquals("book", cache.get(1, () -> "other"));
+                assertThrows(IllegalStateException.class, () -> cache.get(1, Integer.class));
+        }
+
+        @Test
+        public void whenEarlyRefreshDisabled_ThenStoresPlainValues() {
+
+                // Given
+                settings.setEarlyRefresh(false);
+
+                // Then
+                cache.put(1, "book");
+                cache.get(2, () -> "other");
+
+                assertEquals("book", remote.get(1).get());
+                assertEquals("other", remote.get(2).get());
+        }
+}
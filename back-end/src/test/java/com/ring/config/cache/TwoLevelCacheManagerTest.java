@@ -0,0 +1,145 @@
+package com.ring.config.cache;
+
+import com.ring.base.AbstractServiceTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheManagerTest extends AbstractServiceTest {
+
+        @Mock
+        private StringRedisTemplate redisTemplate;
+
+        private ConcurrentMapCacheManager remote;
+        private TwoLevelCacheManager cacheManager;
+
+        @BeforeEach
+        void setUp() {
+                LocalCacheSettings settings = new LocalCacheSettings();
+                settings.setNames(List.of("books"));
+                remote = new ConcurrentMapCacheManager();
+                cacheManager = new TwoLevelCacheManager(remote,
+                                redisTemplate,
+                                new SimpleMeterRegistry(),
+                                settings,
+                                new StampedeSettings());
+        }
+
+        private DefaultMessage message(String body) {
+                return new DefaultMessage(TwoLevelCacheManager.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                                body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Cached locally only, so a read shows whether the local entry is still there
+        private void putLocalOnly(Cache cache, Object key, Object value) {
+                cache.put(key, value);
+                remote.getCache(cache.getName()).evict(key);
+        }
+
+        @Test
+        public void whenGetListedCache_ThenWrapsInTwoLevelCache() {
+
+                // Then
+                Cache cache = cacheManager.getCache("books");
+
+                assertInstanceOf(TwoLevelCache.class, cache);
+                assertSame(cache, cacheManager.getCache("books"));
+        }
+
+        @Test
+        public void whenGetUnlistedCache_ThenReturnsRemoteCache() {
+
+                // Then
+                Cache cache = cacheManager.getCache("orders");
+
+                assertSame(remote.getCache("orders"), cache);
+        }
+
+        @Test
+        public void whenWrite_ThenPublishesOnChannel() {
+
+                // Given
+                Cache cache = cacheManager.getCache("books");
+                ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+
+                // Then
+                cache.put(1, "book");
+                cache.evict(1);
+                cache.clear();
+
+                // Verify
+                verify(redisTemplate, times(3)).convertAndSend(eq(TwoLevelCacheManager.CHANNEL), captor.capture());
+                List<String> messages = captor.getAllValues();
+                assertTrue(messages.get(0).endsWith("\nbooks\n1"));
+                assertTrue(messages.get(1).endsWith("\nbooks\n1"));
+                assertTrue(messages.get(2).endsWith("\nbooks"));
+        }
+
+        @Test
+        public void whenOnMessageFromOwnNode_ThenKeepsLocalEntry() {
+
+                // Given
+                Cache cache = cacheManager.getCache("books");
+                ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+                putLocalOnly(cache, 1, "book");
+
+                // Then
+                verify(redisTemplate).convertAndSend(eq(TwoLevelCacheManager.CHANNEL), captor.capture());
+                cacheManager.onMessage(message(captor.getValue()), null);
+
+                assertEquals("book", cache.get(1).get());
+        }
+
+        @Test
+        public void whenOnMessageWithKey_ThenEvictsOnlyThatKey() {
+
+                // Given
+                Cache cache = cacheManager.getCache("books");
+                putLocalOnly(cache, 1, "book");
+                putLocalOnly(cache, 2, "other");
+
+                // Then
+                cacheManager.onMessage(message("node\nbooks\n1"), null);
+
+                assertNull(cache.get(1));
+                assertEquals("other", cache.get(2).get());
+        }
+
+        @Test
+        public void whenOnMessageWithoutKey_ThenClearsLocalCache() {
+
+                // Given
+                Cache cache = cacheManager.getCache("books");
+                putLocalOnly(cache, 1, "book");
+                putLocalOnly(cache, 2, "other");
+
+                // Then
+                cacheManager.onMessage(message("node\nbooks"), null);
+
+                assertNull(cache.get(1));
+                assertNull(cache.get(2));
+        }
+
+        @Test
+        public void whenOnMessageForUnknownCache_ThenCreatesNothing() {
+
+                // Then
+                cacheManager.onMessage(message("node\nbooks\n1"), null);
+                cacheManager.onMessage(message("malformed"), null);
+
+                assertTrue(remote.getCacheNames().isEmpty());
+        }
+}
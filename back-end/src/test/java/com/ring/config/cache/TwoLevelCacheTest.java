@@ -0,0 +1,190 @@
+package com.ring.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ring.base.AbstractServiceTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheTest extends AbstractServiceTest {
+
+        @Mock
+        private BiConsumer<String, String> publisher;
+
+        private ConcurrentMapCache remote;
+        private com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+        private TwoLevelCache cache;
+        private SimpleMeterRegistry registry;
+
+        @BeforeEach
+        void setUp() {
+                remote = spy(new ConcurrentMapCache("books", false));
+                local = Caffeine.newBuilder().build();
+                cache = new TwoLevelCache("books", remote, local, publisher);
+                registry = new SimpleMeterRegistry();
+                cache.bindTo(registry);
+        }
+
+        private double count(String level, String result) {
+                return registry.get("ring.cache.gets")
+                                .tags("cache", "books", "level", level, "result", result)
+                                .functionCounter()
+                                .count();
+        }
+
+        @Test
+        public void whenGetLocalHit_ThenSkipsRemote() {
+
+                // Given
+                local.put("1", "book");
+
+                // Then
+                Cache.ValueWrapper result = cache.get(1);
+
+                assertNotNull(result);
+                assertEquals("book", result.get());
+                assertEquals(1, count("l1", "hit"));
+
+                // Verify
+                verify(remote, never()).get(any());
+        }
+
+        @Test
+        public void whenGetLocalMiss_ThenReadsThroughRemote() {
+
+                // Given
+                remote.put(1, "book");
+
+                // Then
+                Cache.ValueWrapper result = cache.get(1);
+
+                assertEquals("book", result.get());
+                assertEquals("book", local.getIfPresent("1"));
+                assertEquals(1, count("l1", "miss"));
+                assertEquals(1, count("l2", "hit"));
+
+                // Verify
+                verify(remote, times(1)).get(1);
+                verifyNoInteractions(publisher);
+        }
+
+        @Test
+        public void whenGetMissingInBothLevels_ThenReturnsNull() {
+
+                // Then
+                assertNull(cache.get(1));
+                assertNull(local.getIfPresent("1"));
+                assertEquals(1, count("l2", "miss"));
+        }
+
+        @Test
+        public void whenGetWithLoader_ThenLoadsOnceAndKeepsLocally() throws Exception {
+
+                // Given
+                @SuppressWarnings("unchecked")
+                Callable<String> loader = mock(Callable.class);
+
+                // When
+                when(loader.call()).thenReturn("book");
+
+                // Then
+                assertEquals("book", cache.get(1, loader));
+                assertEquals("book", cache.get(1, loader));
+
+                assertEquals("book", remote.get(1).get());
+                assertEquals("book", local.getIfPresent("1"));
+                assertEquals(1, count("l1", "hit"));
+                assertEquals(1, count("l2", "miss"));
+
+                // Verify
+                verify(loader, times(1)).call();
+        }
+
+        @Test
+        public void whenPut_ThenWritesBothLevelsAndPublishes() {
+
+                // Then
+                cache.put(1, "book");
+
+                assertEquals("book", remote.get(1).get());
+                assertEquals("book", local.getIfPresent("1"));
+
+                // Verify
+                verify(publisher, times(1)).accept("books", "1");
+        }
+
+        @Test
+        public void whenPutIfAbsentWithExisting_ThenKeepsExistingWithoutPublishing() {
+
+                // Given
+                remote.put(1, "book");
+
+                // Then
+                Cache.ValueWrapper result = cache.putIfAbsent(1, "other");
+
+                assertEquals("book", result.get());
+                assertNull(local.getIfPresent("1"));
+
+                // Verify
+                verifyNoInteractions(publisher);
+        }
+
+        @Test
+        public void whenEvict_ThenDropsBothLevelsAndPublishes() {
+
+                // Given
+                cache.put(1, "book");
+
+                // Then
+                cache.evict(1);
+
+                assertNull(remote.get(1));
+                assertNull(local.getIfPresent("1"));
+
+                // Verify
+                verify(publisher, times(2)).accept("books", "1");
+        }
+
+        @Test
+        public void whenClear_ThenDropsBothLevelsAndPublishesWithoutKey() {
+
+                // Given
+                cache.put(1, "book");
+                cache.put(2, "other");
+
+                // Then
+                cache.clear();
+
+                assertNull(remote.get(1));
+                assertEquals(0, local.estimatedSize());
+
+                // Verify
+                verify(publisher, times(1)).accept("books", null);
+        }
+
+        @Test
+        public void whenEvictLocal_ThenKeepsRemote() {
+
+                // Given
+                cache.put(1, "book");
+
+                // Then
+                cache.evictLocal("1");
+
+                assertNull(local.getIfPresent("1"));
+                assertEquals("book", remote.get(1).get());
+
+                // Verify
+                verify(publisher, times(1)).accept(anyString(), anyString());
+        }
+}
@@ -2,6 +2,8 @@ package com.ring.repository;
 
 import com.ring.base.AbstractRepositoryTest;
 import com.ring.dto.projection.books.IBookDisplay;
+import com.ring.dto.projection.books.IBookFacet;
+import com.ring.dto.projection.books.IBookSuggestion;
 import com.ring.dto.projection.dashboard.IStat;
 import com.ring.model.entity.*;
 import jakarta.persistence.EntityManager;
@@ -84,6 +86,7 @@ class BookRepositoryTest extends AbstractRepositoryTest {
                 .image(image)
                 .title("book")
                 .author("author")
+                .searchText("book author shop")
                 .price(10000.0)
                 .discount(BigDecimal.valueOf(0))
                 .amount((short) 88)
@@ -94,6 +97,7 @@ class BookRepositoryTest extends AbstractRepositoryTest {
                 .image(image2)
                 .title("book2")
                 .author("author2")
+                .searchText("book2 author2 shop")
                 .price(20000.0)
                 .discount(BigDecimal.valueOf(0))
                 .amount((short) 1)
@@ -104,6 +108,7 @@ class BookRepositoryTest extends AbstractRepositoryTest {
                 .image(image3)
                 .title("3koob")
                 .author("author3")
+                .searchText("3koob author3 shop")
                 .price(30000.0)
                 .discount(BigDecimal.valueOf(0))
                 .amount((short) 0)
@@ -225,6 +230,7 @@ class BookRepositoryTest extends AbstractRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<IBookDisplay> foundBooks = bookRepo.findBooksWithFilter(
                 "book",
+                "book:*",
                 null,
                 null,
                 null,
@@ -243,14 +249,36 @@ class BookRepositoryTest extends AbstractRepositoryTest {
     }
 
     @Test
-    public void whenFindRandomBooks_ThenReturnBooks() {
+    public void whenFindBookFacets_ThenCountsMatchingBooks() {
 
         // When
-        List<IBookDisplay> books = bookRepo.findRandomBooks(1, false);
+        List<IBookFacet> facets = bookRepo.findBookFacets(
+                "book",
+                "book:*",
+                null,
+                null,
+                null,
+                null,
+                null,
+                0.0,
+                1000000.0,
+                0,
+                0);
 
         // Then
-        assertNotNull(books);
-        assertEquals(1, books.size());
+        assertNotNull(facets);
+        assertEquals(2, facets.stream().mapToLong(IBookFacet::getTotal).sum());
+    }
+
+    @Test
+    public void whenFindAllIds_ThenReturnIds() {
+
+        // When
+        List<Long> ids = bookRepo.findAllIds();
+
+        // Then
+        assertNotNull(ids);
+        assertEquals(bookRepo.count(), ids.size());
     }
 
     @Test
@@ -290,6 +318,7 @@ class BookRepositoryTest extends AbstractRepositoryTest {
         // Given
         Pageable pageable = PageRequest.of(0, 10);
         Page<IBookDisplay> foundBooks = bookRepo.findBooksWithFilter(
+                "",
                 "",
                 null,
                 null,
@@ -307,6 +336,7 @@ class BookRepositoryTest extends AbstractRepositoryTest {
 
         // When
         List<Long> inverseIds = bookRepo.findInverseIds(
+                "",
                 "",
                 null,
                 null,
@@ -338,14 +368,14 @@ class BookRepositoryTest extends AbstractRepositoryTest {
     }
 
     @Test
-    public void whenFindSuggestion_ThenReturnKeywords() {
+    public void whenFindSuggestionSources_ThenReturnTitles() {
 
         // When
-        List<String> suggestions = bookRepo.findSuggestion("ko");
+        List<IBookSuggestion> sources = bookRepo.findSuggestionSources();
 
         // Then
-        assertNotNull(suggestions);
-        assertFalse(suggestions.isEmpty());
+        assertNotNull(sources);
+        assertEquals(bookRepo.count(), sources.size());
     }
 
     @Test
@@ -362,4 +392,25 @@ class BookRepositoryTest extends AbstractRepositoryTest {
         assertNotNull(foundBook);
         assertNotEquals(88, (short) foundBook.getAmount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenReserveStock_ThenOnlyCoveredBooksAreDecremented() {
+
+        // Given
+        Book other = bookRepo.findAll().stream()
+                .filter(b -> b.getAmount() == 1)
+                .findFirst().orElseThrow();
+
+        // When
+        List<Long> reserved = bookRepo.reserveStock(new Long[] { book.getId(), other.getId() },
+                new Integer[] { 8, 2 }, false);
+
+        // Then
+        assertEquals(List.of(book.getId()), reserved);
+        assertEquals(80, (short) book.getAmount()); // Loaded entity is refreshed
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(80, (short) bookRepo.findById(book.getId()).orElseThrow().getAmount());
+        assertEquals(1, (short) bookRepo.findById(other.getId()).orElseThrow().getAmount());
+    }
+}
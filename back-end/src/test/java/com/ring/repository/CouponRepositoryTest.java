@@ -44,6 +44,9 @@ class CouponRepositoryTest extends AbstractRepositoryTest {
     @Autowired
     private OrderDetailRepository orderDetailRepo;
 
+    @Autowired
+    private CouponUsageRepository usageRepo;
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -183,13 +186,35 @@ class CouponRepositoryTest extends AbstractRepositoryTest {
     }
 
     @Test
-    public void whenCheckHasUserUsedCoupon_ThenReturnBoolean() {
+    public void whenBackfillUsage_ThenFindUsedCoupons() {
 
         // When
-        boolean check = couponRepo.hasUserUsedCoupon(coupon.getId(), account.getId());
+        int recorded = usageRepo.backfill();
+        int again = usageRepo.backfill();
 
         // Then
-        assertTrue(check);
+        List<Long> usedIds = usageRepo.findUsedCouponIds(account.getId(), List.of(coupon.getId(), -1L));
+
+        assertEquals(1, recorded);
+        assertEquals(0, again);
+        assertEquals(List.of(coupon.getId()), usedIds);
+    }
+
+    @Test
+    public void whenRedeemTwice_ThenSkipsUsedCoupon() {
+
+        // When
+        List<Long> first = usageRepo.redeem(new Long[] { coupon.getId() }, account.getId(), receipt.getId());
+        List<Long> second = usageRepo.redeem(new Long[] { coupon.getId() }, account.getId(), receipt.getId());
+
+        // Then
+        assertEquals(List.of(coupon.getId()), first);
+        assertTrue(second.isEmpty());
+
+        // Release
+        usageRepo.deleteByOrderIds(List.of(receipt.getId()));
+        List<Long> usedIds = usageRepo.findUsedCouponIds(account.getId(), List.of(coupon.getId()));
+        assertTrue(usedIds.isEmpty());
     }
 
     @Test
@@ -287,12 +312,39 @@ class CouponRepositoryTest extends AbstractRepositoryTest {
     public void whenFindRecommendCoupon_ThenReturnCoupon() {
 
         // When
-        ICoupon foundCoupon = couponRepo.recommendCoupon(shop.getId(), 1000000.0, 99).orElse(null);
+        ICoupon foundCoupon = couponRepo.recommendCoupon(shop.getId(), 1000000.0, 99, null).orElse(null);
 
         // Then
         assertNotNull(foundCoupon);
     }
 
+    @Test
+    public void whenRecommendCouponIds_ThenReturnBestCouponPerShop() {
+
+        // When
+        List<Long> foundIds = couponRepo.recommendCouponIds(new Long[] { shop.getId(), 0L },
+                new Double[] { 1000000.0, 1000000.0 },
+                new Integer[] { 99, 99 },
+                null);
+        List<ICoupon> foundCoupons = couponRepo.findCouponInIds(foundIds);
+
+        // Then
+        assertEquals(2, foundIds.size());
+        assertTrue(foundIds.contains(coupon.getId()));
+        assertTrue(foundCoupons.stream().anyMatch(found -> found.getCoupon().getCode().equals("TEST3")));
+    }
+
+    @Test
+    public void whenFindActiveCoupons_ThenReturnCoupons() {
+
+        // When
+        List<ICoupon> foundCoupons = couponRepo.findActiveCoupons();
+
+        // Then
+        assertNotNull(foundCoupons);
+        assertTrue(foundCoupons.stream().anyMatch(found -> found.getCoupon().getId().equals(coupon.getId())));
+    }
+
     @Test
     public void whenFindCouponByCode_ThenReturnCoupon() {
 
@@ -0,0 +1,109 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.dto.response.books.BookDisplayDTO;
+import com.ring.service.impl.BookDisplayCacheServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BookDisplayCacheServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private RedisTemplate<String, Object> redisTemplate;
+
+        @Mock
+        private ValueOperations<String, Object> valueOperations;
+
+        @InjectMocks
+        private BookDisplayCacheServiceImpl displayCache;
+
+        @Test
+        public void whenGetAll_ThenReadsAllKeysInOneCall() {
+
+                // Given
+                BookDisplayDTO book = BookDisplayDTO.builder().id(1L).build();
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.multiGet(List.of("bookDisplay::1", "bookDisplay::2")))
+                                .thenReturn(Arrays.asList(book, null));
+
+                // Then
+                Map<Long, BookDisplayDTO> result = displayCache.getAll(List.of(1L, 2L, 1L));
+
+                assertEquals(Map.of(1L, book), result);
+
+                // Verify
+                verify(valueOperations, times(1)).multiGet(anyCollection());
+        }
+
+        @Test
+        public void whenRedisUnavailable_ThenTreatsAsMisses() {
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.multiGet(anyCollection()))
+                                .thenThrow(new RedisConnectionFailureException("down"));
+
+                // Then
+                Map<Long, BookDisplayDTO> result = displayCache.getAll(List.of(1L));
+
+                assertTrue(result.isEmpty());
+        }
+
+        @Test
+        public void whenPutAll_ThenWritesInOnePipeline() {
+
+                // Then
+                displayCache.putAll(Map.of(1L, BookDisplayDTO.builder().id(1L).build()));
+
+                // Verify
+                verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        }
+
+        @Test
+        public void whenEvict_ThenDeletesPerIdKeys() {
+
+                // Then
+                displayCache.evict(List.of(1L, 2L));
+
+                // Verify
+                verify(redisTemplate, times(1)).delete(List.of("bookDisplay::1", "bookDisplay::2"));
+        }
+
+        @Test
+        public void whenEvictInTransaction_ThenDeletesAfterCommit() {
+
+                // Given
+                TransactionSynchronizationManager.initSynchronization();
+
+                try {
+                        // Then
+                        displayCache.evict(List.of(1L));
+
+                        verify(redisTemplate, never()).delete(anyList());
+                        TransactionSynchronizationManager.getSynchronizations()
+                                        .forEach(TransactionSynchronization::afterCommit);
+
+                        // Verify
+                        verify(redisTemplate, times(1)).delete(List.of("bookDisplay::1"));
+                } finally {
+                        TransactionSynchronizationManager.clearSynchronization();
+                }
+        }
+}
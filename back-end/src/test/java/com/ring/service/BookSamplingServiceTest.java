@@ -0,0 +1,83 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.repository.BookRepository;
+import com.ring.service.impl.BookSamplingServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookSamplingServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private BookRepository bookRepo;
+
+        @InjectMocks
+        private BookSamplingServiceImpl samplingService;
+
+        @Test
+        public void whenSample_ThenReturnsDistinctIdsFromPool() {
+
+                // When
+                when(bookRepo.findAllIds()).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+
+                // Then
+                List<Long> result = samplingService.sample(3);
+
+                assertEquals(3, result.size());
+                assertEquals(3, new HashSet<>(result).size());
+                assertTrue(List.of(1L, 2L, 3L, 4L, 5L).containsAll(result));
+
+                // Verify
+                verify(bookRepo, times(1)).findAllIds();
+        }
+
+        @Test
+        public void whenSampleMoreThanPool_ThenReturnsWholePool() {
+
+                // When
+                when(bookRepo.findAllIds()).thenReturn(List.of(1L, 2L));
+
+                // Then
+                List<Long> result = samplingService.sample(5);
+
+                assertEquals(new HashSet<>(List.of(1L, 2L)), new HashSet<>(result));
+        }
+
+        @Test
+        public void whenSampleAgain_ThenReusesPool() {
+
+                // When
+                when(bookRepo.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+
+                // Then
+                samplingService.sample(1);
+                samplingService.sample(1);
+
+                // Verify
+                verify(bookRepo, times(1)).findAllIds();
+        }
+
+        @Test
+        public void whenAddAndRemoveBooks_ThenPoolIsPatched() {
+
+                // When
+                when(bookRepo.findAllIds()).thenReturn(List.of(1L, 2L));
+
+                // Then
+                samplingService.refresh();
+                samplingService.addBook(3L);
+                samplingService.addBook(3L);
+                samplingService.removeBooks(List.of(1L));
+                List<Long> result = samplingService.sample(10);
+
+                assertEquals(new HashSet<>(List.of(2L, 3L)), new HashSet<>(result));
+                assertEquals(2, result.size());
+        }
+}
@@ -4,22 +4,29 @@ import com.cloudinary.api.ApiResponse;
 import com.github.slugify.Slugify;
 import com.ring.base.AbstractServiceTest;
 import com.ring.dto.projection.books.IBook;
+import com.ring.dto.projection.books.IBookCursor;
 import com.ring.dto.projection.books.IBookDetail;
 import com.ring.dto.projection.books.IBookDisplay;
+import com.ring.dto.projection.books.IBookFacet;
 import com.ring.dto.request.BookRequest;
+import com.ring.dto.response.CursorResponse;
 import com.ring.dto.response.PagingResponse;
 import com.ring.dto.response.books.BookDTO;
 import com.ring.dto.response.books.BookDetailDTO;
+import com.ring.dto.response.books.BookFacetsDTO;
 import com.ring.dto.response.books.BookDisplayDTO;
 import com.ring.dto.response.books.BookResponseDTO;
 import com.ring.exception.EntityOwnershipException;
+import com.ring.exception.HttpResponseException;
 import com.ring.exception.ResourceNotFoundException;
 import com.ring.mapper.BookMapper;
 import com.ring.model.entity.*;
 import com.ring.model.enums.BookType;
+import com.ring.model.enums.CountMode;
 import com.ring.model.enums.UserRole;
 import com.ring.repository.*;
 import com.ring.service.impl.BookServiceImpl;
+import com.ring.utils.CursorUtil;
 import com.ring.utils.FileUploadUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -33,7 +40,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -63,12 +72,30 @@ class BookServiceTest extends AbstractServiceTest {
         @Mock
         private ImageService imageService;
 
+        @Mock
+        private BookStatsService statsService;
+
+        @Mock
+        private BookSamplingService samplingService;
+
+        @Mock
+        private BookSuggestionService suggestionService;
+
+        @Mock
+        private PageCountService countService;
+
+        @Mock
+        private BookDisplayCacheService displayCache;
+
         @Mock
         private Slugify slg;
 
         @Mock
         private BookMapper bookMapper;
 
+        @Mock
+        private PricingCacheService pricingCache;
+
         @InjectMocks
         private BookServiceImpl bookService;
 
@@ -115,27 +142,48 @@ class BookServiceTest extends AbstractServiceTest {
         }
 
         @Test
-        public void whenGetRandomBooks_ThenReturnsBooks() {
+        public void whenGetRandomBooks_ThenReturnsBooksInSampledOrder() {
 
                 // Given
-                List<BookDisplayDTO> expectedBooks = List.of(BookDisplayDTO.builder().id(1L).build());
+                IBookDisplay first = mock(IBookDisplay.class);
+                IBookDisplay second = mock(IBookDisplay.class);
+                when(first.getId()).thenReturn(1L);
+                when(second.getId()).thenReturn(2L);
+                BookDisplayDTO firstDTO = BookDisplayDTO.builder().id(1L).build();
+                BookDisplayDTO secondDTO = BookDisplayDTO.builder().id(2L).build();
 
                 // When
-                when(bookRepo.findRandomBooks(anyInt(), eq(false)))
-                                .thenReturn(new ArrayList<>(List.of(mock(IBookDisplay.class))));
-                when(bookMapper.displayToDTO(any(IBookDisplay.class)))
-                                .thenReturn(BookDisplayDTO.builder().id(1L).build());
+                when(samplingService.sample(2)).thenReturn(List.of(2L, 1L));
+                when(bookRepo.findBooksDisplayInIds(eq(List.of(2L, 1L)), eq(false)))
+                                .thenReturn(new ArrayList<>(List.of(first, second)));
+                when(bookMapper.displayToDTO(first)).thenReturn(firstDTO);
+                when(bookMapper.displayToDTO(second)).thenReturn(secondDTO);
 
                 // Then
-                List<BookDisplayDTO> result = bookService.getRandomBooks(1, false);
+                List<BookDisplayDTO> result = bookService.getRandomBooks(2, false);
 
                 assertNotNull(result);
-                assertFalse(result.isEmpty());
-                assertEquals(expectedBooks.size(), result.size());
+                assertEquals(List.of(secondDTO, firstDTO), result);
 
                 // Verify
-                verify(bookRepo, times(1)).findRandomBooks(anyInt(), eq(false));
-                verify(bookMapper, times(1)).displayToDTO(any(IBookDisplay.class));
+                verify(samplingService, times(1)).sample(2);
+                verify(bookRepo, times(1)).findBooksDisplayInIds(anyList(), eq(false));
+        }
+
+        @Test
+        public void whenGetRandomBooksFromEmptyPool_ThenReturnsEmpty() {
+
+                // When
+                when(samplingService.sample(anyInt())).thenReturn(new ArrayList<>());
+
+                // Then
+                List<BookDisplayDTO> result = bookService.getRandomBooks(5, false);
+
+                assertNotNull(result);
+                assertTrue(result.isEmpty());
+
+                // Verify
+                verifyNoInteractions(bookRepo);
         }
 
         @Test
@@ -143,26 +191,54 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // Given
                 List<Long> ids = List.of(1L, 2L);
-                List<BookDisplayDTO> expectedBooks = List.of(
-                                BookDisplayDTO.builder().title("test").build(),
-                                BookDisplayDTO.builder().title("test").build());
+                IBookDisplay first = mock(IBookDisplay.class);
+                IBookDisplay second = mock(IBookDisplay.class);
+                when(first.getId()).thenReturn(1L);
+                when(second.getId()).thenReturn(2L);
+                BookDisplayDTO firstDTO = BookDisplayDTO.builder().id(1L).title("test").build();
+                BookDisplayDTO secondDTO = BookDisplayDTO.builder().id(2L).title("test").build();
 
                 // When
+                when(displayCache.getAll(eq(ids))).thenReturn(new HashMap<>());
                 when(bookRepo.findBooksDisplayInIds(eq(ids)))
-                                .thenReturn(new ArrayList<>(
-                                                List.of(mock(IBookDisplay.class), mock(IBookDisplay.class))));
-                when(bookMapper.displayToDTO(any(IBookDisplay.class)))
-                                .thenReturn(BookDisplayDTO.builder().title("test").build());
+                                .thenReturn(new ArrayList<>(List.of(second, first)));
+                when(bookMapper.displayToDTO(first)).thenReturn(firstDTO);
+                when(bookMapper.displayToDTO(second)).thenReturn(secondDTO);
 
                 // Then
                 List<BookDisplayDTO> result = bookService.getBooksInIds(ids);
 
                 assertNotNull(result);
-                assertEquals(expectedBooks.size(), result.size());
+                assertEquals(List.of(firstDTO, secondDTO), result);
 
                 // Verify
                 verify(bookRepo, times(1)).findBooksDisplayInIds(eq(ids));
-                verify(bookMapper, times(2)).displayToDTO(any(IBookDisplay.class));
+                verify(displayCache, times(1)).putAll(eq(Map.of(1L, firstDTO, 2L, secondDTO)));
+        }
+
+        @Test
+        public void whenGetCachedBooksInIds_ThenFetchesMissesOnly() {
+
+                // Given
+                List<Long> ids = List.of(1L, 2L);
+                IBookDisplay second = mock(IBookDisplay.class);
+                when(second.getId()).thenReturn(2L);
+                BookDisplayDTO firstDTO = BookDisplayDTO.builder().id(1L).build();
+                BookDisplayDTO secondDTO = BookDisplayDTO.builder().id(2L).build();
+
+                // When
+                when(displayCache.getAll(eq(ids))).thenReturn(Map.of(1L, firstDTO));
+                when(bookRepo.findBooksDisplayInIds(eq(List.of(2L)))).thenReturn(List.of(second));
+                when(bookMapper.displayToDTO(second)).thenReturn(secondDTO);
+
+                // Then
+                List<BookDisplayDTO> result = bookService.getBooksInIds(ids);
+
+                assertEquals(List.of(firstDTO, secondDTO), result);
+
+                // Verify
+                verify(bookRepo, times(1)).findBooksDisplayInIds(eq(List.of(2L)));
+                verify(displayCache, times(1)).putAll(eq(Map.of(2L, secondDTO)));
         }
 
         @Test
@@ -185,6 +261,7 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // When
                 when(bookRepo.findBooksWithFilter(eq(""),
+                                eq(""),
                                 isNull(),
                                 isNull(),
                                 isNull(),
@@ -213,7 +290,8 @@ class BookServiceTest extends AbstractServiceTest {
                                 null,
                                 0.0,
                                 1000000.0,
-                                false);
+                                false,
+                                CountMode.EXACT);
 
                 assertNotNull(result);
                 assertEquals(expectedResponse.getContent().size(), result.getContent().size());
@@ -225,6 +303,7 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(bookRepo, times(1)).findBooksWithFilter(eq(""),
+                                eq(""),
                                 isNull(),
                                 isNull(),
                                 isNull(),
@@ -239,6 +318,304 @@ class BookServiceTest extends AbstractServiceTest {
                 verify(bookMapper, times(1)).displayToDTO(any(IBookDisplay.class));
         }
 
+        @Test
+        public void whenGetBooksWithoutCount_ThenSkipsCountQuery() {
+
+                // Given
+                Pageable pageable = PageRequest.of(0, 1, Sort.by("id").descending());
+                Slice<IBookDisplay> books = new SliceImpl<>(List.of(mock(IBookDisplay.class)), pageable, true);
+                BookDisplayDTO mapped = BookDisplayDTO.builder().id(1L).build();
+                PagingResponse<BookDisplayDTO> expected = new PagingResponse<>(List.of(mapped), 2, 2L, 1, 0, false, true);
+
+                // When
+                when(bookRepo.findBooksSliceWithFilter(eq(""),
+                                eq(""),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                eq(0.0),
+                                eq(1000000.0),
+                                eq(false),
+                                eq(0),
+                                eq(0),
+                                any(Pageable.class))).thenReturn(books);
+                when(bookMapper.displayToDTO(any(IBookDisplay.class))).thenReturn(mapped);
+                when(countService.<BookDisplayDTO>getPagingResponse(anyList(), eq(books), eq(CountMode.NONE), any(), eq("books"), any(Object[].class)))
+                                .thenReturn(expected);
+
+                // Then
+                PagingResponse<BookDisplayDTO> result = bookService.getBooks(0,
+                                1,
+                                "id",
+                                "desc",
+                                "",
+                                0,
+                                0,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                0.0,
+                                1000000.0,
+                                false,
+                                CountMode.NONE);
+
+                assertEquals(expected, result);
+                assertTrue(result.isApproximate());
+
+                // Verify
+                verify(bookRepo, never()).findBooksWithFilter(any(), any(), any(), any(), any(), any(), any(),
+                                any(), any(), any(), any(), any(), any());
+                verify(bookRepo, never()).countBooksWithFilter(any(), any(), any(), any(), any(), any(), any(),
+                                any(), any(), any(), any());
+        }
+
+        @Test
+        public void whenGetBookFacets_ThenSumsEachFacet() {
+
+                // Given
+                IBookFacet first = mock(IBookFacet.class);
+                when(first.getCateId()).thenReturn(1);
+                when(first.getPubId()).thenReturn(2);
+                when(first.getType()).thenReturn(BookType.SOFT_COVER);
+                when(first.getRatingBucket()).thenReturn(4);
+                when(first.getPriceBucket()).thenReturn(0);
+                when(first.getTotal()).thenReturn(3L);
+                IBookFacet second = mock(IBookFacet.class);
+                when(second.getCateId()).thenReturn(1);
+                when(second.getPubId()).thenReturn(3);
+                when(second.getType()).thenReturn(BookType.HARD_COVER);
+                when(second.getRatingBucket()).thenReturn(4);
+                when(second.getPriceBucket()).thenReturn(4);
+                when(second.getTotal()).thenReturn(2L);
+
+                // When
+                when(bookRepo.findBookFacets(eq(""),
+                                eq(""),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                eq(0.0),
+                                eq(1000000.0),
+                                eq(0),
+                                eq(0))).thenReturn(List.of(first, second));
+
+                // Then
+                BookFacetsDTO result = bookService.getBookFacets("",
+                                0,
+                                0,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                0.0,
+                                1000000.0);
+
+                assertNotNull(result);
+                assertEquals(Map.of(1, 5L), result.categories());
+                assertEquals(Map.of(2, 3L, 3, 2L), result.publishers());
+                assertEquals(Map.of(BookType.SOFT_COVER, 3L, BookType.HARD_COVER, 2L), result.types());
+                assertEquals(Map.of(4, 5L), result.ratings());
+                assertEquals(BookRepository.PRICE_BUCKETS.length + 1, result.prices().size());
+                assertEquals(3L, result.prices().get(0).count());
+                assertEquals(2L, result.prices().get(4).count());
+                assertNull(result.prices().get(4).to());
+        }
+
+        @Test
+        public void whenGetBooksByCursor_ThenReturnsSliceWithNextCursor() {
+
+                // Given
+                IBookCursor first = mock(IBookCursor.class);
+                IBookCursor second = mock(IBookCursor.class);
+                when(second.getId()).thenReturn(2L);
+                when(second.getPrice()).thenReturn(15000.0);
+                BookDisplayDTO mapped = BookDisplayDTO.builder().id(1L).build();
+
+                // When
+                when(bookRepo.findBooksByCursor(eq(""),
+                                eq(""),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                eq(0.0),
+                                eq(1000000.0),
+                                eq(false),
+                                eq(0),
+                                eq(0),
+                                eq(BookRepositoryCustom.CursorKey.PRICE),
+                                eq(true),
+                                isNull(),
+                                isNull(),
+                                eq(3))).thenReturn(List.of(first, second, mock(IBookCursor.class)));
+                when(bookMapper.displayToDTO(any(IBookDisplay.class))).thenReturn(mapped);
+
+                // Then
+                CursorResponse<BookDisplayDTO> result = bookService.getBooksByCursor("",
+                                2,
+                                "price",
+                                "asc",
+                                "",
+                                0,
+                                0,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                0.0,
+                                1000000.0,
+                                false);
+
+                assertNotNull(result);
+                assertEquals(2, result.getContent().size());
+                assertEquals(CursorUtil.encode("price", "asc", 15000.0, 2L), result.getNextCursor());
+                assertFalse(result.isEmpty());
+
+                // Verify
+                verify(bookMapper, times(2)).displayToDTO(any(IBookDisplay.class));
+        }
+
+        @Test
+        public void whenGetBooksByCursorOnFinalPrice_ThenSeeksOnDiscountedPrice() {
+
+                // Given
+                IBookCursor first = mock(IBookCursor.class);
+                when(first.getId()).thenReturn(1L);
+                when(first.getFinalPrice()).thenReturn(12000.0);
+                BookDisplayDTO mapped = BookDisplayDTO.builder().id(1L).build();
+
+                // When
+                when(bookRepo.findBooksByCursor(eq(""),
+                                eq(""),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                isNull(),
+                                eq(0.0),
+                                eq(1000000.0),
+                                eq(false),
+                                eq(0),
+                                eq(0),
+                                eq(BookRepositoryCustom.CursorKey.FINAL_PRICE),
+                                eq(false),
+                                isNull(),
+                                isNull(),
+                                eq(2))).thenReturn(List.of(first, mock(IBookCursor.class)));
+                when(bookMapper.displayToDTO(any(IBookDisplay.class))).thenReturn(mapped);
+
+                // Then
+                CursorResponse<BookDisplayDTO> result = bookService.getBooksByCursor("",
+                                1,
+                                "finalPrice",
+                                "desc",
+                                "",
+                                0,
+                                0,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                0.0,
+                                1000000.0,
+                                false);
+
+                assertNotNull(result);
+                assertEquals(1, result.getContent().size());
+                assertEquals(CursorUtil.encode("finalPrice", "desc", 12000.0, 1L), result.getNextCursor());
+
+                // Verify
+                verify(bookMapper, times(1)).displayToDTO(any(IBookDisplay.class));
+        }
+
+        @Test
+        public void whenGetBooksByCursorWithNextCursor_ThenSeeksAfterLastBook() {
+
+                // Given
+                String cursor = CursorUtil.encode("price", "asc", 15000.0, 2L);
+
+                // When
+                when(bookRepo.findBooksByCursor(anyString(),
+                                anyString(),
+                                any(),
+                                any(),
+                                any(),
+                                any(),
+                                any(),
+                                anyDouble(),
+                                anyDouble(),
+                                anyBoolean(),
+                                anyInt(),
+                                anyInt(),
+                                eq(BookRepositoryCustom.CursorKey.PRICE),
+                                eq(true),
+                                eq(15000.0),
+                                eq(2L),
+                                eq(3))).thenReturn(List.of());
+
+                // Then
+                CursorResponse<BookDisplayDTO> result = bookService.getBooksByCursor(cursor,
+                                2,
+                                "price",
+                                "asc",
+                                "",
+                                0,
+                                0,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                0.0,
+                                1000000.0,
+                                false);
+
+                assertNotNull(result);
+                assertNull(result.getNextCursor());
+                assertTrue(result.isEmpty());
+        }
+
+        @Test
+        public void whenGetBooksByMismatchedCursor_ThenThrowsException() {
+
+                // Given
+                String cursor = CursorUtil.encode("rating", "desc", 4.5, 2L);
+
+                // When
+                HttpResponseException exception = assertThrows(HttpResponseException.class,
+                                () -> bookService.getBooksByCursor(cursor,
+                                                2,
+                                                "price",
+                                                "asc",
+                                                "",
+                                                0,
+                                                0,
+                                                null,
+                                                null,
+                                                null,
+                                                null,
+                                                null,
+                                                0.0,
+                                                1000000.0,
+                                                false));
+
+                // Then
+                assertEquals("Invalid cursor!", exception.getError());
+
+                // Verify
+                verifyNoInteractions(bookRepo);
+        }
+
         @Test
         public void whenGetBookById_ThenReturnBookDTO() {
 
@@ -359,7 +736,7 @@ class BookServiceTest extends AbstractServiceTest {
                 List<String> expected = List.of("test-suggestion", "test-recommend");
 
                 // When
-                when(bookRepo.findSuggestion(eq(keyword))).thenReturn(expected);
+                when(suggestionService.suggest(eq(keyword))).thenReturn(expected);
 
                 // Then
                 List<String> result = bookService.getBooksSuggestion(keyword);
@@ -368,7 +745,7 @@ class BookServiceTest extends AbstractServiceTest {
                 assertEquals(expected, result);
 
                 // Verify
-                verify(bookRepo, times(1)).findSuggestion(eq(keyword));
+                verify(suggestionService, times(1)).suggest(eq(keyword));
         }
 
         @Test
@@ -410,6 +787,7 @@ class BookServiceTest extends AbstractServiceTest {
                 verify(imageService, times(1)).upload(any(MultipartFile.class), eq(FileUploadUtil.PRODUCT_FOLDER));
                 verify(imageService, times(1)).uploadMultiple(eq(List.of(file)), eq(FileUploadUtil.PRODUCT_FOLDER));
                 verify(bookRepo, times(1)).save(any(Book.class));
+                verify(statsService, times(1)).createStats(any());
                 verify(detailRepo, times(1)).save(any(BookDetail.class));
                 verify(bookMapper, times(1)).bookToResponseDTO(any(Book.class));
         }
@@ -821,6 +1199,8 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(bookRepo, times(1)).deleteAllById(ids);
+                verify(samplingService, times(1)).removeBooks(ids);
+                verify(displayCache, times(1)).evict(ids);
         }
 
         @Test
@@ -832,6 +1212,7 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // When
                 when(bookRepo.findInverseIds(eq(""),
+                                eq(""),
                                 isNull(),
                                 isNull(),
                                 isNull(),
@@ -860,6 +1241,7 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(bookRepo, times(1)).findInverseIds(eq(""),
+                                eq(""),
                                 isNull(),
                                 isNull(),
                                 isNull(),
@@ -887,6 +1269,7 @@ class BookServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(bookRepo, times(1)).deleteAll();
+                verify(samplingService, times(1)).refresh();
         }
 
         @Test
@@ -0,0 +1,142 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.repository.BookStatsRepository;
+import com.ring.service.impl.BookStatsServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BookStatsServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private BookStatsRepository statsRepo;
+
+        @Mock
+        private BookDisplayCacheService displayCache;
+
+        @InjectMocks
+        private BookStatsServiceImpl statsService;
+
+        @Test
+        public void whenAddRating_ThenAppliesDelta() {
+
+                // Then
+                statsService.addRating(1L, 4);
+
+                // Verify
+                verify(statsRepo, times(1)).applyRating(1L, 4, 1);
+                verify(displayCache, times(1)).evict(List.of(1L));
+        }
+
+        @Test
+        public void whenAddInvalidRating_ThenIgnored() {
+
+                // Then
+                statsService.addRating(1L, 6);
+                statsService.addRating(1L, null);
+
+                // Verify
+                verify(statsRepo, never()).applyRating(anyLong(), anyInt(), anyInt());
+        }
+
+        @Test
+        public void whenChangeRating_ThenMovesBetweenBuckets() {
+
+                // Then
+                statsService.changeRating(1L, 2, 5);
+
+                // Verify
+                verify(statsRepo, times(1)).applyRating(1L, 2, -1);
+                verify(statsRepo, times(1)).applyRating(1L, 5, 1);
+        }
+
+        @Test
+        public void whenChangeToSameRating_ThenIgnored() {
+
+                // Then
+                statsService.changeRating(1L, 3, 3);
+
+                // Verify
+                verify(statsRepo, never()).applyRating(anyLong(), anyInt(), anyInt());
+        }
+
+        @Test
+        public void whenAddAndRemoveSold_ThenAppliesSignedDelta() {
+
+                // Then
+                statsService.addSold(Map.of(1L, 2));
+                statsService.removeSold(Map.of(2L, 3));
+
+                // Verify
+                verify(statsRepo, times(1)).applySold(1L, 2);
+                verify(statsRepo, times(1)).applySold(2L, -3);
+                verify(displayCache, times(1)).evict(Map.of(1L, 2).keySet());
+                verify(displayCache, times(1)).evict(Map.of(2L, 3).keySet());
+        }
+
+        @Test
+        public void whenRebuildStats_ThenRebuildsGivenBooks() {
+
+                // Given
+                List<Long> ids = List.of(1L, 2L);
+
+                // When
+                when(statsRepo.rebuildStats(anyList())).thenReturn(2);
+
+                // Then
+                statsService.rebuildStats(ids);
+                statsService.rebuildStats(List.of());
+
+                // Verify
+                verify(statsRepo, times(1)).rebuildStats(ids);
+                verify(displayCache, times(1)).evict(ids);
+        }
+
+        @Test
+        public void whenSeedEmptyStats_ThenRebuildsAll() {
+
+                // When
+                when(statsRepo.count()).thenReturn(0L);
+                when(statsRepo.rebuildAllStats()).thenReturn(10);
+
+                // Then
+                statsService.seedStats();
+
+                // Verify
+                verify(statsRepo, times(1)).rebuildAllStats();
+                verify(displayCache, times(1)).evictAll();
+        }
+
+        @Test
+        public void whenSeedExistingStats_ThenOnlyCreatesMissingRows() {
+
+                // When
+                when(statsRepo.count()).thenReturn(10L);
+                when(statsRepo.createMissingStats()).thenReturn(2);
+
+                // Then
+                statsService.seedStats();
+
+                // Verify
+                verify(statsRepo, never()).rebuildAllStats();
+                verify(statsRepo, times(1)).createMissingStats();
+        }
+
+        @Test
+        public void whenCreateStats_ThenCreatesEmptyRow() {
+
+                // Then
+                statsService.createStats(1L);
+                statsService.createStats(null);
+
+                // Verify
+                verify(statsRepo, times(1)).createStats(1L);
+        }
+}
@@ -0,0 +1,101 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.dto.projection.books.IBookSuggestion;
+import com.ring.repository.BookRepository;
+import com.ring.service.impl.BookSuggestionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookSuggestionServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private BookRepository bookRepo;
+
+        @InjectMocks
+        private BookSuggestionServiceImpl suggestionService;
+
+        private IBookSuggestion source(Long id, String title, Integer totalOrders) {
+                IBookSuggestion book = mock(IBookSuggestion.class);
+                when(book.getId()).thenReturn(id);
+                when(book.getTitle()).thenReturn(title);
+                when(book.getTotalOrders()).thenReturn(totalOrders);
+                return book;
+        }
+
+        @BeforeEach
+        void setup() {
+                List<IBookSuggestion> sources = List.of(
+                                source(1L, "Sách giáo khoa", 5),
+                                source(2L, "Sách hay", 20),
+                                source(3L, "Harry Potter và hòn đá phù thủy", 10));
+                when(bookRepo.findSuggestionSources()).thenReturn(sources);
+                suggestionService.rebuild();
+        }
+
+        @Test
+        public void whenSuggestWithoutAccents_ThenMatchesAccentedTitles() {
+
+                // Then
+                List<String> result = suggestionService.suggest("sach");
+
+                assertEquals(List.of("sách hay", "sách giáo khoa"), result);
+        }
+
+        @Test
+        public void whenSuggestInnerWord_ThenMatchesPhraseFromThatWord() {
+
+                // Then
+                List<String> result = suggestionService.suggest("Pot");
+
+                assertEquals(List.of("potter và hòn đá phù"), result);
+        }
+
+        @Test
+        public void whenIndexUpdatedBook_ThenReplacesOldPhrases() {
+
+                // Then
+                suggestionService.indexBook(2L, "Truyện hay");
+
+                assertEquals(List.of("sách giáo khoa"), suggestionService.suggest("sach"));
+                assertEquals(List.of("truyện hay"), suggestionService.suggest("truyen"));
+        }
+
+        @Test
+        public void whenRemoveBooks_ThenDropsTheirPhrases() {
+
+                // Then
+                suggestionService.removeBooks(List.of(1L, 3L));
+
+                assertEquals(List.of("sách hay"), suggestionService.suggest("sach"));
+                assertTrue(suggestionService.suggest("harry").isEmpty());
+        }
+
+        @Test
+        public void whenPatchedDuringRebuild_ThenPatchIsReplayed() {
+
+                // Given
+                List<IBookSuggestion> sources = List.of(
+                                source(1L, "Sách giáo khoa", 5),
+                                source(2L, "Sách hay", 20));
+
+                // When
+                when(bookRepo.findSuggestionSources()).thenAnswer(invocation -> {
+                        suggestionService.indexBook(4L, "Sách mới"); // Written after the books were read
+                        suggestionService.removeBooks(List.of(1L));
+                        return sources;
+                });
+
+                // Then
+                suggestionService.rebuild();
+
+                assertEquals(List.of("sách hay", "sách mới"), suggestionService.suggest("sach"));
+        }
+}
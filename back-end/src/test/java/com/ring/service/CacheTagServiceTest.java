@@ -0,0 +1,110 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.config.cache.CacheTag;
+import com.ring.service.impl.CacheTagServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CacheTagServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private StringRedisTemplate redisTemplate;
+
+        @Mock
+        private CacheManager cacheManager;
+
+        @Mock
+        private Cache cache;
+
+        private CacheTagServiceImpl cacheTags;
+
+        @BeforeEach
+        public void setUpTags() {
+                cacheTags = new CacheTagServiceImpl(redisTemplate, cacheManager);
+        }
+
+        @Test
+        public void whenTag_ThenReturnsTrue() {
+
+                // Then
+                boolean result = cacheTags.tag("reviews", "1,0", List.of(CacheTag.BOOK.of(1L)));
+
+                assertTrue(result);
+
+                // Verify
+                verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        }
+
+        @Test
+        public void whenTagWithRedisDown_ThenReturnsFalse() {
+
+                // When
+                when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                                .thenThrow(new RedisConnectionFailureException("down"));
+
+                // Then
+                boolean result = cacheTags.tag("reviews", "1,0", List.of(CacheTag.BOOK.of(1L)));
+
+                assertFalse(result);
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        public void whenEvict_ThenEvictsTaggedKeys() {
+
+                // When
+                when(cacheManager.getCache("reviews")).thenReturn(cache);
+                when(redisTemplate.execute(any(RedisScript.class), anyList())).thenReturn(List.of("1,0", "2,0"));
+
+                // Then
+                cacheTags.evict(List.of("reviews"), List.of(CacheTag.BOOK.of(1L)));
+
+                // Verify
+                verify(redisTemplate, times(1)).execute(any(RedisScript.class),
+                                eq(List.of("cacheTags::{reviews}::book:1", "cacheTags::{reviews}::book:*")));
+                verify(cache, times(1)).evict("1,0");
+                verify(cache, times(1)).evict("2,0");
+                verify(cache, never()).clear();
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        public void whenEvictWithRedisDown_ThenClearsCache() {
+
+                // When
+                when(cacheManager.getCache("reviews")).thenReturn(cache);
+                when(redisTemplate.execute(any(RedisScript.class), anyList()))
+                                .thenThrow(new RedisConnectionFailureException("down"));
+
+                // Then
+                cacheTags.evict(List.of("reviews"), List.of(CacheTag.BOOK.of(1L)));
+
+                // Verify
+                verify(cache, never()).evict(any());
+                verify(cache, times(1)).clear();
+        }
+
+        @Test
+        public void whenEvictWithoutTags_ThenSkipsRedis() {
+
+                // Then
+                cacheTags.evict(List.of("reviews"), List.of());
+
+                // Verify
+                verifyNoInteractions(redisTemplate, cacheManager);
+        }
+}
@@ -0,0 +1,186 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.dto.projection.images.IImage;
+import com.ring.model.entity.Coupon;
+import com.ring.model.entity.CouponDetail;
+import com.ring.model.entity.Shop;
+import com.ring.model.enums.CouponType;
+import com.ring.repository.CouponRepository;
+import com.ring.service.impl.CouponIndexServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CouponIndexServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private CouponRepository couponRepo;
+
+        @Mock
+        private StringRedisTemplate redisTemplate;
+
+        @Mock
+        private ValueOperations<String, String> valueOperations;
+
+        private CouponIndexServiceImpl couponIndex;
+
+        private final Shop shop = Shop.builder().id(1L).name("shop").build();
+
+        @BeforeEach
+        public void setUpIndex() {
+                couponIndex = new CouponIndexServiceImpl(couponRepo, redisTemplate);
+                lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        }
+
+        private ICoupon projection(Long id, Shop shop, CouponType type, double attribute, double discount,
+                        LocalDate expDate) {
+                Coupon coupon = Coupon.builder()
+                                .id(id)
+                                .code("CODE" + id)
+                                .shop(shop)
+                                .detail(CouponDetail.builder()
+                                                .type(type)
+                                                .attribute(attribute)
+                                                .discount(BigDecimal.valueOf(discount))
+                                                .maxDiscount(10000.0)
+                                                .usage((short) 10)
+                                                .expDate(expDate)
+                                                .build())
+                                .build();
+                return new ICoupon() {
+                        public Coupon getCoupon() {
+                                return coupon;
+                        }
+
+                        public String getShopName() {
+                                return shop != null ? shop.getName() : null;
+                        }
+
+                        public IImage getShopImage() {
+                                return null;
+                        }
+                };
+        }
+
+        private ICoupon projection(Long id, Shop shop, CouponType type, double attribute, double discount) {
+                return projection(id, shop, type, attribute, discount, LocalDate.now().plusDays(1));
+        }
+
+        @Test
+        public void whenRecommend_ThenReturnsLowestEligibleAttribute() {
+
+                // When
+                when(couponRepo.findActiveCoupons()).thenReturn(List.of(
+                                projection(1L, shop, CouponType.MIN_VALUE, 50000.0, 0.1),
+                                projection(2L, shop, CouponType.MIN_VALUE, 10000.0, 0.05),
+                                projection(3L, shop, CouponType.MIN_VALUE, 10000.0, 0.2),
+                                projection(4L, shop, CouponType.MIN_AMOUNT, 3.0, 0.3),
+                                projection(5L, null, CouponType.MIN_VALUE, 0.0, 0.1)));
+
+                // Then
+                ICoupon result = couponIndex.recommend(1L, 20000.0, 1, Set.of());
+                ICoupon tooLow = couponIndex.recommend(1L, 10000.0, 1, Set.of());
+                ICoupon byQuantity = couponIndex.recommend(1L, 5000.0, 5, Set.of());
+                ICoupon platform = couponIndex.recommend(null, 20000.0, 1, Set.of());
+
+                assertEquals(3L, result.getCoupon().getId());
+                assertEquals(shop.getId(), result.getCoupon().getShop().getId());
+                assertEquals("shop", result.getShopName());
+                assertNull(tooLow);
+                assertEquals(4L, byQuantity.getCoupon().getId());
+                assertEquals(5L, platform.getCoupon().getId());
+
+                // Verify
+                verify(couponRepo, times(1)).findActiveCoupons();
+        }
+
+        @Test
+        public void whenRecommendWithExcluded_ThenSkipsThem() {
+
+                // When
+                when(couponRepo.findActiveCoupons()).thenReturn(List.of(
+                                projection(1L, shop, CouponType.MIN_VALUE, 10000.0, 0.2),
+                                projection(2L, shop, CouponType.MIN_VALUE, 30000.0, 0.1)));
+
+                // Then
+                ICoupon result = couponIndex.recommend(1L, 50000.0, 1, Set.of(1L));
+
+                assertEquals(2L, result.getCoupon().getId());
+        }
+
+        @Test
+        public void whenFindInCodes_ThenSkipsExpiredAndUnknown() {
+
+                // When
+                when(couponRepo.findActiveCoupons()).thenReturn(List.of(
+                                projection(1L, shop, CouponType.MIN_VALUE, 0.0, 0.1),
+                                projection(2L, shop, CouponType.MIN_VALUE, 0.0, 0.1, LocalDate.now())));
+
+                // Then
+                Map<String, ICoupon> result = couponIndex.findInCodes(List.of("CODE1", "CODE2", "UNKNOWN"));
+
+                assertEquals(Set.of("CODE1"), result.keySet());
+                assertFalse(result.get("CODE1").getCoupon().getIsUsable());
+        }
+
+        @Test
+        public void whenRecommendEach_ThenReturnsBestOfEveryShopAndPlatform() {
+
+                // When
+                when(couponRepo.findActiveCoupons()).thenReturn(List.of(
+                                projection(1L, shop, CouponType.MIN_VALUE, 10000.0, 0.1),
+                                projection(2L, shop, CouponType.MIN_VALUE, 0.0, 0.1),
+                                projection(3L, null, CouponType.SHIPPING, 0.0, 0.5)));
+
+                // Then
+                List<ICoupon> result = couponIndex.recommendEach(List.of(1L, 2L));
+
+                assertEquals(List.of(3L, 2L), result.stream().map(coupon -> coupon.getCoupon().getId()).toList());
+        }
+
+        @Test
+        public void whenInvalidate_ThenRebuildsOnNextRead() {
+
+                // When
+                when(couponRepo.findActiveCoupons()).thenReturn(List.of());
+
+                // Then
+                couponIndex.recommend(1L, 0.0, 0, Set.of());
+                couponIndex.invalidate();
+                couponIndex.recommend(1L, 0.0, 0, Set.of());
+
+                // Verify
+                verify(valueOperations, times(1)).increment("couponIndex::version");
+                verify(couponRepo, times(2)).findActiveCoupons();
+        }
+
+        @Test
+        public void whenRefreshAfterRemoteWrite_ThenRebuilds() {
+
+                // When
+                when(valueOperations.get("couponIndex::version")).thenReturn("1", "1", "2", "2");
+                when(couponRepo.findActiveCoupons()).thenReturn(List.of());
+
+                // Then
+                couponIndex.recommend(1L, 0.0, 0, Set.of());
+                couponIndex.refresh(); // Unchanged
+                couponIndex.refresh(); // Changed
+
+                // Verify
+                verify(couponRepo, times(2)).findActiveCoupons();
+        }
+}
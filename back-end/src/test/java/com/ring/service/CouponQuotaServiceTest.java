@@ -0,0 +1,174 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.exception.HttpResponseException;
+import com.ring.repository.CouponRepository;
+import com.ring.service.impl.CouponQuotaServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CouponQuotaServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private CouponRepository couponRepo;
+
+        @Mock
+        private CouponIndexService couponIndex;
+
+        @Mock
+        private StringRedisTemplate redisTemplate;
+
+        @Mock
+        private ZSetOperations<String, String> zSetOperations;
+
+        @Mock
+        private PlatformTransactionManager transactionManager;
+
+        private SimpleMeterRegistry meterRegistry;
+
+        private CouponQuotaServiceImpl couponQuota;
+
+        @BeforeEach
+        public void setUpQuota() {
+                meterRegistry = new SimpleMeterRegistry();
+                couponQuota = new CouponQuotaServiceImpl(couponRepo, couponIndex, redisTemplate, meterRegistry,
+                                transactionManager);
+        }
+
+        // Matches the script running the given Redis command
+        private RedisScript<Long> script(String command) {
+                return argThat(script -> script != null && script.getScriptAsString().contains("'" + command + "'"));
+        }
+
+        private double acquired(String source) {
+                return meterRegistry.counter("ring.coupon.quota.acquired", "source", source).count();
+        }
+
+        @Test
+        public void whenAcquireFromRedis_ThenSkipsDatabase() {
+
+                // When
+                when(redisTemplate.execute(script("DECR"), anyList(), any(Object[].class))).thenReturn(1L);
+
+                // Then
+                couponQuota.acquire(List.of(1L));
+
+                assertEquals(1, acquired("redis"));
+
+                // Verify
+                verify(couponRepo, never()).allocateUsage(anyLong(), anyShort());
+                verify(couponRepo, never()).decreaseUsage(anyLong());
+        }
+
+        @Test
+        public void whenRedisSliceEmpty_ThenAllocatesNewSlice() {
+
+                // When
+                when(redisTemplate.execute(script("DECR"), anyList(), any(Object[].class))).thenReturn(0L);
+                when(couponRepo.allocateUsage(1L, (short) 20)).thenReturn(1);
+
+                // Then
+                couponQuota.acquire(List.of(1L));
+
+                assertEquals(1, acquired("slice"));
+
+                // Verify
+                verify(redisTemplate, times(1)).execute(script("INCRBY"), anyList(), eq("19"), anyString(), eq("1"));
+                verify(couponRepo, never()).decreaseUsage(anyLong());
+                verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition
+                                .getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+                verify(transactionManager, times(1)).commit(any());
+        }
+
+        @Test
+        public void whenNoSliceLeft_ThenTakesFromDatabase() {
+
+                // When
+                when(redisTemplate.execute(script("DECR"), anyList(), any(Object[].class))).thenReturn(0L);
+                when(couponRepo.allocateUsage(1L, (short) 20)).thenReturn(0);
+                when(couponRepo.decreaseUsage(1L)).thenReturn(1);
+
+                // Then
+                couponQuota.acquire(List.of(1L));
+
+                assertEquals(1, acquired("database"));
+        }
+
+        @Test
+        public void whenRedisDown_ThenTakesFromDatabase() {
+
+                // When
+                when(redisTemplate.execute(script("DECR"), anyList(), any(Object[].class)))
+                                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+                when(couponRepo.decreaseUsage(1L)).thenReturn(1);
+
+                // Then
+                couponQuota.acquire(List.of(1L));
+
+                assertEquals(1, acquired("database"));
+
+                // Verify
+                verify(couponRepo, never()).allocateUsage(anyLong(), anyShort());
+        }
+
+        @Test
+        public void whenCouponExhausted_ThenThrowsAndGivesBackTakenUsages() {
+
+                // When
+                when(redisTemplate.execute(script("DECR"), anyList(), any(Object[].class))).thenReturn(1L, 0L);
+                when(couponRepo.allocateUsage(2L, (short) 20)).thenReturn(0);
+                when(couponRepo.decreaseUsage(2L)).thenReturn(0);
+
+                // Then
+                HttpResponseException exception = assertThrows(HttpResponseException.class,
+                                () -> couponQuota.acquire(List.of(1L, 2L)));
+                assertEquals("Coupon expired!", exception.getError());
+                assertEquals(1, acquired("exhausted"));
+
+                // Verify
+                verify(redisTemplate, times(1)).execute(script("INCRBY"), anyList(), eq("1"), anyString(), eq("1"));
+                verify(couponIndex, times(1)).invalidate();
+        }
+
+        @Test
+        public void whenReconcile_ThenReturnsIdleUsages() {
+
+                // Given
+                Set<String> idle = new LinkedHashSet<>(List.of("1", "2"));
+
+                // When
+                when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+                when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(idle);
+                when(redisTemplate.execute(script("DEL"), eq(List.of("couponQuota::1", "couponQuota::touched")),
+                                any(Object[].class))).thenReturn(7L);
+                when(redisTemplate.execute(script("DEL"), eq(List.of("couponQuota::2", "couponQuota::touched")),
+                                any(Object[].class))).thenReturn(0L);
+
+                // Then
+                int result = couponQuota.reconcile();
+
+                assertEquals(7, result);
+
+                // Verify
+                verify(couponRepo, times(1)).increaseUsage(1L, (short) 7);
+                verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition
+                                .getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+                verify(couponRepo, never()).increaseUsage(eq(2L), anyShort());
+        }
+}
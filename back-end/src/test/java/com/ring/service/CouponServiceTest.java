@@ -20,14 +20,20 @@ import com.ring.model.enums.CouponType;
 import com.ring.model.enums.UserRole;
 import com.ring.repository.CouponDetailRepository;
 import com.ring.repository.CouponRepository;
+import com.ring.repository.CouponUsageRepository;
 import com.ring.repository.ShopRepository;
 import com.ring.service.impl.CouponServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.data.domain.*;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -35,6 +41,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -51,6 +58,15 @@ public class CouponServiceTest extends AbstractServiceTest {
         @Mock
         private ShopRepository shopRepo;
 
+        @Mock
+        private CouponUsageRepository usageRepo;
+
+        @Mock
+        private StringRedisTemplate stringRedisTemplate;
+
+        @Mock
+        private ValueOperations<String, String> valueOperations;
+
         @Mock
         private CouponMapper couponMapper;
 
@@ -63,6 +79,15 @@ public class CouponServiceTest extends AbstractServiceTest {
         @Mock
         private Authentication authentication;
 
+        @Mock
+        private PricingCacheService pricingCache;
+
+        @Mock
+        private CouponQuotaService couponQuota;
+
+        @Mock
+        private CouponIndexService couponIndex;
+
         @InjectMocks
         private CouponServiceImpl couponService;
 
@@ -251,7 +276,7 @@ public class CouponServiceTest extends AbstractServiceTest {
                 List<CouponDTO> expected = List.of(mock(CouponDTO.class));
 
                 // When
-                when(couponRepo.recommendCoupons(anyList())).thenReturn(projections);
+                when(couponIndex.recommendEach(anyList())).thenReturn(projections);
                 when(couponMapper.couponToDTO(any(ICoupon.class))).thenReturn(mock(CouponDTO.class));
 
                 // Then
@@ -261,7 +286,7 @@ public class CouponServiceTest extends AbstractServiceTest {
                 assertEquals(expected.size(), result.size());
 
                 // Verify
-                verify(couponRepo, times(1)).recommendCoupons(anyList());
+                verify(couponIndex, times(1)).recommendEach(anyList());
                 verify(couponMapper, times(1)).couponToDTO(any(ICoupon.class));
         }
 
@@ -273,7 +298,7 @@ public class CouponServiceTest extends AbstractServiceTest {
                 CouponDTO expected = mock(CouponDTO.class);
 
                 // When
-                when(couponRepo.recommendCoupon(anyLong(), anyDouble(), anyInt())).thenReturn(Optional.of(projection));
+                when(couponIndex.recommend(anyLong(), anyDouble(), anyInt(), anySet())).thenReturn(projection);
                 when(couponMapper.couponToDTO(projection)).thenReturn(expected);
 
                 // Then
@@ -283,7 +308,7 @@ public class CouponServiceTest extends AbstractServiceTest {
                 assertEquals(expected, result);
 
                 // Verify
-                verify(couponRepo, times(1)).recommendCoupon(anyLong(), anyDouble(), anyInt());
+                verify(couponIndex, times(1)).recommend(anyLong(), anyDouble(), anyInt(), anySet());
                 verify(couponMapper, times(1)).couponToDTO(projection);
         }
 
@@ -419,6 +444,8 @@ public class CouponServiceTest extends AbstractServiceTest {
                 verify(shopRepo, times(1)).findById(anyLong());
                 verify(couponDetailRepo, times(1)).save(any(CouponDetail.class));
                 verify(couponRepo, times(1)).save(any(Coupon.class));
+                verify(couponQuota, times(1)).discard(id);
+                verify(couponIndex, times(1)).invalidate();
         }
 
         @Test
@@ -569,7 +596,8 @@ public class CouponServiceTest extends AbstractServiceTest {
                 // Verify
                 verify(couponRepo, times(1)).findById(id);
                 verify(couponRepo, times(1)).deleteById(id);
-
+                verify(couponQuota, times(1)).discard(id);
+                verify(couponIndex, times(1)).invalidate();
         }
 
         @Test
@@ -630,6 +658,8 @@ public class CouponServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(couponRepo, times(1)).deleteAllById(ids);
+                verify(couponQuota, times(1)).discard(1L);
+                verify(couponQuota, times(1)).discard(2L);
         }
 
         @Test
@@ -653,6 +683,8 @@ public class CouponServiceTest extends AbstractServiceTest {
                 // Verify
                 verify(couponRepo, times(1)).findCouponIdsByInIdsAndSeller(ids, account.getId());
                 verify(couponRepo, times(1)).deleteAllById(ids);
+                verify(couponQuota, times(1)).discard(1L);
+                verify(couponQuota, times(1)).discard(2L);
         }
 
         @Test
@@ -694,6 +726,8 @@ public class CouponServiceTest extends AbstractServiceTest {
                                 anyBoolean(),
                                 anyList());
                 verify(couponRepo, times(1)).deleteAllById(ids);
+                verify(couponQuota, times(1)).discard(1L);
+                verify(couponQuota, times(1)).discard(2L);
         }
 
         @Test
@@ -774,32 +808,120 @@ public class CouponServiceTest extends AbstractServiceTest {
         public void whenApplyCoupon_ThenReturnsDiscountDTO() {
 
                 // When
-                when(couponRepo.hasUserUsedCoupon(anyLong(), anyLong())).thenReturn(false);
+                CouponDiscountDTO result = couponService.applyCoupon(coupon, cartState);
 
                 // Then
-                CouponDiscountDTO result = couponService.applyCoupon(coupon, cartState, account);
-
                 assertNotNull(result);
                 assertTrue(result.discountValue() > 0);
+        }
+
+        @Test
+        public void whenFindUsedCoupons_ThenLooksUpAllInOneQuery() {
+
+                // When
+                when(usageRepo.findUsedCouponIds(1L, List.of(1L, 2L, 3L))).thenReturn(List.of(2L));
+
+                // Then
+                Set<Long> result = couponService.findUsedCoupons(1L, List.of(1L, 2L, 3L));
+
+                assertEquals(Set.of(2L), result);
 
                 // Verify
-                verify(couponRepo, times(1)).hasUserUsedCoupon(anyLong(), anyLong());
+                verify(usageRepo, times(1)).findUsedCouponIds(anyLong(), anyCollection());
         }
 
         @Test
-        public void whenApplyUsedCoupon_ThenReturnsNull() {
+        public void whenRedeem_ThenRecordsUsages() {
 
-                // Given
-                when(couponRepo.hasUserUsedCoupon(anyLong(), anyLong())).thenReturn(true);
+                // When
+                when(usageRepo.redeem(any(Long[].class), anyLong(), anyLong())).thenReturn(List.of(1L, 2L));
+
+                // Then
+                couponService.redeem(List.of(1L, 2L, 1L), account, 5L);
+
+                // Verify
+                verify(usageRepo, times(1)).redeem(new Long[] { 1L, 2L }, account.getId(), 5L);
+        }
+
+        @Test
+        public void whenRedeemUsedCoupon_ThenThrowsException() {
+
+                // When
+                when(usageRepo.redeem(any(Long[].class), anyLong(), anyLong())).thenReturn(List.of(2L));
+
+                // Then
+                HttpResponseException exception = assertThrows(HttpResponseException.class,
+                                () -> couponService.redeem(List.of(1L, 2L), account, 5L));
+                assertEquals("Coupon expired!", exception.getError());
+        }
+
+        @Test
+        public void whenBackfillUsages_ThenRecordsPastOrdersOnce() {
 
                 // When
-                CouponDiscountDTO result = couponService.applyCoupon(coupon, cartState, account);
+                when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(eq("couponUsage::backfilled"), anyString())).thenReturn(true);
+                when(usageRepo.backfill()).thenReturn(3);
 
                 // Then
-                assertNull(result);
+                couponService.backfillUsages();
 
                 // Verify
-                verify(couponRepo, times(1)).hasUserUsedCoupon(anyLong(), anyLong());
+                verify(usageRepo, times(1)).backfill();
+        }
+
+        @Test
+        public void whenBackfillUsagesAlreadyDone_ThenSkipsBackfill() {
+
+                // When
+                when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(eq("couponUsage::backfilled"), anyString())).thenReturn(false);
+
+                // Then
+                couponService.backfillUsages();
+
+                // Verify
+                verify(usageRepo, never()).backfill();
+        }
+
+        @Test
+        public void whenBackfillUsagesWithRedisDown_ThenSkipsBackfill() {
+
+                // When
+                when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.setIfAbsent(anyString(), anyString()))
+                                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+                // Then
+                couponService.backfillUsages();
+
+                // Verify
+                verify(usageRepo, never()).backfill();
+        }
+
+        @Test
+        public void whenBackfillUsagesRollsBack_ThenReleasesMarker() {
+
+                // Given
+                TransactionSynchronizationManager.initSynchronization();
+
+                try {
+                        // When
+                        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+                        when(valueOperations.setIfAbsent(eq("couponUsage::backfilled"), anyString())).thenReturn(true);
+
+                        // Then
+                        couponService.backfillUsages();
+
+                        verify(stringRedisTemplate, never()).delete(anyString());
+                        TransactionSynchronizationManager.getSynchronizations()
+                                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+                        // Verify
+                        verify(stringRedisTemplate, times(1)).delete("couponUsage::backfilled");
+                } finally {
+                        TransactionSynchronizationManager.clearSynchronization();
+                }
         }
 
         @Test
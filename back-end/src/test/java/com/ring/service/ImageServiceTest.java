@@ -0,0 +1,200 @@
+package com.ring.service;
+
+import com.cloudinary.Cloudinary;
+import com.ring.base.AbstractServiceTest;
+import com.ring.dto.projection.images.IImage;
+import com.ring.model.entity.Image;
+import com.ring.model.enums.ImageSize;
+import com.ring.repository.ImageRepository;
+import com.ring.service.impl.ImageServiceImpl;
+import com.ring.utils.FileUploadUtil;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImageServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private ImageRepository imageRepo;
+
+        @Mock
+        private CloudinaryService cloudinaryService;
+
+        @Mock
+        private FileUploadUtil fileUploadUtil;
+
+        @InjectMocks
+        private ImageServiceImpl imageService;
+
+        private final Map<String, String> srcSet = Map.of(ImageSize.SMALL.name(), "small.png");
+
+        private List<Image> images(int from, int count) {
+                return IntStream.range(from, from + count)
+                                .mapToObj(i -> Image.builder().id((long) i).publicId("image" + i).build())
+                                .toList();
+        }
+
+        private IImage image(String publicId, Map<String, String> srcSet) {
+                return new IImage() {
+                        public String getPublicId() {
+                                return publicId;
+                        }
+
+                        public String getUrl() {
+                                return null;
+                        }
+
+                        public Map<String, String> getSrcSet() {
+                                return srcSet;
+                        }
+                };
+        }
+
+        private FileUploadUtil uploadUtil() {
+                return spy(new FileUploadUtil(new Cloudinary(Map.of("cloud_name", "test"))));
+        }
+
+        @Test
+        public void whenBackfillSrcSets_ThenFillsBatchesUntilPartial() {
+
+                // Given
+                List<Image> full = images(1, ImageServiceImpl.BACKFILL_BATCH_SIZE);
+                List<Image> partial = images(ImageServiceImpl.BACKFILL_BATCH_SIZE + 1, 2);
+
+                // When
+                when(imageRepo.findMissingSrcSet(anyLong(), any())).thenReturn(full, partial);
+                when(fileUploadUtil.generateUrl(anyString())).thenReturn(srcSet);
+
+                // Then
+                int result = imageService.backfillSrcSets();
+
+                assertEquals(ImageServiceImpl.BACKFILL_BATCH_SIZE + 2, result);
+                assertTrue(full.stream().allMatch(image -> srcSet.equals(image.getSrcSet())));
+                assertTrue(partial.stream().allMatch(image -> srcSet.equals(image.getSrcSet())));
+
+                // Verify
+                verify(imageRepo, times(1)).findMissingSrcSet(0L, PageRequest.of(0, ImageServiceImpl.BACKFILL_BATCH_SIZE));
+                verify(imageRepo, times(1)).findMissingSrcSet((long) ImageServiceImpl.BACKFILL_BATCH_SIZE,
+                                PageRequest.of(0, ImageServiceImpl.BACKFILL_BATCH_SIZE));
+                verify(imageRepo, times(1)).saveAll(full);
+                verify(imageRepo, times(1)).saveAll(partial);
+        }
+
+        @Test
+        public void whenBackfillSrcSets_WithExactBatch_ThenStopsOnEmptyPage() {
+
+                // Given
+                List<Image> full = images(1, ImageServiceImpl.BACKFILL_BATCH_SIZE);
+
+                // When
+                when(imageRepo.findMissingSrcSet(anyLong(), any())).thenReturn(full, List.of());
+                when(fileUploadUtil.generateUrl(anyString())).thenReturn(srcSet);
+
+                // Then
+                int result = imageService.backfillSrcSets();
+
+                assertEquals(ImageServiceImpl.BACKFILL_BATCH_SIZE, result);
+
+                // Verify
+                verify(imageRepo, times(2)).findMissingSrcSet(anyLong(), any());
+                verify(imageRepo, times(1)).saveAll(anyList());
+        }
+
+        @Test
+        public void whenBackfillSrcSets_WithFailingRow_ThenSkipsItAndMovesOn() {
+
+                // Given
+                List<Image> full = images(1, ImageServiceImpl.BACKFILL_BATCH_SIZE);
+                List<Image> partial = images(ImageServiceImpl.BACKFILL_BATCH_SIZE + 1, 1);
+
+                // When
+                when(imageRepo.findMissingSrcSet(anyLong(), any())).thenReturn(full, partial);
+                when(fileUploadUtil.generateUrl(anyString())).thenReturn(srcSet);
+                when(fileUploadUtil.generateUrl("image1")).thenThrow(new IllegalArgumentException("Bad id"));
+
+                // Then
+                int result = imageService.backfillSrcSets();
+
+                assertEquals(ImageServiceImpl.BACKFILL_BATCH_SIZE, result);
+                assertNull(full.get(0).getSrcSet());
+                assertEquals(srcSet, partial.get(0).getSrcSet());
+
+                // Verify
+                verify(imageRepo, times(1)).findMissingSrcSet(eq((long) ImageServiceImpl.BACKFILL_BATCH_SIZE), any());
+        }
+
+        @Test
+        public void whenBackfillSrcSets_WithNothingMissing_ThenSavesNothing() {
+
+                // When
+                when(imageRepo.findMissingSrcSet(anyLong(), any())).thenReturn(List.of());
+
+                // Then
+                int result = imageService.backfillSrcSets();
+
+                assertEquals(0, result);
+
+                // Verify
+                verify(imageRepo, never()).saveAll(anyList());
+                verifyNoInteractions(fileUploadUtil);
+        }
+
+        @Test
+        public void whenGetSrcSet_WithStoredSrcSet_ThenReturnsStored() {
+
+                // Given
+                FileUploadUtil uploadUtil = uploadUtil();
+
+                // Then
+                Map<String, String> result = uploadUtil.getSrcSet(image("image", srcSet));
+
+                assertSame(srcSet, result);
+
+                // Verify
+                verify(uploadUtil, never()).generateUrl(anyString());
+        }
+
+        @Test
+        public void whenGetSrcSet_WithMissingSrcSet_ThenGeneratesOnce() {
+
+                // Given
+                FileUploadUtil uploadUtil = uploadUtil();
+
+                // Then
+                Map<String, String> result = uploadUtil.getSrcSet(image("image", null));
+                Map<String, String> cached = uploadUtil.getSrcSet(image("image", Map.of()));
+
+                assertEquals(ImageSize.values().length, result.size());
+                assertTrue(result.get(ImageSize.values()[0].name()).contains("image"));
+                assertSame(result, cached);
+
+                // Verify
+                verify(uploadUtil, times(1)).generateUrl("image");
+        }
+
+        @Test
+        public void whenEvictSrcSet_ThenRegenerates() {
+
+                // Given
+                FileUploadUtil uploadUtil = uploadUtil();
+
+                // Then
+                uploadUtil.getSrcSet(image("image", null));
+                uploadUtil.evictSrcSet("image");
+                uploadUtil.getSrcSet(image("image", null));
+
+                assertNull(uploadUtil.getSrcSet(null));
+
+                // Verify
+                verify(uploadUtil, times(2)).generateUrl("image");
+        }
+}
@@ -0,0 +1,190 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.exception.OutOfStockException;
+import com.ring.model.entity.InventoryHold;
+import com.ring.repository.BookRepository;
+import com.ring.repository.InventoryHoldRepository;
+import com.ring.service.InventoryService.ReleasedStock;
+import com.ring.service.impl.InventoryServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class InventoryServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private BookRepository bookRepo;
+
+        @Mock
+        private InventoryHoldRepository holdRepo;
+
+        @Mock
+        private BookDisplayCacheService displayCache;
+
+        @Mock
+        private PricingCacheService pricingCache;
+
+        @InjectMocks
+        private InventoryServiceImpl inventoryService;
+
+        @Test
+        public void whenReserve_ThenDecrementsAllInOneStatement() {
+
+                // When
+                when(bookRepo.reserveStock(any(Long[].class), any(Integer[].class), eq(false)))
+                                .thenReturn(List.of(1L, 2L));
+
+                // Then
+                inventoryService.reserve(Map.of(2L, 3, 1L, 1));
+
+                // Verify
+                verify(bookRepo, times(1)).reserveStock(new Long[] { 1L, 2L }, new Integer[] { 1, 3 }, false);
+                verify(displayCache, times(1)).evict(Set.of(1L, 2L));
+                verify(holdRepo, never()).saveAll(anyList());
+                verify(pricingCache, times(1)).bumpBooks(Set.of(1L, 2L));
+        }
+
+        @Test
+        public void whenReserveShortStock_ThenThrowsWithFailedBooks() {
+
+                // When
+                when(bookRepo.reserveStock(any(Long[].class), any(Integer[].class), eq(false)))
+                                .thenReturn(List.of(2L));
+
+                // Then
+                OutOfStockException exception = assertThrows(OutOfStockException.class,
+                                () -> inventoryService.reserve(Map.of(1L, 5, 2L, 1, 3L, 2)));
+                assertEquals("Product out of stock!", exception.getError());
+                assertArrayEquals(new Long[] { 1L, 3L }, exception.getBookIds().toArray());
+        }
+
+        @Test
+        public void whenReserveNothing_ThenSkipsQuery() {
+
+                // Then
+                inventoryService.reserve(Map.of());
+
+                // Verify
+                verifyNoInteractions(bookRepo);
+        }
+
+        @Test
+        public void whenHold_ThenReservesAsHeldAndRecordsHolds() {
+
+                // When
+                when(bookRepo.reserveStock(any(Long[].class), any(Integer[].class), eq(true)))
+                                .thenReturn(List.of(1L));
+
+                // Then
+                inventoryService.hold(10L, Map.of(1L, 2));
+
+                // Verify
+                verify(bookRepo, times(1)).reserveStock(new Long[] { 1L }, new Integer[] { 2 }, true);
+                verify(holdRepo, times(1)).saveAll(argThat((List<InventoryHold> holds) -> holds.size() == 1
+                                && holds.get(0).getOrderId().equals(10L)
+                                && holds.get(0).getQuantity() == 2
+                                && holds.get(0).getExpiredAt().isAfter(LocalDateTime.now())));
+        }
+
+        @Test
+        public void whenHoldShortStock_ThenRecordsNothing() {
+
+                // When
+                when(bookRepo.reserveStock(any(Long[].class), any(Integer[].class), eq(true)))
+                                .thenReturn(List.of());
+
+                // Then
+                assertThrows(OutOfStockException.class, () -> inventoryService.hold(10L, Map.of(1L, 2)));
+
+                // Verify
+                verify(holdRepo, never()).saveAll(anyList());
+        }
+
+        @Test
+        public void whenRelease_ThenRestocksSummedQuantities() {
+
+                // Given
+                List<InventoryHold> holds = List.of(
+                                InventoryHold.builder().orderId(10L).bookId(1L).quantity(2).build(),
+                                InventoryHold.builder().orderId(11L).bookId(1L).quantity(1).build(),
+                                InventoryHold.builder().orderId(11L).bookId(2L).quantity(4).build());
+
+                // When
+                when(holdRepo.findAllByOrderIds(List.of(10L, 11L))).thenReturn(holds);
+
+                // Then
+                ReleasedStock result = inventoryService.release(List.of(10L, 11L));
+
+                assertEquals(Set.of(10L, 11L), result.orderIds());
+                assertEquals(Map.of(1L, 3, 2L, 4), result.quantities());
+
+                // Verify
+                verify(bookRepo, times(1)).releaseHeldStock(new Long[] { 1L, 2L }, new Integer[] { 3, 4 }, true);
+                verify(displayCache, times(1)).evict(Set.of(1L, 2L));
+                verify(pricingCache, times(1)).bumpBooks(Set.of(1L, 2L));
+                verify(holdRepo, times(1)).deleteAllInBatch(holds);
+        }
+
+        @Test
+        public void whenConvert_ThenKeepsStockSold() {
+
+                // Given
+                List<InventoryHold> holds = List.of(
+                                InventoryHold.builder().orderId(10L).bookId(1L).quantity(2).build());
+
+                // When
+                when(holdRepo.findAllByOrderIds(List.of(10L))).thenReturn(holds);
+
+                // Then
+                inventoryService.convert(10L);
+
+                // Verify
+                verify(bookRepo, times(1)).releaseHeldStock(new Long[] { 1L }, new Integer[] { 2 }, false);
+                verify(displayCache, never()).evict(anyCollection());
+                verify(pricingCache, never()).bumpBooks(anyCollection());
+                verify(holdRepo, times(1)).deleteAllInBatch(holds);
+        }
+
+        @Test
+        public void whenReleaseSettledOrder_ThenNothingChanges() {
+
+                // When
+                when(holdRepo.findAllByOrderIds(List.of(10L))).thenReturn(List.of());
+
+                // Then
+                ReleasedStock result = inventoryService.release(List.of(10L));
+
+                assertTrue(result.orderIds().isEmpty());
+                assertTrue(result.quantities().isEmpty());
+
+                // Verify
+                verify(bookRepo, never()).releaseHeldStock(any(), any(), anyBoolean());
+        }
+
+        @Test
+        public void whenReleaseWithOrderConvertedConcurrently_ThenReturnsOnlyReleasedOrders() {
+
+                // Given
+                List<InventoryHold> holds = List.of(
+                                InventoryHold.builder().orderId(10L).bookId(1L).quantity(2).build());
+
+                // When
+                when(holdRepo.findAllByOrderIds(List.of(10L, 11L))).thenReturn(holds);
+
+                // Then
+                ReleasedStock result = inventoryService.release(List.of(10L, 11L));
+
+                assertEquals(Set.of(10L), result.orderIds());
+                assertEquals(Map.of(1L, 2), result.quantities());
+        }
+}
@@ -1,6 +1,7 @@
 package com.ring.service;
 
 import com.ring.base.AbstractServiceTest;
+import com.ring.config.cache.CacheTag;
 import com.ring.dto.projection.coupons.ICoupon;
 import com.ring.dto.projection.dashboard.IStat;
 import com.ring.dto.projection.orders.*;
@@ -11,26 +12,40 @@ import com.ring.dto.response.dashboard.StatDTO;
 import com.ring.dto.response.orders.*;
 import com.ring.exception.EntityOwnershipException;
 import com.ring.exception.HttpResponseException;
+import com.ring.exception.OutOfStockException;
+import com.ring.exception.PaymentException;
 import com.ring.exception.ResourceNotFoundException;
+import com.ring.listener.checkout.OnCheckoutCompletedEvent;
 import com.ring.mapper.CalculateMapper;
+import com.ring.mapper.CouponMapper;
 import com.ring.mapper.DashboardMapper;
 import com.ring.mapper.OrderMapper;
 import com.ring.model.entity.*;
 import com.ring.model.enums.*;
 import com.ring.repository.*;
+import com.ring.service.InventoryService.ReleasedStock;
 import com.ring.service.impl.OrderServiceImpl;
+import com.ring.service.pricing.PricingEngine;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.springframework.context.ApplicationEventPublisher;
+import org.mockito.Spy;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.payos.type.CheckoutResponseData;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -64,12 +79,30 @@ public class OrderServiceTest extends AbstractServiceTest {
         @Mock
         private CouponService couponService;
 
+        @Mock
+        private CouponQuotaService couponQuota;
+
+        @Mock
+        private CouponIndexService couponIndex;
+
         @Mock
         private PaymentInfoRepository paymentRepo;
 
         @Mock
         private CaptchaService captchaService;
 
+        @Mock
+        private PayOSService payOSService;
+
+        @Mock
+        private BookStatsService statsService;
+
+        @Mock
+        private InventoryService inventoryService;
+
+        @Mock
+        private PageCountService countService;
+
         @Mock
         private OrderMapper orderMapper;
 
@@ -80,7 +113,22 @@ public class OrderServiceTest extends AbstractServiceTest {
         private DashboardMapper dashMapper;
 
         @Mock
-        private ApplicationEventPublisher eventPublisher;
+        private CouponMapper couponMapper;
+
+        @Mock
+        private OutboxService outboxService;
+
+        @Mock
+        private TransactionTemplate transactionTemplate;
+
+        @Mock
+        private PricingCacheService pricingCache;
+
+        @Mock
+        private CacheTagService cacheTags;
+
+        @Spy
+        private PricingEngine pricingEngine = new PricingEngine();
 
         @InjectMocks
         private OrderServiceImpl orderService;
@@ -180,6 +228,13 @@ public class OrderServiceTest extends AbstractServiceTest {
                 orderReceipt.setLastModifiedDate(LocalDateTime.now().minusMonths(1));
         }
 
+        @BeforeEach
+        public void setUpTransaction() {
+                lenient().when(transactionTemplate.execute(any()))
+                                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                                                .doInTransaction(null));
+        }
+
         @AfterEach
         public void cleanUp() {
                 orderDetail.setStatus(OrderStatus.PENDING);
@@ -213,7 +268,6 @@ public class OrderServiceTest extends AbstractServiceTest {
                 // When
                 when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
-                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
                 when(calculateMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(mock(CalculateDTO.class));
 
                 // Then
@@ -224,8 +278,142 @@ public class OrderServiceTest extends AbstractServiceTest {
                 // Verify
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
-                verify(couponRepo, times(1)).findCouponInCodes(anyList());
+                verify(couponIndex, times(1)).findInCodes(anyList());
+                verify(couponRepo, never()).findCouponInCodes(anyList());
                 verify(calculateMapper, times(1)).orderToDTO(any(OrderReceipt.class));
+                verify(pricingCache, times(1)).put(any(), eq(result), any());
+        }
+
+        @Test
+        public void whenCalculateWithUnknownCoupon_ThenRecommendsFromIndex() {
+
+                // Given
+                CartDetailRequest cartDetail = CartDetailRequest.builder()
+                                .shopId(1L)
+                                .coupon("UNKNOWN")
+                                .items(List.of(CartItemRequest.builder()
+                                                .id(1L)
+                                                .quantity((short) 1)
+                                                .build()))
+                                .shippingType(ShippingType.STANDARD)
+                                .build();
+                CalculateRequest request = CalculateRequest.builder()
+                                .cart(List.of(cartDetail))
+                                .build();
+                ICoupon projection = mock(ICoupon.class);
+                Coupon coupon = Coupon.builder().id(1L).shop(shop).code("SHOP")
+                                .detail(CouponDetail.builder()
+                                                .type(CouponType.MIN_VALUE)
+                                                .attribute(0.0)
+                                                .maxDiscount(10.0)
+                                                .discount(BigDecimal.valueOf(0.1))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
+                ArgumentCaptor<OrderReceipt> captor = ArgumentCaptor.forClass(OrderReceipt.class);
+
+                // When
+                when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
+                when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
+                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
+                when(couponIndex.recommend(eq(1L), eq(90.0), eq(1), eq(Set.of()))).thenReturn(projection);
+                when(projection.getCoupon()).thenReturn(coupon);
+                when(calculateMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(mock(CalculateDTO.class));
+
+                // Then
+                orderService.calculate(request, account);
+
+                // Verify
+                verify(couponIndex, times(1)).recommend(eq(1L), eq(90.0), eq(1), eq(Set.of()));
+                verify(couponService, times(1)).findUsedCoupons(1L, Set.of(1L));
+                verify(couponRepo, never()).recommendCouponIds(any(), any(), any(), any());
+                verify(calculateMapper, times(1)).orderToDTO(captor.capture());
+                OrderDetail detail = captor.getValue().getDetails().get(0);
+                assertEquals(9.0, detail.getCouponDiscount());
+                assertEquals(19.0, detail.getDiscount());
+                assertTrue(coupon.getIsUsable());
+                verify(couponMapper, times(1)).couponToDTO(projection);
+        }
+
+        @Test
+        public void whenCalculateWithRedeemedRecommendation_ThenFallsBackToBatchQuery() {
+
+                // Given
+                CartDetailRequest cartDetail = CartDetailRequest.builder()
+                                .shopId(1L)
+                                .coupon("UNKNOWN")
+                                .items(List.of(CartItemRequest.builder()
+                                                .id(1L)
+                                                .quantity((short) 1)
+                                                .build()))
+                                .shippingType(ShippingType.STANDARD)
+                                .build();
+                CalculateRequest request = CalculateRequest.builder()
+                                .cart(List.of(cartDetail))
+                                .build();
+                ICoupon redeemed = mock(ICoupon.class);
+                ICoupon projection = mock(ICoupon.class);
+                Coupon coupon = Coupon.builder().id(2L).shop(shop).code("SHOP2")
+                                .detail(CouponDetail.builder()
+                                                .type(CouponType.MIN_VALUE)
+                                                .attribute(0.0)
+                                                .maxDiscount(10.0)
+                                                .discount(BigDecimal.valueOf(0.1))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
+
+                // When
+                when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
+                when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
+                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
+                when(couponIndex.recommend(eq(1L), eq(90.0), eq(1), eq(Set.of()))).thenReturn(redeemed);
+                when(redeemed.getCoupon()).thenReturn(Coupon.builder().id(1L).shop(shop).build());
+                when(couponService.findUsedCoupons(eq(1L), anyCollection()))
+                                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(1).contains(1L)
+                                                ? Set.of(1L)
+                                                : Set.of());
+                when(couponRepo.recommendCouponIds(new Long[] { 1L }, new Double[] { 90.0 }, new Integer[] { 1 }, 1L))
+                                .thenReturn(List.of(2L));
+                when(couponRepo.findCouponInIds(List.of(2L))).thenReturn(List.of(projection));
+                when(projection.getCoupon()).thenReturn(coupon);
+                when(calculateMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(mock(CalculateDTO.class));
+
+                // Then
+                orderService.calculate(request, account);
+
+                assertTrue(coupon.getIsUsable());
+
+                // Verify
+                verify(couponService, times(1)).findUsedCoupons(1L, Set.of(1L));
+                verify(couponRepo, times(1)).recommendCouponIds(any(), any(), any(), any());
+                verify(couponMapper, times(1)).couponToDTO(projection);
+                verify(couponMapper, never()).couponToDTO(redeemed);
+        }
+
+        @Test
+        public void whenCalculateCached_ThenSkipsPricing() {
+
+                // Given
+                CalculateRequest request = CalculateRequest.builder()
+                                .cart(List.of(cartDetail))
+                                .build();
+                CalculateDTO cached = mock(CalculateDTO.class);
+
+                // When
+                when(pricingCache.key(1L, request)).thenReturn("pricing::key");
+                when(pricingCache.get("pricing::key")).thenReturn(cached);
+
+                // Then
+                CalculateDTO result = orderService.calculate(request, account);
+
+                assertEquals(cached, result);
+
+                // Verify
+                verify(bookRepo, never()).findBooksInIds(anyList());
+                verify(pricingCache, never()).put(any(), any(), any());
         }
 
         @Test
@@ -242,11 +430,9 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(httpRequest.getHeader("source")).thenReturn("web");
                 when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
-                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
                 when(addressRepo.save(any(Address.class))).thenReturn(address);
                 when(orderRepo.save(any(OrderReceipt.class))).thenReturn(orderReceipt);
                 when(orderMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(expected);
-                doNothing().when(eventPublisher).publishEvent(any());
 
                 // Then
                 ReceiptDTO result = orderService.checkout(request, httpRequest, account);
@@ -257,11 +443,352 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(captchaService, times(1)).validate(anyString(), anyString(), anyString());
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
-                verify(couponRepo, times(1)).findCouponInCodes(anyList());
+                verify(couponIndex, times(1)).findInCodes(anyList());
+                verify(couponRepo, never()).findCouponInCodes(anyList());
                 verify(addressRepo, times(1)).save(any(Address.class));
                 verify(orderRepo, times(1)).save(any(OrderReceipt.class));
                 verify(orderMapper, times(1)).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, times(1)).publishEvent(any());
+                verify(inventoryService, times(1)).reserve(Map.of(1L, 1));
+                verify(statsService, times(1)).addSold(Map.of(1L, 1));
+                verify(couponService, times(1)).redeem(anyList(), eq(account), any());
+                verify(outboxService, times(1)).enqueue(eq(OutboxType.CHECKOUT_RECEIPT), any(),
+                                any(OnCheckoutCompletedEvent.class));
+                verify(outboxService, never()).enqueue(eq(OutboxType.PAYMENT_LINK), any(), any());
+        }
+
+        @Test
+        public void whenCheckoutOnline_ThenHoldsStockForOrder() {
+
+                // Given
+                OrderRequest onlineRequest = OrderRequest.builder()
+                                .cart(request.getCart())
+                                .address(request.getAddress())
+                                .paymentMethod(PaymentType.ONLINE_PAYMENT)
+                                .build();
+                HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+
+                // When
+                when(httpRequest.getHeader("response")).thenReturn("valid-token");
+                when(httpRequest.getHeader("source")).thenReturn("web");
+                when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
+                when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
+                when(addressRepo.save(any(Address.class))).thenReturn(address);
+                when(orderMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(ReceiptDTO.builder().id(1L).build());
+
+                // Then
+                ReceiptDTO result = orderService.checkout(onlineRequest, httpRequest, account);
+
+                assertNotNull(result);
+
+                // Verify
+                verify(inventoryService, never()).reserve(anyMap());
+                verify(inventoryService, times(1)).hold(any(), eq(Map.of(1L, 1)));
+                verify(outboxService, times(1)).enqueue(eq(OutboxType.PAYMENT_LINK), any(), isNull());
+                verify(payOSService, never()).checkout(any(ReceiptDTO.class));
+        }
+
+        @Test
+        public void whenPreparePaymentLink_ThenCreatesLinkAndExtendsHold() {
+
+                // Given
+                PaymentInfo pending = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.PENDING)
+                                .build();
+                CheckoutResponseData checkoutResponse = mock(CheckoutResponseData.class);
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(pending));
+                when(paymentRepo.claimCheckout(eq(2L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(1);
+                when(orderRepo.findById(1L)).thenReturn(Optional.of(OrderReceipt.builder().id(1L).build()));
+                when(orderMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(ReceiptDTO.builder().id(1L).build());
+                when(checkoutResponse.getCheckoutUrl()).thenReturn("https://pay.example/1");
+                when(checkoutResponse.getStatus()).thenReturn("PENDING");
+                when(checkoutResponse.getExpiredAt()).thenReturn(Instant.now().plusSeconds(900).getEpochSecond());
+                when(payOSService.checkout(any(ReceiptDTO.class))).thenReturn(checkoutResponse);
+
+                // Then
+                PaymentInfo result = orderService.preparePaymentLink(1L);
+
+                assertEquals("https://pay.example/1", result.getCheckoutUrl());
+
+                // Verify
+                InOrder inOrder = inOrder(transactionTemplate, paymentRepo, payOSService);
+                inOrder.verify(transactionTemplate).execute(any());
+                inOrder.verify(paymentRepo).claimCheckout(eq(2L), any(LocalDateTime.class), any(LocalDateTime.class));
+                inOrder.verify(payOSService).checkout(any(ReceiptDTO.class));
+                inOrder.verify(transactionTemplate).execute(any());
+                inOrder.verify(paymentRepo).save(pending);
+                verify(inventoryService, times(1)).extendHold(eq(1L), any(LocalDateTime.class));
+        }
+
+        @Test
+        public void whenPreparePaymentLinkClaimedElsewhere_ThenThrowsConflict() {
+
+                // Given
+                PaymentInfo pending = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.PENDING)
+                                .build();
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(pending));
+                when(paymentRepo.claimCheckout(eq(2L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(0);
+
+                // Then
+                HttpResponseException exception = assertThrows(HttpResponseException.class,
+                                () -> orderService.preparePaymentLink(1L));
+                assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+
+                // Verify
+                verify(payOSService, never()).checkout(any(ReceiptDTO.class));
+                verify(paymentRepo, never()).save(any(PaymentInfo.class));
+        }
+
+        @Test
+        public void whenPreparePaymentLinkWithPayOSFailure_ThenReleasesClaim() {
+
+                // Given
+                PaymentInfo pending = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.PENDING)
+                                .build();
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(pending));
+                when(paymentRepo.claimCheckout(eq(2L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(1);
+                when(orderRepo.findById(1L)).thenReturn(Optional.of(OrderReceipt.builder().id(1L).build()));
+                when(orderMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(ReceiptDTO.builder().id(1L).build());
+                when(payOSService.checkout(any(ReceiptDTO.class)))
+                                .thenThrow(new PaymentException("Payment gateway error!"));
+
+                // Then
+                assertThrows(PaymentException.class, () -> orderService.preparePaymentLink(1L));
+
+                // Verify
+                verify(paymentRepo, times(1)).releaseCheckout(2L);
+                verify(paymentRepo, never()).save(any(PaymentInfo.class));
+                verify(inventoryService, never()).extendHold(any(), any());
+        }
+
+        @Test
+        public void whenPreparePaymentLinkCanceledDuringCall_ThenKeepsCancellation() {
+
+                // Given
+                PaymentInfo pending = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.PENDING)
+                                .build();
+                PaymentInfo canceled = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.CANCELED)
+                                .build();
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(pending), Optional.of(canceled));
+                when(paymentRepo.claimCheckout(eq(2L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(1);
+                when(orderRepo.findById(1L)).thenReturn(Optional.of(OrderReceipt.builder().id(1L).build()));
+                when(orderMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(ReceiptDTO.builder().id(1L).build());
+                when(payOSService.checkout(any(ReceiptDTO.class))).thenReturn(mock(CheckoutResponseData.class));
+
+                // Then
+                PaymentInfo result = orderService.preparePaymentLink(1L);
+
+                assertEquals(PaymentStatus.CANCELED, result.getStatus());
+
+                // Verify
+                verify(paymentRepo, never()).save(any(PaymentInfo.class));
+                verify(inventoryService, never()).extendHold(any(), any());
+                verify(payOSService, times(1)).cancel(1L, OrderServiceImpl.LINK_CANCELED_REASON);
+        }
+
+        @Test
+        public void whenPreparePaymentLinkCanceledDuringCallAndCancelFails_ThenKeepsCancellation() {
+
+                // Given
+                PaymentInfo pending = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.PENDING)
+                                .build();
+                PaymentInfo canceled = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.CANCELED)
+                                .build();
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(pending), Optional.of(canceled));
+                when(paymentRepo.claimCheckout(eq(2L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(1);
+                when(orderRepo.findById(1L)).thenReturn(Optional.of(OrderReceipt.builder().id(1L).build()));
+                when(orderMapper.orderToDTO(any(OrderReceipt.class))).thenReturn(ReceiptDTO.builder().id(1L).build());
+                when(payOSService.checkout(any(ReceiptDTO.class))).thenReturn(mock(CheckoutResponseData.class));
+                when(payOSService.cancel(1L, OrderServiceImpl.LINK_CANCELED_REASON))
+                                .thenThrow(new PaymentException("Failed"));
+
+                // Then
+                PaymentInfo result = orderService.preparePaymentLink(1L);
+
+                assertEquals(PaymentStatus.CANCELED, result.getStatus());
+
+                // Verify
+                verify(paymentRepo, never()).save(any(PaymentInfo.class));
+                verify(inventoryService, never()).extendHold(any(), any());
+                verify(payOSService, times(1)).cancel(1L, OrderServiceImpl.LINK_CANCELED_REASON);
+        }
+
+        @Test
+        public void whenPreparePaymentLinkAlreadyCreated_ThenSkipsPayOS() {
+
+                // Given
+                PaymentInfo pending = PaymentInfo.builder()
+                                .id(2L)
+                                .paymentType(PaymentType.ONLINE_PAYMENT)
+                                .status(PaymentStatus.PENDING)
+                                .checkoutUrl("https://pay.example/1")
+                                .build();
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(pending));
+
+                // Then
+                orderService.preparePaymentLink(1L);
+
+                // Verify
+                verify(payOSService, never()).checkout(any(ReceiptDTO.class));
+                verify(paymentRepo, never()).save(any(PaymentInfo.class));
+        }
+
+        @Test
+        public void whenConfirmPayment_ThenConvertsHolds() {
+
+                // When
+                when(paymentRepo.findByOrder(1L)).thenReturn(Optional.of(paymentInfo));
+
+                // Then
+                orderService.confirmPayment(1L);
+
+                // Verify
+                verify(detailRepo, times(1)).confirmPaymentByOrderId(1L);
+                verify(inventoryService, times(1)).convert(1L);
+        }
+
+        @Test
+        public void whenExpireUnpaidOrders_ThenReleasesAndCancels() {
+
+                // Given
+                List<Long> orderIds = List.of(1L, 2L);
+
+                // When
+                when(inventoryService.findExpiredOrders(OrderServiceImpl.EXPIRE_BATCH_SIZE)).thenReturn(orderIds);
+                when(inventoryService.release(orderIds))
+                                .thenReturn(new ReleasedStock(Set.of(1L, 2L), Map.of(1L, 3)));
+
+                // Then
+                int result = orderService.expireUnpaidOrders();
+
+                assertEquals(2, result);
+
+                // Verify
+                verify(detailRepo, times(1)).cancelUnpaidByOrderIds(Set.of(1L, 2L), OrderServiceImpl.EXPIRED_REASON);
+                verify(paymentRepo, times(1)).cancelPendingByOrderIds(Set.of(1L, 2L));
+                verify(orderRepo, times(1)).clearTotals(Set.of(1L, 2L));
+                verify(statsService, times(1)).removeSold(Map.of(1L, 3));
+                verify(couponService, times(1)).releaseUsages(Set.of(1L, 2L));
+        }
+
+        @Test
+        public void whenExpireUnpaidOrders_WithOrderPaidMeanwhile_ThenKeepsItsTotalsAndCoupons() {
+
+                // Given
+                List<Long> orderIds = List.of(1L, 2L);
+
+                // When
+                when(inventoryService.findExpiredOrders(OrderServiceImpl.EXPIRE_BATCH_SIZE)).thenReturn(orderIds);
+                when(inventoryService.release(orderIds)) // Holds of order 2 were converted by confirmPayment
+                                .thenReturn(new ReleasedStock(Set.of(1L), Map.of(1L, 3)));
+
+                // Then
+                int result = orderService.expireUnpaidOrders();
+
+                assertEquals(1, result);
+
+                // Verify
+                verify(detailRepo, times(1)).cancelUnpaidByOrderIds(Set.of(1L), OrderServiceImpl.EXPIRED_REASON);
+                verify(paymentRepo, times(1)).cancelPendingByOrderIds(Set.of(1L));
+                verify(orderRepo, times(1)).clearTotals(Set.of(1L));
+                verify(statsService, times(1)).removeSold(Map.of(1L, 3));
+                verify(couponService, times(1)).releaseUsages(Set.of(1L));
+        }
+
+        @Test
+        public void whenExpireUnpaidOrders_WithAllPaidMeanwhile_ThenNothingChanges() {
+
+                // Given
+                List<Long> orderIds = List.of(1L);
+
+                // When
+                when(inventoryService.findExpiredOrders(OrderServiceImpl.EXPIRE_BATCH_SIZE)).thenReturn(orderIds);
+                when(inventoryService.release(orderIds)).thenReturn(ReleasedStock.EMPTY);
+
+                // Then
+                int result = orderService.expireUnpaidOrders();
+
+                assertEquals(0, result);
+
+                // Verify
+                verifyNoInteractions(detailRepo, paymentRepo, couponService);
+                verify(orderRepo, never()).clearTotals(anyCollection());
+        }
+
+        @Test
+        public void whenNoExpiredHolds_ThenNothingChanges() {
+
+                // When
+                when(inventoryService.findExpiredOrders(OrderServiceImpl.EXPIRE_BATCH_SIZE)).thenReturn(List.of());
+
+                // Then
+                int result = orderService.expireUnpaidOrders();
+
+                assertEquals(0, result);
+
+                // Verify
+                verify(inventoryService, never()).release(anyList());
+                verifyNoInteractions(detailRepo, paymentRepo);
+        }
+
+        @Test
+        public void whenCheckoutWithStockTakenConcurrently_ThenThrowsException() {
+
+                // Given
+                HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+
+                // When
+                when(httpRequest.getHeader("response")).thenReturn("valid-token");
+                when(httpRequest.getHeader("source")).thenReturn("web");
+                when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
+                when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
+                doThrow(new OutOfStockException(List.of(1L))).when(inventoryService).reserve(Map.of(1L, 1));
+
+                // Then
+                OutOfStockException exception = assertThrows(OutOfStockException.class,
+                                () -> orderService.checkout(request, httpRequest, account));
+                assertEquals(List.of(1L), exception.getBookIds());
+
+                // Verify
+                verify(orderRepo, never()).save(any(OrderReceipt.class));
+                verify(statsService, never()).addSold(anyMap());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -281,7 +808,16 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 .coupon("TEST")
                                 .build();
                 ICoupon projection = mock(ICoupon.class);
-                Coupon coupon = Coupon.builder().id(1L).code("TEST").build();
+                Coupon coupon = Coupon.builder().id(1L).code("TEST")
+                                .detail(CouponDetail.builder()
+                                                .type(CouponType.MIN_VALUE)
+                                                .attribute(0.0)
+                                                .maxDiscount(10.0)
+                                                .discount(BigDecimal.valueOf(0.1))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
                 HttpServletRequest httpRequest = mock(HttpServletRequest.class);
 
                 // When
@@ -291,7 +827,7 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
                 when(couponRepo.findCouponInCodes(anyList())).thenReturn(List.of(projection));
                 when(projection.getCoupon()).thenReturn(coupon);
-                when(couponRepo.hasUserUsedCoupon(anyLong(), anyLong())).thenReturn(true);
+                when(couponService.findUsedCoupons(anyLong(), anyCollection())).thenReturn(Set.of(1L));
 
                 // Then
                 HttpResponseException exception = assertThrows(HttpResponseException.class,
@@ -304,11 +840,11 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
                 verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(couponRepo, times(1)).hasUserUsedCoupon(anyLong(), anyLong());
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponService, times(1)).findUsedCoupons(anyLong(), anyCollection());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -328,7 +864,16 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 .coupon("TEST")
                                 .build();
                 ICoupon projection = mock(ICoupon.class);
-                Coupon coupon = Coupon.builder().id(1L).code("TEST").build();
+                Coupon coupon = Coupon.builder().id(1L).code("TEST")
+                                .detail(CouponDetail.builder()
+                                                .type(CouponType.MIN_VALUE)
+                                                .attribute(1000000.0)
+                                                .maxDiscount(10.0)
+                                                .discount(BigDecimal.valueOf(0.1))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
                 HttpServletRequest httpRequest = mock(HttpServletRequest.class);
 
                 // When
@@ -338,10 +883,6 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
                 when(couponRepo.findCouponInCodes(anyList())).thenReturn(List.of(projection));
                 when(projection.getCoupon()).thenReturn(coupon);
-                when(couponRepo.hasUserUsedCoupon(anyLong(), anyLong())).thenReturn(false);
-                when(couponService.applyCoupon(any(Coupon.class),
-                                any(CartStateRequest.class), any(Account.class)))
-                                .thenReturn(null);
 
                 // Then
                 HttpResponseException exception = assertThrows(HttpResponseException.class,
@@ -354,14 +895,11 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
                 verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(couponRepo, times(1)).hasUserUsedCoupon(anyLong(), anyLong());
-                verify(couponService, times(1)).applyCoupon(any(Coupon.class),
-                                any(CartStateRequest.class),
-                                any(Account.class));
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponService, times(1)).findUsedCoupons(anyLong(), anyCollection());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -375,7 +913,6 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(httpRequest.getHeader("source")).thenReturn("web");
                 when(shopRepo.findShopsInIds(anyList())).thenReturn(new ArrayList<>());
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
-                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
 
                 // Then
                 ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
@@ -387,11 +924,12 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 anyString());
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
-                verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponIndex, times(1)).findInCodes(anyList());
+                verify(couponRepo, never()).findCouponInCodes(anyList());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -405,7 +943,6 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(httpRequest.getHeader("source")).thenReturn("web");
                 when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(new ArrayList<>());
-                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
 
                 // Then
                 ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
@@ -417,11 +954,12 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 anyString());
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
-                verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponIndex, times(1)).findInCodes(anyList());
+                verify(couponRepo, never()).findCouponInCodes(anyList());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -436,7 +974,6 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(httpRequest.getHeader("source")).thenReturn("web");
                 when(shopRepo.findShopsInIds(anyList())).thenReturn(List.of(shop));
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
-                when(couponRepo.findCouponInCodes(anyList())).thenReturn(new ArrayList<>());
 
                 // Then
                 HttpResponseException exception = assertThrows(HttpResponseException.class,
@@ -448,11 +985,12 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 anyString());
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
-                verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponIndex, times(1)).findInCodes(anyList());
+                verify(couponRepo, never()).findCouponInCodes(anyList());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -479,7 +1017,16 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 .paymentMethod(PaymentType.CASH)
                                 .build();
                 ICoupon projection = mock(ICoupon.class);
-                Coupon coupon = Coupon.builder().id(1L).shop(shop).code("TEST").build();
+                Coupon coupon = Coupon.builder().id(1L).shop(shop).code("TEST")
+                                .detail(CouponDetail.builder()
+                                                .type(CouponType.MIN_VALUE)
+                                                .attribute(0.0)
+                                                .maxDiscount(10.0)
+                                                .discount(BigDecimal.valueOf(0.1))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
                 HttpServletRequest httpRequest = mock(HttpServletRequest.class);
 
                 // When
@@ -489,7 +1036,7 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
                 when(couponRepo.findCouponInCodes(anyList())).thenReturn(List.of(projection));
                 when(projection.getCoupon()).thenReturn(coupon);
-                when(couponRepo.hasUserUsedCoupon(anyLong(), anyLong())).thenReturn(true);
+                when(couponService.findUsedCoupons(anyLong(), anyCollection())).thenReturn(Set.of(1L));
 
                 // Then
                 HttpResponseException exception = assertThrows(HttpResponseException.class,
@@ -502,11 +1049,11 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
                 verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(couponRepo, times(1)).hasUserUsedCoupon(anyLong(), anyLong());
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponService, times(1)).findUsedCoupons(anyLong(), anyCollection());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -534,7 +1081,16 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 .build();
                 HttpServletRequest httpRequest = mock(HttpServletRequest.class);
                 ICoupon projection = mock(ICoupon.class);
-                Coupon coupon = Coupon.builder().id(1L).shop(shop).code("TEST").build();
+                Coupon coupon = Coupon.builder().id(1L).shop(shop).code("TEST")
+                                .detail(CouponDetail.builder()
+                                                .type(CouponType.MIN_VALUE)
+                                                .attribute(1000000.0)
+                                                .maxDiscount(10.0)
+                                                .discount(BigDecimal.valueOf(0.1))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
 
                 // When
                 when(httpRequest.getHeader("response")).thenReturn("valid-token");
@@ -543,10 +1099,6 @@ public class OrderServiceTest extends AbstractServiceTest {
                 when(bookRepo.findBooksInIds(anyList())).thenReturn(List.of(book));
                 when(couponRepo.findCouponInCodes(anyList())).thenReturn(List.of(projection));
                 when(projection.getCoupon()).thenReturn(coupon);
-                when(couponRepo.hasUserUsedCoupon(anyLong(), anyLong())).thenReturn(false);
-                when(couponService.applyCoupon(any(Coupon.class),
-                                any(CartStateRequest.class), any(Account.class)))
-                                .thenReturn(null);
 
                 // Then
                 HttpResponseException exception = assertThrows(HttpResponseException.class,
@@ -559,14 +1111,11 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(shopRepo, times(1)).findShopsInIds(anyList());
                 verify(bookRepo, times(1)).findBooksInIds(anyList());
                 verify(couponRepo, times(1)).findCouponInCodes(anyList());
-                verify(couponRepo, times(1)).hasUserUsedCoupon(anyLong(), anyLong());
-                verify(couponService, times(1)).applyCoupon(any(Coupon.class),
-                                any(CartStateRequest.class),
-                                any(Account.class));
-                verify(addressRepo, times(1)).save(any(Address.class));
+                verify(couponService, times(1)).findUsedCoupons(anyLong(), anyCollection());
+                verify(addressRepo, never()).save(any(Address.class));
                 verify(orderRepo, never()).save(any(OrderReceipt.class));
                 verify(orderMapper, never()).orderToDTO(any(OrderReceipt.class));
-                verify(eventPublisher, never()).publishEvent(any());
+                verify(outboxService, never()).enqueue(any(), any(), any());
         }
 
         @Test
@@ -587,6 +1136,44 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(detailRepo, times(1)).findDetailById(anyLong());
                 verify(detailRepo, times(1)).save(any(OrderDetail.class));
                 verify(orderRepo, times(1)).save(any(OrderReceipt.class));
+                verify(statsService, times(1)).removeSold(Map.of(1L, 1));
+                verify(couponService, never()).releaseUsage(anyLong(), anyLong());
+                verify(cacheTags, times(1)).evict(eq(List.of("receipts", "orders", "orderAnalytics", "sales")),
+                                argThat(tags -> tags.contains(CacheTag.USER.of(account.getId()))));
+        }
+
+        @Test
+        public void whenCancelOrderWithShopCoupon_ThenReleasesCouponUsage() {
+
+                // Given
+                setupSecurityContext(account);
+                OrderReceipt order = OrderReceipt.builder()
+                                .id(1L)
+                                .user(account)
+                                .total(110.0)
+                                .totalDiscount(11.0)
+                                .build();
+                OrderDetail couponDetail = OrderDetail.builder()
+                                .id(2L)
+                                .shop(shop)
+                                .order(order)
+                                .coupon(Coupon.builder().id(3L).code("SHOP").build())
+                                .status(OrderStatus.PENDING)
+                                .totalPrice(100.0)
+                                .shippingFee(10.0)
+                                .discount(10.0)
+                                .shippingDiscount(1.0)
+                                .items(List.of())
+                                .build();
+
+                // When
+                when(detailRepo.findDetailById(2L)).thenReturn(Optional.of(couponDetail));
+
+                // Then
+                orderService.cancel(2L, "Test reason", account);
+
+                // Verify
+                verify(couponService, times(1)).releaseUsage(1L, 3L);
         }
 
         @Test
@@ -875,6 +1462,7 @@ public class OrderServiceTest extends AbstractServiceTest {
                 verify(detailRepo, times(1)).findDetailById(anyLong());
                 verify(detailRepo, times(1)).save(any(OrderDetail.class));
                 verify(orderRepo, times(1)).save(any(OrderReceipt.class));
+                verify(statsService, times(1)).removeSold(Map.of(1L, 1));
         }
 
         @Test
@@ -947,7 +1535,8 @@ public class OrderServiceTest extends AbstractServiceTest {
                                 0,
                                 10,
                                 "id",
-                                "desc");
+                                "desc",
+                                CountMode.EXACT);
 
                 assertNotNull(result);
                 assertEquals(expectedDTOS.size(), result.getContent().size());
@@ -0,0 +1,104 @@
+package com.ring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ring.base.AbstractServiceTest;
+import com.ring.model.entity.OutboxEvent;
+import com.ring.model.enums.OutboxType;
+import com.ring.repository.OutboxEventRepository;
+import com.ring.service.impl.OutboxServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OutboxServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private OutboxEventRepository outboxRepo;
+
+        @Spy
+        private ObjectMapper objectMapper = new ObjectMapper();
+
+        @InjectMocks
+        private OutboxServiceImpl outboxService;
+
+        @Test
+        public void whenEnqueue_ThenSavesDueEventWithPayload() {
+
+                // Given
+                ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+
+                // Then
+                outboxService.enqueue(OutboxType.CHECKOUT_RECEIPT, 1L, Map.of("email", "test@gmail.com"));
+
+                // Verify
+                verify(outboxRepo, times(1)).save(captor.capture());
+                OutboxEvent saved = captor.getValue();
+                assertEquals(OutboxType.CHECKOUT_RECEIPT, saved.getType());
+                assertEquals(1L, saved.getAggregateId());
+                assertEquals(0, saved.getAttempts());
+                assertNotNull(saved.getNextAttemptAt());
+                assertEquals(Map.of("email", "test@gmail.com"), outboxService.readPayload(saved, Map.class));
+        }
+
+        @Test
+        public void whenClaim_ThenLeasesEvents() {
+
+                // Given
+                OutboxEvent event = OutboxEvent.builder().id(1L).attempts(0)
+                                .nextAttemptAt(LocalDateTime.now().minusMinutes(1)).build();
+
+                // When
+                when(outboxRepo.findDue(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(event));
+                when(outboxRepo.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // Then
+                List<OutboxEvent> result = outboxService.claim(50);
+
+                assertEquals(1, result.size());
+                assertTrue(result.get(0).getNextAttemptAt().isAfter(LocalDateTime.now()));
+        }
+
+        @Test
+        public void whenFail_ThenBacksOff() {
+
+                // Given
+                OutboxEvent event = OutboxEvent.builder().id(1L).attempts(2).build();
+
+                // Then
+                outboxService.fail(event, new RuntimeException("Timeout"));
+
+                assertEquals(3, event.getAttempts());
+                assertEquals("Timeout", event.getLastError());
+                assertTrue(event.getNextAttemptAt().isAfter(LocalDateTime.now()));
+
+                // Verify
+                verify(outboxRepo, times(1)).save(event);
+        }
+
+        @Test
+        public void whenFailTooManyTimes_ThenGivesUp() {
+
+                // Given
+                OutboxEvent event = OutboxEvent.builder().id(1L).attempts(7).build();
+
+                // Then
+                outboxService.fail(event, new RuntimeException("Timeout"));
+
+                assertEquals(8, event.getAttempts());
+                assertNull(event.getNextAttemptAt());
+
+                // Verify
+                verify(outboxRepo, times(1)).save(event);
+        }
+}
@@ -0,0 +1,123 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.config.FilterKeyGenerator;
+import com.ring.dto.response.PagingResponse;
+import com.ring.model.enums.CountMode;
+import com.ring.service.impl.PageCountServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PageCountServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private CacheManager cacheManager;
+
+        @Mock
+        private FilterKeyGenerator keyGenerator;
+
+        @Mock
+        private Cache cache;
+
+        @Mock
+        private Supplier<Long> counter;
+
+        @InjectMocks
+        private PageCountServiceImpl countService;
+
+        private final List<String> content = List.of("a", "b");
+
+        @Test
+        public void whenLastSlice_ThenReturnsExactTotalWithoutCounting() {
+
+                // Given
+                Slice<String> slice = new SliceImpl<>(content, PageRequest.of(1, 2), false);
+
+                // Then
+                PagingResponse<String> result = countService.getPagingResponse(content, slice, CountMode.ESTIMATE,
+                                counter, "test", "keyword");
+
+                assertEquals(4L, result.getTotalElements());
+                assertEquals(2, result.getTotalPages());
+                assertFalse(result.isApproximate());
+
+                // Verify
+                verifyNoInteractions(counter, cacheManager);
+        }
+
+        @Test
+        public void whenCountNone_ThenReturnsLowerBound() {
+
+                // Given
+                Slice<String> slice = new SliceImpl<>(content, PageRequest.of(0, 2), true);
+
+                // Then
+                PagingResponse<String> result = countService.getPagingResponse(content, slice, CountMode.NONE,
+                                counter, "test", "keyword");
+
+                assertEquals(3L, result.getTotalElements());
+                assertEquals(2, result.getTotalPages());
+                assertTrue(result.isApproximate());
+
+                // Verify
+                verifyNoInteractions(counter);
+        }
+
+        @Test
+        public void whenEstimateCached_ThenReusesCachedCount() {
+
+                // Given
+                Slice<String> slice = new SliceImpl<>(content, PageRequest.of(0, 2), true);
+
+                // When
+                when(cacheManager.getCache("pageCounts")).thenReturn(cache);
+                when(keyGenerator.key("test", "keyword")).thenReturn("test|keyword");
+                when(cache.get("test|keyword", Long.class)).thenReturn(100L);
+
+                // Then
+                PagingResponse<String> result = countService.getPagingResponse(content, slice, CountMode.ESTIMATE,
+                                counter, "test", "keyword");
+
+                assertEquals(100L, result.getTotalElements());
+                assertEquals(50, result.getTotalPages());
+                assertTrue(result.isApproximate());
+
+                // Verify
+                verifyNoInteractions(counter);
+        }
+
+        @Test
+        public void whenEstimateMissing_ThenCountsAndCaches() {
+
+                // Given
+                Slice<String> slice = new SliceImpl<>(content, PageRequest.of(0, 2), true);
+
+                // When
+                when(cacheManager.getCache("pageCounts")).thenReturn(cache);
+                when(keyGenerator.key("test", "keyword")).thenReturn("test|keyword");
+                when(cache.get("test|keyword", Long.class)).thenReturn(null);
+                when(counter.get()).thenReturn(10L);
+
+                // Then
+                PagingResponse<String> result = countService.getPagingResponse(content, slice, CountMode.ESTIMATE,
+                                counter, "test", "keyword");
+
+                assertEquals(10L, result.getTotalElements());
+
+                // Verify
+                verify(cache, times(1)).put("test|keyword", 10L);
+        }
+}
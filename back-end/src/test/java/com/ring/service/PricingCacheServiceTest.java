@@ -0,0 +1,184 @@
+package com.ring.service;
+
+import com.ring.base.AbstractServiceTest;
+import com.ring.dto.request.CalculateRequest;
+import com.ring.dto.request.CartDetailRequest;
+import com.ring.dto.request.CartItemRequest;
+import com.ring.dto.response.coupons.CouponDTO;
+import com.ring.dto.response.orders.CalculateDTO;
+import com.ring.model.enums.ShippingType;
+import com.ring.service.impl.PricingCacheServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PricingCacheServiceTest extends AbstractServiceTest {
+
+        @Mock
+        private RedisTemplate<String, Object> redisTemplate;
+
+        @Mock
+        private StringRedisTemplate stringRedisTemplate;
+
+        @Mock
+        private ValueOperations<String, Object> valueOperations;
+
+        @Mock
+        private HashOperations<String, Object, Object> hashOperations;
+
+        private PricingCacheServiceImpl pricingCache;
+
+        @BeforeEach
+        public void setUpCache() {
+                pricingCache = new PricingCacheServiceImpl(redisTemplate, stringRedisTemplate);
+        }
+
+        private CartDetailRequest detail(Long shopId, Long... bookIds) {
+                return CartDetailRequest.builder()
+                                .shopId(shopId)
+                                .shippingType(ShippingType.STANDARD)
+                                .items(Arrays.stream(bookIds)
+                                                .map(id -> CartItemRequest.builder().id(id).quantity((short) 1).build())
+                                                .toList())
+                                .build();
+        }
+
+        @Test
+        public void whenKeySameCartInOtherOrder_ThenSameKey() {
+
+                // Given
+                CalculateRequest request = CalculateRequest.builder()
+                                .cart(List.of(detail(1L, 1L, 2L), detail(2L, 3L)))
+                                .build();
+                CalculateRequest reordered = CalculateRequest.builder()
+                                .cart(List.of(detail(2L, 3L), detail(1L, 2L, 1L)))
+                                .build();
+
+                // Then
+                assertEquals(pricingCache.key(1L, request), pricingCache.key(1L, reordered));
+                assertNotEquals(pricingCache.key(1L, request), pricingCache.key(2L, request));
+        }
+
+        @Test
+        public void whenGetWithCurrentVersions_ThenReturnsValue() {
+
+                // Given
+                CalculateDTO value = CalculateDTO.builder().total(100.0).build();
+                PricingCacheServiceImpl.Entry entry = new PricingCacheServiceImpl.Entry(Map.of("b:1", 2L, "s:1", 0L),
+                                value);
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.get("pricing::key")).thenReturn(entry);
+                when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+                when(hashOperations.multiGet(eq("pricing::versions"), anyCollection()))
+                                .thenAnswer(invocation -> invocation.<List<Object>>getArgument(1).stream()
+                                                .map(field -> field.equals("b:1") ? "2" : null)
+                                                .toList());
+
+                // Then
+                assertEquals(value, pricingCache.get("pricing::key"));
+        }
+
+        @Test
+        public void whenGetWithBumpedVersion_ThenMisses() {
+
+                // Given
+                PricingCacheServiceImpl.Entry entry = new PricingCacheServiceImpl.Entry(Map.of("b:1", 2L),
+                                CalculateDTO.builder().total(100.0).build());
+
+                // When
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                when(valueOperations.get("pricing::key")).thenReturn(entry);
+                when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+                when(hashOperations.multiGet(eq("pricing::versions"), anyCollection())).thenReturn(List.of("3"));
+
+                // Then
+                assertNull(pricingCache.get("pricing::key"));
+        }
+
+        @Test
+        public void whenRedisUnavailable_ThenSkipsPut() {
+
+                // When
+                when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+                when(hashOperations.multiGet(anyString(), anyCollection()))
+                                .thenThrow(new RedisConnectionFailureException("down"));
+
+                // Then
+                Map<String, Long> versions = pricingCache.versions(List.of(1L), List.of(1L));
+                pricingCache.put("pricing::key", CalculateDTO.builder().build(), versions);
+
+                assertNull(versions);
+
+                // Verify
+                verify(redisTemplate, never()).opsForValue();
+        }
+
+        @Test
+        public void whenPut_ThenStoresCouponVersionsWithoutGlobalCouponStamp() {
+
+                // Given
+                CouponDTO coupon = new CouponDTO(5L, "CODE", true, false, null, null, null, null, null, null, null,
+                                null);
+                CalculateDTO value = CalculateDTO.builder().total(100.0).coupon(coupon).build();
+                Map<String, Long> versions = Map.of("all", 0L, "b:1", 2L, "coupons", 7L);
+
+                // When
+                when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+                when(hashOperations.multiGet("pricing::versions", List.of("c:5", "coupons")))
+                                .thenReturn(List.of("3", "7"));
+                when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+                // Then
+                pricingCache.put("pricing::key", value, versions);
+
+                // Verify
+                verify(valueOperations, times(1)).set(eq("pricing::key"),
+                                eq(new PricingCacheServiceImpl.Entry(Map.of("all", 0L, "b:1", 2L, "c:5", 3L), value)),
+                                any(Duration.class));
+        }
+
+        @Test
+        public void whenPutWithCouponBumpedWhilePricing_ThenSkipsPut() {
+
+                // Given
+                CalculateDTO value = CalculateDTO.builder().total(100.0).build();
+                Map<String, Long> versions = Map.of("all", 0L, "b:1", 2L, "coupons", 7L);
+
+                // When
+                when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+                when(hashOperations.multiGet("pricing::versions", List.of("coupons"))).thenReturn(List.of("8"));
+
+                // Then
+                pricingCache.put("pricing::key", value, versions);
+
+                // Verify
+                verify(redisTemplate, never()).opsForValue();
+        }
+
+        @Test
+        public void whenBumpOutsideTransaction_ThenIncrementsInOnePipeline() {
+
+                // Then
+                pricingCache.bumpBooks(List.of(1L, 2L));
+
+                // Verify
+                verify(stringRedisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        }
+}
@@ -0,0 +1,181 @@
+package com.ring.service;
+
+import com.ring.dto.projection.coupons.ICoupon;
+import com.ring.dto.projection.images.IImage;
+import com.ring.dto.request.CartDetailRequest;
+import com.ring.dto.request.CartItemRequest;
+import com.ring.exception.HttpResponseException;
+import com.ring.exception.ResourceNotFoundException;
+import com.ring.model.entity.*;
+import com.ring.model.enums.CouponType;
+import com.ring.model.enums.ShippingType;
+import com.ring.service.pricing.PricedCart;
+import com.ring.service.pricing.PricedShop;
+import com.ring.service.pricing.PricingEngine;
+import com.ring.service.pricing.PricingSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingEngineTest {
+
+        private final PricingEngine engine = new PricingEngine();
+
+        private final Shop shop = Shop.builder().id(1L).build();
+        private final Book book = Book.builder()
+                        .id(1L)
+                        .price(100000.0)
+                        .discount(BigDecimal.valueOf(0.1))
+                        .amount((short) 10)
+                        .shop(shop)
+                        .build();
+
+        @Test
+        public void whenPriceWithUnknownShopCoupon_ThenRecommendsBestCandidate() {
+
+                // Given
+                ICoupon low = coupon(1L, shop, CouponType.MIN_VALUE, 0.0, 0.1);
+                ICoupon better = coupon(2L, shop, CouponType.MIN_VALUE, 0.0, 0.2);
+                ICoupon tooHigh = coupon(3L, shop, CouponType.MIN_VALUE, 1000000.0, 0.5);
+                PricingSnapshot snapshot = new PricingSnapshot(Map.of(1L, shop), Map.of(1L, book), Map.of(),
+                                Map.of(1L, List.of(low, tooHigh, better)), Set.of(), LocalDate.now());
+
+                // Then
+                PricedCart result = engine.price(List.of(line(1L, "UNKNOWN", 1L, 2)), null, null, snapshot, false);
+
+                PricedShop pricedShop = result.shops().get(0);
+                assertEquals(better, pricedShop.coupon());
+                assertTrue(pricedShop.couponUsable());
+                assertEquals(200000.0, pricedShop.totalPrice());
+                assertEquals(20000.0, pricedShop.dealDiscount());
+                assertEquals(10000.0, pricedShop.couponDiscount()); // Capped by max discount
+                assertEquals(30000.0, pricedShop.discount());
+                assertEquals(List.of(2L), result.appliedCoupons());
+        }
+
+        @Test
+        public void whenPriceWithPlatformCoupon_ThenSplitsDiscountAcrossShops() {
+
+                // Given
+                Shop other = Shop.builder().id(2L).build();
+                Book otherBook = Book.builder().id(2L).price(100000.0).discount(BigDecimal.ZERO)
+                                .amount((short) 10).shop(other).build();
+                ICoupon platform = coupon(1L, null, CouponType.MIN_VALUE, 0.0, 0.1);
+                PricingSnapshot snapshot = new PricingSnapshot(Map.of(1L, shop, 2L, other),
+                                Map.of(1L, book, 2L, otherBook), Map.of("PLATFORM", platform), Map.of(), Set.of(),
+                                LocalDate.now());
+
+                // Then
+                PricedCart result = engine.price(List.of(line(1L, null, 1L, 1), line(2L, null, 2L, 1)),
+                                "PLATFORM", null, snapshot, false);
+
+                assertTrue(result.couponUsable());
+                assertEquals(10000.0, result.couponDiscount());
+                assertEquals(10000.0 + 10000.0 * 90 / 190, result.shops().get(0).discount(), 0.001);
+                assertEquals(10000.0 * 100 / 190, result.shops().get(1).discount(), 0.001);
+                assertNotEquals(Boolean.TRUE, platform.getCoupon().getIsUsable()); // Entities are left as loaded
+        }
+
+        @Test
+        public void whenPriceManyShopsInParallel_ThenMatchesSequential() {
+
+                // Given
+                Map<Long, Shop> shops = new HashMap<>();
+                Map<Long, Book> books = new HashMap<>();
+                List<CartDetailRequest> cart = new ArrayList<>();
+                for (long id = 1; id <= 20; id++) {
+                        Shop shop = Shop.builder().id(id).build();
+                        shops.put(id, shop);
+                        books.put(id, Book.builder().id(id).price(1000.0 * id).discount(BigDecimal.valueOf(0.05))
+                                        .amount((short) 10).shop(shop).build());
+                        cart.add(line(id, null, id, 3));
+                }
+                PricingSnapshot snapshot = new PricingSnapshot(shops, books, Map.of(), Map.of(), Set.of(),
+                                LocalDate.now());
+                PricingEngine parallel = new PricingEngine(ForkJoinPool.commonPool(), 2);
+
+                // Then
+                PricedCart expected = new PricingEngine(Runnable::run, Integer.MAX_VALUE)
+                                .price(cart, null, null, snapshot, true);
+                PricedCart result = parallel.price(cart, null, null, snapshot, true);
+
+                assertEquals(expected, result);
+        }
+
+        @Test
+        public void whenCheckoutFailsInParallel_ThenThrowsFirstLineError() {
+
+                // Given
+                Shop other = Shop.builder().id(2L).build();
+                PricingSnapshot snapshot = new PricingSnapshot(Map.of(1L, shop, 2L, other), Map.of(1L, book),
+                                Map.of(), Map.of(), Set.of(), LocalDate.now());
+                PricingEngine parallel = new PricingEngine(ForkJoinPool.commonPool(), 1);
+
+                // Then
+                ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                                () -> parallel.price(List.of(line(3L, null, 1L, 1), line(2L, null, 9L, 1)),
+                                                null, null, snapshot, true));
+                assertEquals("Shop not found!", exception.getError());
+        }
+
+        @Test
+        public void whenCheckoutWithUsedCoupon_ThenThrowsException() {
+
+                // Given
+                ICoupon used = coupon(1L, shop, CouponType.MIN_VALUE, 0.0, 0.1);
+                PricingSnapshot snapshot = new PricingSnapshot(Map.of(1L, shop), Map.of(1L, book),
+                                Map.of("USED", used), Map.of(), Set.of(1L), LocalDate.now());
+
+                // Then
+                PricedCart preview = engine.price(List.of(line(1L, "USED", 1L, 1)), null, null, snapshot, false);
+                assertTrue(preview.shops().get(0).couponUsed());
+                assertFalse(preview.shops().get(0).couponUsable());
+
+                HttpResponseException exception = assertThrows(HttpResponseException.class,
+                                () -> engine.price(List.of(line(1L, "USED", 1L, 1)), null, null, snapshot, true));
+                assertEquals("Coupon expired!", exception.getError());
+        }
+
+        private CartDetailRequest line(Long shopId, String coupon, Long bookId, int quantity) {
+                return CartDetailRequest.builder()
+                                .shopId(shopId)
+                                .coupon(coupon)
+                                .shippingType(ShippingType.STANDARD)
+                                .items(List.of(CartItemRequest.builder().id(bookId).quantity((short) quantity).build()))
+                                .build();
+        }
+
+        private ICoupon coupon(Long id, Shop shop, CouponType type, double attribute, double discount) {
+                Coupon coupon = Coupon.builder()
+                                .id(id)
+                                .code("C" + id)
+                                .shop(shop)
+                                .detail(CouponDetail.builder()
+                                                .type(type)
+                                                .attribute(attribute)
+                                                .maxDiscount(10000.0)
+                                                .discount(BigDecimal.valueOf(discount))
+                                                .usage((short) 10)
+                                                .expDate(LocalDate.now().plusDays(1))
+                                                .build())
+                                .build();
+                return new ICoupon() {
+                        public Coupon getCoupon() {
+                                return coupon;
+                        }
+
+                        public String getShopName() {
+                                return null;
+                        }
+
+                        public IImage getShopImage() {
+                                return null;
+                        }
+                };
+        }
+}
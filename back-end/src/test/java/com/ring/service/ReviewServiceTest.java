@@ -1,6 +1,7 @@
 package com.ring.service;
 
 import com.ring.base.AbstractServiceTest;
+import com.ring.config.cache.CacheTag;
 import com.ring.dto.projection.reviews.IReview;
 import com.ring.dto.request.ReviewRequest;
 import com.ring.dto.response.PagingResponse;
@@ -48,6 +49,12 @@ public class ReviewServiceTest extends AbstractServiceTest {
         @Mock
         private ReviewMapper reviewMapper;
 
+        @Mock
+        private BookStatsService statsService;
+
+        @Mock
+        private CacheTagService cacheTags;
+
         @InjectMocks
         private ReviewServiceImpl reviewService;
 
@@ -100,6 +107,9 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 verify(orderRepo, times(1)).hasUserBoughtBook(anyLong(), anyLong());
                 verify(reviewRepo, times(1)).findUserBookReview(anyLong(), anyLong());
                 verify(reviewRepo, times(1)).save(any(Review.class));
+                verify(statsService, times(1)).addRating(1L, 5);
+                verify(cacheTags, times(1)).evict(List.of("reviews"),
+                                List.of(CacheTag.BOOK.of(1L), CacheTag.USER.of(account.getId())));
         }
 
         @Test
@@ -118,6 +128,7 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 verify(orderRepo, never()).hasUserBoughtBook(anyLong(), anyLong());
                 verify(reviewRepo, never()).findUserBookReview(anyLong(), anyLong());
                 verify(reviewRepo, never()).save(any(Review.class));
+                verify(statsService, never()).addRating(anyLong(), anyInt());
         }
 
         @Test
@@ -138,6 +149,7 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 verify(orderRepo, times(1)).hasUserBoughtBook(anyLong(), anyLong());
                 verify(reviewRepo, never()).findUserBookReview(anyLong(), anyLong());
                 verify(reviewRepo, never()).save(any(Review.class));
+                verify(statsService, never()).addRating(anyLong(), anyInt());
         }
 
         @Test
@@ -356,6 +368,7 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 verify(reviewRepo, times(1)).findById(anyLong());
                 verify(reviewRepo, times(1)).save(any(Review.class));
                 verify(reviewMapper, times(1)).reviewToDTO(any(Review.class));
+                verify(statsService, times(1)).changeRating(1L, 5, 5);
         }
 
         @Test
@@ -403,13 +416,16 @@ public class ReviewServiceTest extends AbstractServiceTest {
         public void whenDeleteReview_ThenSuccess() {
 
                 // When
+                when(reviewRepo.findBookIdsInIds(anyList())).thenReturn(List.of(1L));
                 doNothing().when(reviewRepo).deleteById(anyLong());
 
                 // Then
                 reviewService.deleteReview(1L);
 
                 // Verify
+                verify(reviewRepo, times(1)).findBookIdsInIds(List.of(1L));
                 verify(reviewRepo, times(1)).deleteById(anyLong());
+                verify(statsService, times(1)).rebuildStats(List.of(1L));
         }
 
         @Test
@@ -419,13 +435,16 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 List<Long> ids = List.of(1L, 2L);
 
                 // When
+                when(reviewRepo.findBookIdsInIds(anyList())).thenReturn(List.of(1L));
                 doNothing().when(reviewRepo).deleteAllById(anyList());
 
                 // Then
                 reviewService.deleteReviews(ids);
 
                 // Verify
+                verify(reviewRepo, times(1)).findBookIdsInIds(ids);
                 verify(reviewRepo, times(1)).deleteAllById(ids);
+                verify(statsService, times(1)).rebuildStats(List.of(1L));
         }
 
         @Test
@@ -438,6 +457,7 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 // When
                 when(reviewRepo.findInverseIds(anyLong(), anyLong(), anyInt(), anyString(), anyList()))
                                 .thenReturn(inverseIds);
+                when(reviewRepo.findBookIdsInIds(anyList())).thenReturn(List.of(1L));
                 doNothing().when(reviewRepo).deleteAllById(inverseIds);
 
                 // Then
@@ -445,7 +465,9 @@ public class ReviewServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(reviewRepo, times(1)).findInverseIds(anyLong(), anyLong(), anyInt(), anyString(), anyList());
+                verify(reviewRepo, times(1)).findBookIdsInIds(inverseIds);
                 verify(reviewRepo, times(1)).deleteAllById(inverseIds);
+                verify(statsService, times(1)).rebuildStats(List.of(1L));
         }
 
         @Test
@@ -459,6 +481,7 @@ public class ReviewServiceTest extends AbstractServiceTest {
 
                 // Verify
                 verify(reviewRepo, times(1)).deleteAll();
+                verify(statsService, times(1)).rebuildAllStats();
         }
 
         @Test
@@ -471,9 +494,12 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 // Then
                 reviewService.hideReview(1L);
 
+                assertTrue(review.isHidden());
+
                 // Verify
                 verify(reviewRepo, times(1)).findById(anyLong());
                 verify(reviewRepo, times(1)).save(any(Review.class));
+                verify(statsService, times(1)).removeRating(1L, 5);
         }
 
         @Test
@@ -495,6 +521,9 @@ public class ReviewServiceTest extends AbstractServiceTest {
         @Test
         public void whenUnhideReview_ThenSuccess() {
 
+                // Given
+                review.setHidden(true);
+
                 // When
                 when(reviewRepo.findById(anyLong())).thenReturn(Optional.of(review));
                 when(reviewRepo.save(any(Review.class))).thenReturn(review);
@@ -502,9 +531,12 @@ public class ReviewServiceTest extends AbstractServiceTest {
                 // Then
                 reviewService.unhideReview(1L);
 
+                assertFalse(review.isHidden());
+
                 // Verify
                 verify(reviewRepo, times(1)).findById(anyLong());
                 verify(reviewRepo, times(1)).save(any(Review.class));
+                verify(statsService, times(1)).addRating(1L, 5);
         }
 
         @Test
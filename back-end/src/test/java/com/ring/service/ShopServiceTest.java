@@ -1,6 +1,7 @@
 package com.ring.service;
 
 import com.ring.base.AbstractServiceTest;
+import com.ring.config.cache.CacheTag;
 import com.ring.dto.projection.dashboard.IStat;
 import com.ring.dto.projection.shops.*;
 import com.ring.dto.request.AddressRequest;
@@ -13,6 +14,7 @@ import com.ring.exception.ResourceNotFoundException;
 import com.ring.mapper.DashboardMapper;
 import com.ring.mapper.ShopMapper;
 import com.ring.model.entity.*;
+import com.ring.model.enums.CountMode;
 import com.ring.model.enums.UserRole;
 import com.ring.repository.AccountRepository;
 import com.ring.repository.AddressRepository;
@@ -51,12 +53,24 @@ public class ShopServiceTest extends AbstractServiceTest {
     @Mock
     private ImageService imageService;
 
+    @Mock
+    private BookSearchService searchService;
+
+    @Mock
+    private PageCountService countService;
+
     @Mock
     private ShopMapper shopMapper;
 
     @Mock
     private DashboardMapper dashMapper;
 
+    @Mock
+    private PricingCacheService pricingCache;
+
+    @Mock
+    private CacheTagService cacheTags;
+
     @InjectMocks
     private ShopServiceImpl shopService;
 
@@ -174,7 +188,8 @@ public class ShopServiceTest extends AbstractServiceTest {
                 "desc",
                 "",
                 null,
-                account);
+                account,
+                CountMode.EXACT);
 
         assertNotNull(result);
         assertEquals(expectedDTOS.getPage(), result.getPage());
@@ -361,6 +376,7 @@ public class ShopServiceTest extends AbstractServiceTest {
         // Verify
         verify(shopRepo, times(1)).findById(anyLong());
         verify(shopRepo, times(1)).save(any(Shop.class));
+        verify(cacheTags, times(1)).evict(List.of("shopInfo", "shopDetail", "shop"), List.of(CacheTag.SHOP.of(1L)));
     }
 
     @Test
@@ -451,6 +467,34 @@ public class ShopServiceTest extends AbstractServiceTest {
         verify(addressRepo, times(1)).save(any(Address.class));
         verify(imageService, times(1)).upload(any(MultipartFile.class), eq(FileUploadUtil.SHOP_FOLDER));
         verify(shopRepo, times(1)).save(any(Shop.class));
+        verify(searchService, never()).reindexShop(anyLong());
+    }
+
+    @Test
+    public void whenRenameShop_ThenReindexesBooks() {
+
+        // Given
+        setupSecurityContext(account);
+        ShopRequest renameRequest = ShopRequest.builder()
+                .name("Renamed Shop")
+                .description("Test Description")
+                .addressRequest(request.getAddressRequest())
+                .build();
+
+        // When
+        when(shopRepo.findById(anyLong())).thenReturn(Optional.of(shop));
+        when(addressRepo.save(any(Address.class))).thenReturn(address);
+        when(shopRepo.save(any(Shop.class))).thenReturn(shop);
+
+        // Then
+        Shop result = shopService.updateShop(1L, renameRequest, null, account);
+
+        assertNotNull(result);
+        assertEquals("Renamed Shop", result.getName());
+
+        // Verify
+        verify(shopRepo, times(1)).save(any(Shop.class));
+        verify(searchService, times(1)).reindexShop(1L);
     }
 
     @Test